@@ -0,0 +1,37 @@
+package com.example.imexport.config;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.RejectedExecutionHandler;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 计数的拒绝策略
+ * 线程池与等待队列均已满时拒绝提交并计数，由调用方感知（不静默丢弃任务）
+ */
+public class CountingRejectedExecutionHandler implements RejectedExecutionHandler {
+
+    private static final Logger logger = LoggerFactory.getLogger(CountingRejectedExecutionHandler.class);
+
+    private final String executorName;
+    private final AtomicLong rejectedCount = new AtomicLong();
+
+    public CountingRejectedExecutionHandler(String executorName) {
+        this.executorName = executorName;
+    }
+
+    @Override
+    public void rejectedExecution(Runnable task, ThreadPoolExecutor executor) {
+        long count = rejectedCount.incrementAndGet();
+        logger.warn("任务线程池已满，拒绝提交: executor={}, active={}, queued={}, rejectedTotal={}",
+            executorName, executor.getActiveCount(), executor.getQueue().size(), count);
+        throw new RejectedExecutionException("任务线程池已满: " + executorName);
+    }
+
+    public long getRejectedCount() {
+        return rejectedCount.get();
+    }
+}
@@ -0,0 +1,635 @@
+package com.example.imexport.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+import org.springframework.util.unit.DataSize;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * 导入导出工具配置项（前缀 imexport）
+ */
+@Data
+@Component
+@ConfigurationProperties(prefix = "imexport")
+public class ImExportProperties {
+
+    /**
+     * 导出配置
+     */
+    private Export export = new Export();
+
+    /**
+     * 存储配置
+     */
+    private Storage storage = new Storage();
+
+    /**
+     * 模板配置
+     */
+    private Template template = new Template();
+
+    /**
+     * 启动预热配置
+     */
+    private Warmup warmup = new Warmup();
+
+    /**
+     * 任务执行器配置
+     */
+    private Executor executor = new Executor();
+
+    /**
+     * 任务队列配置
+     */
+    private Queue queue = new Queue();
+
+    /**
+     * 卡死任务巡检配置
+     */
+    private Watchdog watchdog = new Watchdog();
+
+    /**
+     * 任务调度配置
+     */
+    private Scheduler scheduler = new Scheduler();
+
+    @Data
+    public static class Export {
+
+        /**
+         * 流式导出每批拉取行数
+         */
+        private int fetchSize = 1000;
+
+        /**
+         * Excel 单个 Sheet 数据行上限，超出后自动切换到新 Sheet（xlsx 上限 1,048,575 数据行）
+         */
+        private int excelSheetRowLimit = 1000000;
+
+        /**
+         * 分区并行导出配置
+         */
+        private Partition partition = new Partition();
+
+        /**
+         * 导出结果缓存配置
+         */
+        private Cache cache = new Cache();
+
+        /**
+         * 打包导出配置
+         */
+        private Bundle bundle = new Bundle();
+    }
+
+    @Data
+    public static class Partition {
+
+        /**
+         * 分区导出线程池大小（所有业务类型共享）
+         */
+        private int poolSize = 8;
+
+        /**
+         * 各业务类型的分区并发上限（业务类型 -> 并发数），未配置时取 provider 声明值
+         */
+        private Map<String, Integer> maxParallelism = new HashMap<>();
+    }
+
+    @Data
+    public static class Bundle {
+
+        /**
+         * 打包导出数据集线程池大小（所有打包任务共享）
+         */
+        private int poolSize = 4;
+
+        /**
+         * 单个打包任务同时导出的数据集数上限（含直接写入压缩包的数据集），为 1 时按顺序逐个导出
+         */
+        private int maxParallelEntries = 3;
+    }
+
+    @Data
+    public static class Cache {
+
+        /**
+         * 是否启用导出结果缓存
+         */
+        private boolean enabled = true;
+
+        /**
+         * 默认缓存有效期，为 0 时不缓存
+         */
+        private Duration defaultTtl = Duration.ofMinutes(10);
+
+        /**
+         * 各业务类型的缓存有效期（业务类型 -> 有效期），为 0 时该业务不缓存
+         */
+        private Map<String, Duration> ttl = new HashMap<>();
+    }
+
+    @Data
+    public static class Storage {
+
+        /**
+         * 存储后端：OSS（默认）或 LOCAL（本地 / NFS 目录）
+         */
+        private StorageBackend backend = StorageBackend.OSS;
+
+        /**
+         * 本地存储配置（backend 为 LOCAL 时生效）
+         */
+        private Local local = new Local();
+
+        /**
+         * 流式上传配置
+         */
+        private Upload upload = new Upload();
+
+        /**
+         * 大文件分段并行下载配置
+         */
+        private Download download = new Download();
+
+        /**
+         * 导入文件预取配置
+         */
+        private Prefetch prefetch = new Prefetch();
+
+        /**
+         * 下载缓存配置
+         */
+        private DownloadCache downloadCache = new DownloadCache();
+
+        /**
+         * 临时访问链接缓存配置
+         */
+        private PresignedUrlCache presignedUrlCache = new PresignedUrlCache();
+
+        /**
+         * 上传内容去重配置
+         */
+        private Dedup dedup = new Dedup();
+    }
+
+    @Data
+    public static class Upload {
+
+        /**
+         * 分片大小
+         */
+        private DataSize partSize = DataSize.ofMegabytes(8);
+
+        /**
+         * 单个上传会话同时在途的最大分片数
+         */
+        private int maxConcurrentParts = 4;
+
+        /**
+         * 分片上传线程数（所有上传会话共享）
+         */
+        private int threads = 8;
+    }
+
+    /**
+     * 文件存储后端
+     */
+    public enum StorageBackend {
+        /**
+         * 对接 OSS（DfsServiceStorageClient）
+         */
+        OSS,
+        /**
+         * 本地或 NFS 目录
+         */
+        LOCAL
+    }
+
+    @Data
+    public static class Local {
+
+        /**
+         * 存储根目录，未配置时使用系统临时目录下的 imexport-storage
+         */
+        private String rootDir;
+
+        /**
+         * 临时访问链接的基础地址，由业务提供的文件下载接口校验签名后返回文件
+         */
+        private String publicBaseUrl = "http://localhost:8080/imexport/files";
+
+        /**
+         * 临时访问链接签名密钥，未配置时每次启动随机生成（重启或多节点部署时已签发的链接失效）
+         */
+        private String signingSecret;
+    }
+
+    @Data
+    public static class Download {
+
+        /**
+         * 不小于该大小且存储支持范围读取的对象分段并行下载，更小的对象按单个流下载
+         */
+        private DataSize rangeThreshold = DataSize.ofMegabytes(64);
+
+        /**
+         * 分段大小
+         */
+        private DataSize partSize = DataSize.ofMegabytes(16);
+
+        /**
+         * 单个下载同时在途的最大分段数
+         */
+        private int maxConcurrentParts = 4;
+
+        /**
+         * 单个分段失败后的重试次数
+         */
+        private int partRetries = 2;
+
+        /**
+         * 分段下载线程数（所有下载共享）
+         */
+        private int threads = 8;
+    }
+
+    @Data
+    public static class Dedup {
+
+        /**
+         * 是否按内容摘要去重上传（相同内容复用已有对象）
+         */
+        private boolean enabled = false;
+
+        /**
+         * 去重索引文件，未配置时使用系统临时目录下的 imexport-dedup-index.txt
+         */
+        private String indexFile;
+
+        /**
+         * 索引最多保留的条目数，超出时淘汰最久未使用的条目
+         */
+        private int maxEntries = 10000;
+    }
+
+    @Data
+    public static class PresignedUrlCache {
+
+        /**
+         * 是否缓存已签发的临时访问链接
+         */
+        private boolean enabled = true;
+
+        /**
+         * 缓存的链接剩余有效期不大于该时长时重新签名
+         */
+        private Duration safetyMargin = Duration.ofMinutes(5);
+
+        /**
+         * 最多缓存的链接数
+         */
+        private int maxEntries = 10000;
+    }
+
+    @Data
+    public static class DownloadCache {
+
+        /**
+         * 是否把下载的对象缓存到本地磁盘
+         */
+        private boolean enabled = true;
+
+        /**
+         * 缓存目录，未配置时使用系统临时目录下的 imexport-download-cache
+         */
+        private String dir;
+
+        /**
+         * 缓存总大小上限，超出时淘汰最久未使用的对象
+         */
+        private DataSize maxSize = DataSize.ofGigabytes(2);
+
+        /**
+         * 单个对象大小上限，超过的对象不缓存
+         */
+        private DataSize maxEntrySize = DataSize.ofMegabytes(256);
+
+        /**
+         * 存储不支持元数据（无法校验 ETag / 大小）时缓存的有效期
+         */
+        private Duration ttl = Duration.ofMinutes(10);
+    }
+
+    @Data
+    public static class Prefetch {
+
+        /**
+         * 是否在导入任务排队期间预先下载文件到本地暂存目录
+         */
+        private boolean enabled = true;
+
+        /**
+         * 本地暂存目录，未配置时使用系统临时目录下的 imexport-prefetch
+         */
+        private String stagingDir;
+
+        /**
+         * 暂存文件总大小上限（含下载中的文件）
+         */
+        private DataSize maxTotalSize = DataSize.ofGigabytes(1);
+
+        /**
+         * 预取下载线程数
+         */
+        private int threads = 2;
+
+        /**
+         * 等待下载的预取请求上限，超出后不再预取
+         */
+        private int maxQueued = 100;
+
+        /**
+         * 暂存文件最长保留时长，超过后在空间不足时被淘汰（如任务排队期间被取消）
+         */
+        private Duration maxStagedAge = Duration.ofMinutes(30);
+    }
+
+    @Data
+    public static class Template {
+
+        /**
+         * 模板下载链接有效期
+         */
+        private Duration urlExpiration = Duration.ofHours(1);
+    }
+
+    @Data
+    public static class Warmup {
+
+        /**
+         * 是否在启动阶段预热处理器、数据提供者与模板
+         */
+        private boolean enabled = true;
+
+        /**
+         * 每个业务类型用于预热解析/序列化路径的合成数据行数
+         */
+        private int syntheticRows = 1000;
+    }
+
+    @Data
+    public static class Executor {
+
+        /**
+         * 导入任务线程池
+         */
+        private Pool importPool = new Pool(4, 8, 200);
+
+        /**
+         * 导出任务线程池
+         */
+        private Pool exportPool = new Pool(4, 8, 200);
+
+        /**
+         * 模板生成线程池
+         */
+        private Pool templatePool = new Pool(1, 2, 50);
+
+        /**
+         * 单个业务类型默认最大并发任务数
+         */
+        private int defaultBusinessTypeConcurrency = 2;
+
+        /**
+         * 各业务类型最大并发任务数（业务类型 -> 并发数）
+         */
+        private Map<String, Integer> businessTypeConcurrency = new HashMap<>();
+
+        /**
+         * 业务类型并发数超限时的处理策略
+         */
+        private RejectionPolicy rejectionPolicy = RejectionPolicy.PENDING;
+
+        /**
+         * PENDING 策略下单个业务类型最多排队的任务数，超出后标记为 FAILED
+         */
+        private int maxPendingPerBusinessType = 100;
+
+        /**
+         * 任务执行模式
+         */
+        private ExecutionMode mode = ExecutionMode.PLATFORM;
+
+        /**
+         * CPU 密集阶段（解析、校验）线程池，VIRTUAL 模式下使用
+         */
+        private Pool cpuPool = new Pool(4, 4, 1000);
+    }
+
+    @Data
+    public static class Pool {
+
+        /**
+         * 核心线程数
+         */
+        private int corePoolSize;
+
+        /**
+         * 最大线程数
+         */
+        private int maxPoolSize;
+
+        /**
+         * 等待队列容量
+         */
+        private int queueCapacity;
+
+        public Pool() {
+        }
+
+        public Pool(int corePoolSize, int maxPoolSize, int queueCapacity) {
+            this.corePoolSize = corePoolSize;
+            this.maxPoolSize = maxPoolSize;
+            this.queueCapacity = queueCapacity;
+        }
+    }
+
+    /**
+     * 任务执行模式
+     */
+    public enum ExecutionMode {
+        /**
+         * 任务在导入 / 导出平台线程池中执行
+         */
+        PLATFORM,
+        /**
+         * 任务在虚拟线程中执行（需 JDK 21+，不支持时回退到 PLATFORM），CPU 密集阶段在 cpu-pool 中执行
+         */
+        VIRTUAL
+    }
+
+    /**
+     * 业务类型并发数超限时的处理策略
+     */
+    public enum RejectionPolicy {
+        /**
+         * 任务保持 PENDING，待该业务类型有任务完成后继续执行
+         */
+        PENDING,
+        /**
+         * 任务直接标记为 FAILED
+         */
+        FAILED
+    }
+
+    @Data
+    public static class Queue {
+
+        /**
+         * 队列模式：LOCAL 任务在接收请求的节点执行；DISTRIBUTED 提交时只写入 PENDING 任务，由各节点工作线程抢占执行
+         */
+        private QueueMode mode = QueueMode.LOCAL;
+
+        /**
+         * 工作节点标识，为空时取 主机名:进程号
+         */
+        private String nodeId;
+
+        /**
+         * 轮询待执行任务的间隔
+         */
+        private Duration pollInterval = Duration.ofSeconds(2);
+
+        /**
+         * 租约时长（领取与续约时写入租约到期时间）
+         */
+        private Duration leaseDuration = Duration.ofSeconds(60);
+
+        /**
+         * 心跳（续约）间隔，应明显小于租约时长
+         */
+        private Duration heartbeatInterval = Duration.ofSeconds(15);
+
+        /**
+         * 本节点同时执行的导入任务数
+         */
+        private int importWorkers = 4;
+
+        /**
+         * 本节点同时执行的导出任务数
+         */
+        private int exportWorkers = 4;
+
+        /**
+         * 任务最大执行次数（含节点失联后的重新执行）
+         */
+        private int maxAttempts = 3;
+    }
+
+    @Data
+    public static class Watchdog {
+
+        /**
+         * 是否启用卡死任务巡检
+         */
+        private boolean enabled = true;
+
+        /**
+         * 巡检间隔，同时为本节点执行中的任务写入心跳
+         */
+        private Duration interval = Duration.ofSeconds(10);
+
+        /**
+         * 心跳超过该时长未更新的 PROCESSING / CANCELLING 任务视为卡死，应明显大于巡检间隔与续约间隔
+         */
+        private Duration staleThreshold = Duration.ofMinutes(2);
+
+        /**
+         * 单批最多处理的任务数
+         */
+        private int batchSize = 500;
+
+        /**
+         * 单次巡检最多执行的批次数，积压较多时（如启动恢复）分多次巡检处理
+         */
+        private int maxBatchesPerRun = 20;
+    }
+
+    /**
+     * 任务队列模式
+     */
+    public enum QueueMode {
+        /**
+         * 本地执行
+         */
+        LOCAL,
+        /**
+         * 基于数据库的分布式队列
+         */
+        DISTRIBUTED
+    }
+
+    @Data
+    public static class Scheduler {
+
+        /**
+         * 是否按任务大小分通道调度，关闭时任务按提交顺序直接进入线程池
+         */
+        private boolean enabled = true;
+
+        /**
+         * 每种任务类型（导入 / 导出）快速通道的并发数
+         */
+        private int fastLaneSlots = 3;
+
+        /**
+         * 每种任务类型吞吐通道的并发数（快速通道与吞吐通道之和不应超过对应线程池核心线程数）
+         */
+        private int bulkLaneSlots = 1;
+
+        /**
+         * 导入文件不超过该大小时进入快速通道
+         */
+        private DataSize fastLaneMaxFileSize = DataSize.ofMegabytes(20);
+
+        /**
+         * 导出预估行数不超过该值时进入快速通道
+         */
+        private long fastLaneMaxRows = 100000;
+
+        /**
+         * 吞吐通道任务等待超过该时长后可占用快速通道的空闲并发，避免大任务饿死
+         */
+        private Duration agingThreshold = Duration.ofMinutes(5);
+
+        /**
+         * 每个通道最多排队的任务数，超出后任务标记为 FAILED
+         */
+        private int maxQueuedPerLane = 1000;
+
+        /**
+         * 提交人权重（未配置的提交人为 1），权重越大在通道内获得的执行机会越多
+         */
+        private Map<String, Integer> accountWeights = new HashMap<>();
+
+        /**
+         * 业务类型权重（未配置的业务类型为 1），与提交人权重相乘作为任务权重
+         */
+        private Map<String, Integer> businessTypeWeights = new HashMap<>();
+
+        /**
+         * 单个提交人同时执行的任务数上限（每种任务类型分别计算），0 表示不限制
+         */
+        private int maxRunningPerAccount = 0;
+
+        /**
+         * 单个提交人排队的任务数上限（每种任务类型分别计算），超出后任务标记为 FAILED，0 表示不限制
+         */
+        private int maxQueuedPerAccount = 200;
+    }
+}
@@ -0,0 +1,60 @@
+package com.example.imexport.config;
+
+import com.example.imexport.storage.CachingFileStorageService;
+import com.example.imexport.storage.DeduplicatingFileStorageService;
+import com.example.imexport.storage.FileStorageService;
+import com.example.imexport.storage.FileStorageServiceImpl;
+import com.example.imexport.storage.LocalFileStorageService;
+import com.example.imexport.storage.ParallelRangeDownloader;
+import com.example.imexport.storage.PresignedUrlCachingStorageService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+
+import java.util.concurrent.Executors;
+
+/**
+ * 文件存储配置
+ * 业务注入的 FileStorageService 按 imexport.storage.backend 选择存储实现（OSS 或本地目录），
+ * 并按配置叠加装饰器链（OSS 的上传去重与本地下载缓存、临时访问链接缓存）
+ * 装饰器不单独注册为 Bean，应用关闭时 Spring 推断调用最外层装饰器的 shutdown，逐层释放资源（如去重索引文件）
+ */
+@Configuration
+public class StorageConfig {
+
+    @Autowired
+    private ImExportProperties properties;
+
+    @Bean
+    @Primary
+    public FileStorageService fileStorageService(FileStorageServiceImpl fileStorageServiceImpl) {
+        ImExportProperties.Storage config = properties.getStorage();
+        FileStorageService storage;
+        if (config.getBackend() == ImExportProperties.StorageBackend.LOCAL) {
+            // 本地存储本身就在本地磁盘，不再叠加下载缓存
+            storage = new LocalFileStorageService(config.getLocal());
+        } else {
+            storage = fileStorageServiceImpl;
+            // 本地存储按内容寻址，本身即去重
+            if (config.getDedup().isEnabled()) {
+                storage = new DeduplicatingFileStorageService(storage, config.getDedup());
+            }
+            if (config.getDownloadCache().isEnabled()) {
+                storage = new CachingFileStorageService(storage, config.getDownloadCache());
+            }
+        }
+        if (config.getPresignedUrlCache().isEnabled()) {
+            storage = new PresignedUrlCachingStorageService(storage, config.getPresignedUrlCache());
+        }
+        return storage;
+    }
+
+    @Bean(destroyMethod = "shutdown")
+    public ParallelRangeDownloader parallelRangeDownloader() {
+        ImExportProperties.Download download = properties.getStorage().getDownload();
+        return new ParallelRangeDownloader(download, Executors.newFixedThreadPool(
+            Math.max(1, download.getThreads()), new CustomizableThreadFactory("oss-range-download-")));
+    }
+}
@@ -0,0 +1,55 @@
+package com.example.imexport.config;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+/**
+ * 任务线程池配置
+ * 导入、导出、模板生成分别使用独立的有界线程池（@Async 指定名称），互不抢占线程；
+ * cpuTaskExecutor 用于虚拟线程模式下的解析、校验等 CPU 密集阶段
+ */
+@Configuration
+public class TaskExecutorConfig {
+
+    public static final String IMPORT_EXECUTOR = "importTaskExecutor";
+    public static final String EXPORT_EXECUTOR = "exportTaskExecutor";
+    public static final String TEMPLATE_EXECUTOR = "templateTaskExecutor";
+    public static final String CPU_EXECUTOR = "cpuTaskExecutor";
+
+    @Autowired
+    private ImExportProperties properties;
+
+    @Bean(IMPORT_EXECUTOR)
+    public ThreadPoolTaskExecutor importTaskExecutor() {
+        return buildExecutor(IMPORT_EXECUTOR, "import-task-", properties.getExecutor().getImportPool());
+    }
+
+    @Bean(EXPORT_EXECUTOR)
+    public ThreadPoolTaskExecutor exportTaskExecutor() {
+        return buildExecutor(EXPORT_EXECUTOR, "export-task-", properties.getExecutor().getExportPool());
+    }
+
+    @Bean(TEMPLATE_EXECUTOR)
+    public ThreadPoolTaskExecutor templateTaskExecutor() {
+        return buildExecutor(TEMPLATE_EXECUTOR, "template-task-", properties.getExecutor().getTemplatePool());
+    }
+
+    @Bean(CPU_EXECUTOR)
+    public ThreadPoolTaskExecutor cpuTaskExecutor() {
+        return buildExecutor(CPU_EXECUTOR, "cpu-stage-", properties.getExecutor().getCpuPool());
+    }
+
+    private ThreadPoolTaskExecutor buildExecutor(String name, String threadNamePrefix, ImExportProperties.Pool pool) {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(Math.max(1, pool.getCorePoolSize()));
+        executor.setMaxPoolSize(Math.max(executor.getCorePoolSize(), pool.getMaxPoolSize()));
+        executor.setQueueCapacity(Math.max(0, pool.getQueueCapacity()));
+        executor.setThreadNamePrefix(threadNamePrefix);
+        executor.setRejectedExecutionHandler(new CountingRejectedExecutionHandler(name));
+        executor.setWaitForTasksToCompleteOnShutdown(true);
+        executor.setAwaitTerminationSeconds(30);
+        return executor;
+    }
+}
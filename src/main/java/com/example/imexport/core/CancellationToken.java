@@ -0,0 +1,68 @@
+package com.example.imexport.core;
+
+/**
+ * 任务取消令牌
+ * 取消请求只设置标志位，由导入导出引擎在批次边界（解析、校验、每批查询结果写出前、提交上传前）检查并停止，
+ * 因此取消延迟不超过处理一个批次的时间。数据提供者的逐批查询也可自行检查以尽早释放数据库连接
+ */
+public class CancellationToken {
+
+    /**
+     * 不可取消的令牌（同步导出等不支持取消的场景）
+     */
+    public static final CancellationToken NONE = new CancellationToken(false);
+
+    private final boolean cancellable;
+
+    private final CancellationToken parent;
+
+    private volatile boolean cancelled;
+
+    public CancellationToken() {
+        this(true, null);
+    }
+
+    private CancellationToken(boolean cancellable) {
+        this(cancellable, null);
+    }
+
+    private CancellationToken(boolean cancellable, CancellationToken parent) {
+        this.cancellable = cancellable;
+        this.parent = parent;
+    }
+
+    /**
+     * 创建子令牌：本令牌取消时子令牌同样视为已取消，子令牌可单独取消而不影响本令牌
+     * 用于任务内部的一组并发子操作在其中一个失败时停止其余子操作
+     *
+     * @return 子令牌
+     */
+    public CancellationToken newChild() {
+        return new CancellationToken(true, this);
+    }
+
+    /**
+     * 请求取消
+     */
+    public void cancel() {
+        if (cancellable) {
+            cancelled = true;
+        }
+    }
+
+    /**
+     * 是否已请求取消
+     */
+    public boolean isCancellationRequested() {
+        return cancelled || (parent != null && parent.isCancellationRequested());
+    }
+
+    /**
+     * 已请求取消时抛出 TaskCancelledException
+     */
+    public void throwIfCancellationRequested() {
+        if (isCancellationRequested()) {
+            throw new TaskCancelledException("任务已取消");
+        }
+    }
+}
@@ -0,0 +1,85 @@
+package com.example.imexport.core;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.zip.GZIPOutputStream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+/**
+ * 导出文件压缩方式
+ * 压缩在写出路径中流式进行，不缓冲整个文件
+ */
+public enum Compression {
+    /**
+     * 不压缩
+     */
+    NONE(null, null),
+
+    /**
+     * gzip 压缩（文件名追加 .gz，如 users.csv.gz）
+     */
+    GZIP(".gz", "application/gzip"),
+
+    /**
+     * zip 压缩，包含单个文件（扩展名替换为 .zip，压缩包内为原文件名）
+     */
+    ZIP(".zip", "application/zip");
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final String suffix;
+    private final String contentType;
+
+    Compression(String suffix, String contentType) {
+        this.suffix = suffix;
+        this.contentType = contentType;
+    }
+
+    /**
+     * 压缩后的文件名
+     *
+     * @param fileName 原文件名（含扩展名）
+     * @return 上传使用的文件名
+     */
+    public String fileName(String fileName) {
+        if (this == GZIP) {
+            return fileName + suffix;
+        }
+        if (this == ZIP) {
+            int dot = fileName.lastIndexOf('.');
+            return (dot > 0 ? fileName.substring(0, dot) : fileName) + suffix;
+        }
+        return fileName;
+    }
+
+    /**
+     * 压缩后的内容类型
+     *
+     * @param contentType 原内容类型
+     * @return 上传使用的内容类型
+     */
+    public String contentType(String contentType) {
+        return this.contentType != null ? this.contentType : contentType;
+    }
+
+    /**
+     * 包装输出流，写入的内容按该方式压缩；关闭返回的流时写出压缩尾部并关闭底层流
+     *
+     * @param outputStream 底层输出流
+     * @param fileName 原文件名（ZIP 压缩包内的文件名）
+     * @return 压缩输出流，NONE 时为原输出流
+     * @throws IOException 写出压缩头失败
+     */
+    public OutputStream wrap(OutputStream outputStream, String fileName) throws IOException {
+        if (this == GZIP) {
+            return new GZIPOutputStream(outputStream, BUFFER_SIZE);
+        }
+        if (this == ZIP) {
+            ZipOutputStream zip = new ZipOutputStream(outputStream);
+            zip.putNextEntry(new ZipEntry(fileName));
+            return zip;
+        }
+        return outputStream;
+    }
+}
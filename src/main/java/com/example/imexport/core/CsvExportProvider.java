@@ -30,4 +30,14 @@ public interface CsvExportProvider<T> extends DataProvider<T> {
      * @return 列名数组
      */
     String[] getCsvHeaders();
+
+    /**
+     * 导出文件压缩方式，默认不压缩
+     * CSV 通常可压缩到原大小的 1/8 ~ 1/10，大文件导出建议使用 GZIP 或 ZIP 以减少存储流量与下载时间
+     *
+     * @return 压缩方式
+     */
+    default Compression getCompression() {
+        return Compression.NONE;
+    }
 }
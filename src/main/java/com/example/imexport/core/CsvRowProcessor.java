@@ -30,4 +30,13 @@ public interface CsvRowProcessor<T> extends RowProcessor<T> {
      * @return 列名数组
      */
     String[] getCsvHeaders();
+
+    /**
+     * 错误文件压缩方式，默认不压缩
+     *
+     * @return 压缩方式
+     */
+    default Compression getErrorFileCompression() {
+        return Compression.NONE;
+    }
 }
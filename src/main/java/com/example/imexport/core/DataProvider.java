@@ -1,6 +1,7 @@
 package com.example.imexport.core;
 
 import java.util.List;
+import java.util.function.Consumer;
 
 /**
  * 通用数据提供者接口
@@ -18,6 +19,38 @@ public interface DataProvider<T> {
      */
     List<T> queryExportData(Object params);
 
+    /**
+     * 流式推送导出数据，导出引擎边接收边写文件
+     * 默认实现仅是兼容只实现了 queryExportData 的旧提供者的退化方案：先一次性查询全量数据再按 fetchSize 切片推送，
+     * 全量数据仍驻留内存。新提供者应覆盖此方法，使用 MyBatis Cursor 或按主键游标分页逐批查询
+     * （参见 UserCsvExportProvider），每批推送返回后再查询下一批
+     *
+     * @param query 导出查询上下文
+     * @param batchConsumer 批量数据消费者（调用返回即表示该批数据已写出，可复用或释放）
+     */
+    default void streamExportData(ExportQuery query, Consumer<List<T>> batchConsumer) {
+        List<T> data = queryExportData(query.getParams());
+        if (data == null || data.isEmpty()) {
+            return;
+        }
+
+        int fetchSize = Math.max(1, query.getFetchSize());
+        for (int from = 0; from < data.size(); from += fetchSize) {
+            batchConsumer.accept(data.subList(from, Math.min(from + fetchSize, data.size())));
+        }
+    }
+
+    /**
+     * 预估本次导出的行数，供调度器在执行前区分大小任务
+     * 应为廉价操作（如基于索引的 COUNT 或表统计信息），默认返回 -1 表示无法预估
+     *
+     * @param query 导出查询上下文
+     * @return 预估行数，-1 表示未知
+     */
+    default long estimateRowCount(ExportQuery query) {
+        return -1;
+    }
+
     /**
      * 获取业务标识
      *
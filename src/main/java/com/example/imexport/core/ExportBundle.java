@@ -0,0 +1,131 @@
+package com.example.imexport.core;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * 打包导出定义
+ * 多个相关数据集作为一次导出任务，各数据集写入同一个 ZIP 压缩包中的独立 CSV 文件
+ * <pre>
+ * ExportBundle bundle = new ExportBundle("ORDER_BUNDLE", "order_bundle")
+ *     .add(orderProvider, params)
+ *     .add(orderItemProvider, params, Arrays.asList("orderNo", "sku", "quantity"));
+ * </pre>
+ */
+public class ExportBundle {
+
+    /**
+     * 打包导出的业务类型（任务记录、并发限制与调度均按该业务类型）
+     */
+    private final String businessType;
+
+    /**
+     * 压缩包文件名前缀（不含时间戳与扩展名）
+     */
+    private final String fileName;
+
+    private final List<Entry<?>> entries = new ArrayList<>();
+
+    private final Set<String> entryNames = new HashSet<>();
+
+    public ExportBundle(String businessType, String fileName) {
+        this.businessType = businessType;
+        this.fileName = fileName;
+    }
+
+    /**
+     * 添加一个数据集，压缩包内文件名取 provider 的导出文件名
+     *
+     * @param provider 数据提供者
+     * @param params 查询参数
+     * @param <T> 导出数据模型类型
+     * @return this
+     */
+    public <T> ExportBundle add(CsvExportProvider<T> provider, Object params) {
+        return add(provider, params, null);
+    }
+
+    /**
+     * 添加一个列投影数据集，压缩包内文件名取 provider 的导出文件名
+     *
+     * @param provider 数据提供者
+     * @param params 查询参数
+     * @param columns 导出列（模型字段名，按输出顺序），为空表示全部列
+     * @param <T> 导出数据模型类型
+     * @return this
+     */
+    public <T> ExportBundle add(CsvExportProvider<T> provider, Object params, List<String> columns) {
+        return add(provider.getExportFileName(), provider, params, columns);
+    }
+
+    /**
+     * 添加一个数据集并指定压缩包内文件名，同名时依次追加 _2、_3 后缀
+     *
+     * @param name 压缩包内文件名（不含扩展名）
+     * @param provider 数据提供者
+     * @param params 查询参数
+     * @param columns 导出列（模型字段名，按输出顺序），为空表示全部列
+     * @param <T> 导出数据模型类型
+     * @return this
+     */
+    public <T> ExportBundle add(String name, CsvExportProvider<T> provider, Object params, List<String> columns) {
+        String entryName = name + ".csv";
+        for (int i = 2; !entryNames.add(entryName); i++) {
+            entryName = name + "_" + i + ".csv";
+        }
+        entries.add(new Entry<>(entryName, provider, params,
+            columns == null || columns.isEmpty() ? null : columns));
+        return this;
+    }
+
+    public String getBusinessType() {
+        return businessType;
+    }
+
+    public String getFileName() {
+        return fileName;
+    }
+
+    public List<Entry<?>> getEntries() {
+        return Collections.unmodifiableList(entries);
+    }
+
+    /**
+     * 压缩包中的一个数据集
+     *
+     * @param <T> 导出数据模型类型
+     */
+    public static class Entry<T> {
+
+        private final String entryName;
+        private final CsvExportProvider<T> provider;
+        private final Object params;
+        private final List<String> columns;
+
+        private Entry(String entryName, CsvExportProvider<T> provider, Object params, List<String> columns) {
+            this.entryName = entryName;
+            this.provider = provider;
+            this.params = params;
+            this.columns = columns;
+        }
+
+        public String getEntryName() {
+            return entryName;
+        }
+
+        public CsvExportProvider<T> getProvider() {
+            return provider;
+        }
+
+        public Object getParams() {
+            return params;
+        }
+
+        public List<String> getColumns() {
+            return columns;
+        }
+    }
+}
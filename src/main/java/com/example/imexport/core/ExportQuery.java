@@ -0,0 +1,44 @@
+package com.example.imexport.core;
+
+import lombok.Data;
+
+import java.util.List;
+
+/**
+ * 导出查询上下文
+ * 由导出引擎构建并传递给数据提供者，描述本次导出的查询条件与拉取方式
+ */
+@Data
+public class ExportQuery {
+
+    /**
+     * 查询参数（业务自定义）
+     */
+    private Object params;
+
+    /**
+     * 每批拉取行数（MyBatis Cursor 的 fetchSize 或游标分页的页大小）
+     */
+    private int fetchSize;
+
+    /**
+     * 增量导出水位（仅导出该水位之后的数据），为 null 表示全量导出
+     */
+    private String watermark;
+
+    /**
+     * 需要导出的列（模型字段名，按输出顺序），为 null 表示全部列
+     * 数据提供者可据此只查询这些列（如构造 SELECT 列表），未投影的字段可不赋值
+     */
+    private List<String> columns;
+
+    /**
+     * 取消令牌，逐批查询的数据提供者可在每批查询前检查，尽早停止并释放数据库连接
+     */
+    private CancellationToken cancellationToken = CancellationToken.NONE;
+
+    public ExportQuery(Object params, int fetchSize) {
+        this.params = params;
+        this.fetchSize = fetchSize;
+    }
+}
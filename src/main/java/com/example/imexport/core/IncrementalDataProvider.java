@@ -0,0 +1,62 @@
+package com.example.imexport.core;
+
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+
+/**
+ * 支持增量导出的数据提供者
+ * 导出引擎按业务类型 + 消费方保存已成功导出的最高水位，下次导出时通过 ExportQuery#getWatermark() 传入
+ * （须覆盖 streamExportData，默认实现会忽略水位做全量导出）。水位的选取决定边界上的数据是否会丢失：
+ * <ul>
+ *     <li>只用时间（如 updated_time）作水位时，不能查询严格大于水位的数据：与水位时间相同、但在本次导出之后才提交的行
+ *         会被永久跳过。应查询 {@code updated_time >= 水位}，边界时间上的行会在下次导出中重复出现，下游按主键幂等去重</li>
+ *     <li>用 {@link #compositeWatermark(LocalDateTime, long)} 生成（时间, 主键）复合水位时，可按
+ *         {@code (updated_time, id) > (水位时间, 水位主键)} 严格大于查询，边界上相同时间的行按主键区分，不重复也不遗漏
+ *         （前提是同一时间戳内主键按提交顺序递增，如自增主键）</li>
+ * </ul>
+ * 无论哪种方式，都建议只查询早于当前时间一个安全间隔（大于最长事务时长）的数据，避免跳过尚未提交的事务中时间更早的行
+ *
+ * @param <T> 导出数据模型类型
+ */
+public interface IncrementalDataProvider<T> extends DataProvider<T> {
+
+    /**
+     * 复合水位中时间部分的格式（定长，字符串顺序即时间顺序）
+     */
+    DateTimeFormatter COMPOSITE_TIME_FORMAT = DateTimeFormatter.ofPattern("yyyy-MM-dd'T'HH:mm:ss.SSSSSS");
+
+    /**
+     * 生成（时间, 主键）复合水位，定长编码，默认的 compareWatermark 按字符串比较即为先时间后主键的顺序
+     *
+     * @param time 数据行时间（如 updated_time）
+     * @param id 数据行主键
+     * @return 复合水位，如 2024-01-01T08:00:00.000000#0000000000000000123
+     */
+    static String compositeWatermark(LocalDateTime time, long id) {
+        return time.format(COMPOSITE_TIME_FORMAT) + "#" + String.format("%019d", id);
+    }
+
+    /**
+     * 提取数据行的水位值
+     *
+     * @param row 数据行
+     * @return 水位值（如主键ID、compositeWatermark 生成的复合水位或 updated_time 的 ISO-8601 字符串）
+     */
+    String getWatermark(T row);
+
+    /**
+     * 比较两个水位值
+     * 默认实现：均为整数时按数值比较，否则按字符串比较（适用于 ISO-8601 时间）
+     *
+     * @param a 水位值 a
+     * @param b 水位值 b
+     * @return 负数、零或正数分别表示 a 小于、等于或大于 b
+     */
+    default int compareWatermark(String a, String b) {
+        try {
+            return Long.compare(Long.parseLong(a), Long.parseLong(b));
+        } catch (NumberFormatException e) {
+            return a.compareTo(b);
+        }
+    }
+}
@@ -0,0 +1,31 @@
+package com.example.imexport.core;
+
+import java.util.List;
+
+/**
+ * 可分区导出的数据提供者
+ * 业务声明分区方式（如主键 ID 区间），导出引擎在有界线程池上并发查询、序列化各分区，
+ * 再按分区顺序拼接为一个文件（目前支持 CSV 导出）
+ *
+ * @param <T> 导出数据模型类型
+ */
+public interface PartitionedExportProvider<T> extends DataProvider<T> {
+
+    /**
+     * 按分区键拆分查询参数
+     * 每个元素作为一个分区的查询参数传给 streamExportData，列表顺序即分区在导出文件中的先后顺序
+     *
+     * @param params 原始查询参数
+     * @return 各分区查询参数
+     */
+    List<Object> splitPartitions(Object params);
+
+    /**
+     * 同一业务类型的最大分区并发数（未在 imexport.export.partition.max-parallelism 中配置时生效）
+     *
+     * @return 最大并发数
+     */
+    default int getMaxParallelism() {
+        return 4;
+    }
+}
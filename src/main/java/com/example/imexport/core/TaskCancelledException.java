@@ -0,0 +1,12 @@
+package com.example.imexport.core;
+
+/**
+ * 任务已取消异常
+ * 由 CancellationToken 在批次边界抛出，用于中断解析、数据查询与写出；上传会话随之放弃，已写出的部分文件被清理
+ */
+public class TaskCancelledException extends RuntimeException {
+
+    public TaskCancelledException(String message) {
+        super(message);
+    }
+}
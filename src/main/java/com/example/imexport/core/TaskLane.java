@@ -0,0 +1,16 @@
+package com.example.imexport.core;
+
+/**
+ * 任务调度通道
+ */
+public enum TaskLane {
+    /**
+     * 快速通道：小文件导入、小数据量导出，以及无法预估大小的任务
+     */
+    FAST,
+
+    /**
+     * 吞吐通道：大文件导入、大数据量导出
+     */
+    BULK
+}
@@ -0,0 +1,16 @@
+package com.example.imexport.core;
+
+/**
+ * 任务类型枚举
+ */
+public enum TaskType {
+    /**
+     * 导入任务
+     */
+    IMPORT,
+
+    /**
+     * 导出任务
+     */
+    EXPORT
+}
@@ -1,45 +1,69 @@
 package com.example.imexport.example;
 
 import com.example.imexport.core.CsvExportProvider;
+import com.example.imexport.core.ExportQuery;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.stereotype.Component;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.function.Consumer;
 
 /**
  * 用户 CSV 导出提供者示例
- * 演示如何实现 CSV 导出数据提供者
+ * 演示如何实现 CSV 导出数据提供者：按主键游标分页逐批查询，每批写出后再查下一批，内存中最多只有一页数据
  */
 @Component
 public class UserCsvExportProvider implements CsvExportProvider<UserCsvModel> {
 
     private static final Logger logger = LoggerFactory.getLogger(UserCsvExportProvider.class);
 
+    /**
+     * 模拟用户表的数据量
+     */
+    private static final int MOCK_USER_COUNT = 10;
+
     @Override
     public List<UserCsvModel> queryExportData(Object params) {
-        // 实际项目中这里应该从数据库查询数据
-        // 示例代码返回模拟数据
         logger.info("查询用户导出数据: params={}", params);
-        
-        // 模拟数据库查询
-        // return userMapper.selectList(queryWrapper);
-        
-        // 返回模拟数据
-        List<UserCsvModel> mockData = new ArrayList<>();
-        
-        for (int i = 1; i <= 10; i++) {
+        return queryPage(params, 0, MOCK_USER_COUNT);
+    }
+
+    @Override
+    public void streamExportData(ExportQuery query, Consumer<List<UserCsvModel>> batchConsumer) {
+        int fetchSize = Math.max(1, query.getFetchSize());
+        long lastId = 0;
+        while (true) {
+            query.getCancellationToken().throwIfCancellationRequested();
+            List<UserCsvModel> page = queryPage(query.getParams(), lastId, fetchSize);
+            if (page.isEmpty()) {
+                return;
+            }
+            batchConsumer.accept(page);
+            if (page.size() < fetchSize) {
+                return;
+            }
+            lastId += page.size();
+        }
+    }
+
+    /**
+     * 按主键游标分页查询一页数据
+     * 实际项目中应为：SELECT ... WHERE id > #{lastId} ORDER BY id LIMIT #{limit}
+     */
+    private List<UserCsvModel> queryPage(Object params, long lastId, int limit) {
+        List<UserCsvModel> page = new ArrayList<>();
+        for (long id = lastId + 1; id <= MOCK_USER_COUNT && page.size() < limit; id++) {
             UserCsvModel user = new UserCsvModel();
-            user.setUsername("user" + i);
-            user.setEmail("user" + i + "@example.com");
-            user.setPhone("138000" + String.format("%05d", i));
-            user.setAge(20 + i);
+            user.setUsername("user" + id);
+            user.setEmail("user" + id + "@example.com");
+            user.setPhone("138000" + String.format("%05d", id));
+            user.setAge(20 + (int) id);
             user.setDepartment("技术部");
-            mockData.add(user);
+            page.add(user);
         }
-        
-        return mockData;
+        return page;
     }
 
     @Override
@@ -1,44 +1,71 @@
 package com.example.imexport.example;
 
 import com.example.imexport.core.ExcelExportProvider;
+import com.example.imexport.core.ExportQuery;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.stereotype.Component;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.function.Consumer;
 
 /**
  * 示例业务 - 用户导出提供者
- * 展示如何实现 ExcelExportProvider 接口
+ * 展示如何实现 ExcelExportProvider 接口：按主键游标分页逐批查询，内存中最多只有一页数据
  */
 @Component
 public class UserExportProvider implements ExcelExportProvider<UserImportModel> {
 
     private static final Logger logger = LoggerFactory.getLogger(UserExportProvider.class);
 
+    /**
+     * 模拟用户表的数据量
+     */
+    private static final int MOCK_USER_COUNT = 10;
+
     @Override
     public List<UserImportModel> queryExportData(Object params) {
-        // 实际项目中应该从数据库查询
-        // 示例：return userMapper.selectList(queryParams);
-        
         logger.info("查询用户导出数据: params={}", params);
-        
-        // 模拟查询结果
-        List<UserImportModel> users = new ArrayList<>();
-        
-        for (int i = 1; i <= 10; i++) {
+        List<UserImportModel> users = queryPage(params, 0, MOCK_USER_COUNT);
+        logger.info("用户导出数据查询完成: count={}", users.size());
+        return users;
+    }
+
+    @Override
+    public void streamExportData(ExportQuery query, Consumer<List<UserImportModel>> batchConsumer) {
+        int fetchSize = Math.max(1, query.getFetchSize());
+        long lastId = 0;
+        while (true) {
+            query.getCancellationToken().throwIfCancellationRequested();
+            List<UserImportModel> page = queryPage(query.getParams(), lastId, fetchSize);
+            if (page.isEmpty()) {
+                return;
+            }
+            batchConsumer.accept(page);
+            if (page.size() < fetchSize) {
+                return;
+            }
+            lastId += page.size();
+        }
+    }
+
+    /**
+     * 按主键游标分页查询一页数据
+     * 实际项目中应为：SELECT ... WHERE id > #{lastId} ORDER BY id LIMIT #{limit}
+     */
+    private List<UserImportModel> queryPage(Object params, long lastId, int limit) {
+        List<UserImportModel> page = new ArrayList<>();
+        for (long id = lastId + 1; id <= MOCK_USER_COUNT && page.size() < limit; id++) {
             UserImportModel user = new UserImportModel();
-            user.setUsername("user" + i);
-            user.setEmail("user" + i + "@example.com");
-            user.setPhone("1380000000" + i);
-            user.setAge(20 + i);
+            user.setUsername("user" + id);
+            user.setEmail("user" + id + "@example.com");
+            user.setPhone("1380000000" + id);
+            user.setAge(20 + (int) id);
             user.setDepartment("技术部");
-            users.add(user);
+            page.add(user);
         }
-        
-        logger.info("用户导出数据查询完成: count={}", users.size());
-        return users;
+        return page;
     }
 
     @Override
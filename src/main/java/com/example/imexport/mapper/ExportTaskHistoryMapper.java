@@ -3,10 +3,77 @@ package com.example.imexport.mapper;
 import com.baomidou.mybatisplus.core.mapper.BaseMapper;
 import com.example.imexport.model.ExportTaskHistory;
 import org.apache.ibatis.annotations.Mapper;
+import org.apache.ibatis.annotations.Param;
+import org.apache.ibatis.annotations.Select;
+import org.apache.ibatis.annotations.Update;
+
+import java.util.List;
 
 /**
  * 导出任务历史 Mapper
  */
 @Mapper
 public interface ExportTaskHistoryMapper extends BaseMapper<ExportTaskHistory> {
+
+    /**
+     * 锁定待执行任务（须在事务中调用，跳过其他节点已锁定的行）
+     *
+     * @param limit 最多锁定条数
+     * @return 任务ID列表
+     */
+    @Select("SELECT id FROM export_task_history WHERE task_status = 'PENDING' " +
+            "ORDER BY id LIMIT #{limit} FOR UPDATE SKIP LOCKED")
+    List<Long> lockPendingTaskIds(@Param("limit") int limit);
+
+    /**
+     * 领取任务：PENDING -> PROCESSING，并写入租约
+     *
+     * @param id 任务ID
+     * @param owner 工作节点标识
+     * @param leaseSeconds 租约时长（秒）
+     * @return 更新行数
+     */
+    @Update("UPDATE export_task_history SET task_status = 'PROCESSING', lease_owner = #{owner}, " +
+            "lease_expire_time = DATE_ADD(NOW(), INTERVAL #{leaseSeconds} SECOND), heartbeat_time = NOW(), " +
+            "attempt_count = attempt_count + 1, updated_time = NOW() " +
+            "WHERE id = #{id} AND task_status = 'PENDING'")
+    int claimTask(@Param("id") Long id, @Param("owner") String owner, @Param("leaseSeconds") long leaseSeconds);
+
+    /**
+     * 续约（心跳）
+     *
+     * @param id 任务ID
+     * @param owner 工作节点标识
+     * @param leaseSeconds 租约时长（秒）
+     * @return 更新行数，为 0 表示租约已丢失
+     */
+    @Update("UPDATE export_task_history SET lease_expire_time = DATE_ADD(NOW(), INTERVAL #{leaseSeconds} SECOND), " +
+            "heartbeat_time = NOW() WHERE id = #{id} AND lease_owner = #{owner} AND task_status = 'PROCESSING'")
+    int renewLease(@Param("id") Long id, @Param("owner") String owner, @Param("leaseSeconds") long leaseSeconds);
+
+    /**
+     * 释放已领取但未能执行的任务（如本节点线程池已满）
+     *
+     * @param id 任务ID
+     * @param owner 工作节点标识
+     * @return 更新行数
+     */
+    @Update("UPDATE export_task_history SET task_status = 'PENDING', lease_owner = NULL, lease_expire_time = NULL, " +
+            "attempt_count = attempt_count - 1, updated_time = NOW() " +
+            "WHERE id = #{id} AND lease_owner = #{owner} AND task_status = 'PROCESSING'")
+    int releaseTask(@Param("id") Long id, @Param("owner") String owner);
+
+    /**
+     * 查询心跳超时的任务（按 idx_task_status 定位，一致性读不加锁）
+     *
+     * @param status 任务状态（PROCESSING / CANCELLING，本地模式下还包括 PENDING）
+     * @param staleSeconds 心跳超时时长（秒），未写入心跳的任务按更新时间判断
+     * @param limit 最多返回条数
+     * @return 任务ID列表
+     */
+    @Select("SELECT id FROM export_task_history WHERE task_status = #{status} " +
+            "AND COALESCE(heartbeat_time, updated_time) < DATE_SUB(NOW(), INTERVAL #{staleSeconds} SECOND) " +
+            "ORDER BY id LIMIT #{limit}")
+    List<Long> selectStaleTaskIds(@Param("status") String status, @Param("staleSeconds") long staleSeconds,
+                                  @Param("limit") int limit);
 }
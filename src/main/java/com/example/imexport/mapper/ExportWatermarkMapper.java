@@ -0,0 +1,12 @@
+package com.example.imexport.mapper;
+
+import com.baomidou.mybatisplus.core.mapper.BaseMapper;
+import com.example.imexport.model.ExportWatermark;
+import org.apache.ibatis.annotations.Mapper;
+
+/**
+ * 增量导出水位 Mapper
+ */
+@Mapper
+public interface ExportWatermarkMapper extends BaseMapper<ExportWatermark> {
+}
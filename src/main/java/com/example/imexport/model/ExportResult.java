@@ -0,0 +1,39 @@
+package com.example.imexport.model;
+
+import lombok.Data;
+
+import java.util.Map;
+
+/**
+ * 导出结果
+ */
+@Data
+public class ExportResult {
+
+    /**
+     * 任务ID
+     */
+    private Long taskId;
+
+    /**
+     * 导出文件 OSS 地址
+     */
+    private String fileUrl;
+
+    /**
+     * 导出数据行数
+     */
+    private int totalRows;
+
+    /**
+     * 增量导出水位是否推进成功（非增量导出为空）
+     * 为 false 表示导出期间水位已被同一消费方的并发导出修改，本次导出的数据可能与该并发导出的文件重叠，
+     * 且本次导出的最高水位未被记录
+     */
+    private Boolean watermarkAdvanced;
+
+    /**
+     * 打包导出各文件行数（压缩包内文件名 -> 行数，按写入顺序），非打包导出为空
+     */
+    private Map<String, Integer> entryRows;
+}
@@ -20,7 +20,7 @@ public class ExportTaskHistory {
     private String businessType;
 
     /**
-     * 任务状态：PENDING, PROCESSING, SUCCESS, FAILED
+     * 任务状态：PENDING, PROCESSING, SUCCESS, FAILED, CANCELLING, CANCELLED
      */
     private String taskStatus;
 
@@ -39,11 +39,51 @@ public class ExportTaskHistory {
      */
     private String queryParams;
 
+    /**
+     * 查询参数哈希（导出结果缓存键，为空表示不参与缓存命中）
+     */
+    private String paramsHash;
+
     /**
      * 错误信息
      */
     private String errorMessage;
 
+    /**
+     * 查询参数类型（分布式执行时用于反序列化参数）
+     */
+    private String paramsType;
+
+    /**
+     * 导出列（逗号分隔，为空表示全部列）
+     */
+    private String exportColumns;
+
+    /**
+     * 打包导出各文件行数（JSON，文件名 -> 行数，非打包导出为空）
+     */
+    private String entryStats;
+
+    /**
+     * 持有租约的工作节点（分布式队列）
+     */
+    private String leaseOwner;
+
+    /**
+     * 租约到期时间
+     */
+    private LocalDateTime leaseExpireTime;
+
+    /**
+     * 最近心跳时间
+     */
+    private LocalDateTime heartbeatTime;
+
+    /**
+     * 已领取执行次数
+     */
+    private Integer attemptCount;
+
     /**
      * 创建人
      */
@@ -0,0 +1,42 @@
+package com.example.imexport.model;
+
+import com.baomidou.mybatisplus.annotation.*;
+import lombok.Data;
+import java.time.LocalDateTime;
+
+/**
+ * 增量导出水位表
+ */
+@Data
+@TableName("export_watermark")
+public class ExportWatermark {
+
+    @TableId(type = IdType.AUTO)
+    private Long id;
+
+    /**
+     * 业务类型标识
+     */
+    private String businessType;
+
+    /**
+     * 下游消费方标识
+     */
+    private String consumerId;
+
+    /**
+     * 已成功导出的最高水位
+     */
+    private String watermark;
+
+    /**
+     * 最近一次推进水位的导出任务ID
+     */
+    private Long lastTaskId;
+
+    @TableField(fill = FieldFill.INSERT)
+    private LocalDateTime createdTime;
+
+    @TableField(fill = FieldFill.INSERT_UPDATE)
+    private LocalDateTime updatedTime;
+}
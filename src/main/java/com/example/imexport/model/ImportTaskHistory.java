@@ -20,7 +20,7 @@ public class ImportTaskHistory {
     private String businessType;
 
     /**
-     * 任务状态：PENDING, PROCESSING, SUCCESS, FAILED
+     * 任务状态：PENDING, PROCESSING, SUCCESS, FAILED, CANCELLING, CANCELLED
      */
     private String taskStatus;
 
@@ -54,6 +54,26 @@ public class ImportTaskHistory {
      */
     private String errorMessage;
 
+    /**
+     * 持有租约的工作节点（分布式队列）
+     */
+    private String leaseOwner;
+
+    /**
+     * 租约到期时间
+     */
+    private LocalDateTime leaseExpireTime;
+
+    /**
+     * 最近心跳时间
+     */
+    private LocalDateTime heartbeatTime;
+
+    /**
+     * 已领取执行次数
+     */
+    private Integer attemptCount;
+
     /**
      * 创建人
      */
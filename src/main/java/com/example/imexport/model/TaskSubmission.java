@@ -0,0 +1,25 @@
+package com.example.imexport.model;
+
+import lombok.Data;
+
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * 任务提交结果
+ * 任务记录在调用线程中写入后立即返回任务ID；同进程调用方可通过 result 在任务完成后组合后续处理
+ *
+ * @param <R> 任务结果类型（ImportResult / ExportResult）
+ */
+@Data
+public class TaskSubmission<R> {
+
+    /**
+     * 任务ID
+     */
+    private final Long taskId;
+
+    /**
+     * 任务结果，任务成功时完成，失败时以异常完成
+     */
+    private final CompletableFuture<R> result;
+}
@@ -0,0 +1,192 @@
+package com.example.imexport.service;
+
+import com.example.imexport.config.ImExportProperties;
+import com.example.imexport.core.CancellationToken;
+import com.example.imexport.core.ExportBundle;
+import com.example.imexport.core.ExportQuery;
+import com.example.imexport.core.TaskLane;
+import com.example.imexport.mapper.ExportTaskHistoryMapper;
+import com.example.imexport.model.ExportResult;
+import com.example.imexport.model.ExportTaskHistory;
+import com.example.imexport.model.TaskSubmission;
+import com.example.imexport.storage.FileStorageService;
+import com.example.imexport.storage.UploadSession;
+import com.example.imexport.util.ExportParamsUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * 打包导出服务
+ * 多个相关数据集作为一个导出任务：各数据集写入同一个 ZIP 压缩包中的独立 CSV 文件，压缩包边生成边上传，
+ * 任务记录保存总行数与各文件行数。任务的调度、并发限制、取消与完成通知与单个 CSV 导出一致（见 {@link ExportTaskLifecycle}），
+ * 任务按打包的业务类型调度与限流，各数据集执行时另占用其数据提供者业务类型的并发许可（见 {@link BundleZipExporter}）
+ */
+@Service
+public class BundleExportService {
+
+    private static final Logger logger = LoggerFactory.getLogger(BundleExportService.class);
+
+    @Autowired
+    private ExportTaskHistoryMapper exportTaskHistoryMapper;
+
+    @Autowired
+    private FileStorageService fileStorageService;
+
+    @Autowired
+    private ImExportProperties properties;
+
+    @Autowired
+    private TaskCompletionRegistry taskCompletionRegistry;
+
+    @Autowired
+    private TaskLaneScheduler laneScheduler;
+
+    @Autowired
+    private ExportTaskLifecycle exportTaskLifecycle;
+
+    @Autowired
+    private BundleZipExporter bundleZipExporter;
+
+    /**
+     * 提交打包导出任务，任务记录在调用线程中写入后立即返回任务ID
+     *
+     * @param bundle 打包导出定义
+     * @param createdBy 创建人
+     * @return 任务ID
+     */
+    public Long executeBundleExportAsync(ExportBundle bundle, String createdBy) {
+        return submitBundleExport(bundle, createdBy).getTaskId();
+    }
+
+    /**
+     * 提交打包导出任务
+     * 在调用线程中写入 PENDING 任务记录后立即返回，导出在导出线程池中执行；
+     * 返回的 result 在任务成功时完成（含各文件行数），失败（含并发超限被拒绝）时以异常完成
+     * 打包中的数据提供者无法在其他节点还原，分布式队列模式下不支持打包导出
+     *
+     * @param bundle 打包导出定义
+     * @param createdBy 创建人
+     * @return 任务ID与导出结果
+     */
+    public TaskSubmission<ExportResult> submitBundleExport(ExportBundle bundle, String createdBy) {
+        if (bundle.getEntries().isEmpty()) {
+            throw new IllegalArgumentException("打包导出至少需要一个数据集");
+        }
+        if (properties.getQueue().getMode() == ImExportProperties.QueueMode.DISTRIBUTED) {
+            throw new IllegalStateException("分布式队列模式暂不支持打包导出");
+        }
+
+        ExportTaskHistory task = createTask(bundle, "PENDING", createdBy);
+        Long taskId = task.getId();
+        CompletableFuture<ExportResult> result = taskCompletionRegistry.watchExport(taskId);
+
+        // 任一数据集预估为大任务时整个打包进入吞吐通道
+        TaskLane lane = TaskLane.FAST;
+        for (ExportBundle.Entry<?> entry : bundle.getEntries()) {
+            ExportQuery query = new ExportQuery(entry.getParams(), properties.getExport().getFetchSize());
+            query.setColumns(entry.getColumns());
+            if (laneScheduler.laneForExport(entry.getProvider(), query) == TaskLane.BULK) {
+                lane = TaskLane.BULK;
+                break;
+            }
+        }
+
+        exportTaskLifecycle.submit(taskId, lane, createdBy, bundle.getBusinessType(), "打包导出",
+            token -> doExport(bundle, token));
+        return new TaskSubmission<>(taskId, result);
+    }
+
+    /**
+     * 同步执行打包导出（用于测试或小数据量）
+     *
+     * @param bundle 打包导出定义
+     * @param createdBy 创建人
+     * @return 导出结果（含任务ID、文件地址、总行数与各文件行数）
+     */
+    public ExportResult executeBundleExportSync(ExportBundle bundle, String createdBy) {
+        if (bundle.getEntries().isEmpty()) {
+            throw new IllegalArgumentException("打包导出至少需要一个数据集");
+        }
+        ExportTaskHistory task = createTask(bundle, "PROCESSING", createdBy);
+
+        try {
+            ExportResult result = doExport(bundle, CancellationToken.NONE);
+            exportTaskLifecycle.markSuccess(task.getId(), result);
+            result.setTaskId(task.getId());
+            return result;
+        } catch (Exception e) {
+            logger.error("打包导出任务失败: taskId={}", task.getId(), e);
+            exportTaskLifecycle.markFailed(task.getId(), e.getMessage());
+            throw new RuntimeException("打包导出任务失败", e);
+        }
+    }
+
+    /**
+     * 核心导出逻辑：压缩包直接写入上传会话，由存储层边写边分片上传；取消时不提交上传
+     */
+    private ExportResult doExport(ExportBundle bundle, CancellationToken token) {
+        String fileName = bundle.getFileName() + "_" +
+            LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyyMMddHHmmss")) + ".zip";
+
+        Map<String, Integer> entryRows;
+        String fileUrl;
+        try (UploadSession session = fileStorageService.openUploadSession(fileName, "application/zip")) {
+            entryRows = bundleZipExporter.export(bundle, token, session.getOutputStream());
+            // 取消时不提交，会话关闭即放弃上传并清理已写出的部分
+            token.throwIfCancellationRequested();
+            fileUrl = session.commit();
+        }
+
+        int totalRows = 0;
+        for (Integer rows : entryRows.values()) {
+            totalRows += rows;
+        }
+        logger.info("打包导出文件生成成功: fileUrl={}, rows={}", fileUrl, totalRows);
+
+        ExportResult result = new ExportResult();
+        result.setFileUrl(fileUrl);
+        result.setTotalRows(totalRows);
+        result.setEntryRows(entryRows);
+        return result;
+    }
+
+    /**
+     * 创建打包导出任务，查询参数记录为各文件的参数与导出列
+     */
+    private ExportTaskHistory createTask(ExportBundle bundle, String taskStatus, String createdBy) {
+        Map<String, Object> entryParams = new LinkedHashMap<>();
+        for (ExportBundle.Entry<?> entry : bundle.getEntries()) {
+            Map<String, Object> params = new LinkedHashMap<>();
+            params.put("businessType", entry.getProvider().getBusinessType());
+            params.put("params", entry.getParams());
+            List<String> columns = entry.getColumns();
+            if (columns != null) {
+                params.put("columns", columns);
+            }
+            entryParams.put(entry.getEntryName(), params);
+        }
+
+        ExportTaskHistory task = new ExportTaskHistory();
+        task.setBusinessType(bundle.getBusinessType());
+        task.setTaskStatus(taskStatus);
+        task.setQueryParams(ExportParamsUtils.toCanonicalJson(entryParams));
+        task.setCreatedBy(createdBy);
+        task.setCreatedTime(LocalDateTime.now());
+        task.setUpdatedTime(LocalDateTime.now());
+
+        exportTaskHistoryMapper.insert(task);
+        logger.info("创建打包导出任务: taskId={}, businessType={}, entries={}",
+            task.getId(), bundle.getBusinessType(), entryParams.keySet());
+
+        return task;
+    }
+}
@@ -0,0 +1,286 @@
+package com.example.imexport.service;
+
+import com.example.imexport.config.ImExportProperties;
+import com.example.imexport.core.CancellationToken;
+import com.example.imexport.core.CsvExportProvider;
+import com.example.imexport.core.ExportBundle;
+import com.example.imexport.core.ExportQuery;
+import com.example.imexport.core.PartitionedExportProvider;
+import com.example.imexport.core.TaskCancelledException;
+import com.example.imexport.util.CsvColumnPlan;
+import com.example.imexport.util.CsvUtils;
+import com.opencsv.CSVWriter;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.io.BufferedOutputStream;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+/**
+ * 打包导出压缩包写入器
+ * ZIP 条目只能顺序写出，因此第一个数据集在任务线程中直接流式写入压缩包，其余数据集同时在有界线程池上
+ * 导出到临时文件，按添加顺序依次追加为后续条目：
+ * <ul>
+ *     <li>单个打包任务同时导出的数据集数不超过 max-parallel-entries，第 i 个数据集在第 i-(max-parallel-entries-1)
+ *         个完成后开始，控制数据库并发且不占用线程池线程等待</li>
+ *     <li>任一数据集失败或任务被取消时，尚未开始的数据集不再执行，正在执行的数据集在下一批写出前停止，临时文件全部删除</li>
+ *     <li>声明了分区的数据集走分区并行导出</li>
+ *     <li>每个数据集执行期间占用其数据提供者业务类型的并发许可（与单独导出该业务类型的任务共用上限），
+ *         与打包业务类型相同的数据集直接使用打包任务已持有的许可；打包业务类型不应与其他数据提供者的业务类型相同，
+ *         避免两个打包任务互相等待对方持有的许可</li>
+ * </ul>
+ */
+@Component
+public class BundleZipExporter {
+
+    private static final Logger logger = LoggerFactory.getLogger(BundleZipExporter.class);
+
+    /**
+     * 关闭时等待已提交数据集完成的最长时间
+     */
+    private static final long SHUTDOWN_TIMEOUT_SECONDS = 30;
+
+    @Autowired
+    private ImExportProperties properties;
+
+    @Autowired
+    private PartitionedCsvExporter partitionedCsvExporter;
+
+    @Autowired
+    private BusinessTypeConcurrencyLimiter concurrencyLimiter;
+
+    private ExecutorService entryExecutor;
+
+    @PostConstruct
+    public void init() {
+        int poolSize = Math.max(1, properties.getExport().getBundle().getPoolSize());
+        entryExecutor = new ThreadPoolExecutor(poolSize, poolSize, 60L, TimeUnit.SECONDS,
+            new LinkedBlockingQueue<>(), new CustomizableThreadFactory("bundle-entry-"));
+    }
+
+    /**
+     * 已排队的数据集继续执行，使正在打包的任务得以结束；超时后中断仍在执行的数据集
+     */
+    @PreDestroy
+    public void shutdown() {
+        entryExecutor.shutdown();
+        try {
+            if (!entryExecutor.awaitTermination(SHUTDOWN_TIMEOUT_SECONDS, TimeUnit.SECONDS)) {
+                logger.warn("打包导出数据集未在 {} 秒内完成，强制关闭线程池", SHUTDOWN_TIMEOUT_SECONDS);
+                entryExecutor.shutdownNow();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            entryExecutor.shutdownNow();
+        }
+    }
+
+    /**
+     * 导出打包中的全部数据集到 ZIP 压缩包
+     *
+     * @param bundle 打包导出定义
+     * @param cancellationToken 取消令牌
+     * @param target 目标输出流（写完压缩包尾部，不会被关闭）
+     * @return 各文件行数（压缩包内文件名 -> 行数，按写入顺序）
+     */
+    public Map<String, Integer> export(ExportBundle bundle, CancellationToken cancellationToken, OutputStream target) {
+        List<ExportBundle.Entry<?>> entries = bundle.getEntries();
+        int parallelLanes = Math.max(1, properties.getExport().getBundle().getMaxParallelEntries()) - 1;
+        // 任务取消或打包失败时停止全部数据集
+        CancellationToken entryToken = cancellationToken.newChild();
+
+        Map<String, Integer> entryRows = new LinkedHashMap<>();
+        List<Path> spoolFiles = new ArrayList<>();
+        List<CompletableFuture<Integer>> futures = new ArrayList<>();
+
+        try {
+            // 除第一个数据集外，按并发上限分成若干条链，每条链内按顺序导出到临时文件
+            if (parallelLanes > 0) {
+                for (int i = 1; i < entries.size(); i++) {
+                    Path spoolFile = Files.createTempFile("bundle_entry_", ".csv");
+                    spoolFiles.add(spoolFile);
+                    ExportBundle.Entry<?> entry = entries.get(i);
+                    CompletableFuture<?> previous = i - 1 >= parallelLanes
+                        ? futures.get(i - 1 - parallelLanes) : CompletableFuture.completedFuture(null);
+                    futures.add(previous.thenApplyAsync(
+                        ignored -> spool(bundle, entry, entryToken, spoolFile), entryExecutor));
+                }
+            }
+
+            ZipOutputStream zip = new ZipOutputStream(new NonClosingOutputStream(target));
+            for (int i = 0; i < entries.size(); i++) {
+                ExportBundle.Entry<?> entry = entries.get(i);
+                cancellationToken.throwIfCancellationRequested();
+                zip.putNextEntry(new ZipEntry(entry.getEntryName()));
+                int rows;
+                if (i == 0 || parallelLanes == 0) {
+                    rows = writeEntry(bundle, entry, entryToken, new NonClosingOutputStream(zip));
+                } else {
+                    rows = futures.get(i - 1).get();
+                    Files.copy(spoolFiles.get(i - 1), zip);
+                }
+                zip.closeEntry();
+                entryRows.put(entry.getEntryName(), rows);
+            }
+            cancellationToken.throwIfCancellationRequested();
+            zip.finish();
+            zip.flush();
+
+            logger.info("打包导出压缩包生成完成: businessType={}, entries={}", bundle.getBusinessType(), entryRows);
+            return entryRows;
+
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("打包导出被中断", e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause() instanceof CompletionException ? e.getCause().getCause() : e.getCause();
+            if (cause instanceof TaskCancelledException) {
+                throw (TaskCancelledException) cause;
+            }
+            throw new RuntimeException("打包导出失败: " + cause.getMessage(), cause);
+        } catch (IOException e) {
+            throw new RuntimeException("打包导出失败", e);
+        } finally {
+            // 失败或取消时让尚在执行的数据集尽快停止，等待其结束后再删除临时文件
+            entryToken.cancel();
+            for (CompletableFuture<Integer> future : futures) {
+                awaitEntry(future);
+            }
+            for (Path spoolFile : spoolFiles) {
+                deleteTempFile(spoolFile);
+            }
+        }
+    }
+
+    /**
+     * 等待数据集结束；线程池被强制关闭时丢弃的数据集不会再完成，线程池终止后取消
+     */
+    private void awaitEntry(CompletableFuture<Integer> future) {
+        while (!future.isDone()) {
+            if (entryExecutor.isTerminated()) {
+                future.cancel(false);
+                return;
+            }
+            try {
+                future.get(1, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (TimeoutException | ExecutionException | CancellationException ignored) {
+                // 失败原因已在上面处理
+            }
+        }
+    }
+
+    /**
+     * 导出单个数据集到临时文件
+     */
+    private int spool(ExportBundle bundle, ExportBundle.Entry<?> entry, CancellationToken cancellationToken,
+                      Path spoolFile) {
+        cancellationToken.throwIfCancellationRequested();
+        try (OutputStream outputStream = new BufferedOutputStream(Files.newOutputStream(spoolFile))) {
+            return writeEntry(bundle, entry, cancellationToken, outputStream);
+        } catch (IOException e) {
+            throw new RuntimeException("打包导出数据集失败: " + entry.getEntryName(), e);
+        }
+    }
+
+    /**
+     * 在数据提供者业务类型的并发上限内写出单个数据集
+     */
+    private int writeEntry(ExportBundle bundle, ExportBundle.Entry<?> entry, CancellationToken cancellationToken,
+                           OutputStream outputStream) throws IOException {
+        String businessType = entry.getProvider().getBusinessType();
+        if (businessType == null || businessType.equals(bundle.getBusinessType())) {
+            return writeEntry(entry, cancellationToken, outputStream);
+        }
+        return concurrencyLimiter.executeBlocking(businessType, cancellationToken, () -> {
+            try {
+                return writeEntry(entry, cancellationToken, outputStream);
+            } catch (IOException e) {
+                throw new RuntimeException("打包导出数据集失败: " + entry.getEntryName(), e);
+            }
+        });
+    }
+
+    /**
+     * 流式写出单个数据集（含表头）
+     */
+    private <T> int writeEntry(ExportBundle.Entry<T> entry, CancellationToken cancellationToken,
+                               OutputStream outputStream) throws IOException {
+        CsvExportProvider<T> provider = entry.getProvider();
+        if (provider instanceof PartitionedExportProvider) {
+            return partitionedCsvExporter.export(provider, entry.getParams(), entry.getColumns(),
+                cancellationToken, outputStream);
+        }
+
+        ExportQuery query = new ExportQuery(entry.getParams(), properties.getExport().getFetchSize());
+        query.setColumns(entry.getColumns());
+        query.setCancellationToken(cancellationToken);
+        CsvColumnPlan plan = CsvColumnPlan.of(provider.getCsvModelClass(), provider.getCsvHeaders(), entry.getColumns());
+        AtomicInteger rows = new AtomicInteger();
+
+        try (CSVWriter writer = CsvUtils.createWriter(outputStream)) {
+            writer.writeNext(plan.getHeaders());
+            provider.streamExportData(query, batch -> {
+                cancellationToken.throwIfCancellationRequested();
+                CsvUtils.writeRows(writer, batch, plan);
+                rows.addAndGet(batch.size());
+            });
+        }
+        return rows.get();
+    }
+
+    private void deleteTempFile(Path tempFile) {
+        try {
+            Files.deleteIfExists(tempFile);
+        } catch (IOException e) {
+            logger.warn("删除临时文件失败: path={}", tempFile, e);
+        }
+    }
+
+    /**
+     * 关闭时只刷新、不关闭底层流，避免数据集写入器关闭压缩包或调用方的输出流
+     */
+    private static class NonClosingOutputStream extends FilterOutputStream {
+
+        private NonClosingOutputStream(OutputStream out) {
+            super(out);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            out.write(b, off, len);
+        }
+
+        @Override
+        public void close() throws IOException {
+            flush();
+        }
+    }
+}
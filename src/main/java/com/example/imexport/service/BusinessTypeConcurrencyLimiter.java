@@ -0,0 +1,297 @@
+package com.example.imexport.service;
+
+import com.example.imexport.config.ImExportProperties;
+import com.example.imexport.core.CancellationToken;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+/**
+ * 业务类型并发限制器
+ * 限制同一业务类型同时执行的任务数，避免单个业务（如某客户的批量导入）占满线程池。
+ * 超限时按 imexport.executor.rejection-policy 处理：PENDING 时任务排队（任务记录保持 PENDING），
+ * 该业务类型有任务完成时，许可连同下一个排队任务通过 {@link Resubmitter} 交回调度器重新提交，
+ * 由调度器按通道与提交人公平分配执行线程，不占用刚完成任务的线程；FAILED 时直接回调失败。
+ * 执行中任务的子任务（如打包导出中各数据集按自身业务类型限流）通过 {@link #executeBlocking} 在当前线程中等待许可
+ */
+@Component
+public class BusinessTypeConcurrencyLimiter {
+
+    private static final Logger logger = LoggerFactory.getLogger(BusinessTypeConcurrencyLimiter.class);
+
+    @Autowired
+    private ImExportProperties properties;
+
+    private static final int HANDOFF_SUBMITTING = 0;
+    private static final int HANDOFF_SUBMITTED = 1;
+    private static final int HANDOFF_REJECTED = 2;
+
+    /**
+     * 等待许可期间检查取消令牌的间隔
+     */
+    private static final long PERMIT_POLL_MILLIS = 200;
+
+    private final ConcurrentHashMap<String, Slot> slots = new ConcurrentHashMap<>();
+
+    /**
+     * 在业务类型并发上限内执行任务（有空闲许可时在当前线程执行）
+     *
+     * @param businessType 业务类型
+     * @param work 任务
+     * @param onRejected 任务被拒绝时的回调（参数为拒绝原因）
+     * @param resubmitter 排队任务获得许可后的重新提交方式（通常为提交到原调度通道）
+     */
+    public void execute(String businessType, Runnable work, Consumer<String> onRejected, Resubmitter resubmitter) {
+        Slot slot = slots.computeIfAbsent(businessType, this::createSlot);
+
+        if (!slot.permits.tryAcquire()) {
+            ImExportProperties.Executor config = properties.getExecutor();
+            if (config.getRejectionPolicy() == ImExportProperties.RejectionPolicy.PENDING
+                    && slot.pendingCount.get() < config.getMaxPendingPerBusinessType()) {
+                slot.pendingCount.incrementAndGet();
+                slot.backlog.add(new PendingTask(work, onRejected, resubmitter));
+                logger.info("业务类型并发数已达上限，任务排队等待: businessType={}, pending={}",
+                    businessType, slot.pendingCount.get());
+                // 入队期间可能已有任务完成并释放许可
+                if (slot.permits.tryAcquire()) {
+                    releaseOrHandOff(businessType, slot);
+                }
+                return;
+            }
+            slot.rejectedCount.incrementAndGet();
+            logger.warn("业务类型并发数已达上限，拒绝任务: businessType={}, limit={}", businessType, slot.limit);
+            onRejected.accept("业务类型并发任务数已达上限: " + businessType);
+            return;
+        }
+
+        runAndRelease(businessType, slot, work);
+    }
+
+    /**
+     * 在当前线程中按业务类型并发上限执行子任务，子任务抛出的异常原样抛出
+     * 没有空闲许可时按 rejection-policy 处理：PENDING 时与排队任务按同一顺序等待许可（许可直接移交给等待线程，
+     * 等待期间不占用许可，所属任务被取消时放弃等待）；FAILED 或排队数已满时直接拒绝
+     *
+     * @param businessType 业务类型
+     * @param cancellationToken 所属任务的取消令牌
+     * @param work 子任务
+     * @param <T> 子任务结果类型
+     * @return 子任务结果
+     * @throws IllegalStateException 业务类型并发数已达上限被拒绝
+     * @throws com.example.imexport.core.TaskCancelledException 等待许可期间任务被取消
+     */
+    public <T> T executeBlocking(String businessType, CancellationToken cancellationToken, Supplier<T> work) {
+        Slot slot = slots.computeIfAbsent(businessType, this::createSlot);
+        if (!slot.permits.tryAcquire()) {
+            awaitPermit(businessType, slot, cancellationToken);
+        }
+        try {
+            cancellationToken.throwIfCancellationRequested();
+            return work.get();
+        } finally {
+            releaseOrHandOff(businessType, slot);
+        }
+    }
+
+    /**
+     * 以排队任务的身份等待许可：轮到时许可移交给等待线程，而不是重新提交到调度器
+     */
+    private void awaitPermit(String businessType, Slot slot, CancellationToken cancellationToken) {
+        ImExportProperties.Executor config = properties.getExecutor();
+        if (config.getRejectionPolicy() != ImExportProperties.RejectionPolicy.PENDING
+                || slot.pendingCount.get() >= config.getMaxPendingPerBusinessType()) {
+            slot.rejectedCount.incrementAndGet();
+            logger.warn("业务类型并发数已达上限，拒绝子任务: businessType={}, limit={}", businessType, slot.limit);
+            throw new IllegalStateException("业务类型并发任务数已达上限: " + businessType);
+        }
+
+        CompletableFuture<Void> granted = new CompletableFuture<>();
+        PendingTask waiter = new PendingTask(() -> { }, reason -> { }, (work, onRejected) -> granted.complete(null));
+        slot.pendingCount.incrementAndGet();
+        slot.backlog.add(waiter);
+        logger.info("业务类型并发数已达上限，子任务等待许可: businessType={}, pending={}",
+            businessType, slot.pendingCount.get());
+        // 入队期间可能已有任务完成并释放许可
+        if (slot.permits.tryAcquire()) {
+            releaseOrHandOff(businessType, slot);
+        }
+
+        boolean interrupted = false;
+        try {
+            while (true) {
+                try {
+                    granted.get(PERMIT_POLL_MILLIS, TimeUnit.MILLISECONDS);
+                    return;
+                } catch (TimeoutException e) {
+                    if (cancellationToken.isCancellationRequested() && withdraw(slot, waiter)) {
+                        cancellationToken.throwIfCancellationRequested();
+                    }
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                    if (withdraw(slot, waiter)) {
+                        throw new RuntimeException("等待业务类型并发许可被中断: " + businessType, e);
+                    }
+                } catch (ExecutionException e) {
+                    throw new IllegalStateException("等待业务类型并发许可失败: " + businessType, e);
+                }
+            }
+        } finally {
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    /**
+     * 放弃等待；已被取出（许可正在移交给等待线程）时返回 false，等待线程继续领取许可
+     */
+    private boolean withdraw(Slot slot, PendingTask waiter) {
+        if (slot.backlog.remove(waiter)) {
+            slot.pendingCount.decrementAndGet();
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * 各业务类型的运行、排队与拒绝数（已获得许可、等待调度器执行的排队任务计入运行数）
+     *
+     * @return 业务类型 -> 统计
+     */
+    public Map<String, Map<String, Long>> snapshot() {
+        Map<String, Map<String, Long>> result = new LinkedHashMap<>();
+        slots.forEach((businessType, slot) -> {
+            Map<String, Long> stats = new LinkedHashMap<>();
+            stats.put("limit", (long) slot.limit);
+            stats.put("running", (long) (slot.limit - slot.permits.availablePermits()));
+            stats.put("pending", (long) slot.pendingCount.get());
+            stats.put("rejected", slot.rejectedCount.get());
+            result.put(businessType, stats);
+        });
+        return result;
+    }
+
+    private void runAndRelease(String businessType, Slot slot, Runnable work) {
+        try {
+            runQuietly(businessType, work);
+        } finally {
+            releaseOrHandOff(businessType, slot);
+        }
+    }
+
+    /**
+     * 调用方持有一个许可：有排队任务时把许可连同任务交回调度器，否则释放许可。
+     * 释放后若又有任务入队且许可仍空闲则继续移交，重新提交被同步拒绝时许可仍在手中，接着处理下一个排队任务
+     */
+    private void releaseOrHandOff(String businessType, Slot slot) {
+        while (true) {
+            PendingTask next = slot.backlog.poll();
+            if (next == null) {
+                slot.permits.release();
+                if (slot.backlog.isEmpty() || !slot.permits.tryAcquire()) {
+                    return;
+                }
+                continue;
+            }
+            slot.pendingCount.decrementAndGet();
+            if (handOff(businessType, slot, next)) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * 重新提交排队任务，任务执行完成（或之后被调度器拒绝）时归还许可
+     *
+     * @return 是否已移交；提交过程中被同步拒绝时返回 false，许可仍由调用方持有
+     */
+    private boolean handOff(String businessType, Slot slot, PendingTask task) {
+        AtomicInteger state = new AtomicInteger(HANDOFF_SUBMITTING);
+        try {
+            task.resubmitter.submit(() -> runAndRelease(businessType, slot, task.work), reason -> {
+                task.onRejected.accept(reason);
+                if (!state.compareAndSet(HANDOFF_SUBMITTING, HANDOFF_REJECTED)) {
+                    releaseOrHandOff(businessType, slot);
+                }
+            });
+        } catch (RuntimeException e) {
+            logger.error("排队任务重新提交失败: businessType={}", businessType, e);
+            if (state.compareAndSet(HANDOFF_SUBMITTING, HANDOFF_REJECTED)) {
+                task.onRejected.accept("排队任务重新提交失败: " + e.getMessage());
+            }
+        }
+        return state.compareAndSet(HANDOFF_SUBMITTING, HANDOFF_SUBMITTED);
+    }
+
+    private void runQuietly(String businessType, Runnable work) {
+        try {
+            work.run();
+        } catch (RuntimeException e) {
+            // 任务自身负责记录失败状态，这里只保证排队任务继续执行
+            logger.error("任务执行异常: businessType={}", businessType, e);
+        }
+    }
+
+    private Slot createSlot(String businessType) {
+        ImExportProperties.Executor config = properties.getExecutor();
+        Integer configured = config.getBusinessTypeConcurrency().get(businessType);
+        return new Slot(Math.max(1, configured != null ? configured : config.getDefaultBusinessTypeConcurrency()));
+    }
+
+    /**
+     * 排队任务获得许可后的重新提交方式
+     */
+    @FunctionalInterface
+    public interface Resubmitter {
+
+        /**
+         * 提交任务
+         *
+         * @param work 任务
+         * @param onRejected 提交被拒绝时的回调（参数为拒绝原因）
+         */
+        void submit(Runnable work, Consumer<String> onRejected);
+    }
+
+    private static class PendingTask {
+
+        private final Runnable work;
+        private final Consumer<String> onRejected;
+        private final Resubmitter resubmitter;
+
+        private PendingTask(Runnable work, Consumer<String> onRejected, Resubmitter resubmitter) {
+            this.work = work;
+            this.onRejected = onRejected;
+            this.resubmitter = resubmitter;
+        }
+    }
+
+    private static class Slot {
+
+        private final int limit;
+        private final Semaphore permits;
+        private final ConcurrentLinkedQueue<PendingTask> backlog = new ConcurrentLinkedQueue<>();
+        private final AtomicInteger pendingCount = new AtomicInteger();
+        private final AtomicLong rejectedCount = new AtomicLong();
+
+        private Slot(int limit) {
+            this.limit = limit;
+            this.permits = new Semaphore(limit);
+        }
+    }
+}
@@ -1,22 +1,38 @@
 package com.example.imexport.service;
 
+import com.example.imexport.config.ImExportProperties;
+import com.example.imexport.core.CancellationToken;
+import com.example.imexport.core.Compression;
 import com.example.imexport.core.CsvExportProvider;
+import com.example.imexport.core.ExportQuery;
+import com.example.imexport.core.FileFormat;
+import com.example.imexport.core.IncrementalDataProvider;
+import com.example.imexport.core.PartitionedExportProvider;
+import com.example.imexport.core.TaskLane;
 import com.example.imexport.mapper.ExportTaskHistoryMapper;
+import com.example.imexport.model.ExportResult;
 import com.example.imexport.model.ExportTaskHistory;
+import com.example.imexport.model.TaskSubmission;
 import com.example.imexport.storage.FileStorageService;
+import com.example.imexport.storage.UploadSession;
+import com.example.imexport.util.CsvColumnPlan;
 import com.example.imexport.util.CsvUtils;
+import com.example.imexport.util.ExportParamsUtils;
+import com.opencsv.CSVWriter;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.scheduling.annotation.Async;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
-import java.io.ByteArrayInputStream;
-import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
+import java.util.Arrays;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * CSV 导出服务核心类
@@ -33,8 +49,29 @@ public class CsvExportService {
     @Autowired
     private FileStorageService fileStorageService;
 
+    @Autowired
+    private ImExportProperties properties;
+
+    @Autowired
+    private ExportResultCache exportResultCache;
+
+    @Autowired
+    private ExportWatermarkService exportWatermarkService;
+
+    @Autowired
+    private TaskCompletionRegistry taskCompletionRegistry;
+
+    @Autowired
+    private TaskLaneScheduler laneScheduler;
+
+    @Autowired
+    private ExportTaskLifecycle exportTaskLifecycle;
+
+    @Autowired
+    private PartitionedCsvExporter partitionedCsvExporter;
+
     /**
-     * 异步执行导出任务
+     * 提交导出任务，任务记录在调用线程中写入后立即返回任务ID
      *
      * @param provider 数据提供者
      * @param params 查询参数
@@ -42,28 +79,95 @@ public class CsvExportService {
      * @param <T> 导出数据模型类型
      * @return 任务ID
      */
-    @Async
-    @Transactional(rollbackFor = Exception.class)
     public <T> Long executeExportAsync(CsvExportProvider<T> provider, Object params, String createdBy) {
-        // 创建任务记录
-        ExportTaskHistory task = createTask(provider.getBusinessType(), params, createdBy);
-        
+        return submitExport(provider, params, null, createdBy).getTaskId();
+    }
+
+    /**
+     * 提交列投影导出任务，只查询和写出指定列
+     *
+     * @param provider 数据提供者
+     * @param params 查询参数
+     * @param columns 导出列（模型字段名，按输出顺序），为空表示全部列
+     * @param createdBy 创建人
+     * @param <T> 导出数据模型类型
+     * @return 任务ID
+     */
+    public <T> Long executeExportAsync(CsvExportProvider<T> provider, Object params, List<String> columns, String createdBy) {
+        return submitExport(provider, params, columns, createdBy).getTaskId();
+    }
+
+    /**
+     * 提交导出任务
+     * 在调用线程中写入 PENDING 任务记录后立即返回，导出在导出线程池中执行；
+     * 返回的 result 在任务成功时完成，失败（含并发超限被拒绝）时以异常完成
+     *
+     * @param provider 数据提供者
+     * @param params 查询参数
+     * @param columns 导出列（模型字段名，按输出顺序），为空表示全部列
+     * @param createdBy 创建人
+     * @param <T> 导出数据模型类型
+     * @return 任务ID与导出结果
+     * @throws IllegalArgumentException 查询参数无法序列化，不创建任务
+     */
+    public <T> TaskSubmission<ExportResult> submitExport(CsvExportProvider<T> provider, Object params, List<String> columns,
+                                                         String createdBy) {
+        String queryParams = ExportParamsUtils.toCanonicalJson(params);
+        String paramsHash = exportResultCache.computeParamsHash(FileFormat.CSV, queryParams, columns);
+
+        // 相同请求在缓存有效期内已成功导出，直接复用
+        ExportTaskHistory cached = exportResultCache.lookup(provider.getBusinessType(), paramsHash);
+        if (cached != null) {
+            return new TaskSubmission<>(cached.getId(),
+                CompletableFuture.completedFuture(TaskCompletionRegistry.toExportResult(cached)));
+        }
+
+        // 创建任务记录（开始执行前为 PENDING）
+        ExportQuery query = newQuery(params, columns);
+        ExportTaskHistory task = createTask(provider.getBusinessType(), "PENDING", query, paramsHash, createdBy);
+        Long taskId = task.getId();
+        CompletableFuture<ExportResult> result = taskCompletionRegistry.watchExport(taskId);
+
+        // 分布式队列模式下由各节点工作线程领取执行
+        if (properties.getQueue().getMode() == ImExportProperties.QueueMode.DISTRIBUTED) {
+            logger.info("导出任务已入队: taskId={}, businessType={}", taskId, provider.getBusinessType());
+            return new TaskSubmission<>(taskId, result);
+        }
+
+        // 按预估行数进入快速通道或吞吐通道，通道内按提交人公平排队；同一业务类型的并发任务数受限，超限时排队或直接失败
+        TaskLane lane = laneScheduler.laneForExport(provider, query);
+        exportTaskLifecycle.submit(taskId, lane, createdBy, provider.getBusinessType(), "CSV导出",
+            token -> runExport(provider, query, token));
+        return new TaskSubmission<>(taskId, result);
+    }
+
+    /**
+     * 执行分布式队列中已领取的导出任务（查询参数与导出列从任务记录还原）
+     *
+     * @param task 已领取的任务记录
+     * @param provider 该业务类型的数据提供者
+     * @param <T> 导出数据模型类型
+     */
+    public <T> void runClaimedTask(ExportTaskHistory task, CsvExportProvider<T> provider) {
+        ExportQuery query;
         try {
-            // 执行导出并获取结果
-            ExportResult<T> result = doExport(provider, params);
-            
-            // 更新任务状态
-            updateTaskSuccess(task.getId(), result.getFileUrl(), result.getTotalRows());
-            
-            logger.info("CSV导出任务完成: taskId={}, fileUrl={}, rows={}", 
-                task.getId(), result.getFileUrl(), result.getTotalRows());
-            return task.getId();
-            
-        } catch (Exception e) {
+            List<String> columns = task.getExportColumns() == null || task.getExportColumns().isEmpty()
+                ? null : Arrays.asList(task.getExportColumns().split(","));
+            query = newQuery(ExportParamsUtils.fromCanonicalJson(task.getQueryParams(), task.getParamsType()), columns);
+        } catch (IllegalArgumentException e) {
             logger.error("CSV导出任务失败: taskId={}", task.getId(), e);
-            updateTaskFailed(task.getId(), e.getMessage());
-            throw new RuntimeException("CSV导出任务失败", e);
+            exportTaskLifecycle.markFailed(task.getId(), e.getMessage());
+            return;
         }
+        exportTaskLifecycle.run(task.getId(), "CSV导出", token -> runExport(provider, query, token));
+    }
+
+    /**
+     * 执行异步导出任务，导出中每批写出前检查任务的取消令牌
+     */
+    private <T> ExportResult runExport(CsvExportProvider<T> provider, ExportQuery query, CancellationToken token) {
+        query.setCancellationToken(token);
+        return doExport(provider, query, null);
     }
 
     /**
@@ -71,62 +175,163 @@ public class CsvExportService {
      */
     @Transactional(rollbackFor = Exception.class)
     public <T> String executeExportSync(CsvExportProvider<T> provider, Object params, String createdBy) {
-        ExportTaskHistory task = createTask(provider.getBusinessType(), params, createdBy);
+        return executeExportSync(provider, params, null, createdBy);
+    }
+
+    /**
+     * 同步执行列投影导出（用于测试或小数据量）
+     */
+    @Transactional(rollbackFor = Exception.class)
+    public <T> String executeExportSync(CsvExportProvider<T> provider, Object params, List<String> columns, String createdBy) {
+        String queryParams = ExportParamsUtils.toCanonicalJson(params);
+        String paramsHash = exportResultCache.computeParamsHash(FileFormat.CSV, queryParams, columns);
+
+        ExportTaskHistory cached = exportResultCache.lookup(provider.getBusinessType(), paramsHash);
+        if (cached != null) {
+            return cached.getFileUrl();
+        }
+
+        ExportQuery query = newQuery(params, columns);
+        ExportTaskHistory task = createTask(provider.getBusinessType(), "PROCESSING", query, paramsHash, createdBy);
         
         try {
-            ExportResult<T> result = doExport(provider, params);
-            updateTaskSuccess(task.getId(), result.getFileUrl(), result.getTotalRows());
+            ExportResult result = doExport(provider, query, null);
+            exportTaskLifecycle.markSuccess(task.getId(), result);
             return result.getFileUrl();
         } catch (Exception e) {
             logger.error("CSV导出任务失败: taskId={}", task.getId(), e);
-            updateTaskFailed(task.getId(), e.getMessage());
+            exportTaskLifecycle.markFailed(task.getId(), e.getMessage());
             throw new RuntimeException("CSV导出任务失败", e);
         }
     }
 
     /**
-     * 核心导出逻辑
+     * 同步执行增量导出
+     * 仅导出该消费方上次成功导出水位之后的数据，导出成功后推进水位；失败时水位保持不变，下次重新导出
+     * 增量导出结果依赖水位，不参与结果缓存，也不走分区并行导出
+     *
+     * @param provider 支持增量导出的数据提供者
+     * @param params 查询参数
+     * @param consumerId 下游消费方标识
+     * @param createdBy 创建人
+     * @return 导出结果（含任务ID、文件地址、本次导出行数与水位是否推进成功）
      */
-    private <T> ExportResult<T> doExport(CsvExportProvider<T> provider, Object params) {
-        // 查询数据
-        List<T> data = provider.queryExportData(params);
-        
-        int totalRows = (data != null) ? data.size() : 0;
-        
-        if (totalRows == 0) {
-            logger.warn("导出数据为空: businessType={}", provider.getBusinessType());
-        }
+    @Transactional(rollbackFor = Exception.class)
+    public <T, P extends CsvExportProvider<T> & IncrementalDataProvider<T>> ExportResult executeIncrementalExportSync(
+            P provider, Object params, String consumerId, String createdBy) {
+        String businessType = provider.getBusinessType();
+        String fromWatermark = exportWatermarkService.getWatermark(businessType, consumerId);
+
+        ExportQuery query = newQuery(params, null);
+        ExportTaskHistory task = createTask(businessType, "PROCESSING", query, null, createdBy);
 
-        // 生成 CSV
-        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
-        
         try {
-            CsvUtils.writeCsv(outputStream, data, provider.getCsvHeaders());
+            query.setWatermark(fromWatermark);
+            WatermarkTracker<T> tracker = new WatermarkTracker<>(provider, fromWatermark);
+
+            ExportResult result = doExport(provider, query, tracker);
+            exportTaskLifecycle.markSuccess(task.getId(), result);
+
+            // 仅在导出成功后推进水位；水位已被并发任务修改时不推进，本次文件与并发任务的文件可能重叠
+            boolean advanced = exportWatermarkService.advance(businessType, consumerId, fromWatermark,
+                tracker.getHighWatermark(), task.getId());
+            result.setWatermarkAdvanced(advanced);
+
+            logger.info("增量导出任务完成: taskId={}, consumerId={}, fromWatermark={}, rows={}, watermarkAdvanced={}",
+                task.getId(), consumerId, fromWatermark, result.getTotalRows(), advanced);
+            result.setTaskId(task.getId());
+            return result;
         } catch (Exception e) {
-            logger.error("生成 CSV 失败", e);
-            throw new RuntimeException("生成 CSV 失败", e);
+            logger.error("增量导出任务失败: taskId={}, consumerId={}", task.getId(), consumerId, e);
+            exportTaskLifecycle.markFailed(task.getId(), e.getMessage());
+            throw new RuntimeException("增量导出任务失败", e);
         }
+    }
 
-        // 上传到 OSS
+    private ExportQuery newQuery(Object params, List<String> columns) {
+        ExportQuery query = new ExportQuery(params, properties.getExport().getFetchSize());
+        query.setColumns(columns == null || columns.isEmpty() ? null : columns);
+        return query;
+    }
+
+    /**
+     * 核心导出逻辑
+     * 数据按批流式写入上传会话，由存储层边写边分片上传，内存占用与导出总量无关；provider 声明压缩时在写出路径中流式压缩；
+     * 声明了分区的 provider 走分区并行导出。每批写出前与提交上传前检查取消令牌
+     */
+    private <T> ExportResult doExport(CsvExportProvider<T> provider, ExportQuery query, WatermarkTracker<T> tracker) {
         String fileName = provider.getExportFileName() + "_" + 
             LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyyMMddHHmmss")) + ".csv";
-        
-        ByteArrayInputStream inputStream = new ByteArrayInputStream(outputStream.toByteArray());
-        String fileUrl = fileStorageService.uploadFile(inputStream, fileName, "text/csv");
+
+        int totalRows;
+        String fileUrl;
+        Compression compression = provider.getCompression();
+
+        // 生成 CSV 并上传到 OSS：边查询边写入（按 provider 配置边写边压缩）
+        try (UploadSession session = fileStorageService.openUploadSession(
+                compression.fileName(fileName), compression.contentType("text/csv"))) {
+            try (OutputStream outputStream = compression.wrap(session.getOutputStream(), fileName)) {
+                if (tracker == null && provider instanceof PartitionedExportProvider) {
+                    totalRows = partitionedCsvExporter.export(provider, query.getParams(), query.getColumns(),
+                        query.getCancellationToken(), outputStream);
+                } else {
+                    totalRows = writeCsv(provider, query, tracker, outputStream);
+                }
+            }
+            // 取消时不提交，会话关闭即放弃上传并清理已写出的部分
+            query.getCancellationToken().throwIfCancellationRequested();
+            fileUrl = session.commit();
+        } catch (IOException e) {
+            logger.error("生成 CSV 失败", e);
+            throw new RuntimeException("生成 CSV 失败", e);
+        }
+
+        if (totalRows == 0) {
+            logger.warn("导出数据为空: businessType={}", provider.getBusinessType());
+        }
 
         logger.info("CSV导出文件生成成功: fileUrl={}, rows={}", fileUrl, totalRows);
-        
-        return new ExportResult<>(fileUrl, totalRows);
+
+        ExportResult result = new ExportResult();
+        result.setFileUrl(fileUrl);
+        result.setTotalRows(totalRows);
+        return result;
+    }
+
+    /**
+     * 流式写入 CSV（含表头），只写出列投影中的列；增量导出时同时跟踪已写出数据的最高水位
+     */
+    private <T> int writeCsv(CsvExportProvider<T> provider, ExportQuery query, WatermarkTracker<T> tracker,
+            OutputStream outputStream) throws IOException {
+        CsvColumnPlan plan = CsvColumnPlan.of(provider.getCsvModelClass(), provider.getCsvHeaders(), query.getColumns());
+        AtomicInteger totalRows = new AtomicInteger();
+
+        try (CSVWriter writer = CsvUtils.createWriter(outputStream)) {
+            writer.writeNext(plan.getHeaders());
+            provider.streamExportData(query, batch -> {
+                query.getCancellationToken().throwIfCancellationRequested();
+                CsvUtils.writeRows(writer, batch, plan);
+                totalRows.addAndGet(batch.size());
+                if (tracker != null) {
+                    tracker.observe(batch);
+                }
+            });
+        }
+        return totalRows.get();
     }
 
     /**
      * 创建导出任务
      */
-    private ExportTaskHistory createTask(String businessType, Object params, String createdBy) {
+    private ExportTaskHistory createTask(String businessType, String taskStatus, ExportQuery query, String paramsHash,
+                                         String createdBy) {
         ExportTaskHistory task = new ExportTaskHistory();
         task.setBusinessType(businessType);
-        task.setTaskStatus("PROCESSING");
-        task.setQueryParams(params != null ? params.toString() : "");
+        task.setTaskStatus(taskStatus);
+        task.setQueryParams(ExportParamsUtils.toCanonicalJson(query.getParams()));
+        task.setParamsType(query.getParams() != null ? query.getParams().getClass().getName() : null);
+        task.setExportColumns(query.getColumns() != null ? String.join(",", query.getColumns()) : null);
+        task.setParamsHash(paramsHash);
         task.setCreatedBy(createdBy);
         task.setCreatedTime(LocalDateTime.now());
         task.setUpdatedTime(LocalDateTime.now());
@@ -136,52 +341,4 @@ public class CsvExportService {
         
         return task;
     }
-
-    /**
-     * 更新任务为成功
-     */
-    private void updateTaskSuccess(Long taskId, String fileUrl, int totalRows) {
-        ExportTaskHistory task = new ExportTaskHistory();
-        task.setId(taskId);
-        task.setTaskStatus("SUCCESS");
-        task.setFileUrl(fileUrl);
-        task.setTotalRows(totalRows);
-        task.setUpdatedTime(LocalDateTime.now());
-        
-        exportTaskHistoryMapper.updateById(task);
-    }
-
-    /**
-     * 更新任务为失败
-     */
-    private void updateTaskFailed(Long taskId, String errorMessage) {
-        ExportTaskHistory task = new ExportTaskHistory();
-        task.setId(taskId);
-        task.setTaskStatus("FAILED");
-        task.setErrorMessage(errorMessage);
-        task.setUpdatedTime(LocalDateTime.now());
-        
-        exportTaskHistoryMapper.updateById(task);
-    }
-    
-    /**
-     * 导出结果包装类
-     */
-    private static class ExportResult<T> {
-        private final String fileUrl;
-        private final int totalRows;
-        
-        public ExportResult(String fileUrl, int totalRows) {
-            this.fileUrl = fileUrl;
-            this.totalRows = totalRows;
-        }
-        
-        public String getFileUrl() {
-            return fileUrl;
-        }
-        
-        public int getTotalRows() {
-            return totalRows;
-        }
-    }
 }
@@ -1,22 +1,24 @@
 package com.example.imexport.service;
 
+import com.example.imexport.config.TaskExecutorConfig;
 import com.example.imexport.core.CsvTemplateProvider;
-import com.example.imexport.storage.FileStorageService;
+import com.example.imexport.core.FileFormat;
 import com.example.imexport.util.CsvUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.annotation.Async;
 import org.springframework.stereotype.Service;
 
-import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
-import java.time.LocalDateTime;
-import java.time.format.DateTimeFormatter;
+import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.util.ArrayList;
+import java.util.concurrent.CompletableFuture;
 
 /**
  * CSV 模板服务
- * 提供 CSV 模板生成和下载功能
+ * 提供 CSV 模板生成和下载功能，模板内容与 OSS 文件由 TemplateArtifactCache 缓存复用
  */
 @Service
 public class CsvTemplateService {
@@ -24,10 +26,10 @@ public class CsvTemplateService {
     private static final Logger logger = LoggerFactory.getLogger(CsvTemplateService.class);
 
     @Autowired
-    private FileStorageService fileStorageService;
+    private TemplateArtifactCache templateArtifactCache;
 
     /**
-     * 生成模板并上传到 OSS，返回下载地址
+     * 生成模板并上传到 OSS，返回下载地址（同一模型类与表头只上传一次）
      *
      * @param provider 模板提供者
      * @param <T> 数据模型类型
@@ -35,25 +37,52 @@ public class CsvTemplateService {
      */
     public <T> String generateTemplateDownloadUrl(CsvTemplateProvider<T> provider) {
         try {
-            // 生成空白 CSV（仅包含表头）
-            ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
-            CsvUtils.writeCsv(outputStream, new ArrayList<>(), provider.getCsvHeaders());
-
-            // 上传到 OSS
-            String fileName = provider.getTemplateFileName() + "_template_" + 
-                LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyyMMddHHmmss")) + ".csv";
-            
-            ByteArrayInputStream inputStream = new ByteArrayInputStream(outputStream.toByteArray());
-            String templateUrl = fileStorageService.uploadFile(inputStream, fileName, "text/csv");
-
-            logger.info("CSV模板生成成功: businessType={}, templateUrl={}", 
-                provider.getBusinessType(), templateUrl);
-            
-            return templateUrl;
-            
+            return templateArtifactCache.getFileUrl(FileFormat.CSV, provider.getBusinessType(),
+                fingerprint(provider), provider.getTemplateFileName(), () -> buildTemplate(provider));
         } catch (Exception e) {
             logger.error("生成CSV模板失败: businessType={}", provider.getBusinessType(), e);
             throw new RuntimeException("生成CSV模板失败", e);
         }
     }
+
+    /**
+     * 获取模板文件内容（已缓存时直接返回）
+     *
+     * @param provider 模板提供者
+     * @param <T> 数据模型类型
+     * @return 模板文件字节
+     */
+    public <T> byte[] generateTemplateBytes(CsvTemplateProvider<T> provider) {
+        return templateArtifactCache.getBytes(FileFormat.CSV, provider.getBusinessType(),
+            fingerprint(provider), () -> buildTemplate(provider));
+    }
+
+    /**
+     * 在模板线程池中异步生成模板下载地址（首次生成较慢的模板不占用请求线程）
+     *
+     * @param provider 模板提供者
+     * @param <T> 数据模型类型
+     * @return 下载地址
+     */
+    @Async(TaskExecutorConfig.TEMPLATE_EXECUTOR)
+    public <T> CompletableFuture<String> generateTemplateDownloadUrlAsync(CsvTemplateProvider<T> provider) {
+        return CompletableFuture.completedFuture(generateTemplateDownloadUrl(provider));
+    }
+
+    /**
+     * 生成空白 CSV（仅包含表头）
+     */
+    private <T> byte[] buildTemplate(CsvTemplateProvider<T> provider) {
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        try {
+            CsvUtils.writeCsv(outputStream, new ArrayList<>(), provider.getCsvHeaders());
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return outputStream.toByteArray();
+    }
+
+    private <T> String fingerprint(CsvTemplateProvider<T> provider) {
+        return TemplateArtifactCache.fingerprint(provider.getCsvModelClass(), provider.getCsvHeaders());
+    }
 }
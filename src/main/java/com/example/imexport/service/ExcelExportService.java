@@ -1,22 +1,35 @@
 package com.example.imexport.service;
 
 import com.alibaba.excel.EasyExcel;
+import com.alibaba.excel.ExcelWriter;
+import com.alibaba.excel.write.builder.ExcelWriterBuilder;
+import com.example.imexport.config.ImExportProperties;
+import com.example.imexport.core.CancellationToken;
 import com.example.imexport.core.ExcelExportProvider;
+import com.example.imexport.core.ExportQuery;
+import com.example.imexport.core.FileFormat;
+import com.example.imexport.core.IncrementalDataProvider;
+import com.example.imexport.core.TaskLane;
 import com.example.imexport.mapper.ExportTaskHistoryMapper;
+import com.example.imexport.model.ExportResult;
 import com.example.imexport.model.ExportTaskHistory;
+import com.example.imexport.model.TaskSubmission;
 import com.example.imexport.storage.FileStorageService;
+import com.example.imexport.storage.UploadSession;
+import com.example.imexport.util.ExportParamsUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.scheduling.annotation.Async;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
-import java.io.ByteArrayInputStream;
-import java.io.ByteArrayOutputStream;
+import java.io.OutputStream;
+import java.lang.reflect.Field;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
+import java.util.Arrays;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
 
 /**
  * Excel 导出服务核心类
@@ -33,8 +46,26 @@ public class ExcelExportService {
     @Autowired
     private FileStorageService fileStorageService;
 
+    @Autowired
+    private ImExportProperties properties;
+
+    @Autowired
+    private ExportResultCache exportResultCache;
+
+    @Autowired
+    private ExportWatermarkService exportWatermarkService;
+
+    @Autowired
+    private TaskCompletionRegistry taskCompletionRegistry;
+
+    @Autowired
+    private TaskLaneScheduler laneScheduler;
+
+    @Autowired
+    private ExportTaskLifecycle exportTaskLifecycle;
+
     /**
-     * 异步执行导出任务
+     * 提交导出任务，任务记录在调用线程中写入后立即返回任务ID
      *
      * @param provider 数据提供者
      * @param params 查询参数
@@ -42,27 +73,95 @@ public class ExcelExportService {
      * @param <T> 导出数据模型类型
      * @return 任务ID
      */
-    @Async
-    @Transactional(rollbackFor = Exception.class)
     public <T> Long executeExportAsync(ExcelExportProvider<T> provider, Object params, String createdBy) {
-        // 创建任务记录
-        ExportTaskHistory task = createTask(provider.getBusinessType(), params, createdBy);
-        
+        return submitExport(provider, params, null, createdBy).getTaskId();
+    }
+
+    /**
+     * 提交列投影导出任务，只查询和写出指定列
+     *
+     * @param provider 数据提供者
+     * @param params 查询参数
+     * @param columns 导出列（模型字段名，按输出顺序），为空表示全部列
+     * @param createdBy 创建人
+     * @param <T> 导出数据模型类型
+     * @return 任务ID
+     */
+    public <T> Long executeExportAsync(ExcelExportProvider<T> provider, Object params, List<String> columns, String createdBy) {
+        return submitExport(provider, params, columns, createdBy).getTaskId();
+    }
+
+    /**
+     * 提交导出任务
+     * 在调用线程中写入 PENDING 任务记录后立即返回，导出在导出线程池中执行；
+     * 返回的 result 在任务成功时完成，失败（含并发超限被拒绝）时以异常完成
+     *
+     * @param provider 数据提供者
+     * @param params 查询参数
+     * @param columns 导出列（模型字段名，按输出顺序），为空表示全部列
+     * @param createdBy 创建人
+     * @param <T> 导出数据模型类型
+     * @return 任务ID与导出结果
+     * @throws IllegalArgumentException 查询参数无法序列化，不创建任务
+     */
+    public <T> TaskSubmission<ExportResult> submitExport(ExcelExportProvider<T> provider, Object params, List<String> columns,
+                                                         String createdBy) {
+        String queryParams = ExportParamsUtils.toCanonicalJson(params);
+        String paramsHash = exportResultCache.computeParamsHash(FileFormat.EXCEL, queryParams, columns);
+
+        // 相同请求在缓存有效期内已成功导出，直接复用
+        ExportTaskHistory cached = exportResultCache.lookup(provider.getBusinessType(), paramsHash);
+        if (cached != null) {
+            return new TaskSubmission<>(cached.getId(),
+                CompletableFuture.completedFuture(TaskCompletionRegistry.toExportResult(cached)));
+        }
+
+        // 创建任务记录（开始执行前为 PENDING）
+        ExportQuery query = newQuery(params, columns);
+        ExportTaskHistory task = createTask(provider.getBusinessType(), "PENDING", query, paramsHash, createdBy);
+        Long taskId = task.getId();
+        CompletableFuture<ExportResult> result = taskCompletionRegistry.watchExport(taskId);
+
+        // 分布式队列模式下由各节点工作线程领取执行
+        if (properties.getQueue().getMode() == ImExportProperties.QueueMode.DISTRIBUTED) {
+            logger.info("导出任务已入队: taskId={}, businessType={}", taskId, provider.getBusinessType());
+            return new TaskSubmission<>(taskId, result);
+        }
+
+        // 按预估行数进入快速通道或吞吐通道，通道内按提交人公平排队；同一业务类型的并发任务数受限，超限时排队或直接失败
+        TaskLane lane = laneScheduler.laneForExport(provider, query);
+        exportTaskLifecycle.submit(taskId, lane, createdBy, provider.getBusinessType(), "导出",
+            token -> runExport(provider, query, token));
+        return new TaskSubmission<>(taskId, result);
+    }
+
+    /**
+     * 执行分布式队列中已领取的导出任务（查询参数与导出列从任务记录还原）
+     *
+     * @param task 已领取的任务记录
+     * @param provider 该业务类型的数据提供者
+     * @param <T> 导出数据模型类型
+     */
+    public <T> void runClaimedTask(ExportTaskHistory task, ExcelExportProvider<T> provider) {
+        ExportQuery query;
         try {
-            // 执行导出
-            String fileUrl = doExport(provider, params);
-            
-            // 更新任务状态
-            updateTaskSuccess(task.getId(), fileUrl, 0); // 行数可以从实际数据中获取
-            
-            logger.info("导出任务完成: taskId={}, fileUrl={}", task.getId(), fileUrl);
-            return task.getId();
-            
-        } catch (Exception e) {
+            List<String> columns = task.getExportColumns() == null || task.getExportColumns().isEmpty()
+                ? null : Arrays.asList(task.getExportColumns().split(","));
+            query = newQuery(ExportParamsUtils.fromCanonicalJson(task.getQueryParams(), task.getParamsType()), columns);
+        } catch (IllegalArgumentException e) {
             logger.error("导出任务失败: taskId={}", task.getId(), e);
-            updateTaskFailed(task.getId(), e.getMessage());
-            throw new RuntimeException("导出任务失败", e);
+            exportTaskLifecycle.markFailed(task.getId(), e.getMessage());
+            return;
         }
+        exportTaskLifecycle.run(task.getId(), "导出", token -> runExport(provider, query, token));
+    }
+
+    /**
+     * 执行异步导出任务，导出中每批写出前检查任务的取消令牌
+     */
+    private <T> ExportResult runExport(ExcelExportProvider<T> provider, ExportQuery query, CancellationToken token) {
+        query.setCancellationToken(token);
+        return doExport(provider, query, null);
     }
 
     /**
@@ -70,57 +169,171 @@ public class ExcelExportService {
      */
     @Transactional(rollbackFor = Exception.class)
     public <T> String executeExportSync(ExcelExportProvider<T> provider, Object params, String createdBy) {
-        ExportTaskHistory task = createTask(provider.getBusinessType(), params, createdBy);
+        return executeExportSync(provider, params, null, createdBy);
+    }
+
+    /**
+     * 同步执行列投影导出（用于测试或小数据量）
+     */
+    @Transactional(rollbackFor = Exception.class)
+    public <T> String executeExportSync(ExcelExportProvider<T> provider, Object params, List<String> columns, String createdBy) {
+        String queryParams = ExportParamsUtils.toCanonicalJson(params);
+        String paramsHash = exportResultCache.computeParamsHash(FileFormat.EXCEL, queryParams, columns);
+
+        ExportTaskHistory cached = exportResultCache.lookup(provider.getBusinessType(), paramsHash);
+        if (cached != null) {
+            return cached.getFileUrl();
+        }
+
+        ExportQuery query = newQuery(params, columns);
+        ExportTaskHistory task = createTask(provider.getBusinessType(), "PROCESSING", query, paramsHash, createdBy);
         
         try {
-            String fileUrl = doExport(provider, params);
-            updateTaskSuccess(task.getId(), fileUrl, 0);
-            return fileUrl;
+            ExportResult result = doExport(provider, query, null);
+            exportTaskLifecycle.markSuccess(task.getId(), result);
+            return result.getFileUrl();
         } catch (Exception e) {
             logger.error("导出任务失败: taskId={}", task.getId(), e);
-            updateTaskFailed(task.getId(), e.getMessage());
+            exportTaskLifecycle.markFailed(task.getId(), e.getMessage());
             throw new RuntimeException("导出任务失败", e);
         }
     }
 
     /**
-     * 核心导出逻辑
+     * 同步执行增量导出
+     * 仅导出该消费方上次成功导出水位之后的数据，导出成功后推进水位；失败时水位保持不变，下次重新导出
+     * 增量导出结果依赖水位，不参与结果缓存
+     *
+     * @param provider 支持增量导出的数据提供者
+     * @param params 查询参数
+     * @param consumerId 下游消费方标识
+     * @param createdBy 创建人
+     * @return 导出结果（含任务ID、文件地址、本次导出行数与水位是否推进成功）
      */
-    private <T> String doExport(ExcelExportProvider<T> provider, Object params) {
-        // 查询数据
-        List<T> data = provider.queryExportData(params);
-        
-        if (data == null || data.isEmpty()) {
-            logger.warn("导出数据为空: businessType={}", provider.getBusinessType());
+    @Transactional(rollbackFor = Exception.class)
+    public <T, P extends ExcelExportProvider<T> & IncrementalDataProvider<T>> ExportResult executeIncrementalExportSync(
+            P provider, Object params, String consumerId, String createdBy) {
+        String businessType = provider.getBusinessType();
+        String fromWatermark = exportWatermarkService.getWatermark(businessType, consumerId);
+
+        ExportQuery query = newQuery(params, null);
+        ExportTaskHistory task = createTask(businessType, "PROCESSING", query, null, createdBy);
+
+        try {
+            query.setWatermark(fromWatermark);
+            WatermarkTracker<T> tracker = new WatermarkTracker<>(provider, fromWatermark);
+
+            ExportResult result = doExport(provider, query, tracker);
+            exportTaskLifecycle.markSuccess(task.getId(), result);
+
+            // 仅在导出成功后推进水位；水位已被并发任务修改时不推进，本次文件与并发任务的文件可能重叠
+            boolean advanced = exportWatermarkService.advance(businessType, consumerId, fromWatermark,
+                tracker.getHighWatermark(), task.getId());
+            result.setWatermarkAdvanced(advanced);
+
+            logger.info("增量导出任务完成: taskId={}, consumerId={}, fromWatermark={}, rows={}, watermarkAdvanced={}",
+                task.getId(), consumerId, fromWatermark, result.getTotalRows(), advanced);
+            result.setTaskId(task.getId());
+            return result;
+        } catch (Exception e) {
+            logger.error("增量导出任务失败: taskId={}, consumerId={}", task.getId(), consumerId, e);
+            exportTaskLifecycle.markFailed(task.getId(), e.getMessage());
+            throw new RuntimeException("增量导出任务失败", e);
         }
+    }
 
-        // 生成 Excel
-        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
-        
-        EasyExcel.write(outputStream, provider.getExcelModelClass())
-            .sheet(provider.getBusinessType())
-            .doWrite(data);
+    private ExportQuery newQuery(Object params, List<String> columns) {
+        ExportQuery query = new ExportQuery(params, properties.getExport().getFetchSize());
+        query.setColumns(columns == null || columns.isEmpty() ? null : columns);
+        return query;
+    }
 
-        // 上传到 OSS
+    /**
+     * 核心导出逻辑
+     * 通过单个 ExcelWriter 分页写入上传会话（EasyExcel 底层为 SXSSF 滑动窗口），由存储层边写边分片上传，
+     * 内存占用与导出总量无关；指定列投影时只写出这些列
+     */
+    private <T> ExportResult doExport(ExcelExportProvider<T> provider, ExportQuery query, WatermarkTracker<T> tracker) {
         String fileName = provider.getExportFileName() + "_" + 
             LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyyMMddHHmmss")) + ".xlsx";
-        
-        ByteArrayInputStream inputStream = new ByteArrayInputStream(outputStream.toByteArray());
-        String fileUrl = fileStorageService.uploadFile(inputStream, fileName, 
-            "application/vnd.openxmlformats-officedocument.spreadsheetml.sheet");
 
-        logger.info("导出文件生成成功: fileUrl={}, rows={}", fileUrl, data != null ? data.size() : 0);
-        return fileUrl;
+        int totalRows;
+        int sheetCount;
+        String fileUrl;
+
+        // 生成 Excel 并上传到 OSS：边查询边分页写入，超出单 Sheet 行数上限时自动分 Sheet
+        try (UploadSession session = fileStorageService.openUploadSession(fileName, 
+                "application/vnd.openxmlformats-officedocument.spreadsheetml.sheet")) {
+            ExcelWriter excelWriter = buildExcelWriter(session.getOutputStream(), provider.getExcelModelClass(),
+                query.getColumns());
+            try (RollingSheetExcelWriter<T> sheetWriter = new RollingSheetExcelWriter<>(
+                    excelWriter, provider.getBusinessType(), properties.getExport().getExcelSheetRowLimit())) {
+                provider.streamExportData(query, batch -> {
+                    query.getCancellationToken().throwIfCancellationRequested();
+                    sheetWriter.write(batch);
+                    if (tracker != null) {
+                        tracker.observe(batch);
+                    }
+                });
+                totalRows = sheetWriter.getTotalRows();
+                sheetCount = sheetWriter.getSheetCount();
+            }
+            // 取消时不提交，会话关闭即放弃上传并清理已写出的部分
+            query.getCancellationToken().throwIfCancellationRequested();
+            fileUrl = session.commit();
+        }
+
+        if (totalRows == 0) {
+            logger.warn("导出数据为空: businessType={}", provider.getBusinessType());
+        }
+
+        logger.info("导出文件生成成功: fileUrl={}, rows={}, sheets={}", fileUrl, totalRows, sheetCount);
+
+        ExportResult result = new ExportResult();
+        result.setFileUrl(fileUrl);
+        result.setTotalRows(totalRows);
+        return result;
+    }
+
+    /**
+     * 创建 ExcelWriter，指定列投影时只写出这些列并按给定顺序排列
+     */
+    private ExcelWriter buildExcelWriter(OutputStream outputStream, Class<?> modelClass, List<String> columns) {
+        ExcelWriterBuilder builder = EasyExcel.write(outputStream, modelClass);
+        if (columns != null) {
+            for (String column : columns) {
+                if (!hasField(modelClass, column)) {
+                    throw new IllegalArgumentException("未知的导出列: " + column + ", model=" + modelClass.getName());
+                }
+            }
+            builder.includeColumnFieldNames(columns).orderByIncludeColumn(true);
+        }
+        return builder.build();
+    }
+
+    private boolean hasField(Class<?> modelClass, String fieldName) {
+        for (Class<?> clazz = modelClass; clazz != null && clazz != Object.class; clazz = clazz.getSuperclass()) {
+            for (Field field : clazz.getDeclaredFields()) {
+                if (field.getName().equals(fieldName)) {
+                    return true;
+                }
+            }
+        }
+        return false;
     }
 
     /**
      * 创建导出任务
      */
-    private ExportTaskHistory createTask(String businessType, Object params, String createdBy) {
+    private ExportTaskHistory createTask(String businessType, String taskStatus, ExportQuery query, String paramsHash,
+                                         String createdBy) {
         ExportTaskHistory task = new ExportTaskHistory();
         task.setBusinessType(businessType);
-        task.setTaskStatus("PROCESSING");
-        task.setQueryParams(params != null ? params.toString() : "");
+        task.setTaskStatus(taskStatus);
+        task.setQueryParams(ExportParamsUtils.toCanonicalJson(query.getParams()));
+        task.setParamsType(query.getParams() != null ? query.getParams().getClass().getName() : null);
+        task.setExportColumns(query.getColumns() != null ? String.join(",", query.getColumns()) : null);
+        task.setParamsHash(paramsHash);
         task.setCreatedBy(createdBy);
         task.setCreatedTime(LocalDateTime.now());
         task.setUpdatedTime(LocalDateTime.now());
@@ -130,31 +343,4 @@ public class ExcelExportService {
         
         return task;
     }
-
-    /**
-     * 更新任务为成功
-     */
-    private void updateTaskSuccess(Long taskId, String fileUrl, int totalRows) {
-        ExportTaskHistory task = new ExportTaskHistory();
-        task.setId(taskId);
-        task.setTaskStatus("SUCCESS");
-        task.setFileUrl(fileUrl);
-        task.setTotalRows(totalRows);
-        task.setUpdatedTime(LocalDateTime.now());
-        
-        exportTaskHistoryMapper.updateById(task);
-    }
-
-    /**
-     * 更新任务为失败
-     */
-    private void updateTaskFailed(Long taskId, String errorMessage) {
-        ExportTaskHistory task = new ExportTaskHistory();
-        task.setId(taskId);
-        task.setTaskStatus("FAILED");
-        task.setErrorMessage(errorMessage);
-        task.setUpdatedTime(LocalDateTime.now());
-        
-        exportTaskHistoryMapper.updateById(task);
-    }
 }
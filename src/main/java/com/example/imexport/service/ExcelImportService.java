@@ -3,16 +3,22 @@ package com.example.imexport.service;
 import com.alibaba.excel.EasyExcel;
 import com.alibaba.excel.context.AnalysisContext;
 import com.alibaba.excel.event.AnalysisEventListener;
+import com.baomidou.mybatisplus.core.conditions.update.LambdaUpdateWrapper;
+import com.example.imexport.config.ImExportProperties;
+import com.example.imexport.core.CancellationToken;
 import com.example.imexport.core.ExcelRowProcessor;
+import com.example.imexport.core.TaskLane;
+import com.example.imexport.core.TaskType;
 import com.example.imexport.mapper.ImportTaskHistoryMapper;
 import com.example.imexport.model.ExcelRowError;
 import com.example.imexport.model.ImportResult;
 import com.example.imexport.model.ImportTaskHistory;
+import com.example.imexport.model.TaskSubmission;
 import com.example.imexport.storage.FileStorageService;
+import com.example.imexport.storage.UploadSession;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.scheduling.annotation.Async;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
@@ -21,6 +27,7 @@ import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
 
 /**
  * Excel 导入服务核心类
@@ -37,8 +44,32 @@ public class ExcelImportService {
     @Autowired
     private FileStorageService fileStorageService;
 
+    @Autowired
+    private BusinessTypeConcurrencyLimiter concurrencyLimiter;
+
+    @Autowired
+    private TaskCompletionRegistry taskCompletionRegistry;
+
+    @Autowired
+    private TaskCancellationService taskCancellationService;
+
+    @Autowired
+    private RunningTaskRegistry runningTaskRegistry;
+
+    @Autowired
+    private TaskLaneScheduler laneScheduler;
+
+    @Autowired
+    private StageExecutor stageExecutor;
+
+    @Autowired
+    private ImportFilePrefetcher importFilePrefetcher;
+
+    @Autowired
+    private ImExportProperties properties;
+
     /**
-     * 异步执行导入任务
+     * 提交导入任务，任务记录在调用线程中写入后立即返回任务ID
      *
      * @param fileUrl 原始文件 OSS 地址
      * @param processor 业务处理器
@@ -46,26 +77,102 @@ public class ExcelImportService {
      * @param <T> Excel 数据模型类型
      * @return 任务ID
      */
-    @Async
-    @Transactional(rollbackFor = Exception.class)
     public <T> Long executeImportAsync(String fileUrl, ExcelRowProcessor<T> processor, String createdBy) {
-        // 创建任务记录
-        ImportTaskHistory task = createTask(processor.getBusinessType(), fileUrl, createdBy);
-        
+        return submitImport(fileUrl, processor, createdBy).getTaskId();
+    }
+
+    /**
+     * 提交导入任务
+     * 在调用线程中写入 PENDING 任务记录后立即返回，导入在导入线程池中执行；
+     * 返回的 result 在任务成功时完成，失败（含并发超限被拒绝）时以异常完成
+     *
+     * @param fileUrl 原始文件 OSS 地址
+     * @param processor 业务处理器
+     * @param createdBy 创建人
+     * @param <T> Excel 数据模型类型
+     * @return 任务ID与导入结果
+     */
+    public <T> TaskSubmission<ImportResult> submitImport(String fileUrl, ExcelRowProcessor<T> processor, String createdBy) {
+        // 创建任务记录（开始执行前为 PENDING）
+        ImportTaskHistory task = createTask(processor.getBusinessType(), "PENDING", fileUrl, createdBy);
+        Long taskId = task.getId();
+        CompletableFuture<ImportResult> result = taskCompletionRegistry.watchImport(taskId);
+
+        // 分布式队列模式下由各节点工作线程领取执行
+        if (properties.getQueue().getMode() == ImExportProperties.QueueMode.DISTRIBUTED) {
+            logger.info("导入任务已入队: taskId={}, businessType={}", taskId, processor.getBusinessType());
+            return new TaskSubmission<>(taskId, result);
+        }
+
+        // 排队期间预先下载文件到本地暂存目录
+        importFilePrefetcher.prefetch(taskId, fileUrl);
+
+        // 按文件大小进入快速通道或吞吐通道，通道内按提交人公平排队；同一业务类型的并发任务数受限，超限时排队或直接失败
+        TaskLane lane = laneScheduler.laneForImport(fileUrl);
+        // 排队期间由卡死任务巡检写入心跳，节点重启后遗留的 PENDING 任务按心跳超时标记为失败
+        runningTaskRegistry.markQueued(TaskType.IMPORT, taskId);
+        laneScheduler.submit(TaskType.IMPORT, lane, createdBy, processor.getBusinessType(),
+            () -> concurrencyLimiter.execute(processor.getBusinessType(),
+                () -> runImport(taskId, fileUrl, processor),
+                reason -> updateTaskFailed(taskId, reason),
+                laneScheduler.resubmitter(TaskType.IMPORT, lane, createdBy, processor.getBusinessType())),
+            reason -> {
+                logger.warn("导入任务调度被拒绝: taskId={}, reason={}", taskId, reason);
+                updateTaskFailed(taskId, reason);
+            });
+        return new TaskSubmission<>(taskId, result);
+    }
+
+    /**
+     * 执行分布式队列中已领取的导入任务
+     *
+     * @param task 已领取的任务记录
+     * @param processor 该业务类型的处理器
+     * @param <T> 数据模型类型
+     */
+    public <T> void runClaimedTask(ImportTaskHistory task, ExcelRowProcessor<T> processor) {
+        runImport(task.getId(), task.getOriginalFileUrl(), processor);
+    }
+
+    /**
+     * 执行异步导入任务
+     */
+    private <T> void runImport(Long taskId, String fileUrl, ExcelRowProcessor<T> processor) {
+        CancellationToken token = runningTaskRegistry.register(TaskType.IMPORT, taskId);
+
+        // 任务在排队期间已被取消
+        if (!updateTaskProcessing(taskId)) {
+            runningTaskRegistry.unregister(TaskType.IMPORT, taskId);
+            importFilePrefetcher.release(taskId);
+            taskCancellationService.markCancelled(TaskType.IMPORT, taskId);
+            logger.info("导入任务已取消，跳过执行: taskId={}", taskId);
+            return;
+        }
+
         try {
             // 执行导入
-            ImportResult result = doImport(fileUrl, processor, task.getId());
-            
-            // 更新任务状态
-            updateTaskSuccess(task.getId(), result);
-            
-            logger.info("导入任务完成: taskId={}, result={}", task.getId(), result);
-            return task.getId();
+            ImportResult result = doImport(fileUrl, processor, taskId, token);
             
+            // 更新任务状态（任务已被巡检结束时不再通知完成）
+            if (!updateTaskSuccess(taskId, result)) {
+                return;
+            }
+
+            logger.info("导入任务完成: taskId={}, result={}", taskId, result);
+
+            taskCompletionRegistry.completeImport(taskId, result);
         } catch (Exception e) {
-            logger.error("导入任务失败: taskId={}", task.getId(), e);
-            updateTaskFailed(task.getId(), e.getMessage());
+            if (token.isCancellationRequested()) {
+                logger.info("导入任务已取消: taskId={}", taskId);
+                taskCancellationService.markCancelled(TaskType.IMPORT, taskId);
+                return;
+            }
+            logger.error("导入任务失败: taskId={}", taskId, e);
+            updateTaskFailed(taskId, e.getMessage());
             throw new RuntimeException("导入任务失败", e);
+        } finally {
+            runningTaskRegistry.unregister(TaskType.IMPORT, taskId);
+            importFilePrefetcher.release(taskId);
         }
     }
 
@@ -74,10 +181,10 @@ public class ExcelImportService {
      */
     @Transactional(rollbackFor = Exception.class)
     public <T> ImportResult executeImportSync(String fileUrl, ExcelRowProcessor<T> processor, String createdBy) {
-        ImportTaskHistory task = createTask(processor.getBusinessType(), fileUrl, createdBy);
+        ImportTaskHistory task = createTask(processor.getBusinessType(), "PROCESSING", fileUrl, createdBy);
         
         try {
-            ImportResult result = doImport(fileUrl, processor, task.getId());
+            ImportResult result = doImport(fileUrl, processor, task.getId(), CancellationToken.NONE);
             updateTaskSuccess(task.getId(), result);
             return result;
         } catch (Exception e) {
@@ -89,41 +196,47 @@ public class ExcelImportService {
 
     /**
      * 核心导入逻辑
+     * 逐行校验时与保存有效数据前检查取消令牌；有效数据一旦开始保存即不再响应取消
      */
-    private <T> ImportResult doImport(String fileUrl, ExcelRowProcessor<T> processor, Long taskId) {
+    private <T> ImportResult doImport(String fileUrl, ExcelRowProcessor<T> processor, Long taskId,
+                                      CancellationToken token) {
         ImportResult result = new ImportResult();
         result.setTaskId(taskId);
 
         List<T> validRows = new ArrayList<>();
         List<ExcelRowError<T>> errorRows = new ArrayList<>();
 
-        // 下载文件
-        InputStream inputStream = fileStorageService.downloadFile(fileUrl);
-
-        // 使用 EasyExcel 解析
-        EasyExcel.read(inputStream, processor.getExcelModelClass(), new AnalysisEventListener<T>() {
-            private int rowIndex = 0;
-
-            @Override
-            public void invoke(T data, AnalysisContext context) {
-                rowIndex++;
-                
-                // 校验数据
-                String errorMsg = processor.validateRow(data, rowIndex);
-                
-                if (errorMsg == null || errorMsg.isEmpty()) {
-                    validRows.add(data);
-                } else {
-                    errorRows.add(new ExcelRowError<>(rowIndex, data, errorMsg));
+        // 下载文件（已预取时直接读取本地暂存文件）
+        InputStream inputStream = importFilePrefetcher.open(taskId, fileUrl);
+
+        // 解析与逐行校验为 CPU 密集阶段，虚拟线程模式下在 CPU 线程池中执行
+        stageExecutor.runCpuStage(() -> {
+            EasyExcel.read(inputStream, processor.getExcelModelClass(), new AnalysisEventListener<T>() {
+                private int rowIndex = 0;
+
+                @Override
+                public void invoke(T data, AnalysisContext context) {
+                    token.throwIfCancellationRequested();
+                    rowIndex++;
+                    
+                    // 校验数据
+                    String errorMsg = processor.validateRow(data, rowIndex);
+                    
+                    if (errorMsg == null || errorMsg.isEmpty()) {
+                        validRows.add(data);
+                    } else {
+                        errorRows.add(new ExcelRowError<>(rowIndex, data, errorMsg));
+                    }
                 }
-            }
 
-            @Override
-            public void doAfterAllAnalysed(AnalysisContext context) {
-                logger.info("Excel 解析完成: totalRows={}, validRows={}, errorRows={}", 
-                    rowIndex, validRows.size(), errorRows.size());
-            }
-        }).sheet().doRead();
+                @Override
+                public void doAfterAllAnalysed(AnalysisContext context) {
+                    logger.info("Excel 解析完成: totalRows={}, validRows={}, errorRows={}", 
+                        rowIndex, validRows.size(), errorRows.size());
+                }
+            }).sheet().doRead();
+            return null;
+        });
 
         // 统计结果
         int totalRows = validRows.size() + errorRows.size();
@@ -131,6 +244,8 @@ public class ExcelImportService {
         result.setSuccessRows(validRows.size());
         result.setErrorRows(errorRows.size());
 
+        token.throwIfCancellationRequested();
+
         // 保存有效数据
         if (!validRows.isEmpty()) {
             processor.processValidRows(validRows);
@@ -153,8 +268,6 @@ public class ExcelImportService {
      */
     private <T> String generateErrorFile(List<ExcelRowError<T>> errorRows, ExcelRowProcessor<T> processor) {
         try {
-            ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
-            
             // 创建包含错误信息的数据模型
             List<ErrorExcelRow<T>> errorExcelRows = new ArrayList<>();
             for (ExcelRowError<T> error : errorRows) {
@@ -165,18 +278,18 @@ public class ExcelImportService {
                 errorExcelRows.add(errorExcelRow);
             }
 
-            // 写入 Excel
-            EasyExcel.write(outputStream, ErrorExcelRow.class)
-                .sheet("错误数据")
-                .doWrite(errorExcelRows);
-
-            // 上传到 OSS
             String fileName = "error_" + processor.getBusinessType() + "_" + 
                 LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyyMMddHHmmss")) + ".xlsx";
-            
-            ByteArrayInputStream inputStream = new ByteArrayInputStream(outputStream.toByteArray());
-            String errorFileUrl = fileStorageService.uploadFile(inputStream, fileName, 
-                "application/vnd.openxmlformats-officedocument.spreadsheetml.sheet");
+
+            // 写入 Excel 并上传到 OSS
+            String errorFileUrl;
+            try (UploadSession session = fileStorageService.openUploadSession(fileName, 
+                    "application/vnd.openxmlformats-officedocument.spreadsheetml.sheet")) {
+                EasyExcel.write(session.getOutputStream(), ErrorExcelRow.class)
+                    .sheet("错误数据")
+                    .doWrite(errorExcelRows);
+                errorFileUrl = session.commit();
+            }
 
             logger.info("错误文件生成成功: errorFileUrl={}", errorFileUrl);
             return errorFileUrl;
@@ -190,10 +303,10 @@ public class ExcelImportService {
     /**
      * 创建导入任务
      */
-    private ImportTaskHistory createTask(String businessType, String fileUrl, String createdBy) {
+    private ImportTaskHistory createTask(String businessType, String taskStatus, String fileUrl, String createdBy) {
         ImportTaskHistory task = new ImportTaskHistory();
         task.setBusinessType(businessType);
-        task.setTaskStatus("PROCESSING");
+        task.setTaskStatus(taskStatus);
         task.setOriginalFileUrl(fileUrl);
         task.setCreatedBy(createdBy);
         task.setCreatedTime(LocalDateTime.now());
@@ -206,32 +319,64 @@ public class ExcelImportService {
     }
 
     /**
-     * 更新任务为成功
+     * 更新任务为执行中（任务已被取消时不更新）
+     *
+     * @return 是否可以继续执行
+     */
+    private boolean updateTaskProcessing(Long taskId) {
+        return importTaskHistoryMapper.update(null, new LambdaUpdateWrapper<ImportTaskHistory>()
+            .set(ImportTaskHistory::getTaskStatus, "PROCESSING")
+            .set(ImportTaskHistory::getHeartbeatTime, LocalDateTime.now())
+            .set(ImportTaskHistory::getUpdatedTime, LocalDateTime.now())
+            .eq(ImportTaskHistory::getId, taskId)
+            .in(ImportTaskHistory::getTaskStatus, "PENDING", "PROCESSING")) > 0;
+    }
+
+    /**
+     * 更新任务为成功（仅执行中的任务）
+     * 有效数据开始保存后不再响应取消，此后收到的取消请求（CANCELLING）同样以成功结束；
+     * 任务已被巡检标记为失败或重新排队时不覆盖
+     *
+     * @return 是否已更新
      */
-    private void updateTaskSuccess(Long taskId, ImportResult result) {
+    private boolean updateTaskSuccess(Long taskId, ImportResult result) {
         ImportTaskHistory task = new ImportTaskHistory();
-        task.setId(taskId);
         task.setTaskStatus("SUCCESS");
         task.setTotalRows(result.getTotalRows());
         task.setSuccessRows(result.getSuccessRows());
         task.setErrorRows(result.getErrorRows());
         task.setErrorFileUrl(result.getErrorFileUrl());
         task.setUpdatedTime(LocalDateTime.now());
-        
-        importTaskHistoryMapper.updateById(task);
+
+        boolean updated = importTaskHistoryMapper.update(task, new LambdaUpdateWrapper<ImportTaskHistory>()
+            .eq(ImportTaskHistory::getId, taskId)
+            .in(ImportTaskHistory::getTaskStatus, "PROCESSING", "CANCELLING")) > 0;
+        if (!updated) {
+            logger.warn("任务状态已变更，不更新为成功: taskId={}", taskId);
+        }
+        return updated;
     }
 
     /**
-     * 更新任务为失败
+     * 更新任务为失败（仅排队或执行中的任务，已被取消、巡检结束或已成功的任务不覆盖）
+     * 同时释放排队期间预取的导入文件（调度或并发限制拒绝的任务不会再执行）
      */
     private void updateTaskFailed(Long taskId, String errorMessage) {
+        runningTaskRegistry.unregister(TaskType.IMPORT, taskId);
+        importFilePrefetcher.release(taskId);
         ImportTaskHistory task = new ImportTaskHistory();
-        task.setId(taskId);
         task.setTaskStatus("FAILED");
         task.setErrorMessage(errorMessage);
         task.setUpdatedTime(LocalDateTime.now());
-        
-        importTaskHistoryMapper.updateById(task);
+
+        boolean updated = importTaskHistoryMapper.update(task, new LambdaUpdateWrapper<ImportTaskHistory>()
+            .eq(ImportTaskHistory::getId, taskId)
+            .in(ImportTaskHistory::getTaskStatus, "PENDING", "PROCESSING")) > 0;
+        if (!updated) {
+            logger.warn("任务状态已变更，不更新为失败: taskId={}", taskId);
+            return;
+        }
+        taskCompletionRegistry.fail(TaskType.IMPORT, taskId, errorMessage);
     }
 
     /**
@@ -1,20 +1,22 @@
 package com.example.imexport.service;
 
 import com.alibaba.excel.EasyExcel;
+import com.example.imexport.config.TaskExecutorConfig;
 import com.example.imexport.core.ExcelTemplateProvider;
-import com.example.imexport.storage.FileStorageService;
+import com.example.imexport.core.FileFormat;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.annotation.Async;
 import org.springframework.stereotype.Service;
 
-import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
 import java.util.ArrayList;
+import java.util.concurrent.CompletableFuture;
 
 /**
  * Excel 模板服务
- * 提供模板生成和下载功能
+ * 提供模板生成和下载功能，模板内容与 OSS 文件由 TemplateArtifactCache 缓存复用，下载链接由存储层缓存复用
  */
 @Service
 public class ExcelTemplateService {
@@ -22,10 +24,10 @@ public class ExcelTemplateService {
     private static final Logger logger = LoggerFactory.getLogger(ExcelTemplateService.class);
 
     @Autowired
-    private FileStorageService fileStorageService;
+    private TemplateArtifactCache templateArtifactCache;
 
     /**
-     * 生成并上传模板文件
+     * 生成并上传模板文件（同一模型类只上传一次）
      *
      * @param provider 模板提供者
      * @param <T> Excel 数据模型类型
@@ -33,24 +35,8 @@ public class ExcelTemplateService {
      */
     public <T> String generateTemplate(ExcelTemplateProvider<T> provider) {
         try {
-            // 生成空白 Excel 模板（仅包含表头）
-            ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
-            
-            EasyExcel.write(outputStream, provider.getExcelModelClass())
-                .sheet(provider.getBusinessType())
-                .doWrite(new ArrayList<>()); // 空数据，仅生成表头
-
-            // 上传到 OSS
-            String fileName = provider.getTemplateFileName() + "_template.xlsx";
-            ByteArrayInputStream inputStream = new ByteArrayInputStream(outputStream.toByteArray());
-            String templateUrl = fileStorageService.uploadFile(inputStream, fileName, 
-                "application/vnd.openxmlformats-officedocument.spreadsheetml.sheet");
-
-            logger.info("模板文件生成成功: businessType={}, templateUrl={}", 
-                provider.getBusinessType(), templateUrl);
-            
-            return templateUrl;
-            
+            return templateArtifactCache.getFileUrl(FileFormat.EXCEL, provider.getBusinessType(),
+                fingerprint(provider), provider.getTemplateFileName(), () -> buildTemplate(provider));
         } catch (Exception e) {
             logger.error("模板文件生成失败: businessType={}", provider.getBusinessType(), e);
             throw new RuntimeException("模板文件生成失败", e);
@@ -58,14 +44,58 @@ public class ExcelTemplateService {
     }
 
     /**
-     * 生成临时下载链接
+     * 获取模板文件内容（已缓存时直接返回）
+     *
+     * @param provider 模板提供者
+     * @param <T> Excel 数据模型类型
+     * @return 模板文件字节
+     */
+    public <T> byte[] generateTemplateBytes(ExcelTemplateProvider<T> provider) {
+        return templateArtifactCache.getBytes(FileFormat.EXCEL, provider.getBusinessType(),
+            fingerprint(provider), () -> buildTemplate(provider));
+    }
+
+    /**
+     * 生成临时下载链接（链接在临近过期前复用）
      *
      * @param provider 模板提供者
      * @param <T> Excel 数据模型类型
      * @return 临时下载 URL
      */
     public <T> String generateTemplateDownloadUrl(ExcelTemplateProvider<T> provider) {
-        String templateUrl = generateTemplate(provider);
-        return fileStorageService.generatePresignedUrl(templateUrl, 3600); // 1小时有效期
+        try {
+            return templateArtifactCache.getDownloadUrl(FileFormat.EXCEL, provider.getBusinessType(),
+                fingerprint(provider), provider.getTemplateFileName(), () -> buildTemplate(provider));
+        } catch (Exception e) {
+            logger.error("模板文件生成失败: businessType={}", provider.getBusinessType(), e);
+            throw new RuntimeException("模板文件生成失败", e);
+        }
+    }
+
+    /**
+     * 在模板线程池中异步生成临时下载链接（首次生成较慢的模板不占用请求线程）
+     *
+     * @param provider 模板提供者
+     * @param <T> 数据模型类型
+     * @return 下载地址
+     */
+    @Async(TaskExecutorConfig.TEMPLATE_EXECUTOR)
+    public <T> CompletableFuture<String> generateTemplateDownloadUrlAsync(ExcelTemplateProvider<T> provider) {
+        return CompletableFuture.completedFuture(generateTemplateDownloadUrl(provider));
+    }
+
+    /**
+     * 生成空白 Excel 模板（仅包含表头）
+     */
+    private <T> byte[] buildTemplate(ExcelTemplateProvider<T> provider) {
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        EasyExcel.write(outputStream, provider.getExcelModelClass())
+            .sheet(provider.getBusinessType())
+            .doWrite(new ArrayList<>()); // 空数据，仅生成表头
+        return outputStream.toByteArray();
+    }
+
+    private <T> String fingerprint(ExcelTemplateProvider<T> provider) {
+        return TemplateArtifactCache.fingerprint(provider.getExcelModelClass());
     }
 }
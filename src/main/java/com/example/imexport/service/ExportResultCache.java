@@ -0,0 +1,131 @@
+package com.example.imexport.service;
+
+import com.baomidou.mybatisplus.core.conditions.query.LambdaQueryWrapper;
+import com.baomidou.mybatisplus.core.conditions.update.LambdaUpdateWrapper;
+import com.example.imexport.config.ImExportProperties;
+import com.example.imexport.core.FileFormat;
+import com.example.imexport.mapper.ExportTaskHistoryMapper;
+import com.example.imexport.model.ExportTaskHistory;
+import com.example.imexport.util.ExportParamsUtils;
+import com.example.imexport.util.HashUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * 导出结果缓存
+ * 以业务类型 + 参数哈希为键，在 TTL 内复用 export_task_history 中已成功任务的 fileUrl，命中时不再查询和上传；
+ * 缓存状态完全存放在任务表中，多节点共享
+ */
+@Component
+public class ExportResultCache {
+
+    private static final Logger logger = LoggerFactory.getLogger(ExportResultCache.class);
+
+    @Autowired
+    private ExportTaskHistoryMapper exportTaskHistoryMapper;
+
+    @Autowired
+    private ImExportProperties properties;
+
+    /**
+     * 计算缓存键（参数哈希）
+     *
+     * @param format 导出文件格式
+     * @param canonicalParams 规范化查询参数
+     * @return 参数哈希
+     */
+    public String computeParamsHash(FileFormat format, String canonicalParams) {
+        return HashUtils.sha256Hex(format.name() + "|" + canonicalParams);
+    }
+
+    /**
+     * 计算列投影导出的缓存键（参数哈希），列顺序不同视为不同请求
+     *
+     * @param format 导出文件格式
+     * @param canonicalParams 规范化查询参数
+     * @param columns 导出列，为空时与全部列导出的缓存键相同
+     * @return 参数哈希
+     */
+    public String computeParamsHash(FileFormat format, String canonicalParams, List<String> columns) {
+        if (columns == null || columns.isEmpty()) {
+            return computeParamsHash(format, canonicalParams);
+        }
+        return HashUtils.sha256Hex(format.name() + "|" + canonicalParams + "|" + String.join(",", columns));
+    }
+
+    /**
+     * 查找 TTL 内相同请求的成功导出任务
+     *
+     * @param businessType 业务类型
+     * @param paramsHash 参数哈希
+     * @return 命中的任务，未命中返回 null
+     */
+    public ExportTaskHistory lookup(String businessType, String paramsHash) {
+        Duration ttl = resolveTtl(businessType);
+        if (ttl.isZero() || ttl.isNegative()) {
+            return null;
+        }
+
+        ExportTaskHistory cached = exportTaskHistoryMapper.selectOne(new LambdaQueryWrapper<ExportTaskHistory>()
+            .eq(ExportTaskHistory::getBusinessType, businessType)
+            .eq(ExportTaskHistory::getParamsHash, paramsHash)
+            .eq(ExportTaskHistory::getTaskStatus, "SUCCESS")
+            .ge(ExportTaskHistory::getUpdatedTime, LocalDateTime.now().minus(ttl))
+            .orderByDesc(ExportTaskHistory::getId)
+            .last("LIMIT 1"));
+
+        if (cached != null) {
+            logger.info("命中导出结果缓存: businessType={}, taskId={}, fileUrl={}",
+                businessType, cached.getId(), cached.getFileUrl());
+        }
+        return cached;
+    }
+
+    /**
+     * 使业务类型下所有缓存结果失效（如业务数据批量变更后）
+     *
+     * @param businessType 业务类型
+     * @return 失效的任务数
+     */
+    public int invalidate(String businessType) {
+        int count = exportTaskHistoryMapper.update(null, new LambdaUpdateWrapper<ExportTaskHistory>()
+            .set(ExportTaskHistory::getParamsHash, null)
+            .eq(ExportTaskHistory::getBusinessType, businessType)
+            .isNotNull(ExportTaskHistory::getParamsHash));
+        logger.info("导出结果缓存失效: businessType={}, count={}", businessType, count);
+        return count;
+    }
+
+    /**
+     * 使指定请求的缓存结果失效（仅全部列导出；列投影导出的缓存需按业务类型整体失效）
+     *
+     * @param businessType 业务类型
+     * @param format 导出文件格式
+     * @param params 查询参数
+     * @return 失效的任务数
+     */
+    public int invalidate(String businessType, FileFormat format, Object params) {
+        String paramsHash = computeParamsHash(format, ExportParamsUtils.toCanonicalJson(params));
+        int count = exportTaskHistoryMapper.update(null, new LambdaUpdateWrapper<ExportTaskHistory>()
+            .set(ExportTaskHistory::getParamsHash, null)
+            .eq(ExportTaskHistory::getBusinessType, businessType)
+            .eq(ExportTaskHistory::getParamsHash, paramsHash));
+        logger.info("导出结果缓存失效: businessType={}, paramsHash={}, count={}", businessType, paramsHash, count);
+        return count;
+    }
+
+    private Duration resolveTtl(String businessType) {
+        ImExportProperties.Cache cache = properties.getExport().getCache();
+        if (!cache.isEnabled()) {
+            return Duration.ZERO;
+        }
+        Duration ttl = cache.getTtl().get(businessType);
+        return ttl != null ? ttl : cache.getDefaultTtl();
+    }
+}
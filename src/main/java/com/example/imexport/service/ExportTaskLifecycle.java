@@ -0,0 +1,200 @@
+package com.example.imexport.service;
+
+import com.baomidou.mybatisplus.core.conditions.update.LambdaUpdateWrapper;
+import com.example.imexport.core.CancellationToken;
+import com.example.imexport.core.TaskLane;
+import com.example.imexport.core.TaskType;
+import com.example.imexport.mapper.ExportTaskHistoryMapper;
+import com.example.imexport.model.ExportResult;
+import com.example.imexport.model.ExportTaskHistory;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDateTime;
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * 导出任务生命周期
+ * CSV、Excel 与打包导出共用的任务调度、状态流转、取消与完成通知：
+ * PENDING 任务经调度通道与业务类型并发限制后开始执行，更新为 PROCESSING 后执行导出，
+ * 成功、失败与取消按任务当前状态条件更新，已被取消或巡检结束的任务不覆盖
+ */
+@Component
+public class ExportTaskLifecycle {
+
+    private static final Logger logger = LoggerFactory.getLogger(ExportTaskLifecycle.class);
+
+    /**
+     * 打包导出的各文件行数按压缩包内的写入顺序序列化，不使用按键排序的规范化 JSON
+     */
+    private static final ObjectMapper ENTRY_STATS_MAPPER = new ObjectMapper();
+
+    @Autowired
+    private ExportTaskHistoryMapper exportTaskHistoryMapper;
+
+    @Autowired
+    private BusinessTypeConcurrencyLimiter concurrencyLimiter;
+
+    @Autowired
+    private TaskCompletionRegistry taskCompletionRegistry;
+
+    @Autowired
+    private TaskCancellationService taskCancellationService;
+
+    @Autowired
+    private RunningTaskRegistry runningTaskRegistry;
+
+    @Autowired
+    private TaskLaneScheduler laneScheduler;
+
+    /**
+     * 提交已写入 PENDING 记录的导出任务
+     * 进入调度通道按提交人公平排队，同一业务类型的并发任务数受限，超限时排队或直接失败；被拒绝的任务标记为失败
+     *
+     * @param taskId 任务ID
+     * @param lane 调度通道
+     * @param createdBy 创建人
+     * @param businessType 业务类型
+     * @param taskName 日志中的任务名称
+     * @param export 导出逻辑，参数为任务的取消令牌
+     */
+    public void submit(Long taskId, TaskLane lane, String createdBy, String businessType, String taskName,
+                       Function<CancellationToken, ExportResult> export) {
+        // 排队期间由卡死任务巡检写入心跳，节点重启后遗留的 PENDING 任务按心跳超时标记为失败
+        runningTaskRegistry.markQueued(TaskType.EXPORT, taskId);
+        laneScheduler.submit(TaskType.EXPORT, lane, createdBy, businessType,
+            () -> concurrencyLimiter.execute(businessType,
+                () -> run(taskId, taskName, export),
+                reason -> markFailed(taskId, reason),
+                laneScheduler.resubmitter(TaskType.EXPORT, lane, createdBy, businessType)),
+            reason -> {
+                logger.warn("{}任务调度被拒绝: taskId={}, reason={}", taskName, taskId, reason);
+                markFailed(taskId, reason);
+            });
+    }
+
+    /**
+     * 执行导出任务：登记取消令牌并更新为执行中，导出成功后通知完成；
+     * 排队期间或执行中被取消的任务标记为已取消，失败的任务标记为失败并抛出异常
+     *
+     * @param taskId 任务ID
+     * @param taskName 日志中的任务名称
+     * @param export 导出逻辑，参数为任务的取消令牌
+     */
+    public void run(Long taskId, String taskName, Function<CancellationToken, ExportResult> export) {
+        CancellationToken token = runningTaskRegistry.register(TaskType.EXPORT, taskId);
+
+        // 任务在排队期间已被取消
+        if (!markProcessing(taskId)) {
+            runningTaskRegistry.unregister(TaskType.EXPORT, taskId);
+            taskCancellationService.markCancelled(TaskType.EXPORT, taskId);
+            logger.info("{}任务已取消，跳过执行: taskId={}", taskName, taskId);
+            return;
+        }
+
+        try {
+            ExportResult result = export.apply(token);
+
+            // 文件生成后才收到的取消请求按取消处理，任务已被巡检结束时不再通知完成
+            if (!markSuccess(taskId, result)) {
+                if (token.isCancellationRequested()) {
+                    taskCancellationService.markCancelled(TaskType.EXPORT, taskId);
+                }
+                return;
+            }
+
+            if (result.getEntryRows() != null) {
+                logger.info("{}任务完成: taskId={}, fileUrl={}, entries={}",
+                    taskName, taskId, result.getFileUrl(), result.getEntryRows());
+            } else {
+                logger.info("{}任务完成: taskId={}, fileUrl={}, rows={}",
+                    taskName, taskId, result.getFileUrl(), result.getTotalRows());
+            }
+
+            result.setTaskId(taskId);
+            taskCompletionRegistry.completeExport(taskId, result);
+        } catch (Exception e) {
+            if (token.isCancellationRequested()) {
+                logger.info("{}任务已取消: taskId={}", taskName, taskId);
+                taskCancellationService.markCancelled(TaskType.EXPORT, taskId);
+                return;
+            }
+            logger.error("{}任务失败: taskId={}", taskName, taskId, e);
+            markFailed(taskId, e.getMessage());
+            throw new RuntimeException(taskName + "任务失败", e);
+        } finally {
+            runningTaskRegistry.unregister(TaskType.EXPORT, taskId);
+        }
+    }
+
+    /**
+     * 更新任务为成功（含打包导出的各文件行数；仅执行中的任务，已被请求取消、巡检标记为失败或重新排队的任务不覆盖）
+     *
+     * @return 是否已更新
+     */
+    public boolean markSuccess(Long taskId, ExportResult result) {
+        ExportTaskHistory task = new ExportTaskHistory();
+        task.setTaskStatus("SUCCESS");
+        task.setFileUrl(result.getFileUrl());
+        task.setTotalRows(result.getTotalRows());
+        if (result.getEntryRows() != null) {
+            task.setEntryStats(toEntryStats(result.getEntryRows()));
+        }
+        task.setUpdatedTime(LocalDateTime.now());
+
+        boolean updated = exportTaskHistoryMapper.update(task, new LambdaUpdateWrapper<ExportTaskHistory>()
+            .eq(ExportTaskHistory::getId, taskId)
+            .eq(ExportTaskHistory::getTaskStatus, "PROCESSING")) > 0;
+        if (!updated) {
+            logger.warn("任务状态已变更，不更新为成功: taskId={}", taskId);
+        }
+        return updated;
+    }
+
+    /**
+     * 更新任务为失败（仅排队或执行中的任务，已被取消、巡检结束或已成功的任务不覆盖）
+     */
+    public void markFailed(Long taskId, String errorMessage) {
+        runningTaskRegistry.unregister(TaskType.EXPORT, taskId);
+        ExportTaskHistory task = new ExportTaskHistory();
+        task.setTaskStatus("FAILED");
+        task.setErrorMessage(errorMessage);
+        task.setUpdatedTime(LocalDateTime.now());
+
+        boolean updated = exportTaskHistoryMapper.update(task, new LambdaUpdateWrapper<ExportTaskHistory>()
+            .eq(ExportTaskHistory::getId, taskId)
+            .in(ExportTaskHistory::getTaskStatus, "PENDING", "PROCESSING")) > 0;
+        if (!updated) {
+            logger.warn("任务状态已变更，不更新为失败: taskId={}", taskId);
+            return;
+        }
+        taskCompletionRegistry.fail(TaskType.EXPORT, taskId, errorMessage);
+    }
+
+    /**
+     * 更新任务为执行中（任务已被取消时不更新）
+     *
+     * @return 是否可以继续执行
+     */
+    private boolean markProcessing(Long taskId) {
+        return exportTaskHistoryMapper.update(null, new LambdaUpdateWrapper<ExportTaskHistory>()
+            .set(ExportTaskHistory::getTaskStatus, "PROCESSING")
+            .set(ExportTaskHistory::getHeartbeatTime, LocalDateTime.now())
+            .set(ExportTaskHistory::getUpdatedTime, LocalDateTime.now())
+            .eq(ExportTaskHistory::getId, taskId)
+            .in(ExportTaskHistory::getTaskStatus, "PENDING", "PROCESSING")) > 0;
+    }
+
+    private static String toEntryStats(Map<String, Integer> entryRows) {
+        try {
+            return ENTRY_STATS_MAPPER.writeValueAsString(entryRows);
+        } catch (JsonProcessingException e) {
+            return String.valueOf(entryRows);
+        }
+    }
+}
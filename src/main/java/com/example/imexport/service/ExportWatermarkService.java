@@ -0,0 +1,102 @@
+package com.example.imexport.service;
+
+import com.baomidou.mybatisplus.core.conditions.query.LambdaQueryWrapper;
+import com.baomidou.mybatisplus.core.conditions.update.LambdaUpdateWrapper;
+import com.example.imexport.mapper.ExportWatermarkMapper;
+import com.example.imexport.model.ExportWatermark;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDateTime;
+
+/**
+ * 增量导出水位服务
+ * 按业务类型 + 消费方维护已成功导出的最高水位，仅在导出成功后以比较并交换方式推进
+ */
+@Service
+public class ExportWatermarkService {
+
+    private static final Logger logger = LoggerFactory.getLogger(ExportWatermarkService.class);
+
+    @Autowired
+    private ExportWatermarkMapper exportWatermarkMapper;
+
+    /**
+     * 查询当前水位
+     *
+     * @param businessType 业务类型
+     * @param consumerId 消费方标识
+     * @return 当前水位，首次导出返回 null
+     */
+    public String getWatermark(String businessType, String consumerId) {
+        ExportWatermark watermark = findWatermark(businessType, consumerId);
+        return watermark != null ? watermark.getWatermark() : null;
+    }
+
+    /**
+     * 推进水位
+     * 仅当当前水位仍等于导出开始时读取的水位时更新，避免并发导出互相覆盖或回退
+     *
+     * @param businessType 业务类型
+     * @param consumerId 消费方标识
+     * @param expected 导出开始时的水位
+     * @param newWatermark 本次导出的最高水位
+     * @param taskId 导出任务ID
+     * @return 是否推进成功
+     */
+    public boolean advance(String businessType, String consumerId, String expected, String newWatermark, Long taskId) {
+        if (newWatermark == null || newWatermark.equals(expected)) {
+            logger.info("增量导出无新数据，水位不变: businessType={}, consumerId={}, watermark={}",
+                businessType, consumerId, expected);
+            return true;
+        }
+
+        ExportWatermark existing = findWatermark(businessType, consumerId);
+        boolean advanced;
+
+        if (existing == null) {
+            ExportWatermark watermark = new ExportWatermark();
+            watermark.setBusinessType(businessType);
+            watermark.setConsumerId(consumerId);
+            watermark.setWatermark(newWatermark);
+            watermark.setLastTaskId(taskId);
+            watermark.setCreatedTime(LocalDateTime.now());
+            watermark.setUpdatedTime(LocalDateTime.now());
+            try {
+                advanced = expected == null && exportWatermarkMapper.insert(watermark) > 0;
+            } catch (DuplicateKeyException e) {
+                advanced = false;
+            }
+        } else {
+            LambdaUpdateWrapper<ExportWatermark> wrapper = new LambdaUpdateWrapper<ExportWatermark>()
+                .set(ExportWatermark::getWatermark, newWatermark)
+                .set(ExportWatermark::getLastTaskId, taskId)
+                .set(ExportWatermark::getUpdatedTime, LocalDateTime.now())
+                .eq(ExportWatermark::getId, existing.getId());
+            if (expected == null) {
+                wrapper.isNull(ExportWatermark::getWatermark);
+            } else {
+                wrapper.eq(ExportWatermark::getWatermark, expected);
+            }
+            advanced = exportWatermarkMapper.update(null, wrapper) > 0;
+        }
+
+        if (advanced) {
+            logger.info("增量导出水位推进: businessType={}, consumerId={}, {} -> {}, taskId={}",
+                businessType, consumerId, expected, newWatermark, taskId);
+        } else {
+            logger.warn("增量导出水位已被并发任务修改，放弃推进: businessType={}, consumerId={}, expected={}, taskId={}",
+                businessType, consumerId, expected, taskId);
+        }
+        return advanced;
+    }
+
+    private ExportWatermark findWatermark(String businessType, String consumerId) {
+        return exportWatermarkMapper.selectOne(new LambdaQueryWrapper<ExportWatermark>()
+            .eq(ExportWatermark::getBusinessType, businessType)
+            .eq(ExportWatermark::getConsumerId, consumerId));
+    }
+}
@@ -0,0 +1,125 @@
+package com.example.imexport.service;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.Predicate;
+
+/**
+ * 按提交人加权公平排队（非线程安全，由调用方加锁）
+ * 每个提交人一个子队列，按虚拟时间（已服务量 / 权重）最小的子队列出队：权重为 2 的提交人获得权重为 1 的两倍出队机会，
+ * 新进入排队的提交人从当前虚拟时间开始计算，不会因此前空闲而积累额度，也不会排在突发提交的大量任务之后
+ *
+ * @param <T> 排队元素类型
+ */
+class FairShareQueue<T> {
+
+    private final Map<String, Flow<T>> flows = new LinkedHashMap<>();
+
+    private double virtualTime;
+
+    private int size;
+
+    /**
+     * 入队
+     *
+     * @param account 提交人
+     * @param weight 该任务的权重（大于 0）
+     * @param item 排队元素
+     */
+    void add(String account, double weight, T item) {
+        Flow<T> flow = flows.computeIfAbsent(account, key -> new Flow<>());
+        if (flow.items.isEmpty()) {
+            flow.pass = Math.max(flow.pass, virtualTime);
+        }
+        flow.items.add(new Entry<>(item, weight));
+        size++;
+    }
+
+    /**
+     * 按公平顺序查看下一个元素
+     *
+     * @param eligible 提交人是否可出队（如已达执行上限的提交人暂不出队）
+     * @return 下一个元素，没有可出队的提交人时为 null
+     */
+    T peek(Predicate<String> eligible) {
+        Map.Entry<String, Flow<T>> next = select(eligible);
+        return next != null ? next.getValue().items.peek().item : null;
+    }
+
+    /**
+     * 按公平顺序出队
+     *
+     * @param eligible 提交人是否可出队
+     * @return 出队元素，没有可出队的提交人时为 null
+     */
+    T poll(Predicate<String> eligible) {
+        Map.Entry<String, Flow<T>> next = select(eligible);
+        if (next == null) {
+            return null;
+        }
+        Flow<T> flow = next.getValue();
+        Entry<T> entry = flow.items.poll();
+        size--;
+        virtualTime = flow.pass;
+        flow.pass += 1.0 / entry.weight;
+        if (flow.items.isEmpty()) {
+            flows.remove(next.getKey());
+        }
+        return entry.item;
+    }
+
+    int size() {
+        return size;
+    }
+
+    boolean isEmpty() {
+        return size == 0;
+    }
+
+    int size(String account) {
+        Flow<T> flow = flows.get(account);
+        return flow != null ? flow.items.size() : 0;
+    }
+
+    /**
+     * 各提交人的排队数
+     */
+    Map<String, Integer> depthByAccount() {
+        Map<String, Integer> depth = new LinkedHashMap<>();
+        flows.forEach((account, flow) -> depth.put(account, flow.items.size()));
+        return depth;
+    }
+
+    private Map.Entry<String, Flow<T>> select(Predicate<String> eligible) {
+        Map.Entry<String, Flow<T>> selected = null;
+        for (Map.Entry<String, Flow<T>> entry : flows.entrySet()) {
+            if (!eligible.test(entry.getKey())) {
+                continue;
+            }
+            // 虚拟时间相同时按进入排队的先后顺序
+            if (selected == null || entry.getValue().pass < selected.getValue().pass) {
+                selected = entry;
+            }
+        }
+        return selected;
+    }
+
+    private static class Flow<T> {
+
+        private final Deque<Entry<T>> items = new ArrayDeque<>();
+        private double pass;
+    }
+
+    private static class Entry<T> {
+
+        private final T item;
+        private final double weight;
+
+        private Entry(T item, double weight) {
+            this.item = item;
+            this.weight = weight;
+        }
+    }
+}
@@ -0,0 +1,205 @@
+package com.example.imexport.service;
+
+import com.alibaba.excel.EasyExcel;
+import com.alibaba.excel.context.AnalysisContext;
+import com.alibaba.excel.event.AnalysisEventListener;
+import com.example.imexport.config.ImExportProperties;
+import com.example.imexport.core.CsvExportProvider;
+import com.example.imexport.core.CsvRowProcessor;
+import com.example.imexport.core.CsvTemplateProvider;
+import com.example.imexport.core.DataProvider;
+import com.example.imexport.core.ExcelExportProvider;
+import com.example.imexport.core.ExcelRowProcessor;
+import com.example.imexport.core.ExcelTemplateProvider;
+import com.example.imexport.core.RowProcessor;
+import com.example.imexport.core.TemplateProvider;
+import com.example.imexport.util.CsvColumnPlan;
+import com.example.imexport.util.CsvUtils;
+import com.opencsv.CSVWriter;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.context.ApplicationContext;
+import org.springframework.stereotype.Component;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 启动预热
+ * 在应用启动阶段发现所有 RowProcessor、DataProvider、TemplateProvider，预先构建并缓存字段绑定、EasyExcel 表头与模板，
+ * 并用合成数据行走一遍解析、校验与序列化路径（不会调用 processValidRows，也不访问存储），使首个请求不再承担类加载、
+ * 反射与 JIT 编译开销。ApplicationRunner 执行完成后 Spring Boot 才将就绪状态切换为 ACCEPTING_TRAFFIC
+ * 单个业务类型预热失败只记录日志，不影响启动
+ */
+@Component
+public class ImExportWarmupRunner implements ApplicationRunner {
+
+    private static final Logger logger = LoggerFactory.getLogger(ImExportWarmupRunner.class);
+
+    @Autowired
+    private ApplicationContext applicationContext;
+
+    @Autowired
+    private ImExportProperties properties;
+
+    @Autowired
+    private ExcelTemplateService excelTemplateService;
+
+    @Autowired
+    private CsvTemplateService csvTemplateService;
+
+    @Override
+    public void run(ApplicationArguments args) {
+        ImExportProperties.Warmup warmup = properties.getWarmup();
+        if (!warmup.isEnabled()) {
+            return;
+        }
+
+        long start = System.currentTimeMillis();
+        int rows = Math.max(1, warmup.getSyntheticRows());
+        int warmed = 0;
+
+        for (String beanName : applicationContext.getBeanNamesForType(RowProcessor.class)) {
+            RowProcessor<?> processor = applicationContext.getBean(beanName, RowProcessor.class);
+            warmed += warm(beanName, () -> warmRowProcessor(processor, rows));
+        }
+        for (String beanName : applicationContext.getBeanNamesForType(DataProvider.class)) {
+            DataProvider<?> provider = applicationContext.getBean(beanName, DataProvider.class);
+            warmed += warm(beanName, () -> warmDataProvider(provider, rows));
+        }
+        for (String beanName : applicationContext.getBeanNamesForType(TemplateProvider.class)) {
+            TemplateProvider<?> provider = applicationContext.getBean(beanName, TemplateProvider.class);
+            warmed += warm(beanName, () -> warmTemplateProvider(provider));
+        }
+
+        logger.info("导入导出预热完成: beans={}, syntheticRows={}, elapsed={}ms",
+            warmed, rows, System.currentTimeMillis() - start);
+    }
+
+    private int warm(String beanName, WarmupTask task) {
+        long start = System.currentTimeMillis();
+        try {
+            task.run();
+            logger.debug("预热完成: bean={}, elapsed={}ms", beanName, System.currentTimeMillis() - start);
+            return 1;
+        } catch (Exception e) {
+            logger.warn("预热失败，跳过: bean={}", beanName, e);
+            return 0;
+        }
+    }
+
+    /**
+     * 导入：合成数据 -> 文件字节 -> 解析 -> 校验
+     */
+    private <T> void warmRowProcessor(RowProcessor<T> processor, int rows) throws Exception {
+        List<T> syntheticRows = buildSyntheticRows(processor.getModelClass(), rows);
+
+        if (processor instanceof CsvRowProcessor) {
+            String[] headers = ((CsvRowProcessor<T>) processor).getCsvHeaders();
+            ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+            CsvUtils.writeCsv(outputStream, syntheticRows, headers);
+            List<T> parsed = CsvUtils.readCsv(new ByteArrayInputStream(outputStream.toByteArray()),
+                processor.getModelClass(), headers);
+            for (int i = 0; i < parsed.size(); i++) {
+                processor.validateRow(parsed.get(i), i + 1);
+            }
+        } else if (processor instanceof ExcelRowProcessor) {
+            Class<T> modelClass = ((ExcelRowProcessor<T>) processor).getExcelModelClass();
+            ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+            EasyExcel.write(outputStream, modelClass).sheet(processor.getBusinessType()).doWrite(syntheticRows);
+            EasyExcel.read(new ByteArrayInputStream(outputStream.toByteArray()), modelClass,
+                new AnalysisEventListener<T>() {
+                    private int rowIndex = 0;
+
+                    @Override
+                    public void invoke(T data, AnalysisContext context) {
+                        processor.validateRow(data, ++rowIndex);
+                    }
+
+                    @Override
+                    public void doAfterAllAnalysed(AnalysisContext context) {
+                    }
+                }).sheet().doRead();
+        }
+    }
+
+    /**
+     * 导出：构建列写出计划 / EasyExcel 表头，并序列化合成数据（不调用 queryExportData）
+     */
+    private <T> void warmDataProvider(DataProvider<T> provider, int rows) throws Exception {
+        List<T> syntheticRows = buildSyntheticRows(provider.getModelClass(), rows);
+
+        if (provider instanceof CsvExportProvider) {
+            CsvExportProvider<T> csvProvider = (CsvExportProvider<T>) provider;
+            CsvColumnPlan plan = CsvColumnPlan.of(csvProvider.getCsvModelClass(), csvProvider.getCsvHeaders());
+            try (CSVWriter writer = CsvUtils.createWriter(new ByteArrayOutputStream())) {
+                writer.writeNext(plan.getHeaders());
+                CsvUtils.writeRows(writer, syntheticRows, plan);
+            }
+        } else if (provider instanceof ExcelExportProvider) {
+            EasyExcel.write(new ByteArrayOutputStream(), ((ExcelExportProvider<T>) provider).getExcelModelClass())
+                .sheet(provider.getBusinessType())
+                .doWrite(syntheticRows);
+        }
+    }
+
+    /**
+     * 模板：生成并缓存模板内容（上传推迟到首次下载）
+     */
+    private <T> void warmTemplateProvider(TemplateProvider<T> provider) {
+        if (provider instanceof ExcelTemplateProvider) {
+            excelTemplateService.generateTemplateBytes((ExcelTemplateProvider<T>) provider);
+        } else if (provider instanceof CsvTemplateProvider) {
+            csvTemplateService.generateTemplateBytes((CsvTemplateProvider<T>) provider);
+        }
+    }
+
+    /**
+     * 构建合成数据行：按字段类型填充示例值（仅基本类型与字符串，其他字段保持为空）
+     */
+    private <T> List<T> buildSyntheticRows(Class<T> modelClass, int rows) throws Exception {
+        List<T> result = new ArrayList<>(rows);
+        for (int i = 0; i < rows; i++) {
+            T instance = modelClass.getDeclaredConstructor().newInstance();
+            for (Field field : modelClass.getDeclaredFields()) {
+                if (Modifier.isStatic(field.getModifiers()) || Modifier.isFinal(field.getModifiers())) {
+                    continue;
+                }
+                Object value = syntheticValue(field.getType(), i);
+                if (value != null) {
+                    field.setAccessible(true);
+                    field.set(instance, value);
+                }
+            }
+            result.add(instance);
+        }
+        return result;
+    }
+
+    private Object syntheticValue(Class<?> type, int index) {
+        if (type == String.class) {
+            return "warmup" + index;
+        } else if (type == int.class || type == Integer.class) {
+            return index;
+        } else if (type == long.class || type == Long.class) {
+            return (long) index;
+        } else if (type == double.class || type == Double.class) {
+            return (double) index;
+        } else if (type == boolean.class || type == Boolean.class) {
+            return index % 2 == 0;
+        }
+        return null;
+    }
+
+    @FunctionalInterface
+    private interface WarmupTask {
+        void run() throws Exception;
+    }
+}
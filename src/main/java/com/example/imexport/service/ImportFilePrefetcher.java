@@ -0,0 +1,330 @@
+package com.example.imexport.service;
+
+import com.example.imexport.config.ImExportProperties;
+import com.example.imexport.storage.FileStorageService;
+import com.example.imexport.storage.ObjectMetadata;
+import com.example.imexport.storage.ParallelRangeDownloader;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 导入文件预取
+ * 导入任务提交后、等待执行期间，在独立的有界线程池中把文件从 FileStorageService 下载到本地暂存目录，
+ * 任务开始执行时直接从本地磁盘读取：
+ * <ul>
+ *     <li>大文件由 ParallelRangeDownloader 分段并行下载</li>
+ *     <li>暂存文件（含下载中）总大小不超过 max-total-size，按存储元数据中的文件大小预留空间，大小未知的文件不预取</li>
+ *     <li>空间不足时淘汰超过 max-staged-age 且尚未被任务打开的暂存文件（如排队期间被取消的任务），仍不足则不预取</li>
+ *     <li>任务开始时预取尚未开始则取消并直接下载；下载中则等待完成；预取失败时回退到直接下载</li>
+ *     <li>任务结束后删除暂存文件并释放空间</li>
+ * </ul>
+ * 分布式队列模式下任务可能由其他节点执行，不预取
+ */
+@Component
+public class ImportFilePrefetcher {
+
+    private static final Logger logger = LoggerFactory.getLogger(ImportFilePrefetcher.class);
+
+    private static final String STAGED_SUFFIX = ".staged";
+
+    private static final int QUEUED = 0;
+    private static final int DOWNLOADING = 1;
+    private static final int DONE = 2;
+    private static final int CANCELLED = 3;
+    private static final int CLAIMED = 4;
+
+    @Autowired
+    private ImExportProperties properties;
+
+    @Autowired
+    private FileStorageService fileStorageService;
+
+    @Autowired
+    private ParallelRangeDownloader rangeDownloader;
+
+    private final Map<Long, StagedFile> stagedFiles = new ConcurrentHashMap<>();
+
+    private final AtomicLong hitCount = new AtomicLong();
+    private final AtomicLong missCount = new AtomicLong();
+    private final AtomicLong skippedCount = new AtomicLong();
+    private final AtomicLong evictedCount = new AtomicLong();
+
+    private long reservedBytes;
+
+    private Path stagingDir;
+
+    private ThreadPoolTaskExecutor downloader;
+
+    @PostConstruct
+    public void init() {
+        ImExportProperties.Prefetch prefetch = properties.getStorage().getPrefetch();
+        if (!prefetch.isEnabled()) {
+            return;
+        }
+        stagingDir = prefetch.getStagingDir() != null && !prefetch.getStagingDir().isEmpty()
+            ? Paths.get(prefetch.getStagingDir())
+            : Paths.get(System.getProperty("java.io.tmpdir"), "imexport-prefetch");
+        try {
+            Files.createDirectories(stagingDir);
+            deleteStagedFiles();
+        } catch (IOException e) {
+            logger.warn("创建预取暂存目录失败，不预取导入文件: stagingDir={}", stagingDir, e);
+            return;
+        }
+
+        downloader = new ThreadPoolTaskExecutor();
+        downloader.setCorePoolSize(Math.max(1, prefetch.getThreads()));
+        downloader.setMaxPoolSize(Math.max(1, prefetch.getThreads()));
+        downloader.setQueueCapacity(Math.max(0, prefetch.getMaxQueued()));
+        downloader.setThreadNamePrefix("import-prefetch-");
+        downloader.initialize();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (downloader != null) {
+            downloader.shutdown();
+            try {
+                deleteStagedFiles();
+            } catch (IOException e) {
+                logger.warn("清理预取暂存目录失败: stagingDir={}", stagingDir, e);
+            }
+        }
+    }
+
+    /**
+     * 开始预取任务的导入文件（空间不足、大小未知或下载队列已满时忽略）
+     *
+     * @param taskId 任务ID
+     * @param fileUrl 导入文件 OSS 地址
+     */
+    public void prefetch(Long taskId, String fileUrl) {
+        if (downloader == null) {
+            return;
+        }
+        long fileSize = sizeOf(fileUrl);
+        if (fileSize < 0 || !reserve(fileSize)) {
+            skippedCount.incrementAndGet();
+            logger.debug("跳过预取: taskId={}, fileSize={}", taskId, fileSize);
+            return;
+        }
+
+        StagedFile file = new StagedFile(fileUrl, fileSize, stagingDir.resolve(taskId + STAGED_SUFFIX));
+        if (stagedFiles.putIfAbsent(taskId, file) != null) {
+            unreserve(fileSize);
+            return;
+        }
+        try {
+            downloader.execute(() -> download(taskId, file));
+        } catch (RejectedExecutionException e) {
+            skippedCount.incrementAndGet();
+            discard(taskId, file);
+        }
+    }
+
+    /**
+     * 打开任务的导入文件：已预取时读取本地暂存文件，否则直接从存储下载
+     *
+     * @param taskId 任务ID
+     * @param fileUrl 导入文件 OSS 地址
+     * @return 文件输入流
+     */
+    public InputStream open(Long taskId, String fileUrl) {
+        StagedFile file = stagedFiles.get(taskId);
+        if (file != null && file.fileUrl.equals(fileUrl)) {
+            // 预取尚未开始，不再等待下载队列
+            if (file.state.compareAndSet(QUEUED, CANCELLED)) {
+                discard(taskId, file);
+            } else if (awaitDownload(file) && file.state.compareAndSet(DONE, CLAIMED)) {
+                // 已被任务打开，不再参与淘汰
+                try {
+                    InputStream inputStream = Files.newInputStream(file.path);
+                    hitCount.incrementAndGet();
+                    logger.debug("读取预取的导入文件: taskId={}, path={}", taskId, file.path);
+                    return inputStream;
+                } catch (IOException e) {
+                    logger.warn("读取预取文件失败，直接下载: taskId={}, path={}", taskId, file.path, e);
+                }
+            }
+        }
+        missCount.incrementAndGet();
+        return fileStorageService.downloadFile(fileUrl);
+    }
+
+    /**
+     * 任务结束后删除暂存文件并释放空间
+     *
+     * @param taskId 任务ID
+     */
+    public void release(Long taskId) {
+        StagedFile file = stagedFiles.get(taskId);
+        if (file != null) {
+            file.state.compareAndSet(QUEUED, CANCELLED);
+            discard(taskId, file);
+        }
+    }
+
+    /**
+     * 预取指标
+     *
+     * @return stagedFiles、reservedBytes、maxTotalBytes、hits、misses、skipped、evicted
+     */
+    public Map<String, Long> snapshot() {
+        Map<String, Long> stats = new LinkedHashMap<>();
+        stats.put("stagedFiles", (long) stagedFiles.size());
+        synchronized (this) {
+            stats.put("reservedBytes", reservedBytes);
+        }
+        stats.put("maxTotalBytes", properties.getStorage().getPrefetch().getMaxTotalSize().toBytes());
+        stats.put("hits", hitCount.get());
+        stats.put("misses", missCount.get());
+        stats.put("skipped", skippedCount.get());
+        stats.put("evicted", evictedCount.get());
+        return stats;
+    }
+
+    private void download(Long taskId, StagedFile file) {
+        if (!file.state.compareAndSet(QUEUED, DOWNLOADING)) {
+            return;
+        }
+        boolean success = false;
+        try {
+            // 大文件分段并行下载
+            rangeDownloader.download(fileStorageService, file.fileUrl, file.size, file.path);
+            success = true;
+            logger.debug("导入文件预取完成: taskId={}, size={}", taskId, file.size);
+        } catch (Exception e) {
+            logger.warn("导入文件预取失败: taskId={}, fileUrl={}", taskId, file.fileUrl, e);
+        } finally {
+            file.state.set(DONE);
+            file.downloaded.complete(success);
+        }
+        // 下载期间任务已结束或被淘汰
+        if (!success || file.discarded) {
+            discard(taskId, file);
+        }
+    }
+
+    private boolean awaitDownload(StagedFile file) {
+        try {
+            return file.downloaded.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        } catch (ExecutionException e) {
+            return false;
+        }
+    }
+
+    /**
+     * 移除暂存记录、释放预留空间并删除文件（下载中的文件在下载结束后删除）
+     */
+    private void discard(Long taskId, StagedFile file) {
+        file.discarded = true;
+        if (stagedFiles.remove(taskId, file)) {
+            unreserve(file.size);
+        }
+        if (file.state.get() != DOWNLOADING) {
+            deleteQuietly(file.path);
+        }
+    }
+
+    /**
+     * 预留暂存空间，不足时先淘汰超过最长保留时长的已完成暂存文件
+     */
+    private synchronized boolean reserve(long fileSize) {
+        long maxTotalBytes = properties.getStorage().getPrefetch().getMaxTotalSize().toBytes();
+        if (reservedBytes + fileSize > maxTotalBytes) {
+            evictExpired();
+        }
+        if (reservedBytes + fileSize > maxTotalBytes) {
+            return false;
+        }
+        reservedBytes += fileSize;
+        return true;
+    }
+
+    private synchronized void unreserve(long fileSize) {
+        reservedBytes -= fileSize;
+    }
+
+    private void evictExpired() {
+        long maxAgeMillis = properties.getStorage().getPrefetch().getMaxStagedAge().toMillis();
+        long now = System.currentTimeMillis();
+        Iterator<Map.Entry<Long, StagedFile>> iterator = stagedFiles.entrySet().iterator();
+        while (iterator.hasNext()) {
+            Map.Entry<Long, StagedFile> entry = iterator.next();
+            StagedFile file = entry.getValue();
+            // 已被任务打开的文件在任务结束时删除
+            if (now - file.createdAt > maxAgeMillis && file.state.compareAndSet(DONE, CANCELLED)) {
+                discard(entry.getKey(), file);
+                evictedCount.incrementAndGet();
+                logger.info("淘汰过期的预取文件: taskId={}, size={}", entry.getKey(), file.size);
+            }
+        }
+    }
+
+    private long sizeOf(String fileUrl) {
+        try {
+            ObjectMetadata metadata = fileStorageService.getObjectMetadata(fileUrl);
+            return metadata != null ? metadata.getContentLength() : -1;
+        } catch (RuntimeException e) {
+            logger.debug("获取导入文件大小失败: fileUrl={}", fileUrl, e);
+            return -1;
+        }
+    }
+
+    private void deleteStagedFiles() throws IOException {
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(stagingDir, "*" + STAGED_SUFFIX)) {
+            for (Path file : files) {
+                deleteQuietly(file);
+            }
+        }
+    }
+
+    private void deleteQuietly(Path path) {
+        try {
+            Files.deleteIfExists(path);
+        } catch (IOException e) {
+            logger.warn("删除预取文件失败: path={}", path, e);
+        }
+    }
+
+    private static class StagedFile {
+
+        private final String fileUrl;
+        private final long size;
+        private final Path path;
+        private final long createdAt = System.currentTimeMillis();
+        private final AtomicInteger state = new AtomicInteger(QUEUED);
+        private final CompletableFuture<Boolean> downloaded = new CompletableFuture<>();
+        private volatile boolean discarded;
+
+        private StagedFile(String fileUrl, long size, Path path) {
+            this.fileUrl = fileUrl;
+            this.size = size;
+            this.path = path;
+        }
+    }
+}
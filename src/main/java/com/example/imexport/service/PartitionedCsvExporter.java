@@ -0,0 +1,340 @@
+package com.example.imexport.service;
+
+import com.example.imexport.config.ImExportProperties;
+import com.example.imexport.core.CancellationToken;
+import com.example.imexport.core.CsvExportProvider;
+import com.example.imexport.core.ExportQuery;
+import com.example.imexport.core.PartitionedExportProvider;
+import com.example.imexport.core.TaskCancelledException;
+import com.example.imexport.util.CsvColumnPlan;
+import com.example.imexport.util.CsvUtils;
+import com.opencsv.CSVWriter;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * CSV 分区并行导出器
+ * 各分区在有界线程池上并发查询并写入独立的临时文件，全部完成后按分区顺序直接拼接到目标输出（不重新编码）：
+ * 目标为文件输出流时通过 FileChannel.transferTo 在内核中拷贝，其他输出流（如压缩、上传流）按缓冲区拷贝。
+ * 同一业务类型的分区并发数受全局上限约束以保护数据库，许可只在该业务类型有导出进行中时保留
+ */
+@Component
+public class PartitionedCsvExporter {
+
+    private static final Logger logger = LoggerFactory.getLogger(PartitionedCsvExporter.class);
+
+    /**
+     * 等待分区许可时检查取消令牌的间隔
+     */
+    private static final long PERMIT_POLL_MILLIS = 200;
+
+    @Autowired
+    private ImExportProperties properties;
+
+    private ExecutorService partitionExecutor;
+
+    /**
+     * 业务类型 -> 分区并发许可（跨导出任务共享，没有导出进行中且许可全部归还后移除）
+     */
+    private final ConcurrentHashMap<String, PartitionPermits> businessTypePermits = new ConcurrentHashMap<>();
+
+    @PostConstruct
+    public void init() {
+        int poolSize = Math.max(1, properties.getExport().getPartition().getPoolSize());
+        partitionExecutor = new ThreadPoolExecutor(poolSize, poolSize, 60L, TimeUnit.SECONDS,
+            new LinkedBlockingQueue<>(), new CustomizableThreadFactory("csv-partition-"));
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        partitionExecutor.shutdownNow();
+    }
+
+    /**
+     * 分区并行导出到目标输出流（含表头）
+     *
+     * @param provider 数据提供者（须同时实现 PartitionedExportProvider）
+     * @param params 查询参数
+     * @param target 目标输出流（不会被关闭）
+     * @param <T> 导出数据模型类型
+     * @return 导出总行数
+     */
+    public <T> int export(CsvExportProvider<T> provider, Object params, OutputStream target) {
+        return export(provider, params, null, target);
+    }
+
+    /**
+     * 分区并行导出指定列到目标输出流（含表头）
+     *
+     * @param provider 数据提供者（须同时实现 PartitionedExportProvider）
+     * @param params 查询参数
+     * @param columns 导出列（模型字段名，按输出顺序），为空表示全部列
+     * @param target 目标输出流（不会被关闭）
+     * @param <T> 导出数据模型类型
+     * @return 导出总行数
+     */
+    public <T> int export(CsvExportProvider<T> provider, Object params, List<String> columns, OutputStream target) {
+        return export(provider, params, columns, CancellationToken.NONE, target);
+    }
+
+    /**
+     * 分区并行导出指定列到目标输出流（含表头），支持取消
+     * 提交每个分区前以及各分区每批写出前检查取消令牌，取消后未开始的分区不再提交，已写出的分区临时文件被删除
+     *
+     * @param provider 数据提供者（须同时实现 PartitionedExportProvider）
+     * @param params 查询参数
+     * @param columns 导出列（模型字段名，按输出顺序），为空表示全部列
+     * @param cancellationToken 取消令牌
+     * @param target 目标输出流（不会被关闭）
+     * @param <T> 导出数据模型类型
+     * @return 导出总行数
+     */
+    public <T> int export(CsvExportProvider<T> provider, Object params, List<String> columns,
+                          CancellationToken cancellationToken, OutputStream target) {
+        PartitionedExportProvider<?> partitioned = (PartitionedExportProvider<?>) provider;
+        List<Object> partitions = partitioned.splitPartitions(params);
+
+        int fetchSize = properties.getExport().getFetchSize();
+        CsvColumnPlan plan = CsvColumnPlan.of(provider.getCsvModelClass(), provider.getCsvHeaders(), columns);
+        List<Path> partFiles = new ArrayList<>();
+        List<Future<Integer>> futures = new ArrayList<>();
+        List<AtomicBoolean> permitClaims = new ArrayList<>();
+        PartitionPermits permits = retainPermits(provider.getBusinessType(), partitioned);
+
+        try {
+            for (Object partitionParams : partitions) {
+                Path partFile = Files.createTempFile("csv_partition_", ".part");
+                partFiles.add(partFile);
+
+                // 先取许可再提交，控制数据库并发且不占用线程池线程等待
+                acquirePermit(permits, cancellationToken);
+                checkFailedPartitions(futures, permits);
+                // 许可由先认领者归还：分区开始执行时由分区认领，未开始就被取消时由调用方认领
+                AtomicBoolean permitClaim = new AtomicBoolean();
+                permitClaims.add(permitClaim);
+                try {
+                    futures.add(partitionExecutor.submit(() -> {
+                        if (!permitClaim.compareAndSet(false, true)) {
+                            return 0;
+                        }
+                        try {
+                            ExportQuery query = new ExportQuery(partitionParams, fetchSize);
+                            query.setColumns(columns);
+                            query.setCancellationToken(cancellationToken);
+                            return writePartition(provider, query, plan, partFile);
+                        } finally {
+                            permits.release();
+                        }
+                    }));
+                } catch (RejectedExecutionException e) {
+                    permitClaims.remove(permitClaim);
+                    permits.release();
+                    throw e;
+                }
+            }
+
+            int totalRows = 0;
+            for (Future<Integer> future : futures) {
+                totalRows += future.get();
+            }
+
+            cancellationToken.throwIfCancellationRequested();
+            mergePartitions(plan.getHeaders(), partFiles, target);
+
+            logger.info("CSV分区导出完成: businessType={}, partitions={}, rows={}",
+                provider.getBusinessType(), partitions.size(), totalRows);
+            return totalRows;
+
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("CSV分区导出被中断", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof TaskCancelledException) {
+                throw (TaskCancelledException) e.getCause();
+            }
+            throw new RuntimeException("CSV分区导出失败", e.getCause());
+        } catch (IOException e) {
+            throw new RuntimeException("CSV分区导出失败", e);
+        } finally {
+            for (Future<Integer> future : futures) {
+                future.cancel(true);
+            }
+            // 排队中被取消的分区不会执行，其许可在这里归还
+            for (AtomicBoolean permitClaim : permitClaims) {
+                if (permitClaim.compareAndSet(false, true)) {
+                    permits.release();
+                }
+            }
+            for (Path partFile : partFiles) {
+                deleteTempFile(partFile);
+            }
+            permits.releaseUser();
+        }
+    }
+
+    /**
+     * 查询并写入单个分区（不含表头）
+     */
+    private <T> int writePartition(CsvExportProvider<T> provider, ExportQuery query, CsvColumnPlan plan, Path partFile)
+            throws IOException {
+        AtomicInteger rows = new AtomicInteger();
+        try (CSVWriter writer = CsvUtils.createWriter(new BufferedOutputStream(Files.newOutputStream(partFile)))) {
+            provider.streamExportData(query, batch -> {
+                query.getCancellationToken().throwIfCancellationRequested();
+                CsvUtils.writeRows(writer, batch, plan);
+                rows.addAndGet(batch.size());
+            });
+        }
+        return rows.get();
+    }
+
+    /**
+     * 写入表头后按分区顺序拼接：目标为文件时文件通道到文件通道拷贝，否则按缓冲区拷贝到输出流
+     */
+    private void mergePartitions(String[] headers, List<Path> partFiles, OutputStream target) throws IOException {
+        ByteArrayOutputStream headerBytes = new ByteArrayOutputStream();
+        CsvUtils.writeCsv(headerBytes, Collections.emptyList(), headers);
+        target.write(headerBytes.toByteArray());
+
+        if (!(target instanceof FileOutputStream)) {
+            for (Path partFile : partFiles) {
+                Files.copy(partFile, target);
+            }
+            return;
+        }
+        // 不关闭该通道，避免关闭调用方的输出流
+        FileChannel out = ((FileOutputStream) target).getChannel();
+        for (Path partFile : partFiles) {
+            try (FileChannel in = FileChannel.open(partFile, StandardOpenOption.READ)) {
+                long position = 0;
+                long size = in.size();
+                while (position < size) {
+                    position += in.transferTo(position, size - position, out);
+                }
+            }
+        }
+    }
+
+    /**
+     * 等待分区并发许可，等待期间定期检查取消令牌
+     */
+    private void acquirePermit(PartitionPermits permits, CancellationToken cancellationToken)
+            throws InterruptedException {
+        cancellationToken.throwIfCancellationRequested();
+        while (!permits.semaphore.tryAcquire(PERMIT_POLL_MILLIS, TimeUnit.MILLISECONDS)) {
+            cancellationToken.throwIfCancellationRequested();
+        }
+    }
+
+    /**
+     * 已有分区失败时停止提交剩余分区
+     */
+    private void checkFailedPartitions(List<Future<Integer>> futures, PartitionPermits permits)
+            throws InterruptedException, ExecutionException {
+        for (Future<Integer> future : futures) {
+            if (future.isDone()) {
+                try {
+                    future.get();
+                } catch (ExecutionException e) {
+                    permits.release();
+                    throw e;
+                }
+            }
+        }
+    }
+
+    /**
+     * 登记一个使用该业务类型许可的导出任务，许可不存在时按配置创建
+     */
+    private PartitionPermits retainPermits(String businessType, PartitionedExportProvider<?> provider) {
+        return businessTypePermits.compute(businessType, (key, permits) -> {
+            PartitionPermits retained = permits != null
+                ? permits : new PartitionPermits(key, resolveMaxParallelism(key, provider));
+            retained.users++;
+            return retained;
+        });
+    }
+
+    private int resolveMaxParallelism(String businessType, PartitionedExportProvider<?> provider) {
+        Integer configured = properties.getExport().getPartition().getMaxParallelism().get(businessType);
+        return Math.max(1, configured != null ? configured : provider.getMaxParallelism());
+    }
+
+    private void deleteTempFile(Path tempFile) {
+        try {
+            Files.deleteIfExists(tempFile);
+        } catch (IOException e) {
+            logger.warn("删除临时文件失败: path={}", tempFile, e);
+        }
+    }
+
+    /**
+     * 单个业务类型的分区许可
+     * users 只在 businessTypePermits.compute 中读写；导出任务结束且许可全部归还（含被中断后才结束的分区）时移除，
+     * 移除后再次导出按当前配置重新创建
+     */
+    private class PartitionPermits {
+
+        private final String businessType;
+
+        private final int limit;
+
+        private final Semaphore semaphore;
+
+        private int users;
+
+        private PartitionPermits(String businessType, int limit) {
+            this.businessType = businessType;
+            this.limit = limit;
+            this.semaphore = new Semaphore(limit);
+        }
+
+        private void release() {
+            semaphore.release();
+            businessTypePermits.computeIfPresent(businessType, (key, permits) -> permits == this && idle() ? null : permits);
+        }
+
+        private void releaseUser() {
+            businessTypePermits.computeIfPresent(businessType, (key, permits) -> {
+                if (permits != this) {
+                    return permits;
+                }
+                users--;
+                return idle() ? null : permits;
+            });
+        }
+
+        private boolean idle() {
+            return users == 0 && semaphore.availablePermits() == limit;
+        }
+    }
+}
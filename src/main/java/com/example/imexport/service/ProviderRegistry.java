@@ -0,0 +1,74 @@
+package com.example.imexport.service;
+
+import com.example.imexport.core.DataProvider;
+import com.example.imexport.core.RowProcessor;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationContext;
+import org.springframework.stereotype.Component;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * 业务处理器注册表
+ * 按业务类型查找容器中的 RowProcessor 与 DataProvider，供不持有处理器引用的执行方（如分布式队列工作线程）使用
+ */
+@Component
+public class ProviderRegistry {
+
+    @Autowired
+    private ApplicationContext applicationContext;
+
+    private volatile Map<String, RowProcessor<?>> rowProcessors;
+    private volatile Map<String, DataProvider<?>> dataProviders;
+
+    /**
+     * 查找导入处理器
+     *
+     * @param businessType 业务类型
+     * @return 导入处理器
+     * @throws IllegalStateException 业务类型未注册
+     */
+    public RowProcessor<?> getRowProcessor(String businessType) {
+        if (rowProcessors == null) {
+            Map<String, RowProcessor<?>> index = new HashMap<>();
+            for (RowProcessor<?> processor : applicationContext.getBeansOfType(RowProcessor.class).values()) {
+                putUnique(index, processor.getBusinessType(), processor);
+            }
+            rowProcessors = index;
+        }
+        return require(rowProcessors, businessType, "导入处理器");
+    }
+
+    /**
+     * 查找导出数据提供者
+     *
+     * @param businessType 业务类型
+     * @return 导出数据提供者
+     * @throws IllegalStateException 业务类型未注册
+     */
+    public DataProvider<?> getDataProvider(String businessType) {
+        if (dataProviders == null) {
+            Map<String, DataProvider<?>> index = new HashMap<>();
+            for (DataProvider<?> provider : applicationContext.getBeansOfType(DataProvider.class).values()) {
+                putUnique(index, provider.getBusinessType(), provider);
+            }
+            dataProviders = index;
+        }
+        return require(dataProviders, businessType, "导出数据提供者");
+    }
+
+    private static <B> void putUnique(Map<String, B> index, String businessType, B bean) {
+        if (index.putIfAbsent(businessType, bean) != null) {
+            throw new IllegalStateException("业务类型重复注册: " + businessType);
+        }
+    }
+
+    private static <B> B require(Map<String, B> beans, String businessType, String kind) {
+        B bean = beans.get(businessType);
+        if (bean == null) {
+            throw new IllegalStateException("未找到" + kind + ": businessType=" + businessType);
+        }
+        return bean;
+    }
+}
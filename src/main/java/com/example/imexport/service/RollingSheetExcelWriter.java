@@ -0,0 +1,109 @@
+package com.example.imexport.service;
+
+import com.alibaba.excel.EasyExcel;
+import com.alibaba.excel.ExcelWriter;
+import com.alibaba.excel.write.metadata.WriteSheet;
+
+import java.io.Closeable;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * 按行数自动分 Sheet 的 Excel 分页写入器
+ * 所有数据通过同一个 ExcelWriter 分页写入，单个 Sheet 达到行数上限后自动切换到新 Sheet（name、name_2、name_3...）
+ *
+ * @param <T> 导出数据模型类型
+ */
+class RollingSheetExcelWriter<T> implements Closeable {
+
+    /**
+     * xlsx 单个 Sheet 最多 1,048,576 行，扣除表头后的数据行上限
+     */
+    static final int MAX_SHEET_DATA_ROWS = 1048575;
+
+    /**
+     * Excel Sheet 名称最大长度
+     */
+    private static final int MAX_SHEET_NAME_LENGTH = 31;
+
+    private final ExcelWriter excelWriter;
+    private final String sheetName;
+    private final int sheetRowLimit;
+
+    private WriteSheet currentSheet;
+    private int sheetCount;
+    private int currentSheetRows;
+    private int totalRows;
+
+    /**
+     * @param excelWriter 已构建的 ExcelWriter（由本写入器负责 finish）
+     * @param sheetName Sheet 基础名称
+     * @param sheetRowLimit 单个 Sheet 数据行上限
+     */
+    RollingSheetExcelWriter(ExcelWriter excelWriter, String sheetName, int sheetRowLimit) {
+        this.excelWriter = excelWriter;
+        this.sheetName = sheetName;
+        this.sheetRowLimit = Math.max(1, Math.min(sheetRowLimit, MAX_SHEET_DATA_ROWS));
+        openNextSheet();
+    }
+
+    /**
+     * 写入一页数据，跨越行数上限时拆分到后续 Sheet
+     *
+     * @param rows 数据行
+     */
+    void write(List<T> rows) {
+        if (rows == null || rows.isEmpty()) {
+            return;
+        }
+
+        int offset = 0;
+        while (offset < rows.size()) {
+            if (currentSheetRows >= sheetRowLimit) {
+                openNextSheet();
+            }
+
+            int count = Math.min(rows.size() - offset, sheetRowLimit - currentSheetRows);
+            excelWriter.write(rows.subList(offset, offset + count), currentSheet);
+
+            offset += count;
+            currentSheetRows += count;
+            totalRows += count;
+        }
+    }
+
+    int getTotalRows() {
+        return totalRows;
+    }
+
+    int getSheetCount() {
+        return sheetCount;
+    }
+
+    /**
+     * 完成写入，EasyExcel 在 finish 时输出文件并清理 SXSSF 临时文件
+     */
+    @Override
+    public void close() {
+        excelWriter.finish();
+    }
+
+    /**
+     * 切换到新 Sheet 并写出表头，保证每个 Sheet（包括空数据时的首个 Sheet）都带表头
+     */
+    private void openNextSheet() {
+        sheetCount++;
+        currentSheet = EasyExcel.writerSheet(sheetCount - 1, buildSheetName(sheetCount)).build();
+        currentSheetRows = 0;
+        excelWriter.write(Collections.emptyList(), currentSheet);
+    }
+
+    private String buildSheetName(int sheetNo) {
+        String suffix = sheetNo == 1 ? "" : "_" + sheetNo;
+        String base = sheetName;
+        if (base.length() + suffix.length() > MAX_SHEET_NAME_LENGTH) {
+            base = base.substring(0, MAX_SHEET_NAME_LENGTH - suffix.length());
+        }
+        return base + suffix;
+    }
+}
@@ -0,0 +1,80 @@
+package com.example.imexport.service;
+
+import com.example.imexport.core.CancellationToken;
+import com.example.imexport.core.TaskType;
+import org.springframework.stereotype.Component;
+
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 本节点正在执行的任务登记表
+ * 用于计算本节点剩余执行容量、为执行中的任务续约，并保存各任务的取消令牌；
+ * 同时记录本地模式下在本节点内存中排队的任务，供卡死任务巡检写入心跳
+ */
+@Component
+public class RunningTaskRegistry {
+
+    private final Map<TaskType, Map<Long, CancellationToken>> running = new EnumMap<>(TaskType.class);
+
+    private final Map<TaskType, Set<Long>> queued = new EnumMap<>(TaskType.class);
+
+    public RunningTaskRegistry() {
+        for (TaskType type : TaskType.values()) {
+            running.put(type, new ConcurrentHashMap<>());
+            queued.put(type, ConcurrentHashMap.newKeySet());
+        }
+    }
+
+    /**
+     * 登记在本节点内存中排队的任务（开始执行或注销时移除）
+     */
+    public void markQueued(TaskType type, Long taskId) {
+        queued.get(type).add(taskId);
+    }
+
+    /**
+     * 登记执行中的任务（重复登记返回同一令牌）
+     *
+     * @return 该任务的取消令牌
+     */
+    public CancellationToken register(TaskType type, Long taskId) {
+        queued.get(type).remove(taskId);
+        return running.get(type).computeIfAbsent(taskId, id -> new CancellationToken());
+    }
+
+    public void unregister(TaskType type, Long taskId) {
+        queued.get(type).remove(taskId);
+        running.get(type).remove(taskId);
+    }
+
+    /**
+     * 获取本节点执行中任务的取消令牌
+     *
+     * @return 取消令牌，任务不在本节点执行时为 null
+     */
+    public CancellationToken getToken(TaskType type, Long taskId) {
+        return running.get(type).get(taskId);
+    }
+
+    /**
+     * 正在执行的任务ID（只读视图）
+     */
+    public Set<Long> getRunningTaskIds(TaskType type) {
+        return Collections.unmodifiableSet(running.get(type).keySet());
+    }
+
+    /**
+     * 在本节点内存中排队的任务ID（只读视图）
+     */
+    public Set<Long> getQueuedTaskIds(TaskType type) {
+        return Collections.unmodifiableSet(queued.get(type));
+    }
+
+    public int count(TaskType type) {
+        return running.get(type).size();
+    }
+}
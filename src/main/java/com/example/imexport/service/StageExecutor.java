@@ -0,0 +1,165 @@
+package com.example.imexport.service;
+
+import com.example.imexport.config.ImExportProperties;
+import com.example.imexport.config.TaskExecutorConfig;
+import com.example.imexport.core.TaskType;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.function.Supplier;
+
+/**
+ * 任务阶段执行器
+ * PLATFORM 模式（默认）下任务在导入 / 导出线程池中执行，解析校验阶段在任务线程中直接执行；
+ * VIRTUAL 模式下任务在虚拟线程中执行，下载、上传与 JDBC 等阻塞 I/O 不再占用平台线程，
+ * 解析与校验等 CPU 密集阶段提交到固定大小的 cpuTaskExecutor 执行，任务线程等待其完成。
+ * 虚拟线程需要 JDK 21+，通过反射创建，运行时不支持时记录告警并回退到 PLATFORM 模式
+ */
+@Component
+public class StageExecutor {
+
+    private static final Logger logger = LoggerFactory.getLogger(StageExecutor.class);
+
+    @Autowired
+    private ImExportProperties properties;
+
+    @Autowired
+    @Qualifier(TaskExecutorConfig.IMPORT_EXECUTOR)
+    private Executor importTaskExecutor;
+
+    @Autowired
+    @Qualifier(TaskExecutorConfig.EXPORT_EXECUTOR)
+    private Executor exportTaskExecutor;
+
+    @Autowired
+    @Qualifier(TaskExecutorConfig.CPU_EXECUTOR)
+    private Executor cpuTaskExecutor;
+
+    /**
+     * 虚拟线程执行器的创建方式（测试中替换以模拟不支持虚拟线程的运行时）
+     */
+    private VirtualExecutorFactory virtualExecutorFactory = StageExecutor::newVirtualThreadExecutor;
+
+    private ExecutorService importVirtualExecutor;
+
+    private ExecutorService exportVirtualExecutor;
+
+    @PostConstruct
+    public void init() {
+        if (properties.getExecutor().getMode() != ImExportProperties.ExecutionMode.VIRTUAL) {
+            return;
+        }
+        try {
+            importVirtualExecutor = virtualExecutorFactory.create("import-vt-");
+            exportVirtualExecutor = virtualExecutorFactory.create("export-vt-");
+            logger.info("任务在虚拟线程中执行，解析与校验阶段使用 {}", TaskExecutorConfig.CPU_EXECUTOR);
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            shutdown();
+            logger.warn("当前运行时不支持虚拟线程，回退到平台线程池执行: javaVersion={}, reason={}",
+                System.getProperty("java.version"), e.toString());
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (importVirtualExecutor != null) {
+            importVirtualExecutor.shutdown();
+            importVirtualExecutor = null;
+        }
+        if (exportVirtualExecutor != null) {
+            exportVirtualExecutor.shutdown();
+            exportVirtualExecutor = null;
+        }
+    }
+
+    /**
+     * 是否以虚拟线程执行任务
+     */
+    public boolean isVirtual() {
+        return importVirtualExecutor != null && exportVirtualExecutor != null;
+    }
+
+    /**
+     * 执行整个任务的执行器
+     *
+     * @param type 任务类型
+     * @return VIRTUAL 模式下为每任务一个虚拟线程的执行器，否则为对应的平台线程池
+     */
+    public Executor taskExecutor(TaskType type) {
+        if (isVirtual()) {
+            return type == TaskType.IMPORT ? importVirtualExecutor : exportVirtualExecutor;
+        }
+        return type == TaskType.IMPORT ? importTaskExecutor : exportTaskExecutor;
+    }
+
+    /**
+     * 执行 CPU 密集阶段
+     * VIRTUAL 模式下在 CPU 线程池中执行并等待结果（线程池已满时在当前线程执行），阶段抛出的运行时异常原样抛出；
+     * PLATFORM 模式下直接在当前线程执行
+     *
+     * @param stage 阶段逻辑
+     * @param <T> 阶段结果类型
+     * @return 阶段结果
+     */
+    public <T> T runCpuStage(Supplier<T> stage) {
+        if (!isVirtual()) {
+            return stage.get();
+        }
+
+        FutureTask<T> future = new FutureTask<>(stage::get);
+        try {
+            cpuTaskExecutor.execute(future);
+        } catch (RejectedExecutionException e) {
+            future.run();
+        }
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            future.cancel(true);
+            throw new RuntimeException("任务阶段执行被中断", e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw new RuntimeException("任务阶段执行失败", cause);
+        }
+    }
+
+    /**
+     * 通过反射创建每任务一个虚拟线程的执行器（Thread.ofVirtual().name(prefix, 0).factory()）
+     */
+    private static ExecutorService newVirtualThreadExecutor(String threadNamePrefix) throws ReflectiveOperationException {
+        Class<?> builderClass = Class.forName("java.lang.Thread$Builder");
+        Object builder = Thread.class.getMethod("ofVirtual").invoke(null);
+        builder = builderClass.getMethod("name", String.class, long.class).invoke(builder, threadNamePrefix, 0L);
+        ThreadFactory threadFactory = (ThreadFactory) builderClass.getMethod("factory").invoke(builder);
+        return (ExecutorService) Executors.class.getMethod("newThreadPerTaskExecutor", ThreadFactory.class)
+            .invoke(null, threadFactory);
+    }
+
+    /**
+     * 按线程名前缀创建每任务一个虚拟线程的执行器
+     */
+    @FunctionalInterface
+    interface VirtualExecutorFactory {
+
+        ExecutorService create(String threadNamePrefix) throws ReflectiveOperationException;
+    }
+}
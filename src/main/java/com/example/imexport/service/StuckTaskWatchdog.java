@@ -0,0 +1,252 @@
+package com.example.imexport.service;
+
+import com.baomidou.mybatisplus.core.conditions.update.LambdaUpdateWrapper;
+import com.example.imexport.config.ImExportProperties;
+import com.example.imexport.core.TaskType;
+import com.example.imexport.mapper.ExportTaskHistoryMapper;
+import com.example.imexport.mapper.ImportTaskHistoryMapper;
+import com.example.imexport.model.ExportTaskHistory;
+import com.example.imexport.model.ImportTaskHistory;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskScheduler;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * 卡死任务巡检
+ * 节点崩溃后其执行中的任务会永远停留在 PROCESSING / CANCELLING；本地模式下任务只在提交节点的内存中排队，
+ * 节点重启后其 PENDING 任务也不会再被执行。巡检在启动时立即执行一次（独立线程，不阻塞启动），
+ * 之后按 imexport.watchdog.interval 周期执行：
+ * <ul>
+ *     <li>为本节点执行中的任务批量写入心跳（分布式队列模式下由续约写入），本地模式下同时为本节点排队中的任务写入心跳</li>
+ *     <li>心跳超时的 PROCESSING 任务：分布式队列模式下未达最大执行次数的重新排队，其余标记为 FAILED 并记录原因</li>
+ *     <li>心跳超时的 CANCELLING 任务：标记为 CANCELLED</li>
+ *     <li>本地模式下心跳（未写入时按更新时间）超时的 PENDING 任务：标记为 FAILED（分布式队列模式下由各节点领取）</li>
+ * </ul>
+ * 超时任务先按 idx_task_status 一致性读出主键（不锁定其他事务未提交的行），再按主键批量条件更新，
+ * 更新时重新校验状态与心跳，因此多节点同时巡检也不会重复处理
+ */
+@Component
+public class StuckTaskWatchdog {
+
+    private static final Logger logger = LoggerFactory.getLogger(StuckTaskWatchdog.class);
+
+    private static final String STALE_CONDITION = "COALESCE(heartbeat_time, updated_time) < DATE_SUB(NOW(), INTERVAL {0} SECOND)";
+
+    private static final String STALE_FAILED_MESSAGE = "任务心跳超时，执行节点可能已崩溃";
+
+    private static final String STALE_CANCELLED_MESSAGE = "任务已取消（执行节点心跳超时）";
+
+    private static final String STALE_PENDING_MESSAGE = "任务排队心跳超时，提交节点可能已重启";
+
+    @Autowired
+    private ImExportProperties properties;
+
+    @Autowired
+    private ImportTaskHistoryMapper importTaskHistoryMapper;
+
+    @Autowired
+    private ExportTaskHistoryMapper exportTaskHistoryMapper;
+
+    @Autowired
+    private RunningTaskRegistry runningTaskRegistry;
+
+    @Autowired
+    private TaskCompletionRegistry taskCompletionRegistry;
+
+    private ThreadPoolTaskScheduler scheduler;
+
+    @PostConstruct
+    public void init() {
+        ImExportProperties.Watchdog watchdog = properties.getWatchdog();
+        if (!watchdog.isEnabled()) {
+            return;
+        }
+        scheduler = new ThreadPoolTaskScheduler();
+        scheduler.setPoolSize(1);
+        scheduler.setThreadNamePrefix("task-watchdog-");
+        scheduler.initialize();
+        // 首次巡检立即执行，用于恢复上次崩溃遗留的任务
+        scheduler.scheduleWithFixedDelay(this::run, watchdog.getInterval());
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (scheduler != null) {
+            scheduler.shutdown();
+        }
+    }
+
+    /**
+     * 写入心跳并恢复心跳超时的任务
+     */
+    void run() {
+        try {
+            if (properties.getQueue().getMode() != ImExportProperties.QueueMode.DISTRIBUTED) {
+                heartbeat();
+            }
+            for (TaskType type : TaskType.values()) {
+                recoverStuckTasks(type);
+            }
+        } catch (Exception e) {
+            logger.warn("卡死任务巡检失败", e);
+        }
+    }
+
+    /**
+     * 本节点执行中与排队中的任务按类型一次批量写入心跳
+     */
+    private void heartbeat() {
+        LocalDateTime now = LocalDateTime.now();
+        Set<Long> importIds = new HashSet<>(runningTaskRegistry.getRunningTaskIds(TaskType.IMPORT));
+        importIds.addAll(runningTaskRegistry.getQueuedTaskIds(TaskType.IMPORT));
+        if (!importIds.isEmpty()) {
+            importTaskHistoryMapper.update(null, new LambdaUpdateWrapper<ImportTaskHistory>()
+                .set(ImportTaskHistory::getHeartbeatTime, now)
+                .in(ImportTaskHistory::getId, new ArrayList<>(importIds))
+                .in(ImportTaskHistory::getTaskStatus, "PENDING", "PROCESSING", "CANCELLING"));
+        }
+        Set<Long> exportIds = new HashSet<>(runningTaskRegistry.getRunningTaskIds(TaskType.EXPORT));
+        exportIds.addAll(runningTaskRegistry.getQueuedTaskIds(TaskType.EXPORT));
+        if (!exportIds.isEmpty()) {
+            exportTaskHistoryMapper.update(null, new LambdaUpdateWrapper<ExportTaskHistory>()
+                .set(ExportTaskHistory::getHeartbeatTime, now)
+                .in(ExportTaskHistory::getId, new ArrayList<>(exportIds))
+                .in(ExportTaskHistory::getTaskStatus, "PENDING", "PROCESSING", "CANCELLING"));
+        }
+    }
+
+    private void recoverStuckTasks(TaskType type) {
+        ImExportProperties.Watchdog watchdog = properties.getWatchdog();
+        long staleSeconds = watchdog.getStaleThreshold().getSeconds();
+        int batchSize = Math.max(1, watchdog.getBatchSize());
+        // 本地模式下任务只在提交节点内存中排队，重新排队（PENDING）的任务不会再被执行，只能标记为失败
+        boolean distributed = properties.getQueue().getMode() == ImExportProperties.QueueMode.DISTRIBUTED;
+        int maxAttempts = distributed ? properties.getQueue().getMaxAttempts() : 0;
+
+        int requeued = 0;
+        int failed = 0;
+        int cancelled = 0;
+        int pendingFailed = 0;
+        for (int batch = 0; batch < watchdog.getMaxBatchesPerRun(); batch++) {
+            List<Long> processingIds = selectStaleTaskIds(type, "PROCESSING", staleSeconds, batchSize);
+            if (!processingIds.isEmpty()) {
+                requeued += requeue(type, processingIds, staleSeconds, maxAttempts);
+                failed += fail(type, processingIds, "PROCESSING", STALE_FAILED_MESSAGE, staleSeconds, !distributed);
+            }
+            List<Long> cancellingIds = selectStaleTaskIds(type, "CANCELLING", staleSeconds, batchSize);
+            if (!cancellingIds.isEmpty()) {
+                cancelled += cancel(type, cancellingIds, staleSeconds);
+            }
+            List<Long> pendingIds = distributed
+                ? Collections.<Long>emptyList() : selectStaleTaskIds(type, "PENDING", staleSeconds, batchSize);
+            if (!pendingIds.isEmpty()) {
+                pendingFailed += fail(type, pendingIds, "PENDING", STALE_PENDING_MESSAGE, staleSeconds, true);
+            }
+            if (processingIds.size() < batchSize && cancellingIds.size() < batchSize && pendingIds.size() < batchSize) {
+                break;
+            }
+        }
+
+        if (requeued > 0 || failed > 0 || cancelled > 0 || pendingFailed > 0) {
+            logger.warn("恢复心跳超时任务: type={}, requeued={}, failed={}, cancelled={}, pendingFailed={}",
+                type, requeued, failed, cancelled, pendingFailed);
+        }
+    }
+
+    private List<Long> selectStaleTaskIds(TaskType type, String status, long staleSeconds, int limit) {
+        return type == TaskType.IMPORT
+            ? importTaskHistoryMapper.selectStaleTaskIds(status, staleSeconds, limit)
+            : exportTaskHistoryMapper.selectStaleTaskIds(status, staleSeconds, limit);
+    }
+
+    private int requeue(TaskType type, List<Long> ids, long staleSeconds, int maxAttempts) {
+        if (maxAttempts <= 0) {
+            return 0;
+        }
+        LocalDateTime now = LocalDateTime.now();
+        if (type == TaskType.IMPORT) {
+            return importTaskHistoryMapper.update(null, new LambdaUpdateWrapper<ImportTaskHistory>()
+                .set(ImportTaskHistory::getTaskStatus, "PENDING")
+                .set(ImportTaskHistory::getLeaseOwner, null)
+                .set(ImportTaskHistory::getLeaseExpireTime, null)
+                .set(ImportTaskHistory::getUpdatedTime, now)
+                .in(ImportTaskHistory::getId, ids)
+                .eq(ImportTaskHistory::getTaskStatus, "PROCESSING")
+                .lt(ImportTaskHistory::getAttemptCount, maxAttempts)
+                .apply(STALE_CONDITION, staleSeconds));
+        }
+        return exportTaskHistoryMapper.update(null, new LambdaUpdateWrapper<ExportTaskHistory>()
+            .set(ExportTaskHistory::getTaskStatus, "PENDING")
+            .set(ExportTaskHistory::getLeaseOwner, null)
+            .set(ExportTaskHistory::getLeaseExpireTime, null)
+            .set(ExportTaskHistory::getUpdatedTime, now)
+            .in(ExportTaskHistory::getId, ids)
+            .eq(ExportTaskHistory::getTaskStatus, "PROCESSING")
+            .lt(ExportTaskHistory::getAttemptCount, maxAttempts)
+            .apply(STALE_CONDITION, staleSeconds));
+    }
+
+    /**
+     * 未重新排队的超时任务标记为失败（已重新排队的任务状态已变更，不受影响）
+     * 分布式队列模式下任务结果由 TaskCompletionRegistry 按任务记录轮询，这里只在本地模式下直接通知
+     * 逐个任务条件更新，只通知确实被标记为失败的任务；查询之后恢复心跳或已结束的任务不会收到失败通知
+     */
+    private int fail(TaskType type, List<Long> ids, String fromStatus, String errorMessage, long staleSeconds,
+                     boolean notifyCompletion) {
+        int updated = 0;
+        for (Long taskId : ids) {
+            if (terminate(type, taskId, fromStatus, "FAILED", errorMessage, staleSeconds) > 0) {
+                updated++;
+                if (notifyCompletion) {
+                    taskCompletionRegistry.fail(type, taskId, errorMessage);
+                }
+            }
+        }
+        return updated;
+    }
+
+    private int cancel(TaskType type, List<Long> ids, long staleSeconds) {
+        int updated = 0;
+        for (Long taskId : ids) {
+            if (terminate(type, taskId, "CANCELLING", "CANCELLED", STALE_CANCELLED_MESSAGE, staleSeconds) > 0) {
+                updated++;
+                taskCompletionRegistry.cancel(type, taskId);
+            }
+        }
+        return updated;
+    }
+
+    private int terminate(TaskType type, Long taskId, String fromStatus, String toStatus, String errorMessage,
+                          long staleSeconds) {
+        LocalDateTime now = LocalDateTime.now();
+        if (type == TaskType.IMPORT) {
+            return importTaskHistoryMapper.update(null, new LambdaUpdateWrapper<ImportTaskHistory>()
+                .set(ImportTaskHistory::getTaskStatus, toStatus)
+                .set(ImportTaskHistory::getErrorMessage, errorMessage)
+                .set(ImportTaskHistory::getLeaseOwner, null)
+                .set(ImportTaskHistory::getUpdatedTime, now)
+                .eq(ImportTaskHistory::getId, taskId)
+                .eq(ImportTaskHistory::getTaskStatus, fromStatus)
+                .apply(STALE_CONDITION, staleSeconds));
+        }
+        return exportTaskHistoryMapper.update(null, new LambdaUpdateWrapper<ExportTaskHistory>()
+            .set(ExportTaskHistory::getTaskStatus, toStatus)
+            .set(ExportTaskHistory::getErrorMessage, errorMessage)
+            .set(ExportTaskHistory::getLeaseOwner, null)
+            .set(ExportTaskHistory::getUpdatedTime, now)
+            .eq(ExportTaskHistory::getId, taskId)
+            .eq(ExportTaskHistory::getTaskStatus, fromStatus)
+            .apply(STALE_CONDITION, staleSeconds));
+    }
+}
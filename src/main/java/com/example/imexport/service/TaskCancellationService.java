@@ -0,0 +1,130 @@
+package com.example.imexport.service;
+
+import com.baomidou.mybatisplus.core.conditions.update.LambdaUpdateWrapper;
+import com.example.imexport.core.CancellationToken;
+import com.example.imexport.core.TaskType;
+import com.example.imexport.mapper.ExportTaskHistoryMapper;
+import com.example.imexport.mapper.ImportTaskHistoryMapper;
+import com.example.imexport.model.ExportTaskHistory;
+import com.example.imexport.model.ImportTaskHistory;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDateTime;
+
+/**
+ * 任务取消服务
+ * 尚未开始执行的任务（PENDING）直接标记为 CANCELLED；执行中的任务（PROCESSING）标记为 CANCELLING 并触发取消令牌，
+ * 执行线程在下一个批次边界停止、放弃上传并清理部分输出后标记为 CANCELLED。
+ * 分布式队列模式下任务在其他节点执行时，由该节点续约时发现 CANCELLING 状态后触发本地令牌
+ */
+@Service
+public class TaskCancellationService {
+
+    private static final Logger logger = LoggerFactory.getLogger(TaskCancellationService.class);
+
+    private static final String CANCELLED_MESSAGE = "任务已取消";
+
+    @Autowired
+    private ImportTaskHistoryMapper importTaskHistoryMapper;
+
+    @Autowired
+    private ExportTaskHistoryMapper exportTaskHistoryMapper;
+
+    @Autowired
+    private RunningTaskRegistry runningTaskRegistry;
+
+    @Autowired
+    private TaskCompletionRegistry taskCompletionRegistry;
+
+    /**
+     * 取消导入任务
+     *
+     * @param taskId 任务ID
+     * @return 是否已受理（任务已结束时返回 false）
+     */
+    public boolean cancelImport(Long taskId) {
+        return cancel(TaskType.IMPORT, taskId);
+    }
+
+    /**
+     * 取消导出任务
+     *
+     * @param taskId 任务ID
+     * @return 是否已受理（任务已结束时返回 false）
+     */
+    public boolean cancelExport(Long taskId) {
+        return cancel(TaskType.EXPORT, taskId);
+    }
+
+    /**
+     * 取消任务
+     *
+     * @param type 任务类型
+     * @param taskId 任务ID
+     * @return 是否已受理（任务已结束时返回 false）
+     */
+    public boolean cancel(TaskType type, Long taskId) {
+        // 尚未开始执行：直接取消，执行线程领取后发现状态已变更会跳过
+        if (transition(type, taskId, "PENDING", "CANCELLED", CANCELLED_MESSAGE) > 0) {
+            taskCompletionRegistry.cancel(type, taskId);
+            logger.info("任务已取消: type={}, taskId={}", type, taskId);
+            return true;
+        }
+
+        // 执行中：等待执行线程在批次边界停止
+        if (transition(type, taskId, "PROCESSING", "CANCELLING", null) > 0) {
+            signal(type, taskId);
+            logger.info("任务取消中: type={}, taskId={}", type, taskId);
+            return true;
+        }
+
+        logger.info("任务已结束或不存在，忽略取消: type={}, taskId={}", type, taskId);
+        return false;
+    }
+
+    /**
+     * 触发本节点执行中任务的取消令牌
+     *
+     * @return 任务是否在本节点执行
+     */
+    boolean signal(TaskType type, Long taskId) {
+        CancellationToken token = runningTaskRegistry.getToken(type, taskId);
+        if (token == null) {
+            return false;
+        }
+        token.cancel();
+        return true;
+    }
+
+    /**
+     * 执行线程响应取消后标记任务为 CANCELLED
+     *
+     * @param type 任务类型
+     * @param taskId 任务ID
+     */
+    public void markCancelled(TaskType type, Long taskId) {
+        transition(type, taskId, "CANCELLING", "CANCELLED", CANCELLED_MESSAGE);
+        taskCompletionRegistry.cancel(type, taskId);
+        logger.info("任务已停止并取消: type={}, taskId={}", type, taskId);
+    }
+
+    private int transition(TaskType type, Long taskId, String fromStatus, String toStatus, String errorMessage) {
+        if (type == TaskType.IMPORT) {
+            return importTaskHistoryMapper.update(null, new LambdaUpdateWrapper<ImportTaskHistory>()
+                .set(ImportTaskHistory::getTaskStatus, toStatus)
+                .set(errorMessage != null, ImportTaskHistory::getErrorMessage, errorMessage)
+                .set(ImportTaskHistory::getUpdatedTime, LocalDateTime.now())
+                .eq(ImportTaskHistory::getId, taskId)
+                .eq(ImportTaskHistory::getTaskStatus, fromStatus));
+        }
+        return exportTaskHistoryMapper.update(null, new LambdaUpdateWrapper<ExportTaskHistory>()
+            .set(ExportTaskHistory::getTaskStatus, toStatus)
+            .set(errorMessage != null, ExportTaskHistory::getErrorMessage, errorMessage)
+            .set(ExportTaskHistory::getUpdatedTime, LocalDateTime.now())
+            .eq(ExportTaskHistory::getId, taskId)
+            .eq(ExportTaskHistory::getTaskStatus, fromStatus));
+    }
+}
@@ -0,0 +1,177 @@
+package com.example.imexport.service;
+
+import com.example.imexport.config.ImExportProperties;
+import com.example.imexport.core.TaskType;
+import com.example.imexport.mapper.ExportTaskHistoryMapper;
+import com.example.imexport.mapper.ImportTaskHistoryMapper;
+import com.example.imexport.model.ExportResult;
+import com.example.imexport.model.ExportTaskHistory;
+import com.example.imexport.model.ImportResult;
+import com.example.imexport.model.ImportTaskHistory;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskScheduler;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 任务完成通知登记表
+ * 为已提交的任务保存 CompletableFuture：本节点执行的任务在结束时直接完成；
+ * 分布式队列模式下任务可能由其他节点执行，因此定期按任务记录的终态（SUCCESS / FAILED / CANCELLED）完成
+ */
+@Component
+public class TaskCompletionRegistry {
+
+    private static final Logger logger = LoggerFactory.getLogger(TaskCompletionRegistry.class);
+
+    @Autowired
+    private ImExportProperties properties;
+
+    @Autowired
+    private ImportTaskHistoryMapper importTaskHistoryMapper;
+
+    @Autowired
+    private ExportTaskHistoryMapper exportTaskHistoryMapper;
+
+    private final Map<Long, CompletableFuture<ImportResult>> importFutures = new ConcurrentHashMap<>();
+
+    private final Map<Long, CompletableFuture<ExportResult>> exportFutures = new ConcurrentHashMap<>();
+
+    private ThreadPoolTaskScheduler scheduler;
+
+    @PostConstruct
+    public void init() {
+        if (properties.getQueue().getMode() != ImExportProperties.QueueMode.DISTRIBUTED) {
+            return;
+        }
+        scheduler = new ThreadPoolTaskScheduler();
+        scheduler.setPoolSize(1);
+        scheduler.setThreadNamePrefix("task-completion-");
+        scheduler.initialize();
+        scheduler.scheduleWithFixedDelay(this::poll, properties.getQueue().getPollInterval());
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (scheduler != null) {
+            scheduler.shutdown();
+        }
+    }
+
+    /**
+     * 登记导入任务，返回其完成通知
+     */
+    public CompletableFuture<ImportResult> watchImport(Long taskId) {
+        return importFutures.computeIfAbsent(taskId, id -> new CompletableFuture<>());
+    }
+
+    /**
+     * 登记导出任务，返回其完成通知
+     */
+    public CompletableFuture<ExportResult> watchExport(Long taskId) {
+        return exportFutures.computeIfAbsent(taskId, id -> new CompletableFuture<>());
+    }
+
+    public void completeImport(Long taskId, ImportResult result) {
+        CompletableFuture<ImportResult> future = importFutures.remove(taskId);
+        if (future != null) {
+            future.complete(result);
+        }
+    }
+
+    public void completeExport(Long taskId, ExportResult result) {
+        CompletableFuture<ExportResult> future = exportFutures.remove(taskId);
+        if (future != null) {
+            future.complete(result);
+        }
+    }
+
+    /**
+     * 任务失败，以异常完成通知（未登记的任务忽略）
+     */
+    public void fail(TaskType type, Long taskId, String errorMessage) {
+        CompletableFuture<?> future = type == TaskType.IMPORT ? importFutures.remove(taskId) : exportFutures.remove(taskId);
+        if (future != null) {
+            future.completeExceptionally(new RuntimeException(
+                (type == TaskType.IMPORT ? "导入任务失败: " : "导出任务失败: ") + errorMessage));
+        }
+    }
+
+    /**
+     * 任务已取消，取消通知（等待方收到 CancellationException）
+     */
+    public void cancel(TaskType type, Long taskId) {
+        CompletableFuture<?> future = type == TaskType.IMPORT ? importFutures.remove(taskId) : exportFutures.remove(taskId);
+        if (future != null) {
+            future.cancel(false);
+        }
+    }
+
+    /**
+     * 由任务记录构建导出结果（缓存命中或其他节点执行完成时使用）
+     */
+    static ExportResult toExportResult(ExportTaskHistory task) {
+        ExportResult result = new ExportResult();
+        result.setTaskId(task.getId());
+        result.setFileUrl(task.getFileUrl());
+        result.setTotalRows(task.getTotalRows() != null ? task.getTotalRows() : 0);
+        return result;
+    }
+
+    static ImportResult toImportResult(ImportTaskHistory task) {
+        ImportResult result = new ImportResult();
+        result.setTaskId(task.getId());
+        result.setTotalRows(task.getTotalRows() != null ? task.getTotalRows() : 0);
+        result.setSuccessRows(task.getSuccessRows() != null ? task.getSuccessRows() : 0);
+        result.setErrorRows(task.getErrorRows() != null ? task.getErrorRows() : 0);
+        result.setErrorFileUrl(task.getErrorFileUrl());
+        result.setSuccess(result.getErrorRows() == 0);
+        result.setMessage(result.isSuccess() ? "导入成功" : "导入完成，存在错误行");
+        return result;
+    }
+
+    /**
+     * 按任务记录终态完成等待中的通知，调用方已取消的通知直接移除
+     */
+    void poll() {
+        try {
+            importFutures.values().removeIf(CompletableFuture::isDone);
+            exportFutures.values().removeIf(CompletableFuture::isDone);
+
+            if (!importFutures.isEmpty()) {
+                List<ImportTaskHistory> tasks = importTaskHistoryMapper.selectBatchIds(new ArrayList<>(importFutures.keySet()));
+                for (ImportTaskHistory task : tasks) {
+                    if ("SUCCESS".equals(task.getTaskStatus())) {
+                        completeImport(task.getId(), toImportResult(task));
+                    } else if ("FAILED".equals(task.getTaskStatus())) {
+                        fail(TaskType.IMPORT, task.getId(), task.getErrorMessage());
+                    } else if ("CANCELLED".equals(task.getTaskStatus())) {
+                        cancel(TaskType.IMPORT, task.getId());
+                    }
+                }
+            }
+            if (!exportFutures.isEmpty()) {
+                List<ExportTaskHistory> tasks = exportTaskHistoryMapper.selectBatchIds(new ArrayList<>(exportFutures.keySet()));
+                for (ExportTaskHistory task : tasks) {
+                    if ("SUCCESS".equals(task.getTaskStatus())) {
+                        completeExport(task.getId(), toExportResult(task));
+                    } else if ("FAILED".equals(task.getTaskStatus())) {
+                        fail(TaskType.EXPORT, task.getId(), task.getErrorMessage());
+                    } else if ("CANCELLED".equals(task.getTaskStatus())) {
+                        cancel(TaskType.EXPORT, task.getId());
+                    }
+                }
+            }
+        } catch (Exception e) {
+            logger.warn("任务完成状态轮询失败", e);
+        }
+    }
+}
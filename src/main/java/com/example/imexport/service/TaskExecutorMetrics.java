@@ -0,0 +1,173 @@
+package com.example.imexport.service;
+
+import com.example.imexport.config.CountingRejectedExecutionHandler;
+import com.example.imexport.config.TaskExecutorConfig;
+import com.example.imexport.storage.CachingFileStorageService;
+import com.example.imexport.storage.DeduplicatingFileStorageService;
+import com.example.imexport.storage.FileStorageService;
+import com.example.imexport.storage.ForwardingFileStorageService;
+import com.example.imexport.storage.ParallelRangeDownloader;
+import com.example.imexport.storage.PresignedUrlCachingStorageService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.stereotype.Component;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ThreadPoolExecutor;
+
+/**
+ * 任务线程池指标
+ * 汇总以下指标，供监控接口或定时日志使用：
+ * <ul>
+ *     <li>导入、导出、模板、CPU 阶段线程池的线程数、队列深度与拒绝数</li>
+ *     <li>各业务类型的并发与排队情况</li>
+ *     <li>各调度通道的排队等待时长</li>
+ *     <li>各提交人的排队与限流情况</li>
+ *     <li>导入文件预取与分段下载情况</li>
+ *     <li>下载缓存、临时链接缓存与上传去重的命中情况</li>
+ * </ul>
+ */
+@Component
+public class TaskExecutorMetrics {
+
+    @Autowired
+    @Qualifier(TaskExecutorConfig.IMPORT_EXECUTOR)
+    private ThreadPoolTaskExecutor importTaskExecutor;
+
+    @Autowired
+    @Qualifier(TaskExecutorConfig.EXPORT_EXECUTOR)
+    private ThreadPoolTaskExecutor exportTaskExecutor;
+
+    @Autowired
+    @Qualifier(TaskExecutorConfig.TEMPLATE_EXECUTOR)
+    private ThreadPoolTaskExecutor templateTaskExecutor;
+
+    @Autowired
+    @Qualifier(TaskExecutorConfig.CPU_EXECUTOR)
+    private ThreadPoolTaskExecutor cpuTaskExecutor;
+
+    @Autowired
+    private BusinessTypeConcurrencyLimiter concurrencyLimiter;
+
+    @Autowired
+    private TaskLaneScheduler laneScheduler;
+
+    @Autowired
+    private ImportFilePrefetcher importFilePrefetcher;
+
+    @Autowired
+    private FileStorageService fileStorageService;
+
+    @Autowired
+    private ParallelRangeDownloader rangeDownloader;
+
+    /**
+     * 线程池指标快照
+     *
+     * @return 线程池名 -> 指标
+     */
+    public Map<String, Map<String, Long>> executorSnapshot() {
+        Map<String, Map<String, Long>> result = new LinkedHashMap<>();
+        result.put(TaskExecutorConfig.IMPORT_EXECUTOR, poolStats(importTaskExecutor));
+        result.put(TaskExecutorConfig.EXPORT_EXECUTOR, poolStats(exportTaskExecutor));
+        result.put(TaskExecutorConfig.TEMPLATE_EXECUTOR, poolStats(templateTaskExecutor));
+        result.put(TaskExecutorConfig.CPU_EXECUTOR, poolStats(cpuTaskExecutor));
+        return result;
+    }
+
+    /**
+     * 业务类型并发指标快照
+     *
+     * @return 业务类型 -> 指标（limit、running、pending、rejected）
+     */
+    public Map<String, Map<String, Long>> businessTypeSnapshot() {
+        return concurrencyLimiter.snapshot();
+    }
+
+    /**
+     * 调度通道指标快照
+     *
+     * @return 任务类型.通道 -> 指标（slots、running、queued、dispatched、aged、rejected、p50WaitMs、p99WaitMs）
+     */
+    public Map<String, Map<String, Long>> laneSnapshot() {
+        return laneScheduler.snapshot();
+    }
+
+    /**
+     * 提交人指标快照
+     *
+     * @return 任务类型.提交人 -> 指标（queued、running、dispatched、throttled、rejected）
+     */
+    public Map<String, Map<String, Long>> accountSnapshot() {
+        return laneScheduler.accountSnapshot();
+    }
+
+    /**
+     * 导入文件预取指标快照
+     *
+     * @return 指标（stagedFiles、reservedBytes、maxTotalBytes、hits、misses、skipped、evicted）
+     */
+    public Map<String, Long> prefetchSnapshot() {
+        return importFilePrefetcher.snapshot();
+    }
+
+    /**
+     * 分段下载指标快照
+     *
+     * @return 指标（ranged、streamed、parts、retriedParts、bytes）
+     */
+    public Map<String, Long> rangeDownloadSnapshot() {
+        return rangeDownloader.snapshot();
+    }
+
+    /**
+     * 下载缓存指标快照
+     *
+     * @return 指标（entries、cachedBytes、maxBytes、hits、misses、hitRatioPercent、bytesSaved、evicted、invalidated），未启用缓存时为空
+     */
+    public Map<String, Long> downloadCacheSnapshot() {
+        CachingFileStorageService cache = ForwardingFileStorageService.unwrap(fileStorageService, CachingFileStorageService.class);
+        return cache != null ? cache.snapshot() : Collections.<String, Long>emptyMap();
+    }
+
+    /**
+     * 临时访问链接缓存指标快照
+     *
+     * @return 指标（entries、maxEntries、hits、misses、expired、evicted），未启用缓存时为空
+     */
+    public Map<String, Long> presignedUrlCacheSnapshot() {
+        PresignedUrlCachingStorageService cache = ForwardingFileStorageService.unwrap(
+            fileStorageService, PresignedUrlCachingStorageService.class);
+        return cache != null ? cache.snapshot() : Collections.<String, Long>emptyMap();
+    }
+
+    /**
+     * 上传去重指标快照
+     *
+     * @return 指标（entries、uploads、deduplicated、bytesSaved），未启用去重时为空
+     */
+    public Map<String, Long> dedupSnapshot() {
+        DeduplicatingFileStorageService dedup = ForwardingFileStorageService.unwrap(
+            fileStorageService, DeduplicatingFileStorageService.class);
+        return dedup != null ? dedup.snapshot() : Collections.<String, Long>emptyMap();
+    }
+
+    private Map<String, Long> poolStats(ThreadPoolTaskExecutor taskExecutor) {
+        ThreadPoolExecutor executor = taskExecutor.getThreadPoolExecutor();
+        Map<String, Long> stats = new LinkedHashMap<>();
+        stats.put("poolSize", (long) executor.getPoolSize());
+        stats.put("activeCount", (long) executor.getActiveCount());
+        stats.put("maxPoolSize", (long) executor.getMaximumPoolSize());
+        stats.put("queueSize", (long) executor.getQueue().size());
+        stats.put("queueRemainingCapacity", (long) executor.getQueue().remainingCapacity());
+        stats.put("completedTaskCount", executor.getCompletedTaskCount());
+        if (executor.getRejectedExecutionHandler() instanceof CountingRejectedExecutionHandler) {
+            stats.put("rejectedCount",
+                ((CountingRejectedExecutionHandler) executor.getRejectedExecutionHandler()).getRejectedCount());
+        }
+        return stats;
+    }
+}
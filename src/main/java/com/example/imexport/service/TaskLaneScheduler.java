@@ -0,0 +1,459 @@
+package com.example.imexport.service;
+
+import com.example.imexport.config.ImExportProperties;
+import com.example.imexport.core.DataProvider;
+import com.example.imexport.core.ExportQuery;
+import com.example.imexport.core.TaskLane;
+import com.example.imexport.core.TaskType;
+import com.example.imexport.storage.FileStorageService;
+import com.example.imexport.storage.ObjectMetadata;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * 按任务大小分通道调度
+ * 任务在执行前根据存储元数据（导入文件大小）或数据提供者的预估行数（导出）分入快速通道或吞吐通道，
+ * 两个通道各自占用固定的并发数，大任务不会挡住排在其后的小任务：
+ * <ul>
+ *     <li>快速通道空闲时优先执行等待超过 aging-threshold 的吞吐通道任务（防止大任务饿死），其次执行快速通道任务</li>
+ *     <li>吞吐通道空闲且没有大任务排队时借给快速通道任务</li>
+ * </ul>
+ * 通道内按提交人（createdBy）加权公平排队：每个活跃提交人轮流获得空闲并发，单个账号突发提交的大量任务不会占满线程池，
+ * 权重由 imexport.scheduler.account-weights 与 business-type-weights 相乘得到；
+ * 可通过 max-running-per-account 限制单个提交人同时执行的任务数。
+ * 每个通道记录最近的排队等待时长，提供 p50 / p99 指标；每个提交人提供排队、执行与限流指标
+ */
+@Component
+public class TaskLaneScheduler {
+
+    private static final Logger logger = LoggerFactory.getLogger(TaskLaneScheduler.class);
+
+    private static final String UNKNOWN_ACCOUNT = "unknown";
+
+    @Autowired
+    private ImExportProperties properties;
+
+    @Autowired
+    private FileStorageService fileStorageService;
+
+    @Autowired
+    private StageExecutor stageExecutor;
+
+    private final Map<TaskType, LaneGroup> groups = new EnumMap<>(TaskType.class);
+
+    @PostConstruct
+    public void init() {
+        groups.put(TaskType.IMPORT, new LaneGroup(TaskType.IMPORT, stageExecutor.taskExecutor(TaskType.IMPORT)));
+        groups.put(TaskType.EXPORT, new LaneGroup(TaskType.EXPORT, stageExecutor.taskExecutor(TaskType.EXPORT)));
+    }
+
+    /**
+     * 按导入文件大小选择通道（获取元数据失败或存储不支持时进入快速通道）
+     *
+     * @param fileUrl 导入文件 OSS 地址
+     * @return 调度通道
+     */
+    public TaskLane laneForImport(String fileUrl) {
+        long fileSize = -1;
+        try {
+            ObjectMetadata metadata = fileStorageService.getObjectMetadata(fileUrl);
+            fileSize = metadata != null ? metadata.getContentLength() : -1;
+        } catch (RuntimeException e) {
+            logger.warn("获取导入文件大小失败，按快速通道调度: fileUrl={}", fileUrl, e);
+        }
+        return fileSize > properties.getScheduler().getFastLaneMaxFileSize().toBytes() ? TaskLane.BULK : TaskLane.FAST;
+    }
+
+    /**
+     * 按导出预估行数选择通道（无法预估时进入快速通道）
+     *
+     * @param provider 数据提供者
+     * @param query 导出查询上下文
+     * @return 调度通道
+     */
+    public TaskLane laneForExport(DataProvider<?> provider, ExportQuery query) {
+        long estimatedRows = -1;
+        try {
+            estimatedRows = provider.estimateRowCount(query);
+        } catch (RuntimeException e) {
+            logger.warn("预估导出行数失败，按快速通道调度: businessType={}", provider.getBusinessType(), e);
+        }
+        return estimatedRows > properties.getScheduler().getFastLaneMaxRows() ? TaskLane.BULK : TaskLane.FAST;
+    }
+
+    /**
+     * 提交任务到指定通道，通道有空闲并发时按提交人公平顺序交给对应线程池执行
+     *
+     * @param type 任务类型
+     * @param lane 调度通道
+     * @param createdBy 提交人
+     * @param businessType 业务类型
+     * @param work 任务
+     * @param onRejected 排队已满或线程池拒绝时的回调（参数为拒绝原因）
+     */
+    public void submit(TaskType type, TaskLane lane, String createdBy, String businessType, Runnable work,
+                       Consumer<String> onRejected) {
+        LaneGroup group = groups.get(type);
+        if (!properties.getScheduler().isEnabled()) {
+            try {
+                group.executor.execute(work);
+            } catch (RejectedExecutionException e) {
+                onRejected.accept(group.executorFullMessage());
+            }
+            return;
+        }
+        group.submit(new QueuedTask(lane, createdBy != null ? createdBy : UNKNOWN_ACCOUNT,
+            weightOf(createdBy, businessType), work, onRejected));
+    }
+
+    /**
+     * 业务类型并发限制下排队任务的重新提交方式：获得许可后重新提交到原通道，按提交人公平排队
+     *
+     * @param type 任务类型
+     * @param lane 调度通道
+     * @param createdBy 提交人
+     * @param businessType 业务类型
+     * @return 重新提交方式
+     */
+    public BusinessTypeConcurrencyLimiter.Resubmitter resubmitter(TaskType type, TaskLane lane, String createdBy,
+                                                                  String businessType) {
+        return (work, onRejected) -> submit(type, lane, createdBy, businessType, work, onRejected);
+    }
+
+    /**
+     * 各通道的排队、执行与等待时长指标
+     *
+     * @return 任务类型.通道 -> 指标（slots、running、queued、dispatched、aged、rejected、p50WaitMs、p99WaitMs）
+     */
+    public Map<String, Map<String, Long>> snapshot() {
+        Map<String, Map<String, Long>> result = new LinkedHashMap<>();
+        groups.forEach((type, group) -> {
+            for (TaskLane lane : TaskLane.values()) {
+                result.put(type + "." + lane, group.stats(lane));
+            }
+        });
+        return result;
+    }
+
+    /**
+     * 各提交人的排队、执行与限流指标
+     *
+     * 只包含有排队或执行中任务的提交人，提交人空闲后其累计计数随之清零
+     *
+     * @return 任务类型.提交人 -> 指标（queued、running、dispatched、throttled、rejected）
+     */
+    public Map<String, Map<String, Long>> accountSnapshot() {
+        Map<String, Map<String, Long>> result = new LinkedHashMap<>();
+        groups.forEach((type, group) -> group.accountStats()
+            .forEach((account, stats) -> result.put(type + "." + account, stats)));
+        return result;
+    }
+
+    /**
+     * 任务权重 = 提交人权重 × 业务类型权重（未配置时为 1）
+     */
+    private double weightOf(String createdBy, String businessType) {
+        ImExportProperties.Scheduler scheduler = properties.getScheduler();
+        int accountWeight = createdBy != null ? scheduler.getAccountWeights().getOrDefault(createdBy, 1) : 1;
+        int businessTypeWeight = businessType != null ? scheduler.getBusinessTypeWeights().getOrDefault(businessType, 1) : 1;
+        return (double) Math.max(1, accountWeight) * Math.max(1, businessTypeWeight);
+    }
+
+    private int slots(TaskLane lane) {
+        ImExportProperties.Scheduler scheduler = properties.getScheduler();
+        return Math.max(1, lane == TaskLane.FAST ? scheduler.getFastLaneSlots() : scheduler.getBulkLaneSlots());
+    }
+
+    /**
+     * 同一任务类型的两个通道
+     */
+    private class LaneGroup {
+
+        private final TaskType type;
+        private final Executor executor;
+        private final Map<TaskLane, FairShareQueue<QueuedTask>> queues = new EnumMap<>(TaskLane.class);
+        private final Map<TaskLane, LaneCounters> counters = new EnumMap<>(TaskLane.class);
+        /**
+         * 有排队或执行中任务的提交人，空闲后移除（与 FairShareQueue 移除空队列一致），提交人数量不会无限增长
+         */
+        private final Map<String, AccountCounters> accounts = new HashMap<>();
+
+        private LaneGroup(TaskType type, Executor executor) {
+            this.type = type;
+            this.executor = executor;
+            for (TaskLane lane : TaskLane.values()) {
+                queues.put(lane, new FairShareQueue<>());
+                counters.put(lane, new LaneCounters());
+            }
+        }
+
+        private void submit(QueuedTask task) {
+            String rejectReason = null;
+            synchronized (this) {
+                ImExportProperties.Scheduler scheduler = properties.getScheduler();
+                FairShareQueue<QueuedTask> queue = queues.get(task.lane);
+                AccountCounters account = accounts.computeIfAbsent(task.account, key -> new AccountCounters());
+                if (queue.size() >= Math.max(1, scheduler.getMaxQueuedPerLane())) {
+                    counters.get(task.lane).rejected++;
+                    rejectReason = "任务调度通道排队已满: " + type + "." + task.lane;
+                } else if (scheduler.getMaxQueuedPerAccount() > 0 && queuedOf(task.account) >= scheduler.getMaxQueuedPerAccount()) {
+                    account.rejected++;
+                    rejectReason = "提交人排队任务数已达上限: " + task.account;
+                } else {
+                    if (!eligible(task.account)) {
+                        account.throttled++;
+                    }
+                    queue.add(task.account, task.weight, task);
+                }
+                removeIfIdle(task.account);
+            }
+            if (rejectReason != null) {
+                logger.warn("任务排队被拒绝: type={}, lane={}, createdBy={}, reason={}", type, task.lane, task.account, rejectReason);
+                task.onRejected.accept(rejectReason);
+                return;
+            }
+            dispatch();
+        }
+
+        /**
+         * 提交人未达同时执行上限时才可出队
+         */
+        private boolean eligible(String account) {
+            int maxRunning = properties.getScheduler().getMaxRunningPerAccount();
+            if (maxRunning <= 0) {
+                return true;
+            }
+            AccountCounters counters = accounts.get(account);
+            return counters == null || counters.running < maxRunning;
+        }
+
+        /**
+         * 提交人没有排队与执行中的任务时移除其计数
+         */
+        private void removeIfIdle(String account) {
+            AccountCounters counters = accounts.get(account);
+            if (counters != null && counters.running == 0 && queuedOf(account) == 0) {
+                accounts.remove(account);
+            }
+        }
+
+        private int queuedOf(String account) {
+            int queued = 0;
+            for (FairShareQueue<QueuedTask> queue : queues.values()) {
+                queued += queue.size(account);
+            }
+            return queued;
+        }
+
+        /**
+         * 在锁内选出可执行的任务，在锁外交给线程池
+         */
+        private void dispatch() {
+            List<QueuedTask> launchable = new ArrayList<>();
+            synchronized (this) {
+                QueuedTask next;
+                while ((next = pollNext()) != null) {
+                    launchable.add(next);
+                }
+            }
+            for (QueuedTask task : launchable) {
+                launch(task);
+            }
+        }
+
+        private QueuedTask pollNext() {
+            FairShareQueue<QueuedTask> fastQueue = queues.get(TaskLane.FAST);
+            FairShareQueue<QueuedTask> bulkQueue = queues.get(TaskLane.BULK);
+
+            if (counters.get(TaskLane.FAST).running < slots(TaskLane.FAST)) {
+                QueuedTask nextBulk = bulkQueue.peek(this::eligible);
+                long agingNanos = properties.getScheduler().getAgingThreshold().toNanos();
+                if (nextBulk != null && System.nanoTime() - nextBulk.enqueuedAt >= agingNanos) {
+                    counters.get(TaskLane.BULK).aged++;
+                    return take(bulkQueue.poll(this::eligible), TaskLane.FAST);
+                }
+                QueuedTask nextFast = fastQueue.poll(this::eligible);
+                if (nextFast != null) {
+                    return take(nextFast, TaskLane.FAST);
+                }
+            }
+            if (counters.get(TaskLane.BULK).running < slots(TaskLane.BULK)) {
+                QueuedTask nextBulk = bulkQueue.poll(this::eligible);
+                if (nextBulk != null) {
+                    return take(nextBulk, TaskLane.BULK);
+                }
+                // 没有大任务排队时，吞吐通道的空闲并发借给小任务
+                QueuedTask nextFast = fastQueue.poll(this::eligible);
+                if (nextFast != null) {
+                    return take(nextFast, TaskLane.BULK);
+                }
+            }
+            return null;
+        }
+
+        private QueuedTask take(QueuedTask task, TaskLane slot) {
+            task.slot = slot;
+            counters.get(slot).running++;
+            AccountCounters account = accounts.computeIfAbsent(task.account, key -> new AccountCounters());
+            account.running++;
+            account.dispatched++;
+            LaneCounters laneCounters = counters.get(task.lane);
+            laneCounters.dispatched++;
+            laneCounters.waits.record(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - task.enqueuedAt));
+            return task;
+        }
+
+        private void launch(QueuedTask task) {
+            try {
+                executor.execute(() -> {
+                    try {
+                        task.work.run();
+                    } finally {
+                        release(task);
+                    }
+                });
+            } catch (RejectedExecutionException e) {
+                synchronized (this) {
+                    counters.get(task.slot).running--;
+                    counters.get(task.lane).rejected++;
+                    accounts.get(task.account).running--;
+                    removeIfIdle(task.account);
+                }
+                logger.warn("线程池已满，拒绝任务: type={}, lane={}", type, task.lane);
+                task.onRejected.accept(executorFullMessage());
+            }
+        }
+
+        private void release(QueuedTask task) {
+            synchronized (this) {
+                counters.get(task.slot).running--;
+                accounts.get(task.account).running--;
+                removeIfIdle(task.account);
+            }
+            dispatch();
+        }
+
+        private synchronized Map<String, Long> stats(TaskLane lane) {
+            LaneCounters laneCounters = counters.get(lane);
+            Map<String, Long> stats = new LinkedHashMap<>();
+            stats.put("slots", (long) slots(lane));
+            stats.put("running", (long) laneCounters.running);
+            stats.put("queued", (long) queues.get(lane).size());
+            stats.put("dispatched", laneCounters.dispatched);
+            stats.put("aged", laneCounters.aged);
+            stats.put("rejected", laneCounters.rejected);
+            stats.put("p50WaitMs", laneCounters.waits.percentile(0.50));
+            stats.put("p99WaitMs", laneCounters.waits.percentile(0.99));
+            return stats;
+        }
+
+        private synchronized Map<String, Map<String, Long>> accountStats() {
+            Map<String, Integer> queued = new HashMap<>();
+            for (FairShareQueue<QueuedTask> queue : queues.values()) {
+                queue.depthByAccount().forEach((account, depth) -> queued.merge(account, depth, Integer::sum));
+            }
+            Map<String, Map<String, Long>> result = new LinkedHashMap<>();
+            accounts.forEach((account, accountCounters) -> {
+                Map<String, Long> stats = new LinkedHashMap<>();
+                stats.put("queued", (long) queued.getOrDefault(account, 0));
+                stats.put("running", (long) accountCounters.running);
+                stats.put("dispatched", accountCounters.dispatched);
+                stats.put("throttled", accountCounters.throttled);
+                stats.put("rejected", accountCounters.rejected);
+                result.put(account, stats);
+            });
+            return result;
+        }
+
+        private String executorFullMessage() {
+            return type == TaskType.IMPORT ? "导入线程池已满" : "导出线程池已满";
+        }
+    }
+
+    private static class QueuedTask {
+
+        private final TaskLane lane;
+        private final String account;
+        private final double weight;
+        private final Runnable work;
+        private final Consumer<String> onRejected;
+        private final long enqueuedAt = System.nanoTime();
+        private TaskLane slot;
+
+        private QueuedTask(TaskLane lane, String account, double weight, Runnable work, Consumer<String> onRejected) {
+            this.lane = lane;
+            this.account = account;
+            this.weight = weight;
+            this.work = work;
+            this.onRejected = onRejected;
+        }
+    }
+
+    /**
+     * 通道计数（由所属 LaneGroup 的锁保护）
+     */
+    private static class LaneCounters {
+
+        private int running;
+        private long dispatched;
+        private long aged;
+        private long rejected;
+        private final WaitSamples waits = new WaitSamples(1024);
+    }
+
+    /**
+     * 提交人计数（由所属 LaneGroup 的锁保护）
+     * throttled 为提交时该提交人已达同时执行上限、需要等待自身任务完成的次数
+     */
+    private static class AccountCounters {
+
+        private int running;
+        private long dispatched;
+        private long throttled;
+        private long rejected;
+    }
+
+    /**
+     * 最近 N 次排队等待时长（毫秒），用于计算分位数
+     */
+    static class WaitSamples {
+
+        private final long[] samples;
+        private long total;
+
+        WaitSamples(int capacity) {
+            this.samples = new long[capacity];
+        }
+
+        void record(long waitMillis) {
+            samples[(int) (total % samples.length)] = waitMillis;
+            total++;
+        }
+
+        long percentile(double percentile) {
+            int size = (int) Math.min(total, samples.length);
+            if (size == 0) {
+                return 0;
+            }
+            long[] sorted = Arrays.copyOf(samples, size);
+            Arrays.sort(sorted);
+            int index = (int) Math.ceil(percentile * size) - 1;
+            return sorted[Math.max(0, Math.min(index, size - 1))];
+        }
+    }
+}
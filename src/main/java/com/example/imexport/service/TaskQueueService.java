@@ -0,0 +1,334 @@
+package com.example.imexport.service;
+
+import com.example.imexport.config.ImExportProperties;
+import com.example.imexport.core.CsvExportProvider;
+import com.example.imexport.core.CsvRowProcessor;
+import com.example.imexport.core.DataProvider;
+import com.example.imexport.core.ExcelExportProvider;
+import com.example.imexport.core.ExcelRowProcessor;
+import com.example.imexport.core.ExportQuery;
+import com.example.imexport.core.RowProcessor;
+import com.example.imexport.core.TaskLane;
+import com.example.imexport.core.TaskType;
+import com.example.imexport.mapper.ExportTaskHistoryMapper;
+import com.example.imexport.mapper.ImportTaskHistoryMapper;
+import com.example.imexport.model.ExportTaskHistory;
+import com.example.imexport.model.ImportTaskHistory;
+import com.example.imexport.util.ExportParamsUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskScheduler;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.lang.management.ManagementFactory;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * 基于数据库的分布式任务队列（imexport.queue.mode=DISTRIBUTED 时启用）
+ * 提交方只写入 PENDING 任务；各节点按自身空闲容量通过 SELECT ... FOR UPDATE SKIP LOCKED 按主键先后抢占任务并写入租约，
+ * 领取的任务与本地模式一样经 TaskLaneScheduler 分通道、按提交人公平排队，并受业务类型并发限制，
+ * 在本节点排队与执行期间定期续约（同时写入心跳）。节点失联后心跳超时的任务由 StuckTaskWatchdog 重新排队，超过最大执行次数后标记为 FAILED；
+ * 续约时发现任务已被请求取消（CANCELLING）则触发本地取消令牌
+ */
+@Component
+public class TaskQueueService {
+
+    private static final Logger logger = LoggerFactory.getLogger(TaskQueueService.class);
+
+    @Autowired
+    private ImExportProperties properties;
+
+    @Autowired
+    private ImportTaskHistoryMapper importTaskHistoryMapper;
+
+    @Autowired
+    private ExportTaskHistoryMapper exportTaskHistoryMapper;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private ProviderRegistry providerRegistry;
+
+    @Autowired
+    private RunningTaskRegistry runningTaskRegistry;
+
+    @Autowired
+    private TaskCancellationService taskCancellationService;
+
+    @Autowired
+    private CsvImportService csvImportService;
+
+    @Autowired
+    private ExcelImportService excelImportService;
+
+    @Autowired
+    private CsvExportService csvExportService;
+
+    @Autowired
+    private ExcelExportService excelExportService;
+
+    @Autowired
+    private TaskLaneScheduler laneScheduler;
+
+    @Autowired
+    private BusinessTypeConcurrencyLimiter concurrencyLimiter;
+
+    private String nodeId;
+
+    private ThreadPoolTaskScheduler scheduler;
+
+    @PostConstruct
+    public void init() {
+        ImExportProperties.Queue queue = properties.getQueue();
+        nodeId = queue.getNodeId() != null && !queue.getNodeId().isEmpty()
+            ? queue.getNodeId() : ManagementFactory.getRuntimeMXBean().getName();
+
+        if (queue.getMode() != ImExportProperties.QueueMode.DISTRIBUTED) {
+            return;
+        }
+
+        scheduler = new ThreadPoolTaskScheduler();
+        scheduler.setPoolSize(2);
+        scheduler.setThreadNamePrefix("task-queue-");
+        scheduler.initialize();
+        scheduler.scheduleWithFixedDelay(this::poll, queue.getPollInterval());
+        scheduler.scheduleWithFixedDelay(this::heartbeat, queue.getHeartbeatInterval());
+        logger.info("分布式任务队列已启动: nodeId={}, importWorkers={}, exportWorkers={}",
+            nodeId, queue.getImportWorkers(), queue.getExportWorkers());
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (scheduler != null) {
+            scheduler.shutdown();
+        }
+    }
+
+    /**
+     * 本节点标识（租约持有者）
+     */
+    public String getNodeId() {
+        return nodeId;
+    }
+
+    /**
+     * 按空闲容量领取任务
+     */
+    void poll() {
+        try {
+            claimAndDispatch(TaskType.IMPORT);
+            claimAndDispatch(TaskType.EXPORT);
+        } catch (Exception e) {
+            logger.warn("任务队列轮询失败: nodeId={}", nodeId, e);
+        }
+    }
+
+    /**
+     * 为本节点执行中的任务续约
+     */
+    void heartbeat() {
+        long leaseSeconds = properties.getQueue().getLeaseDuration().getSeconds();
+        for (TaskType type : TaskType.values()) {
+            for (Long taskId : runningTaskRegistry.getRunningTaskIds(type)) {
+                try {
+                    int renewed = type == TaskType.IMPORT
+                        ? importTaskHistoryMapper.renewLease(taskId, nodeId, leaseSeconds)
+                        : exportTaskHistoryMapper.renewLease(taskId, nodeId, leaseSeconds);
+                    if (renewed == 0) {
+                        // 任务已被请求取消（其他节点受理的取消请求）时通知本地执行线程停止
+                        if ("CANCELLING".equals(currentStatus(type, taskId))) {
+                            taskCancellationService.signal(type, taskId);
+                        } else {
+                            logger.warn("任务租约已丢失: type={}, taskId={}, nodeId={}", type, taskId, nodeId);
+                        }
+                    }
+                } catch (Exception e) {
+                    logger.warn("任务续约失败: type={}, taskId={}", type, taskId, e);
+                }
+            }
+        }
+    }
+
+    private String currentStatus(TaskType type, Long taskId) {
+        if (type == TaskType.IMPORT) {
+            ImportTaskHistory task = importTaskHistoryMapper.selectById(taskId);
+            return task != null ? task.getTaskStatus() : null;
+        }
+        ExportTaskHistory task = exportTaskHistoryMapper.selectById(taskId);
+        return task != null ? task.getTaskStatus() : null;
+    }
+
+    private void claimAndDispatch(TaskType type) {
+        int capacity = (type == TaskType.IMPORT ? properties.getQueue().getImportWorkers()
+            : properties.getQueue().getExportWorkers()) - runningTaskRegistry.count(type);
+        if (capacity <= 0) {
+            return;
+        }
+
+        long leaseSeconds = properties.getQueue().getLeaseDuration().getSeconds();
+        List<Long> claimed = transactionTemplate.execute(status -> {
+            List<Long> lockedIds = type == TaskType.IMPORT
+                ? importTaskHistoryMapper.lockPendingTaskIds(capacity)
+                : exportTaskHistoryMapper.lockPendingTaskIds(capacity);
+            List<Long> result = new ArrayList<>();
+            for (Long taskId : lockedIds) {
+                int updated = type == TaskType.IMPORT
+                    ? importTaskHistoryMapper.claimTask(taskId, nodeId, leaseSeconds)
+                    : exportTaskHistoryMapper.claimTask(taskId, nodeId, leaseSeconds);
+                if (updated > 0) {
+                    result.add(taskId);
+                }
+            }
+            return result;
+        });
+
+        for (Long taskId : claimed != null ? claimed : Collections.<Long>emptyList()) {
+            dispatch(type, taskId);
+        }
+    }
+
+    /**
+     * 领取的任务提交到调度通道：排队期间计入本节点容量并续约，业务类型并发超限时按 rejection-policy 排队或失败，
+     * 通道排队已满或线程池已满时退回队列
+     */
+    private void dispatch(TaskType type, Long taskId) {
+        runningTaskRegistry.register(type, taskId);
+
+        String businessType;
+        String createdBy;
+        TaskLane lane;
+        try {
+            if (type == TaskType.IMPORT) {
+                ImportTaskHistory task = importTaskHistoryMapper.selectById(taskId);
+                businessType = task.getBusinessType();
+                createdBy = task.getCreatedBy();
+                lane = laneScheduler.laneForImport(task.getOriginalFileUrl());
+            } else {
+                ExportTaskHistory task = exportTaskHistoryMapper.selectById(taskId);
+                businessType = task.getBusinessType();
+                createdBy = task.getCreatedBy();
+                lane = laneForExport(task);
+            }
+        } catch (IllegalStateException e) {
+            // 本节点未注册该业务类型，直接失败而不是反复重试
+            runningTaskRegistry.unregister(type, taskId);
+            logger.error("任务无法执行: type={}, taskId={}", type, taskId, e);
+            markFailed(type, taskId, e.getMessage());
+            return;
+        } catch (RuntimeException e) {
+            logger.warn("任务调度失败: type={}, taskId={}", type, taskId, e);
+            release(type, taskId);
+            return;
+        }
+
+        laneScheduler.submit(type, lane, createdBy, businessType,
+            () -> concurrencyLimiter.execute(businessType,
+                () -> runTask(type, taskId),
+                reason -> {
+                    runningTaskRegistry.unregister(type, taskId);
+                    markFailed(type, taskId, reason);
+                },
+                laneScheduler.resubmitter(type, lane, createdBy, businessType)),
+            reason -> {
+                // 本节点排队已满或线程池已满，退回队列由其他节点或下次轮询领取
+                logger.warn("任务调度被拒绝，退回队列: type={}, taskId={}, reason={}", type, taskId, reason);
+                release(type, taskId);
+            });
+        logger.info("领取任务: type={}, taskId={}, lane={}, nodeId={}", type, taskId, lane, nodeId);
+    }
+
+    private void release(TaskType type, Long taskId) {
+        runningTaskRegistry.unregister(type, taskId);
+        if (type == TaskType.IMPORT) {
+            importTaskHistoryMapper.releaseTask(taskId, nodeId);
+        } else {
+            exportTaskHistoryMapper.releaseTask(taskId, nodeId);
+        }
+    }
+
+    /**
+     * 按任务记录中的查询参数预估行数选择通道（参数无法还原时进入快速通道，由执行阶段记录失败）
+     */
+    private TaskLane laneForExport(ExportTaskHistory task) {
+        DataProvider<?> provider = providerRegistry.getDataProvider(task.getBusinessType());
+        ExportQuery query;
+        try {
+            query = new ExportQuery(ExportParamsUtils.fromCanonicalJson(task.getQueryParams(), task.getParamsType()),
+                properties.getExport().getFetchSize());
+        } catch (IllegalArgumentException e) {
+            return TaskLane.FAST;
+        }
+        if (task.getExportColumns() != null && !task.getExportColumns().isEmpty()) {
+            query.setColumns(Arrays.asList(task.getExportColumns().split(",")));
+        }
+        return laneScheduler.laneForExport(provider, query);
+    }
+
+    private void runTask(TaskType type, Long taskId) {
+        try {
+            if (type == TaskType.IMPORT) {
+                runImportTask(importTaskHistoryMapper.selectById(taskId));
+            } else {
+                runExportTask(exportTaskHistoryMapper.selectById(taskId));
+            }
+        } catch (IllegalStateException e) {
+            // 本节点未注册该业务类型等无法执行的情况，直接失败而不是反复重试
+            logger.error("任务无法执行: type={}, taskId={}", type, taskId, e);
+            markFailed(type, taskId, e.getMessage());
+        } catch (RuntimeException e) {
+            // 执行失败已由各服务记录到任务
+            logger.debug("任务执行失败: type={}, taskId={}", type, taskId, e);
+        } finally {
+            runningTaskRegistry.unregister(type, taskId);
+        }
+    }
+
+    private void runImportTask(ImportTaskHistory task) {
+        RowProcessor<?> processor = providerRegistry.getRowProcessor(task.getBusinessType());
+        if (processor instanceof CsvRowProcessor) {
+            csvImportService.runClaimedTask(task, (CsvRowProcessor<?>) processor);
+        } else if (processor instanceof ExcelRowProcessor) {
+            excelImportService.runClaimedTask(task, (ExcelRowProcessor<?>) processor);
+        } else {
+            throw new IllegalStateException("不支持的导入处理器: businessType=" + task.getBusinessType());
+        }
+    }
+
+    private void runExportTask(ExportTaskHistory task) {
+        DataProvider<?> provider = providerRegistry.getDataProvider(task.getBusinessType());
+        if (provider instanceof CsvExportProvider) {
+            csvExportService.runClaimedTask(task, (CsvExportProvider<?>) provider);
+        } else if (provider instanceof ExcelExportProvider) {
+            excelExportService.runClaimedTask(task, (ExcelExportProvider<?>) provider);
+        } else {
+            throw new IllegalStateException("不支持的导出数据提供者: businessType=" + task.getBusinessType());
+        }
+    }
+
+    private void markFailed(TaskType type, Long taskId, String errorMessage) {
+        if (type == TaskType.IMPORT) {
+            ImportTaskHistory task = new ImportTaskHistory();
+            task.setId(taskId);
+            task.setTaskStatus("FAILED");
+            task.setErrorMessage(errorMessage);
+            task.setUpdatedTime(LocalDateTime.now());
+            importTaskHistoryMapper.updateById(task);
+        } else {
+            ExportTaskHistory task = new ExportTaskHistory();
+            task.setId(taskId);
+            task.setTaskStatus("FAILED");
+            task.setErrorMessage(errorMessage);
+            task.setUpdatedTime(LocalDateTime.now());
+            exportTaskHistoryMapper.updateById(task);
+        }
+    }
+}
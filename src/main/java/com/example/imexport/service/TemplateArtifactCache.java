@@ -0,0 +1,138 @@
+package com.example.imexport.service;
+
+import com.example.imexport.config.ImExportProperties;
+import com.example.imexport.core.FileFormat;
+import com.example.imexport.storage.FileStorageService;
+import com.example.imexport.util.HashUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.io.ByteArrayInputStream;
+import java.lang.annotation.Annotation;
+import java.lang.reflect.Field;
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+/**
+ * 模板产物缓存
+ * 模板内容只取决于业务类型与模型类定义，因此按“格式 + 业务类型 + 模型类指纹”缓存模板字节与 OSS 地址：
+ * 每个进程内模板只生成一次、上传一次；模型类字段或注解变化后指纹改变，自动生成新模板。
+ * 下载链接的复用由存储层的 PresignedUrlCachingStorageService 负责，这里不再单独缓存
+ */
+@Component
+public class TemplateArtifactCache {
+
+    private static final Logger logger = LoggerFactory.getLogger(TemplateArtifactCache.class);
+
+    @Autowired
+    private FileStorageService fileStorageService;
+
+    @Autowired
+    private ImExportProperties properties;
+
+    private final ConcurrentHashMap<String, TemplateArtifact> artifacts = new ConcurrentHashMap<>();
+
+    /**
+     * 获取模板字节（未缓存时生成）
+     *
+     * @param format 模板文件格式
+     * @param businessType 业务类型
+     * @param fingerprint 模型类指纹
+     * @param generator 模板字节生成器
+     * @return 模板字节
+     */
+    public byte[] getBytes(FileFormat format, String businessType, String fingerprint, Supplier<byte[]> generator) {
+        return getArtifact(format, businessType, fingerprint, generator).bytes;
+    }
+
+    /**
+     * 获取模板 OSS 地址（首次调用时上传）
+     *
+     * @param format 模板文件格式
+     * @param businessType 业务类型
+     * @param fingerprint 模型类指纹
+     * @param fileNamePrefix 文件名前缀（不含扩展名）
+     * @param generator 模板字节生成器
+     * @return 模板文件 OSS 地址
+     */
+    public String getFileUrl(FileFormat format, String businessType, String fingerprint, String fileNamePrefix,
+                             Supplier<byte[]> generator) {
+        TemplateArtifact artifact = getArtifact(format, businessType, fingerprint, generator);
+        synchronized (artifact) {
+            if (artifact.fileUrl == null) {
+                // 文件名带指纹便于识别版本；存储按文件名生成唯一对象键，其他节点或重启后会各自上传一个新对象
+                // （开启 imexport.storage.dedup 时按内容复用已有对象）
+                String fileName = fileNamePrefix + "_template_" + fingerprint.substring(0, 12) + "." + format.getExtension();
+                artifact.fileUrl = fileStorageService.uploadFile(
+                    new ByteArrayInputStream(artifact.bytes), fileName, format.getContentType());
+                logger.info("模板文件上传成功: businessType={}, templateUrl={}", businessType, artifact.fileUrl);
+            }
+            return artifact.fileUrl;
+        }
+    }
+
+    /**
+     * 获取模板临时下载链接（链接缓存由存储层负责）
+     *
+     * @param format 模板文件格式
+     * @param businessType 业务类型
+     * @param fingerprint 模型类指纹
+     * @param fileNamePrefix 文件名前缀（不含扩展名）
+     * @param generator 模板字节生成器
+     * @return 临时下载 URL
+     */
+    public String getDownloadUrl(FileFormat format, String businessType, String fingerprint, String fileNamePrefix,
+                                 Supplier<byte[]> generator) {
+        String fileUrl = getFileUrl(format, businessType, fingerprint, fileNamePrefix, generator);
+        return fileStorageService.generatePresignedUrl(fileUrl, properties.getTemplate().getUrlExpiration().getSeconds());
+    }
+
+    /**
+     * 计算模型类指纹：类名、字段名、字段类型与字段注解（含 @ExcelProperty 表头定义）以及附加内容（如 CSV 表头）
+     *
+     * @param modelClass 数据模型类
+     * @param extras 附加内容
+     * @return 指纹（SHA-256 十六进制）
+     */
+    public static String fingerprint(Class<?> modelClass, String... extras) {
+        StringBuilder source = new StringBuilder(modelClass.getName());
+        for (Class<?> clazz = modelClass; clazz != null && clazz != Object.class; clazz = clazz.getSuperclass()) {
+            for (Field field : clazz.getDeclaredFields()) {
+                source.append('|').append(field.getName()).append(':').append(field.getType().getName());
+                for (Annotation annotation : field.getDeclaredAnnotations()) {
+                    source.append('@').append(annotation);
+                }
+            }
+        }
+        if (extras != null) {
+            source.append('|').append(Arrays.toString(extras));
+        }
+        return HashUtils.sha256Hex(source.toString());
+    }
+
+    private TemplateArtifact getArtifact(FileFormat format, String businessType, String fingerprint,
+                                         Supplier<byte[]> generator) {
+        String key = format.name() + ":" + businessType + ":" + fingerprint;
+        return artifacts.computeIfAbsent(key, k -> {
+            byte[] bytes = generator.get();
+            logger.info("模板内容生成成功: businessType={}, format={}, size={}", businessType, format, bytes.length);
+            return new TemplateArtifact(bytes);
+        });
+    }
+
+    /**
+     * 缓存的模板产物
+     */
+    private static class TemplateArtifact {
+
+        private final byte[] bytes;
+        private String fileUrl;
+
+        private TemplateArtifact(byte[] bytes) {
+            this.bytes = bytes;
+        }
+    }
+}
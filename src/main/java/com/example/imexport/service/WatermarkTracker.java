@@ -0,0 +1,34 @@
+package com.example.imexport.service;
+
+import com.example.imexport.core.IncrementalDataProvider;
+
+import java.util.List;
+
+/**
+ * 增量导出过程中跟踪已写出数据的最高水位
+ *
+ * @param <T> 导出数据模型类型
+ */
+class WatermarkTracker<T> {
+
+    private final IncrementalDataProvider<T> provider;
+    private String highWatermark;
+
+    WatermarkTracker(IncrementalDataProvider<T> provider, String initialWatermark) {
+        this.provider = provider;
+        this.highWatermark = initialWatermark;
+    }
+
+    void observe(List<T> batch) {
+        for (T row : batch) {
+            String watermark = provider.getWatermark(row);
+            if (watermark != null && (highWatermark == null || provider.compareWatermark(watermark, highWatermark) > 0)) {
+                highWatermark = watermark;
+            }
+        }
+    }
+
+    String getHighWatermark() {
+        return highWatermark;
+    }
+}
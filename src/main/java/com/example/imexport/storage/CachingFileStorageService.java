@@ -0,0 +1,351 @@
+package com.example.imexport.storage;
+
+import com.example.imexport.config.ImExportProperties;
+import com.example.imexport.util.HashUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 带本地磁盘缓存的文件存储服务
+ * 重试、先试导入再正式导入、重复导出等场景会反复下载同一对象，下载结果缓存到本地磁盘：
+ * <ul>
+ *     <li>缓存总大小不超过 max-size，超出时淘汰最久未使用的对象；超过 max-entry-size 的对象不缓存</li>
+ *     <li>命中时按存储元数据校验 ETag（无 ETag 时校验大小），不一致则丢弃并重新下载；
+ *         存储不支持元数据时缓存只在 ttl 内有效</li>
+ *     <li>下载完成后校验实际大小与元数据一致才写入缓存，避免缓存不完整的文件</li>
+ *     <li>同一地址的并发下载合并为一次，其余调用等待并读取同一缓存文件</li>
+ * </ul>
+ * 上传与临时链接等其他方法直接转发
+ */
+public class CachingFileStorageService extends ForwardingFileStorageService {
+
+    private static final Logger logger = LoggerFactory.getLogger(CachingFileStorageService.class);
+
+    private static final String CACHE_SUFFIX = ".cache";
+
+    private final ImExportProperties.DownloadCache config;
+
+    private final Path cacheDir;
+
+    /**
+     * 访问顺序的 LinkedHashMap，最久未使用的对象在最前（由 this 锁保护）
+     */
+    private final LinkedHashMap<String, CacheEntry> entries = new LinkedHashMap<>(16, 0.75f, true);
+
+    private final Map<String, CompletableFuture<CacheEntry>> inFlight = new ConcurrentHashMap<>();
+
+    private long cachedBytes;
+
+    private final AtomicLong hitCount = new AtomicLong();
+    private final AtomicLong missCount = new AtomicLong();
+    private final AtomicLong bytesSaved = new AtomicLong();
+    private final AtomicLong evictedCount = new AtomicLong();
+    private final AtomicLong invalidatedCount = new AtomicLong();
+
+    public CachingFileStorageService(FileStorageService delegate, ImExportProperties.DownloadCache config) {
+        super(delegate);
+        this.config = config;
+        this.cacheDir = config.getDir() != null && !config.getDir().isEmpty()
+            ? Paths.get(config.getDir())
+            : Paths.get(System.getProperty("java.io.tmpdir"), "imexport-download-cache");
+        try {
+            Files.createDirectories(cacheDir);
+            // 缓存索引只在内存中，启动时清理上次遗留的缓存文件
+            try (DirectoryStream<Path> files = Files.newDirectoryStream(cacheDir, "*" + CACHE_SUFFIX + "*")) {
+                for (Path file : files) {
+                    Files.deleteIfExists(file);
+                }
+            }
+        } catch (IOException e) {
+            throw new RuntimeException("创建下载缓存目录失败: " + cacheDir, e);
+        }
+    }
+
+    @Override
+    public InputStream downloadFile(String fileUrl) {
+        CacheEntry entry = lookup(fileUrl);
+        if (entry != null) {
+            InputStream inputStream = openEntry(entry);
+            if (inputStream != null) {
+                hitCount.incrementAndGet();
+                bytesSaved.addAndGet(entry.size);
+                return inputStream;
+            }
+        }
+
+        // 同一地址只下载一次，其余调用等待下载结果
+        CompletableFuture<CacheEntry> download = new CompletableFuture<>();
+        CompletableFuture<CacheEntry> existing = inFlight.putIfAbsent(fileUrl, download);
+        if (existing != null) {
+            CacheEntry joined = await(existing);
+            InputStream inputStream = joined != null && joined.cached ? openEntry(joined) : null;
+            if (inputStream != null) {
+                hitCount.incrementAndGet();
+                bytesSaved.addAndGet(joined.size);
+                return inputStream;
+            }
+            missCount.incrementAndGet();
+            return super.downloadFile(fileUrl);
+        }
+
+        missCount.incrementAndGet();
+        CacheEntry filled = null;
+        try {
+            filled = fill(fileUrl);
+        } finally {
+            download.complete(filled);
+            inFlight.remove(fileUrl, download);
+        }
+        InputStream inputStream = filled != null ? openEntry(filled) : null;
+        if (inputStream == null) {
+            return super.downloadFile(fileUrl);
+        }
+        return filled.cached ? inputStream : new DeleteOnCloseInputStream(inputStream, filled.file);
+    }
+
+    /**
+     * 经缓存下载到本地文件
+     */
+    @Override
+    public long downloadToFile(String fileUrl, Path target) {
+        try (InputStream inputStream = downloadFile(fileUrl)) {
+            return Files.copy(inputStream, target, StandardCopyOption.REPLACE_EXISTING);
+        } catch (IOException e) {
+            throw new RuntimeException("文件下载失败: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * 缓存指标
+     *
+     * @return entries、cachedBytes、maxBytes、hits、misses、hitRatioPercent、bytesSaved、evicted、invalidated
+     */
+    public Map<String, Long> snapshot() {
+        Map<String, Long> stats = new LinkedHashMap<>();
+        synchronized (this) {
+            stats.put("entries", (long) entries.size());
+            stats.put("cachedBytes", cachedBytes);
+        }
+        long hits = hitCount.get();
+        long misses = missCount.get();
+        stats.put("maxBytes", config.getMaxSize().toBytes());
+        stats.put("hits", hits);
+        stats.put("misses", misses);
+        stats.put("hitRatioPercent", hits + misses == 0 ? 0 : hits * 100 / (hits + misses));
+        stats.put("bytesSaved", bytesSaved.get());
+        stats.put("evicted", evictedCount.get());
+        stats.put("invalidated", invalidatedCount.get());
+        return stats;
+    }
+
+    /**
+     * 查找并校验缓存，已失效的缓存被移除
+     */
+    private CacheEntry lookup(String fileUrl) {
+        CacheEntry entry;
+        synchronized (this) {
+            entry = entries.get(fileUrl);
+        }
+        if (entry == null) {
+            return null;
+        }
+        if (isValid(fileUrl, entry)) {
+            return entry;
+        }
+        invalidatedCount.incrementAndGet();
+        logger.info("下载缓存已失效: fileUrl={}", fileUrl);
+        remove(fileUrl, entry);
+        return null;
+    }
+
+    private boolean isValid(String fileUrl, CacheEntry entry) {
+        ObjectMetadata metadata;
+        try {
+            metadata = super.getObjectMetadata(fileUrl);
+        } catch (RuntimeException e) {
+            logger.warn("校验下载缓存时获取元数据失败: fileUrl={}", fileUrl, e);
+            return false;
+        }
+        if (metadata == null) {
+            return System.currentTimeMillis() - entry.cachedAt <= config.getTtl().toMillis();
+        }
+        if (metadata.getETag() != null && entry.eTag != null) {
+            return metadata.getETag().equals(entry.eTag);
+        }
+        return metadata.getContentLength() == entry.size;
+    }
+
+    /**
+     * 下载对象并写入缓存
+     *
+     * @return 缓存项，对象过大、元数据获取失败或下载内容与元数据不一致时为 null（调用方直接下载）；
+     *         元数据未知且下载后超过 max-entry-size 时返回未缓存的临时文件
+     */
+    private CacheEntry fill(String fileUrl) {
+        ObjectMetadata metadata;
+        try {
+            metadata = super.getObjectMetadata(fileUrl);
+        } catch (RuntimeException e) {
+            logger.warn("获取元数据失败，不缓存: fileUrl={}", fileUrl, e);
+            return null;
+        }
+        long maxEntryBytes = config.getMaxEntrySize().toBytes();
+        if (metadata != null && metadata.getContentLength() > maxEntryBytes) {
+            return null;
+        }
+
+        Path file = cacheDir.resolve(HashUtils.sha256Hex(fileUrl) + CACHE_SUFFIX);
+        Path tempFile = cacheDir.resolve(file.getFileName() + "." + Thread.currentThread().getId() + ".tmp");
+        try {
+            long size;
+            try (InputStream inputStream = super.downloadFile(fileUrl)) {
+                size = Files.copy(inputStream, tempFile, StandardCopyOption.REPLACE_EXISTING);
+            }
+            if (metadata != null && metadata.getContentLength() != size) {
+                logger.warn("下载内容大小与元数据不一致，不缓存: fileUrl={}, expected={}, actual={}",
+                    fileUrl, metadata.getContentLength(), size);
+                Files.deleteIfExists(tempFile);
+                return null;
+            }
+            // 元数据未知时下载后才知道大小，过大的对象不缓存，本次从临时文件读取后删除
+            if (size > maxEntryBytes) {
+                return new CacheEntry(tempFile, size, null, false);
+            }
+            Files.move(tempFile, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            CacheEntry entry = new CacheEntry(file, size, metadata != null ? metadata.getETag() : null, true);
+            put(fileUrl, entry);
+            return entry;
+        } catch (IOException e) {
+            logger.warn("写入下载缓存失败: fileUrl={}", fileUrl, e);
+            deleteQuietly(tempFile);
+            return null;
+        }
+    }
+
+    private void put(String fileUrl, CacheEntry entry) {
+        List<CacheEntry> evicted = new ArrayList<>();
+        synchronized (this) {
+            CacheEntry previous = entries.put(fileUrl, entry);
+            if (previous != null) {
+                cachedBytes -= previous.size;
+            }
+            cachedBytes += entry.size;
+            long maxBytes = config.getMaxSize().toBytes();
+            Iterator<Map.Entry<String, CacheEntry>> iterator = entries.entrySet().iterator();
+            while (cachedBytes > maxBytes && iterator.hasNext()) {
+                Map.Entry<String, CacheEntry> eldest = iterator.next();
+                if (eldest.getValue() == entry) {
+                    continue;
+                }
+                iterator.remove();
+                cachedBytes -= eldest.getValue().size;
+                evicted.add(eldest.getValue());
+            }
+        }
+        // 同一地址重新缓存时文件路径相同，已被新文件覆盖
+        for (CacheEntry eldest : evicted) {
+            evictedCount.incrementAndGet();
+            deleteQuietly(eldest.file);
+        }
+    }
+
+    private void remove(String fileUrl, CacheEntry entry) {
+        boolean removed;
+        synchronized (this) {
+            removed = entries.remove(fileUrl, entry);
+            if (removed) {
+                cachedBytes -= entry.size;
+            }
+        }
+        if (removed) {
+            deleteQuietly(entry.file);
+        }
+    }
+
+    /**
+     * 打开缓存文件（文件已被淘汰时返回 null，调用方直接下载）
+     */
+    private InputStream openEntry(CacheEntry entry) {
+        try {
+            return Files.newInputStream(entry.file);
+        } catch (IOException e) {
+            logger.debug("缓存文件不可读: file={}", entry.file, e);
+            return null;
+        }
+    }
+
+    private CacheEntry await(CompletableFuture<CacheEntry> download) {
+        try {
+            return download.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return null;
+        } catch (ExecutionException e) {
+            return null;
+        }
+    }
+
+    private void deleteQuietly(Path path) {
+        try {
+            Files.deleteIfExists(path);
+        } catch (IOException e) {
+            logger.warn("删除缓存文件失败: path={}", path, e);
+        }
+    }
+
+    /**
+     * 关闭时删除未缓存的临时文件
+     */
+    private class DeleteOnCloseInputStream extends FilterInputStream {
+
+        private final Path file;
+
+        private DeleteOnCloseInputStream(InputStream inputStream, Path file) {
+            super(inputStream);
+            this.file = file;
+        }
+
+        @Override
+        public void close() throws IOException {
+            try {
+                super.close();
+            } finally {
+                deleteQuietly(file);
+            }
+        }
+    }
+
+    private static class CacheEntry {
+
+        private final Path file;
+        private final long size;
+        private final String eTag;
+        private final boolean cached;
+        private final long cachedAt = System.currentTimeMillis();
+
+        private CacheEntry(Path file, long size, String eTag, boolean cached) {
+            this.file = file;
+            this.size = size;
+            this.eTag = eTag;
+            this.cached = cached;
+        }
+    }
+}
@@ -0,0 +1,307 @@
+package com.example.imexport.storage;
+
+import com.example.imexport.config.ImExportProperties;
+import com.example.imexport.util.HashUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedWriter;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.DigestInputStream;
+import java.security.DigestOutputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 按内容去重上传的文件存储服务
+ * 模板、相同的错误文件与重复导出每次都以带时间戳的新文件名上传，上传时边写边计算内容 SHA-256，
+ * 本地索引（摘要 + 内容类型 -> 文件地址）中已有相同内容且存储中对象仍存在（元数据大小一致）时复用已有地址：
+ * <ul>
+ *     <li>uploadFile：内容先写入本地临时文件并计算摘要，命中时不再上传，节省存储写入与带宽</li>
+ *     <li>流式上传会话：内容照常边写边上传，提交时命中则放弃本次上传（清理已上传分片）并返回已有地址，节省存储空间</li>
+ * </ul>
+ * 复用的地址保留首次上传时的文件名。索引按最久未使用淘汰，追加写入 index-file，启动时加载并压缩；
+ * 存储不返回元数据时无法确认对象存在，不去重
+ */
+public class DeduplicatingFileStorageService extends ForwardingFileStorageService {
+
+    private static final Logger logger = LoggerFactory.getLogger(DeduplicatingFileStorageService.class);
+
+    private final ImExportProperties.Dedup config;
+
+    private final Path indexFile;
+
+    /**
+     * 访问顺序的 LinkedHashMap，最久未使用的条目在最前（由 this 锁保护）
+     */
+    private final LinkedHashMap<String, String> index = new LinkedHashMap<>(16, 0.75f, true);
+
+    private BufferedWriter indexWriter;
+
+    private final AtomicLong uploadCount = new AtomicLong();
+    private final AtomicLong deduplicatedCount = new AtomicLong();
+    private final AtomicLong bytesSaved = new AtomicLong();
+
+    public DeduplicatingFileStorageService(FileStorageService delegate, ImExportProperties.Dedup config) {
+        super(delegate);
+        this.config = config;
+        this.indexFile = config.getIndexFile() != null && !config.getIndexFile().isEmpty()
+            ? Paths.get(config.getIndexFile())
+            : Paths.get(System.getProperty("java.io.tmpdir"), "imexport-dedup-index.txt");
+        loadIndex();
+    }
+
+    @Override
+    public String uploadFile(InputStream inputStream, String fileName, String contentType) {
+        Path tempFile = null;
+        try {
+            tempFile = Files.createTempFile("dedup_", ".tmp");
+            MessageDigest digest = newDigest();
+            long size = Files.copy(new DigestInputStream(inputStream, digest), tempFile,
+                StandardCopyOption.REPLACE_EXISTING);
+            String key = HashUtils.toHex(digest.digest()) + ":" + contentType;
+
+            String existing = lookup(key, size);
+            if (existing != null) {
+                logger.info("上传内容已存在，复用文件: fileName={}, fileUrl={}", fileName, existing);
+                return existing;
+            }
+            String fileUrl;
+            try (InputStream content = Files.newInputStream(tempFile)) {
+                fileUrl = super.uploadFile(content, fileName, contentType);
+            }
+            uploadCount.incrementAndGet();
+            put(key, fileUrl);
+            return fileUrl;
+        } catch (IOException e) {
+            throw new RuntimeException("文件上传失败: " + e.getMessage(), e);
+        } finally {
+            if (tempFile != null) {
+                deleteQuietly(tempFile);
+            }
+        }
+    }
+
+    @Override
+    public UploadSession openUploadSession(String fileName, String contentType) {
+        return new DeduplicatingUploadSession(super.openUploadSession(fileName, contentType), fileName, contentType);
+    }
+
+    /**
+     * 去重指标
+     *
+     * @return entries、uploads、deduplicated、bytesSaved
+     */
+    public Map<String, Long> snapshot() {
+        Map<String, Long> stats = new LinkedHashMap<>();
+        synchronized (this) {
+            stats.put("entries", (long) index.size());
+        }
+        stats.put("uploads", uploadCount.get());
+        stats.put("deduplicated", deduplicatedCount.get());
+        stats.put("bytesSaved", bytesSaved.get());
+        return stats;
+    }
+
+    /**
+     * 查找相同内容的已有对象，对象已不存在或大小不一致时移除索引条目
+     */
+    private String lookup(String key, long size) {
+        String fileUrl;
+        synchronized (this) {
+            fileUrl = index.get(key);
+        }
+        if (fileUrl == null) {
+            return null;
+        }
+        ObjectMetadata metadata;
+        try {
+            metadata = super.getObjectMetadata(fileUrl);
+        } catch (RuntimeException e) {
+            logger.warn("校验已有文件失败，重新上传: fileUrl={}", fileUrl, e);
+            metadata = null;
+        }
+        if (metadata == null || metadata.getContentLength() != size) {
+            synchronized (this) {
+                index.remove(key, fileUrl);
+            }
+            return null;
+        }
+        deduplicatedCount.incrementAndGet();
+        bytesSaved.addAndGet(size);
+        return fileUrl;
+    }
+
+    private synchronized void put(String key, String fileUrl) {
+        index.put(key, fileUrl);
+        Iterator<String> iterator = index.keySet().iterator();
+        while (index.size() > Math.max(1, config.getMaxEntries()) && iterator.hasNext()) {
+            iterator.next();
+            iterator.remove();
+        }
+        if (indexWriter != null) {
+            try {
+                indexWriter.write(key + " " + fileUrl);
+                indexWriter.newLine();
+                indexWriter.flush();
+            } catch (IOException e) {
+                logger.warn("写入去重索引失败，后续只在内存中去重: indexFile={}", indexFile, e);
+                closeIndexWriter();
+            }
+        }
+    }
+
+    /**
+     * 关闭索引文件，之后新增的条目只在内存中去重
+     */
+    @Override
+    public void shutdown() {
+        synchronized (this) {
+            closeIndexWriter();
+        }
+        super.shutdown();
+    }
+
+    /**
+     * 加载索引文件（后写入的条目覆盖先写入的），按当前条目重写文件后以追加方式打开
+     */
+    private synchronized void loadIndex() {
+        try {
+            if (Files.exists(indexFile)) {
+                for (String line : Files.readAllLines(indexFile, StandardCharsets.UTF_8)) {
+                    int separator = line.indexOf(' ');
+                    if (separator > 0) {
+                        index.put(line.substring(0, separator), line.substring(separator + 1));
+                    }
+                }
+            }
+            Iterator<String> iterator = index.keySet().iterator();
+            while (index.size() > Math.max(1, config.getMaxEntries()) && iterator.hasNext()) {
+                iterator.next();
+                iterator.remove();
+            }
+            List<String> lines = new ArrayList<>(index.size());
+            index.forEach((key, fileUrl) -> lines.add(key + " " + fileUrl));
+            if (indexFile.getParent() != null) {
+                Files.createDirectories(indexFile.getParent());
+            }
+            Files.write(indexFile, lines, StandardCharsets.UTF_8);
+            indexWriter = Files.newBufferedWriter(indexFile, StandardCharsets.UTF_8, StandardOpenOption.APPEND);
+            logger.info("加载上传去重索引: indexFile={}, entries={}", indexFile, index.size());
+        } catch (IOException e) {
+            logger.warn("加载去重索引失败，只在内存中去重: indexFile={}", indexFile, e);
+            closeIndexWriter();
+        }
+    }
+
+    private void closeIndexWriter() {
+        if (indexWriter != null) {
+            try {
+                indexWriter.close();
+            } catch (IOException ignored) {
+                // 索引写入失败时已记录日志
+            }
+            indexWriter = null;
+        }
+    }
+
+    private static MessageDigest newDigest() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 不可用", e);
+        }
+    }
+
+    private static void deleteQuietly(Path path) {
+        try {
+            Files.deleteIfExists(path);
+        } catch (IOException e) {
+            logger.warn("删除上传临时文件失败: path={}", path, e);
+        }
+    }
+
+    /**
+     * 边写边计算摘要的上传会话，提交时命中索引则放弃本次上传
+     */
+    private class DeduplicatingUploadSession implements UploadSession {
+
+        private final UploadSession delegate;
+        private final String fileName;
+        private final String contentType;
+        private final MessageDigest digest = newDigest();
+        private final OutputStream outputStream;
+        private long size;
+
+        private DeduplicatingUploadSession(UploadSession delegate, String fileName, String contentType) {
+            this.delegate = delegate;
+            this.fileName = fileName;
+            this.contentType = contentType;
+            this.outputStream = new DigestOutputStream(new FilterOutputStream(delegate.getOutputStream()) {
+
+                @Override
+                public void write(int b) throws IOException {
+                    out.write(b);
+                    size++;
+                }
+
+                @Override
+                public void write(byte[] b, int off, int len) throws IOException {
+                    out.write(b, off, len);
+                    size += len;
+                }
+            }, digest);
+        }
+
+        @Override
+        public OutputStream getOutputStream() {
+            return outputStream;
+        }
+
+        @Override
+        public String commit() {
+            try {
+                outputStream.flush();
+            } catch (IOException e) {
+                delegate.abort();
+                throw new RuntimeException("文件上传失败: " + e.getMessage(), e);
+            }
+            String key = HashUtils.toHex(digest.digest()) + ":" + contentType;
+            String existing = lookup(key, size);
+            if (existing != null) {
+                delegate.abort();
+                logger.info("上传内容已存在，放弃本次上传并复用文件: fileName={}, fileUrl={}", fileName, existing);
+                return existing;
+            }
+            String fileUrl = delegate.commit();
+            uploadCount.incrementAndGet();
+            put(key, fileUrl);
+            return fileUrl;
+        }
+
+        @Override
+        public void abort() {
+            delegate.abort();
+        }
+
+        @Override
+        public void close() {
+            delegate.close();
+        }
+    }
+}
@@ -1,6 +1,10 @@
 package com.example.imexport.storage;
 
+import java.io.IOException;
 import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
 
 /**
  * 文件存储服务接口（OSS 抽象层）
@@ -18,6 +22,18 @@ public interface FileStorageService {
      */
     String uploadFile(InputStream inputStream, String fileName, String contentType);
 
+    /**
+     * 打开流式上传会话，调用方边生成边写入，无需先完整缓冲文件
+     * 默认实现先写入本地临时文件，提交时再调用 uploadFile；支持分片上传的实现应覆盖此方法
+     *
+     * @param fileName 文件名
+     * @param contentType 内容类型
+     * @return 上传会话
+     */
+    default UploadSession openUploadSession(String fileName, String contentType) {
+        return new TempFileUploadSession(this, fileName, contentType);
+    }
+
     /**
      * 从 OSS 下载文件
      *
@@ -26,6 +42,74 @@ public interface FileStorageService {
      */
     InputStream downloadFile(String fileUrl);
 
+    /**
+     * 下载对象到本地文件
+     * 默认实现复制 downloadFile 的输入流；本地存储实现覆盖为文件通道间的零拷贝传输
+     *
+     * @param fileUrl OSS 文件地址
+     * @param target 目标文件，已存在时覆盖
+     * @return 下载的字节数
+     */
+    default long downloadToFile(String fileUrl, Path target) {
+        try (InputStream inputStream = downloadFile(fileUrl)) {
+            return Files.copy(inputStream, target, StandardCopyOption.REPLACE_EXISTING);
+        } catch (IOException e) {
+            throw new RuntimeException("文件下载失败: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * 按字节范围下载对象（对应 OSS Range GET），用于大文件分段并行下载
+     * 默认实现下载完整对象后跳过 offset 之前的内容，仅保证结果正确；支持范围读取的实现应覆盖此方法与 supportsRangeDownload
+     *
+     * @param fileUrl OSS 文件地址
+     * @param offset 起始偏移（字节）
+     * @param length 读取长度（字节）
+     * @return 该范围内容的输入流
+     */
+    default InputStream downloadRange(String fileUrl, long offset, long length) {
+        InputStream inputStream = downloadFile(fileUrl);
+        try {
+            long skipped = 0;
+            while (skipped < offset) {
+                long n = inputStream.skip(offset - skipped);
+                if (n <= 0) {
+                    if (inputStream.read() < 0) {
+                        break;
+                    }
+                    n = 1;
+                }
+                skipped += n;
+            }
+        } catch (IOException e) {
+            try {
+                inputStream.close();
+            } catch (IOException ignored) {
+                // 已在处理下载异常
+            }
+            throw new RuntimeException("文件下载失败: " + e.getMessage(), e);
+        }
+        return new RangeInputStream(inputStream, length);
+    }
+
+    /**
+     * 是否支持高效的范围读取（不支持时大文件按单个流下载）
+     */
+    default boolean supportsRangeDownload() {
+        return false;
+    }
+
+    /**
+     * 获取对象元数据（不下载内容），用于调度前预估任务大小
+     * 默认不支持，返回 null；对接的存储支持 HeadObject 时应覆盖此方法
+     *
+     * @param fileUrl OSS 文件地址
+     * @return 对象元数据，不支持或对象不存在时为 null
+     */
+    default ObjectMetadata getObjectMetadata(String fileUrl) {
+        return null;
+    }
+
     /**
      * 生成临时访问 URL
      *
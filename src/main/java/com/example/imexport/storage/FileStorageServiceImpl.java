@@ -1,12 +1,19 @@
 package com.example.imexport.storage;
 
+import com.example.imexport.config.ImExportProperties;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
 import org.springframework.stereotype.Service;
 
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
 import java.io.ByteArrayInputStream;
 import java.io.InputStream;
 import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 /**
  * 文件存储服务实现类（模拟 DfsServiceStorageClient）
@@ -19,6 +26,26 @@ public class FileStorageServiceImpl implements FileStorageService {
 
     // 实际项目中注入: @Autowired private DfsServiceStorageClient dfsClient;
 
+    @Autowired
+    private ImExportProperties properties;
+
+    /**
+     * 分片上传线程池（所有上传会话共享）
+     */
+    private ExecutorService partUploadExecutor;
+
+    @PostConstruct
+    public void init() {
+        partUploadExecutor = Executors.newFixedThreadPool(
+            Math.max(1, properties.getStorage().getUpload().getThreads()),
+            new CustomizableThreadFactory("oss-part-upload-"));
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        partUploadExecutor.shutdown();
+    }
+
     @Override
     public String uploadFile(InputStream inputStream, String fileName, String contentType) {
         try {
@@ -37,6 +64,38 @@ public class FileStorageServiceImpl implements FileStorageService {
         }
     }
 
+    @Override
+    public UploadSession openUploadSession(String fileName, String contentType) {
+        // 实际代码：String uploadId = dfsClient.initiateMultipartUpload(fileName, contentType);
+        String fileId = UUID.randomUUID().toString();
+        String fileUrl = "oss://bucket/" + fileId + "/" + fileName;
+        ImExportProperties.Upload upload = properties.getStorage().getUpload();
+
+        return new MultipartUploadSession((int) upload.getPartSize().toBytes(), upload.getMaxConcurrentParts(),
+                partUploadExecutor) {
+
+            @Override
+            protected void uploadPart(int partNumber, long offset, byte[] data, int length) {
+                // 实际代码：partETags.add(dfsClient.uploadPart(uploadId, partNumber, data, 0, length));
+                logger.debug("文件分片上传: fileUrl={}, partNumber={}, length={}", fileUrl, partNumber, length);
+            }
+
+            @Override
+            protected String completeUpload(int partCount, long totalBytes) {
+                // 实际代码：dfsClient.completeMultipartUpload(uploadId, partETags);
+                logger.info("文件上传成功: fileName={}, fileUrl={}, parts={}, bytes={}",
+                    fileName, fileUrl, partCount, totalBytes);
+                return fileUrl;
+            }
+
+            @Override
+            protected void abortUpload() {
+                // 实际代码：dfsClient.abortMultipartUpload(uploadId);
+                logger.info("文件上传已放弃: fileName={}", fileName);
+            }
+        };
+    }
+
     @Override
     public InputStream downloadFile(String fileUrl) {
         try {
@@ -54,6 +113,48 @@ public class FileStorageServiceImpl implements FileStorageService {
         }
     }
 
+    @Override
+    public InputStream downloadRange(String fileUrl, long offset, long length) {
+        try {
+            // 实际代码：return dfsClient.download(fileUrl, offset, offset + length - 1);
+
+            // 模拟范围下载：截取模拟数据
+            logger.debug("文件范围下载: fileUrl={}, offset={}, length={}", fileUrl, offset, length);
+            byte[] content = "mock file content".getBytes();
+            int from = (int) Math.min(offset, content.length);
+            int to = (int) Math.min(offset + length, content.length);
+            return new ByteArrayInputStream(content, from, to - from);
+
+        } catch (Exception e) {
+            logger.error("文件范围下载失败: fileUrl={}, offset={}", fileUrl, offset, e);
+            throw new RuntimeException("文件下载失败: " + e.getMessage(), e);
+        }
+    }
+
+    @Override
+    public boolean supportsRangeDownload() {
+        // 实际代码：接入 OSS Range GET 后返回 true
+        // 模拟范围下载只截取固定的模拟数据，并非真实对象内容，不能用于分段下载
+        return false;
+    }
+
+    @Override
+    public ObjectMetadata getObjectMetadata(String fileUrl) {
+        try {
+            // 实际代码：return toMetadata(dfsClient.headObject(fileUrl));
+
+            // 模拟元数据：与模拟下载内容一致
+            ObjectMetadata metadata = new ObjectMetadata();
+            metadata.setContentLength("mock file content".getBytes().length);
+            metadata.setContentType("application/octet-stream");
+            return metadata;
+
+        } catch (Exception e) {
+            logger.error("获取文件元数据失败: fileUrl={}", fileUrl, e);
+            throw new RuntimeException("获取文件元数据失败: " + e.getMessage(), e);
+        }
+    }
+
     @Override
     public String generatePresignedUrl(String fileUrl, long expirationSeconds) {
         try {
@@ -0,0 +1,94 @@
+package com.example.imexport.storage;
+
+import java.io.InputStream;
+import java.nio.file.Path;
+
+/**
+ * 文件存储服务装饰器基类
+ * 所有方法默认转发给被装饰的存储服务，子类只覆盖需要增强的方法（如下载缓存）
+ */
+public abstract class ForwardingFileStorageService implements FileStorageService {
+
+    private final FileStorageService delegate;
+
+    protected ForwardingFileStorageService(FileStorageService delegate) {
+        this.delegate = delegate;
+    }
+
+    /**
+     * 被装饰的存储服务
+     */
+    public FileStorageService getDelegate() {
+        return delegate;
+    }
+
+    /**
+     * 在装饰链中查找指定类型的存储服务
+     *
+     * @param storage 最外层存储服务
+     * @param type 要查找的类型
+     * @param <T> 存储服务类型
+     * @return 装饰链中第一个该类型的存储服务，不存在时为 null
+     */
+    public static <T extends FileStorageService> T unwrap(FileStorageService storage, Class<T> type) {
+        FileStorageService current = storage;
+        while (current != null) {
+            if (type.isInstance(current)) {
+                return type.cast(current);
+            }
+            current = current instanceof ForwardingFileStorageService
+                ? ((ForwardingFileStorageService) current).getDelegate() : null;
+        }
+        return null;
+    }
+
+    /**
+     * 释放装饰器持有的资源并逐层关闭内层装饰器
+     * 最内层的存储实现由自身的 Bean 生命周期管理，不在此关闭
+     */
+    public void shutdown() {
+        if (delegate instanceof ForwardingFileStorageService) {
+            ((ForwardingFileStorageService) delegate).shutdown();
+        }
+    }
+
+    @Override
+    public String uploadFile(InputStream inputStream, String fileName, String contentType) {
+        return delegate.uploadFile(inputStream, fileName, contentType);
+    }
+
+    @Override
+    public UploadSession openUploadSession(String fileName, String contentType) {
+        return delegate.openUploadSession(fileName, contentType);
+    }
+
+    @Override
+    public InputStream downloadFile(String fileUrl) {
+        return delegate.downloadFile(fileUrl);
+    }
+
+    @Override
+    public long downloadToFile(String fileUrl, Path target) {
+        return delegate.downloadToFile(fileUrl, target);
+    }
+
+    @Override
+    public InputStream downloadRange(String fileUrl, long offset, long length) {
+        return delegate.downloadRange(fileUrl, offset, length);
+    }
+
+    @Override
+    public boolean supportsRangeDownload() {
+        return delegate.supportsRangeDownload();
+    }
+
+    @Override
+    public ObjectMetadata getObjectMetadata(String fileUrl) {
+        return delegate.getObjectMetadata(fileUrl);
+    }
+
+    @Override
+    public String generatePresignedUrl(String fileUrl, long expirationSeconds) {
+        return delegate.generatePresignedUrl(fileUrl, expirationSeconds);
+    }
+}
@@ -0,0 +1,374 @@
+package com.example.imexport.storage;
+
+import com.example.imexport.config.ImExportProperties;
+import com.example.imexport.util.HashUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.MediaType;
+import org.springframework.http.MediaTypeFactory;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UnsupportedEncodingException;
+import java.net.URLDecoder;
+import java.net.URLEncoder;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.DigestInputStream;
+import java.security.DigestOutputStream;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.security.SecureRandom;
+import java.util.UUID;
+
+/**
+ * 本地文件存储服务（本地磁盘或 NFS 目录）
+ * <ul>
+ *     <li>对象按内容 SHA-256 存放在 root/ab/cd/&lt;sha256&gt;，内容相同的上传只保存一份；ETag 为内容摘要</li>
+ *     <li>上传先写入 root/.staging 下的暂存文件并 fsync，再原子重命名为目标文件，不会读到写了一半的对象</li>
+ *     <li>上传与下载到本地文件通过 FileChannel.transferFrom / transferTo 传输，文件间复制由内核完成</li>
+ *     <li>临时访问链接为 public-base-url 下带过期时间与 HMAC-SHA256 签名的地址，由业务的下载接口调用 verifyPresignedPath 校验</li>
+ * </ul>
+ * 文件地址格式为 local://ab/cd/&lt;sha256&gt;/&lt;文件名&gt;，文件名只用于展示与推断内容类型
+ */
+public class LocalFileStorageService implements FileStorageService {
+
+    private static final Logger logger = LoggerFactory.getLogger(LocalFileStorageService.class);
+
+    private static final String URL_PREFIX = "local://";
+
+    private static final String HMAC_ALGORITHM = "HmacSHA256";
+
+    private static final long TRANSFER_CHUNK = 8L * 1024 * 1024;
+
+    private final Path rootDir;
+
+    private final Path stagingDir;
+
+    private final String publicBaseUrl;
+
+    private final byte[] signingKey;
+
+    public LocalFileStorageService(ImExportProperties.Local config) {
+        this.rootDir = config.getRootDir() != null && !config.getRootDir().isEmpty()
+            ? Paths.get(config.getRootDir())
+            : Paths.get(System.getProperty("java.io.tmpdir"), "imexport-storage");
+        this.stagingDir = rootDir.resolve(".staging");
+        String baseUrl = config.getPublicBaseUrl();
+        this.publicBaseUrl = baseUrl.endsWith("/") ? baseUrl.substring(0, baseUrl.length() - 1) : baseUrl;
+        if (config.getSigningSecret() != null && !config.getSigningSecret().isEmpty()) {
+            this.signingKey = config.getSigningSecret().getBytes(StandardCharsets.UTF_8);
+        } else {
+            this.signingKey = new byte[32];
+            new SecureRandom().nextBytes(signingKey);
+            logger.warn("未配置本地存储签名密钥，使用随机密钥，重启后已签发的临时链接失效");
+        }
+        try {
+            Files.createDirectories(stagingDir);
+        } catch (IOException e) {
+            throw new RuntimeException("创建本地存储目录失败: " + rootDir, e);
+        }
+        logger.info("使用本地文件存储: rootDir={}", rootDir);
+    }
+
+    @Override
+    public String uploadFile(InputStream inputStream, String fileName, String contentType) {
+        Path stagingFile = newStagingFile();
+        try {
+            MessageDigest digest = newDigest();
+            try (FileChannel channel = FileChannel.open(stagingFile, StandardOpenOption.CREATE_NEW,
+                    StandardOpenOption.WRITE);
+                 ReadableByteChannel source = Channels.newChannel(new DigestInputStream(inputStream, digest))) {
+                long position = 0;
+                long transferred;
+                while ((transferred = channel.transferFrom(source, position, TRANSFER_CHUNK)) > 0) {
+                    position += transferred;
+                }
+                channel.force(true);
+            }
+            return publish(stagingFile, digest, fileName);
+        } catch (IOException | RuntimeException e) {
+            deleteQuietly(stagingFile);
+            logger.error("文件上传失败: fileName={}", fileName, e);
+            throw new RuntimeException("文件上传失败: " + e.getMessage(), e);
+        }
+    }
+
+    @Override
+    public UploadSession openUploadSession(String fileName, String contentType) {
+        return new LocalUploadSession(fileName);
+    }
+
+    @Override
+    public InputStream downloadFile(String fileUrl) {
+        try {
+            return Files.newInputStream(resolve(fileUrl));
+        } catch (IOException e) {
+            throw new RuntimeException("文件下载失败: " + e.getMessage(), e);
+        }
+    }
+
+    @Override
+    public long downloadToFile(String fileUrl, Path target) {
+        Path source = resolve(fileUrl);
+        try (FileChannel in = FileChannel.open(source, StandardOpenOption.READ);
+             FileChannel out = FileChannel.open(target, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                 StandardOpenOption.TRUNCATE_EXISTING)) {
+            long size = in.size();
+            long position = 0;
+            while (position < size) {
+                position += in.transferTo(position, size - position, out);
+            }
+            return size;
+        } catch (IOException e) {
+            throw new RuntimeException("文件下载失败: " + e.getMessage(), e);
+        }
+    }
+
+    @Override
+    public InputStream downloadRange(String fileUrl, long offset, long length) {
+        try {
+            FileChannel channel = FileChannel.open(resolve(fileUrl), StandardOpenOption.READ);
+            channel.position(offset);
+            return new RangeInputStream(Channels.newInputStream(channel), length);
+        } catch (IOException e) {
+            throw new RuntimeException("文件下载失败: " + e.getMessage(), e);
+        }
+    }
+
+    @Override
+    public ObjectMetadata getObjectMetadata(String fileUrl) {
+        Path path = resolve(fileUrl);
+        if (!Files.isRegularFile(path)) {
+            return null;
+        }
+        try {
+            ObjectMetadata metadata = new ObjectMetadata();
+            metadata.setContentLength(Files.size(path));
+            metadata.setContentType(MediaTypeFactory.getMediaType(fileNameOf(fileUrl))
+                .orElse(MediaType.APPLICATION_OCTET_STREAM).toString());
+            metadata.setETag(path.getFileName().toString());
+            return metadata;
+        } catch (IOException e) {
+            throw new RuntimeException("获取文件元数据失败: " + e.getMessage(), e);
+        }
+    }
+
+    @Override
+    public String generatePresignedUrl(String fileUrl, long expirationSeconds) {
+        resolve(fileUrl);
+        String objectPath = fileUrl.substring(URL_PREFIX.length());
+        long expires = System.currentTimeMillis() / 1000 + expirationSeconds;
+        return publicBaseUrl + "/" + objectPath + "?expires=" + expires + "&signature=" + sign(objectPath, expires);
+    }
+
+    /**
+     * 校验临时访问链接并返回对应的本地文件，供业务的文件下载接口使用
+     *
+     * @param objectPath 链接中 public-base-url 之后的路径（ab/cd/&lt;sha256&gt;/&lt;文件名&gt;）
+     * @param expires 链接中的过期时间（秒）
+     * @param signature 链接中的签名
+     * @return 本地文件路径
+     * @throws SecurityException 签名不正确或链接已过期
+     */
+    public Path verifyPresignedPath(String objectPath, long expires, String signature) {
+        byte[] expected = sign(objectPath, expires).getBytes(StandardCharsets.US_ASCII);
+        byte[] actual = signature != null ? signature.getBytes(StandardCharsets.US_ASCII) : new byte[0];
+        if (!MessageDigest.isEqual(expected, actual)) {
+            throw new SecurityException("临时链接签名无效");
+        }
+        if (System.currentTimeMillis() / 1000 > expires) {
+            throw new SecurityException("临时链接已过期");
+        }
+        return resolve(URL_PREFIX + objectPath);
+    }
+
+    /**
+     * 解析文件地址对应的本地文件（只接受 local://ab/cd/&lt;sha256&gt;/&lt;文件名&gt; 格式，不会解析到根目录之外）
+     *
+     * @param fileUrl 文件地址
+     * @return 本地文件路径
+     */
+    public Path resolve(String fileUrl) {
+        if (fileUrl == null || !fileUrl.startsWith(URL_PREFIX)) {
+            throw new RuntimeException("无效的本地文件地址: " + fileUrl);
+        }
+        String[] segments = fileUrl.substring(URL_PREFIX.length()).split("/", 4);
+        if (segments.length < 3 || !isSha256Hex(segments[2])
+                || !segments[0].equals(segments[2].substring(0, 2))
+                || !segments[1].equals(segments[2].substring(2, 4))) {
+            throw new RuntimeException("无效的本地文件地址: " + fileUrl);
+        }
+        return rootDir.resolve(segments[0]).resolve(segments[1]).resolve(segments[2]);
+    }
+
+    /**
+     * 暂存文件按内容摘要原子重命名为目标文件，内容相同的对象已存在时丢弃暂存文件
+     */
+    private String publish(Path stagingFile, MessageDigest digest, String fileName) throws IOException {
+        String hash = HashUtils.toHex(digest.digest());
+        Path target = rootDir.resolve(hash.substring(0, 2)).resolve(hash.substring(2, 4)).resolve(hash);
+        if (Files.exists(target)) {
+            Files.delete(stagingFile);
+        } else {
+            Files.createDirectories(target.getParent());
+            Files.move(stagingFile, target, StandardCopyOption.ATOMIC_MOVE);
+        }
+        String fileUrl = URL_PREFIX + hash.substring(0, 2) + "/" + hash.substring(2, 4) + "/" + hash + "/"
+            + encode(fileName);
+        logger.info("文件上传成功: fileName={}, fileUrl={}, size={}", fileName, fileUrl, Files.size(target));
+        return fileUrl;
+    }
+
+    private Path newStagingFile() {
+        return stagingDir.resolve(UUID.randomUUID() + ".uploading");
+    }
+
+    private String sign(String objectPath, long expires) {
+        try {
+            Mac mac = Mac.getInstance(HMAC_ALGORITHM);
+            mac.init(new SecretKeySpec(signingKey, HMAC_ALGORITHM));
+            return HashUtils.toHex(mac.doFinal((objectPath + "\n" + expires).getBytes(StandardCharsets.UTF_8)));
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("临时链接签名失败", e);
+        }
+    }
+
+    private static MessageDigest newDigest() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 不可用", e);
+        }
+    }
+
+    private static String fileNameOf(String fileUrl) {
+        String[] segments = fileUrl.substring(URL_PREFIX.length()).split("/", 4);
+        if (segments.length < 4) {
+            return "";
+        }
+        try {
+            return URLDecoder.decode(segments[3], "UTF-8");
+        } catch (UnsupportedEncodingException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static String encode(String fileName) {
+        try {
+            return URLEncoder.encode(fileName, "UTF-8").replace("+", "%20");
+        } catch (UnsupportedEncodingException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static boolean isSha256Hex(String value) {
+        if (value.length() != 64) {
+            return false;
+        }
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if ((c < '0' || c > '9') && (c < 'a' || c > 'f')) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static void deleteQuietly(Path path) {
+        try {
+            Files.deleteIfExists(path);
+        } catch (IOException e) {
+            logger.warn("删除暂存文件失败: path={}", path, e);
+        }
+    }
+
+    /**
+     * 本地上传会话：边写边计算摘要，提交时 fsync 后按摘要原子重命名
+     */
+    private class LocalUploadSession implements UploadSession {
+
+        private final String fileName;
+        private final Path stagingFile = newStagingFile();
+        private final MessageDigest digest = newDigest();
+        private final FileChannel channel;
+        private final OutputStream outputStream;
+        private boolean finished;
+
+        private LocalUploadSession(String fileName) {
+            this.fileName = fileName;
+            try {
+                this.channel = FileChannel.open(stagingFile, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE);
+            } catch (IOException e) {
+                throw new RuntimeException("创建上传暂存文件失败: " + e.getMessage(), e);
+            }
+            this.outputStream = new DigestOutputStream(
+                new BufferedOutputStream(Channels.newOutputStream(channel), 64 * 1024), digest) {
+
+                @Override
+                public void close() throws IOException {
+                    // 关闭写入流不提交会话，只刷出缓冲
+                    flush();
+                }
+            };
+        }
+
+        @Override
+        public OutputStream getOutputStream() {
+            return outputStream;
+        }
+
+        @Override
+        public synchronized String commit() {
+            if (finished) {
+                throw new IllegalStateException("上传会话已结束");
+            }
+            finished = true;
+            try {
+                outputStream.flush();
+                channel.force(true);
+                channel.close();
+                return publish(stagingFile, digest, fileName);
+            } catch (IOException | RuntimeException e) {
+                closeChannel();
+                deleteQuietly(stagingFile);
+                throw new RuntimeException("文件上传失败: " + e.getMessage(), e);
+            }
+        }
+
+        @Override
+        public synchronized void abort() {
+            if (finished) {
+                return;
+            }
+            finished = true;
+            closeChannel();
+            deleteQuietly(stagingFile);
+        }
+
+        @Override
+        public void close() {
+            abort();
+        }
+
+        private void closeChannel() {
+            try {
+                channel.close();
+            } catch (IOException e) {
+                logger.warn("关闭上传暂存文件失败: path={}", stagingFile, e);
+            }
+        }
+    }
+}
@@ -0,0 +1,75 @@
+package com.example.imexport.storage;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.UUID;
+import java.util.concurrent.Executor;
+
+/**
+ * 本地文件分片上传会话
+ * 各分片并发按偏移写入同一个暂存文件，提交时 fsync 后原子重命名为目标文件，放弃时删除暂存文件；
+ * 可用于本地/NFS 存储以及离线测试分片上传流程
+ */
+public class LocalFileUploadSession extends MultipartUploadSession {
+
+    private static final Logger logger = LoggerFactory.getLogger(LocalFileUploadSession.class);
+
+    private final Path target;
+    private final Path stagingFile;
+    private final String fileUrl;
+    private final FileChannel channel;
+
+    /**
+     * @param target 目标文件路径
+     * @param fileUrl 提交后返回的文件地址
+     * @param partSize 分片大小（字节）
+     * @param maxConcurrentParts 同时在途的最大分片数
+     * @param executor 分片写入执行器
+     * @throws IOException 创建暂存文件失败
+     */
+    public LocalFileUploadSession(Path target, String fileUrl, int partSize, int maxConcurrentParts,
+                                  Executor executor) throws IOException {
+        super(partSize, maxConcurrentParts, executor);
+        this.target = target;
+        this.fileUrl = fileUrl;
+        Files.createDirectories(target.getParent());
+        this.stagingFile = target.resolveSibling(target.getFileName() + ".uploading-" + UUID.randomUUID());
+        this.channel = FileChannel.open(stagingFile, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE);
+    }
+
+    @Override
+    protected void uploadPart(int partNumber, long offset, byte[] data, int length) throws IOException {
+        ByteBuffer buffer = ByteBuffer.wrap(data, 0, length);
+        long position = offset;
+        while (buffer.hasRemaining()) {
+            position += channel.write(buffer, position);
+        }
+    }
+
+    @Override
+    protected String completeUpload(int partCount, long totalBytes) throws IOException {
+        channel.force(true);
+        channel.close();
+        Files.move(stagingFile, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        logger.info("本地分片上传完成: target={}, parts={}, bytes={}", target, partCount, totalBytes);
+        return fileUrl;
+    }
+
+    @Override
+    protected void abortUpload() {
+        try {
+            channel.close();
+            Files.deleteIfExists(stagingFile);
+        } catch (IOException e) {
+            logger.warn("清理本地分片暂存文件失败: path={}", stagingFile, e);
+        }
+    }
+}
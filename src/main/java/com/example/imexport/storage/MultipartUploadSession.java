@@ -0,0 +1,238 @@
+package com.example.imexport.storage;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Semaphore;
+
+/**
+ * 分片上传会话基类
+ * 写入数据按 partSize 切分为分片，在 executor 上并发上传，同时在途分片数受 maxConcurrentParts 限制，
+ * 内存占用上限约为 partSize * (maxConcurrentParts + 1)。子类只需对接具体存储的分片上传接口
+ */
+public abstract class MultipartUploadSession implements UploadSession {
+
+    private final int partSize;
+    private final Executor executor;
+    private final Semaphore inFlightParts;
+    private final List<CompletableFuture<Void>> partFutures = new ArrayList<>();
+    private final PartOutputStream outputStream = new PartOutputStream();
+
+    private volatile Throwable failure;
+    private int nextPartNumber = 1;
+    private long totalBytes;
+    private boolean committed;
+    private boolean aborted;
+
+    /**
+     * @param partSize 分片大小（字节）
+     * @param maxConcurrentParts 同时在途的最大分片数
+     * @param executor 分片上传执行器
+     */
+    protected MultipartUploadSession(int partSize, int maxConcurrentParts, Executor executor) {
+        this.partSize = Math.max(1, partSize);
+        this.inFlightParts = new Semaphore(Math.max(1, maxConcurrentParts));
+        this.executor = executor;
+    }
+
+    /**
+     * 上传单个分片
+     *
+     * @param partNumber 分片序号（从1开始）
+     * @param offset 分片在文件中的起始偏移
+     * @param data 分片数据
+     * @param length 有效数据长度
+     * @throws IOException 上传失败
+     */
+    protected abstract void uploadPart(int partNumber, long offset, byte[] data, int length) throws IOException;
+
+    /**
+     * 所有分片上传完成后合并
+     *
+     * @param partCount 分片总数
+     * @param totalBytes 文件总字节数
+     * @return OSS 文件地址
+     * @throws IOException 合并失败
+     */
+    protected abstract String completeUpload(int partCount, long totalBytes) throws IOException;
+
+    /**
+     * 放弃上传，清理已上传的分片
+     */
+    protected abstract void abortUpload();
+
+    @Override
+    public OutputStream getOutputStream() {
+        return outputStream;
+    }
+
+    @Override
+    public synchronized String commit() {
+        if (committed) {
+            throw new IllegalStateException("上传会话已提交");
+        }
+        if (aborted) {
+            throw new IllegalStateException("上传会话已放弃");
+        }
+
+        try {
+            outputStream.submitBufferedPart();
+            awaitParts();
+            String fileUrl = completeUpload(nextPartNumber - 1, totalBytes);
+            committed = true;
+            return fileUrl;
+        } catch (IOException | RuntimeException e) {
+            abort();
+            throw new RuntimeException("分片上传失败: " + e.getMessage(), e);
+        }
+    }
+
+    @Override
+    public synchronized void abort() {
+        if (committed || aborted) {
+            return;
+        }
+        aborted = true;
+
+        // 等待在途分片结束后再清理，避免清理后仍有分片写入
+        for (CompletableFuture<Void> future : partFutures) {
+            try {
+                future.join();
+            } catch (RuntimeException ignored) {
+                // 放弃上传时忽略分片失败
+            }
+        }
+        abortUpload();
+    }
+
+    @Override
+    public void close() {
+        if (!committed) {
+            abort();
+        }
+    }
+
+    public long getTotalBytes() {
+        return totalBytes;
+    }
+
+    private void awaitParts() throws IOException {
+        try {
+            CompletableFuture.allOf(partFutures.toArray(new CompletableFuture<?>[0])).join();
+        } catch (CompletionException e) {
+            Throwable cause = e.getCause() != null ? e.getCause() : e;
+            throw new IOException("分片上传失败", cause);
+        }
+    }
+
+    private synchronized void submitPart(byte[] data, int length) throws IOException {
+        if (committed || aborted) {
+            throw new IOException("上传会话已结束");
+        }
+        if (failure != null) {
+            throw new IOException("分片上传失败", failure);
+        }
+
+        try {
+            inFlightParts.acquire();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("等待分片上传被中断");
+        }
+
+        int partNumber = nextPartNumber++;
+        long offset = totalBytes;
+        totalBytes += length;
+
+        CompletableFuture<Void> future;
+        try {
+            future = CompletableFuture.runAsync(() -> {
+                try {
+                    uploadPart(partNumber, offset, data, length);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                } finally {
+                    inFlightParts.release();
+                }
+            }, executor);
+        } catch (RuntimeException e) {
+            inFlightParts.release();
+            throw new IOException("提交分片上传失败", e);
+        }
+
+        future.whenComplete((result, error) -> {
+            if (error != null && failure == null) {
+                failure = error;
+            }
+        });
+        partFutures.add(future);
+    }
+
+    /**
+     * 按分片大小缓冲写入数据，缓冲满即提交分片上传
+     */
+    private class PartOutputStream extends OutputStream {
+
+        private byte[] buffer;
+        private int count;
+
+        @Override
+        public void write(int b) throws IOException {
+            ensureBuffer();
+            buffer[count++] = (byte) b;
+            if (count == partSize) {
+                submitBufferedPart();
+            }
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            while (len > 0) {
+                ensureBuffer();
+                int n = Math.min(len, partSize - count);
+                System.arraycopy(b, off, buffer, count, n);
+                count += n;
+                off += n;
+                len -= n;
+                if (count == partSize) {
+                    submitBufferedPart();
+                }
+            }
+        }
+
+        /**
+         * flush 不切分片（避免产生过小分片），剩余数据在 commit 时提交
+         */
+        @Override
+        public void flush() {
+        }
+
+        @Override
+        public void close() {
+        }
+
+        private void ensureBuffer() {
+            if (buffer == null) {
+                buffer = new byte[partSize];
+            }
+        }
+
+        private void submitBufferedPart() throws IOException {
+            if (count == 0) {
+                return;
+            }
+            // 分片异步上传期间持有该缓冲区，后续写入使用新缓冲区
+            byte[] part = buffer;
+            int length = count;
+            buffer = null;
+            count = 0;
+            submitPart(part, length);
+        }
+    }
+}
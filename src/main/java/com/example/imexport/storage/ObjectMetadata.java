@@ -0,0 +1,25 @@
+package com.example.imexport.storage;
+
+import lombok.Data;
+
+/**
+ * 存储对象元数据（对应 OSS HeadObject）
+ */
+@Data
+public class ObjectMetadata {
+
+    /**
+     * 对象大小（字节）
+     */
+    private long contentLength;
+
+    /**
+     * 内容类型
+     */
+    private String contentType;
+
+    /**
+     * 对象版本标识（ETag），内容变化后改变
+     */
+    private String eTag;
+}
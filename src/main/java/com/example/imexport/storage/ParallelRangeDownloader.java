@@ -0,0 +1,240 @@
+package com.example.imexport.storage;
+
+import com.example.imexport.config.ImExportProperties;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 大文件分段并行下载
+ * 单个输入流受限于一条 TCP 连接的吞吐，不小于 range-threshold 且存储支持范围读取的对象按 part-size 切分，
+ * 在共享线程池中并发下载（单个下载同时在途的分段数受 max-concurrent-parts 限制），
+ * 各分段按偏移直接写入预分配的本地文件，不在内存中缓冲整个分段；分段失败时按 part-retries 重试。
+ * 其余对象按单个流下载。调用方线程等待所有分段完成，不能在分段下载线程池中调用
+ */
+public class ParallelRangeDownloader {
+
+    private static final Logger logger = LoggerFactory.getLogger(ParallelRangeDownloader.class);
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final ImExportProperties.Download config;
+
+    private final ExecutorService executor;
+
+    private final AtomicLong rangedCount = new AtomicLong();
+    private final AtomicLong streamedCount = new AtomicLong();
+    private final AtomicLong partCount = new AtomicLong();
+    private final AtomicLong retriedPartCount = new AtomicLong();
+    private final AtomicLong downloadedBytes = new AtomicLong();
+
+    /**
+     * @param config 分段下载配置
+     * @param executor 分段下载线程池（由本类负责关闭）
+     */
+    public ParallelRangeDownloader(ImExportProperties.Download config, ExecutorService executor) {
+        this.config = config;
+        this.executor = executor;
+    }
+
+    public void shutdown() {
+        executor.shutdown();
+    }
+
+    /**
+     * 下载对象到本地文件（先获取元数据确定大小）
+     *
+     * @param storage 文件存储服务
+     * @param fileUrl OSS 文件地址
+     * @param target 目标文件，已存在时覆盖
+     * @return 下载的字节数
+     * @throws IOException 下载或写入失败（目标文件已删除）
+     */
+    public long download(FileStorageService storage, String fileUrl, Path target) throws IOException {
+        long contentLength = -1;
+        try {
+            ObjectMetadata metadata = storage.getObjectMetadata(fileUrl);
+            contentLength = metadata != null ? metadata.getContentLength() : -1;
+        } catch (RuntimeException e) {
+            logger.debug("获取文件大小失败，按单个流下载: fileUrl={}", fileUrl, e);
+        }
+        return download(storage, fileUrl, contentLength, target);
+    }
+
+    /**
+     * 下载对象到本地文件
+     *
+     * @param storage 文件存储服务
+     * @param fileUrl OSS 文件地址
+     * @param contentLength 对象大小，未知时为 -1（按单个流下载）
+     * @param target 目标文件，已存在时覆盖
+     * @return 下载的字节数
+     * @throws IOException 下载或写入失败（目标文件已删除）
+     */
+    public long download(FileStorageService storage, String fileUrl, long contentLength, Path target) throws IOException {
+        if (contentLength < 0 || contentLength < config.getRangeThreshold().toBytes()
+                || !storage.supportsRangeDownload()) {
+            streamedCount.incrementAndGet();
+            long size = storage.downloadToFile(fileUrl, target);
+            downloadedBytes.addAndGet(size);
+            return size;
+        }
+
+        rangedCount.incrementAndGet();
+        long startTime = System.currentTimeMillis();
+        try (FileChannel channel = FileChannel.open(target, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            preallocate(channel, contentLength);
+            downloadParts(storage, fileUrl, contentLength, channel);
+        } catch (IOException | RuntimeException e) {
+            Files.deleteIfExists(target);
+            throw e;
+        }
+        logger.info("文件分段下载完成: fileUrl={}, size={}, costTime={}ms",
+            fileUrl, contentLength, System.currentTimeMillis() - startTime);
+        return contentLength;
+    }
+
+    /**
+     * 分段下载指标
+     *
+     * @return ranged、streamed、parts、retriedParts、bytes
+     */
+    public Map<String, Long> snapshot() {
+        Map<String, Long> stats = new LinkedHashMap<>();
+        stats.put("ranged", rangedCount.get());
+        stats.put("streamed", streamedCount.get());
+        stats.put("parts", partCount.get());
+        stats.put("retriedParts", retriedPartCount.get());
+        stats.put("bytes", downloadedBytes.get());
+        return stats;
+    }
+
+    private void downloadParts(FileStorageService storage, String fileUrl, long contentLength,
+                               FileChannel channel) throws IOException {
+        long partSize = Math.max(1, config.getPartSize().toBytes());
+        Semaphore inFlightParts = new Semaphore(Math.max(1, config.getMaxConcurrentParts()));
+        List<CompletableFuture<Void>> partFutures = new ArrayList<>();
+        CompletableFuture<Void> failure = new CompletableFuture<>();
+
+        try {
+            for (long offset = 0; offset < contentLength && !failure.isDone(); offset += partSize) {
+                long partOffset = offset;
+                long length = Math.min(partSize, contentLength - offset);
+                try {
+                    inFlightParts.acquire();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new InterruptedIOException("等待分段下载被中断");
+                }
+                CompletableFuture<Void> future;
+                try {
+                    future = CompletableFuture.runAsync(() -> {
+                        try {
+                            downloadPartWithRetry(storage, fileUrl, partOffset, length, channel, failure);
+                        } catch (IOException e) {
+                            throw new UncheckedIOException(e);
+                        } finally {
+                            inFlightParts.release();
+                        }
+                    }, executor);
+                } catch (RuntimeException e) {
+                    inFlightParts.release();
+                    throw new IOException("提交分段下载失败", e);
+                }
+                future.whenComplete((result, error) -> {
+                    if (error != null) {
+                        failure.completeExceptionally(error);
+                    }
+                });
+                partFutures.add(future);
+            }
+        } finally {
+            // 异常退出时也等待已提交的分段结束，避免关闭文件后仍有分段写入
+            awaitParts(partFutures);
+        }
+    }
+
+    private void awaitParts(List<CompletableFuture<Void>> partFutures) throws IOException {
+        try {
+            CompletableFuture.allOf(partFutures.toArray(new CompletableFuture<?>[0])).join();
+        } catch (CompletionException e) {
+            Throwable cause = e.getCause() != null ? e.getCause() : e;
+            if (cause instanceof UncheckedIOException) {
+                cause = cause.getCause();
+            }
+            throw new IOException("分段下载失败: " + cause.getMessage(), cause);
+        }
+    }
+
+    private void downloadPartWithRetry(FileStorageService storage, String fileUrl, long offset, long length,
+                                       FileChannel channel, CompletableFuture<Void> failure) throws IOException {
+        int retries = Math.max(0, config.getPartRetries());
+        for (int attempt = 0; ; attempt++) {
+            // 其他分段已失败，整个下载将被放弃
+            if (failure.isDone()) {
+                return;
+            }
+            try {
+                downloadPart(storage, fileUrl, offset, length, channel);
+                partCount.incrementAndGet();
+                downloadedBytes.addAndGet(length);
+                return;
+            } catch (IOException | RuntimeException e) {
+                if (attempt >= retries) {
+                    throw e instanceof IOException ? (IOException) e : new IOException(e.getMessage(), e);
+                }
+                retriedPartCount.incrementAndGet();
+                logger.warn("分段下载失败，重试: fileUrl={}, offset={}, attempt={}", fileUrl, offset, attempt + 1, e);
+            }
+        }
+    }
+
+    private void downloadPart(FileStorageService storage, String fileUrl, long offset, long length,
+                              FileChannel channel) throws IOException {
+        byte[] buffer = new byte[(int) Math.min(BUFFER_SIZE, length)];
+        long position = offset;
+        long remaining = length;
+        try (InputStream inputStream = storage.downloadRange(fileUrl, offset, length)) {
+            while (remaining > 0) {
+                int n = inputStream.read(buffer, 0, (int) Math.min(buffer.length, remaining));
+                if (n < 0) {
+                    throw new IOException("分段内容不完整: offset=" + offset + ", expected=" + length
+                        + ", actual=" + (length - remaining));
+                }
+                ByteBuffer byteBuffer = ByteBuffer.wrap(buffer, 0, n);
+                while (byteBuffer.hasRemaining()) {
+                    position += channel.write(byteBuffer, position);
+                }
+                remaining -= n;
+            }
+        }
+    }
+
+    /**
+     * 预分配文件大小（在末尾写入一个字节，文件系统支持时为稀疏文件）
+     */
+    private static void preallocate(FileChannel channel, long size) throws IOException {
+        if (size > 0) {
+            channel.write(ByteBuffer.wrap(new byte[1]), size - 1);
+        }
+    }
+}
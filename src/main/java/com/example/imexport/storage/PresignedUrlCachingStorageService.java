@@ -0,0 +1,120 @@
+package com.example.imexport.storage;
+
+import com.example.imexport.config.ImExportProperties;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 缓存临时访问链接的文件存储服务
+ * 对接真实存储时每次生成临时链接都是一次签名调用，按“对象地址 + 请求的有效期”缓存已签发的链接：
+ * <ul>
+ *     <li>缓存的链接剩余有效期大于 safety-margin 时直接返回，保证调用方拿到的链接至少还能使用该时长；
+ *         请求的有效期不大于 safety-margin 时不缓存</li>
+ *     <li>已过期或进入安全余量的链接在访问时移除；缓存条数超过 max-entries 时先清理过期链接，仍超出则淘汰最久未使用的链接</li>
+ *     <li>签名在锁外执行，同一对象并发未命中时可能重复签名，结果以最后一次为准</li>
+ * </ul>
+ * 存储只签发只读（下载）链接，有效期即链接的访问范围，因此请求的有效期作为缓存键的一部分
+ */
+public class PresignedUrlCachingStorageService extends ForwardingFileStorageService {
+
+    private final ImExportProperties.PresignedUrlCache config;
+
+    /**
+     * 访问顺序的 LinkedHashMap，最久未使用的链接在最前（由 this 锁保护）
+     */
+    private final LinkedHashMap<String, SignedUrl> urls = new LinkedHashMap<>(16, 0.75f, true);
+
+    private final AtomicLong hitCount = new AtomicLong();
+    private final AtomicLong missCount = new AtomicLong();
+    private final AtomicLong expiredCount = new AtomicLong();
+    private final AtomicLong evictedCount = new AtomicLong();
+
+    public PresignedUrlCachingStorageService(FileStorageService delegate, ImExportProperties.PresignedUrlCache config) {
+        super(delegate);
+        this.config = config;
+    }
+
+    @Override
+    public String generatePresignedUrl(String fileUrl, long expirationSeconds) {
+        long marginMillis = config.getSafetyMargin().toMillis();
+        long expirationMillis = expirationSeconds * 1000;
+        if (expirationMillis <= marginMillis) {
+            missCount.incrementAndGet();
+            return super.generatePresignedUrl(fileUrl, expirationSeconds);
+        }
+
+        String key = expirationSeconds + ":" + fileUrl;
+        long now = System.currentTimeMillis();
+        synchronized (this) {
+            SignedUrl cached = urls.get(key);
+            if (cached != null) {
+                if (cached.expireAt - marginMillis > now) {
+                    hitCount.incrementAndGet();
+                    return cached.url;
+                }
+                urls.remove(key);
+                expiredCount.incrementAndGet();
+            }
+        }
+
+        missCount.incrementAndGet();
+        // 以签名前的时间计算过期时间，偏保守
+        String url = super.generatePresignedUrl(fileUrl, expirationSeconds);
+        put(key, new SignedUrl(url, now + expirationMillis));
+        return url;
+    }
+
+    /**
+     * 缓存指标
+     *
+     * @return entries、maxEntries、hits、misses、expired、evicted
+     */
+    public Map<String, Long> snapshot() {
+        Map<String, Long> stats = new LinkedHashMap<>();
+        synchronized (this) {
+            stats.put("entries", (long) urls.size());
+        }
+        stats.put("maxEntries", (long) config.getMaxEntries());
+        stats.put("hits", hitCount.get());
+        stats.put("misses", missCount.get());
+        stats.put("expired", expiredCount.get());
+        stats.put("evicted", evictedCount.get());
+        return stats;
+    }
+
+    private synchronized void put(String key, SignedUrl signedUrl) {
+        urls.put(key, signedUrl);
+        int maxEntries = Math.max(1, config.getMaxEntries());
+        if (urls.size() <= maxEntries) {
+            return;
+        }
+        long threshold = System.currentTimeMillis() + config.getSafetyMargin().toMillis();
+        Iterator<SignedUrl> iterator = urls.values().iterator();
+        while (iterator.hasNext()) {
+            if (iterator.next().expireAt <= threshold) {
+                iterator.remove();
+                expiredCount.incrementAndGet();
+            }
+        }
+        iterator = urls.values().iterator();
+        while (urls.size() > maxEntries && iterator.hasNext()) {
+            iterator.next();
+            iterator.remove();
+            evictedCount.incrementAndGet();
+        }
+    }
+
+    private static class SignedUrl {
+
+        private final String url;
+        private final long expireAt;
+
+        private SignedUrl(String url, long expireAt) {
+            this.url = url;
+            this.expireAt = expireAt;
+        }
+    }
+}
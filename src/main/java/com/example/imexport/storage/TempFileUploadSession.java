@@ -0,0 +1,89 @@
+package com.example.imexport.storage;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * 基于本地临时文件的上传会话
+ * 用于不支持分片上传的存储实现：写入内容先落盘，commit 时通过 uploadFile 一次性上传，内存占用恒定
+ */
+public class TempFileUploadSession implements UploadSession {
+
+    private static final Logger logger = LoggerFactory.getLogger(TempFileUploadSession.class);
+
+    private final FileStorageService storageService;
+    private final String fileName;
+    private final String contentType;
+    private final Path tempFile;
+    private final OutputStream outputStream;
+    private boolean finished;
+
+    public TempFileUploadSession(FileStorageService storageService, String fileName, String contentType) {
+        this.storageService = storageService;
+        this.fileName = fileName;
+        this.contentType = contentType;
+        try {
+            this.tempFile = Files.createTempFile("upload_", ".tmp");
+            this.outputStream = new BufferedOutputStream(Files.newOutputStream(tempFile));
+        } catch (IOException e) {
+            throw new RuntimeException("创建上传临时文件失败: " + e.getMessage(), e);
+        }
+    }
+
+    @Override
+    public OutputStream getOutputStream() {
+        return outputStream;
+    }
+
+    @Override
+    public String commit() {
+        if (finished) {
+            throw new IllegalStateException("上传会话已结束");
+        }
+        try {
+            outputStream.close();
+            try (InputStream inputStream = Files.newInputStream(tempFile)) {
+                return storageService.uploadFile(inputStream, fileName, contentType);
+            }
+        } catch (IOException e) {
+            throw new RuntimeException("文件上传失败: " + e.getMessage(), e);
+        } finally {
+            finished = true;
+            deleteTempFile();
+        }
+    }
+
+    @Override
+    public void abort() {
+        if (finished) {
+            return;
+        }
+        finished = true;
+        try {
+            outputStream.close();
+        } catch (IOException e) {
+            logger.warn("关闭上传临时文件失败: path={}", tempFile, e);
+        }
+        deleteTempFile();
+    }
+
+    @Override
+    public void close() {
+        abort();
+    }
+
+    private void deleteTempFile() {
+        try {
+            Files.deleteIfExists(tempFile);
+        } catch (IOException e) {
+            logger.warn("删除上传临时文件失败: path={}", tempFile, e);
+        }
+    }
+}
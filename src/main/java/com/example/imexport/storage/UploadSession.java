@@ -0,0 +1,37 @@
+package com.example.imexport.storage;
+
+import java.io.Closeable;
+import java.io.OutputStream;
+
+/**
+ * 流式上传会话
+ * 生产方持续向 getOutputStream() 写入，存储层边写边上传；写完后 commit 提交，失败时 abort 放弃
+ * 未提交即关闭的会话会自动 abort，便于配合 try-with-resources 使用
+ */
+public interface UploadSession extends Closeable {
+
+    /**
+     * 获取写入流（关闭该流不会提交会话）
+     *
+     * @return 输出流
+     */
+    OutputStream getOutputStream();
+
+    /**
+     * 提交上传，等待所有分片完成
+     *
+     * @return OSS 文件地址
+     */
+    String commit();
+
+    /**
+     * 放弃上传并清理已上传的分片
+     */
+    void abort();
+
+    /**
+     * 未提交时关闭即放弃上传
+     */
+    @Override
+    void close();
+}
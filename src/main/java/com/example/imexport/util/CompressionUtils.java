@@ -0,0 +1,33 @@
+package com.example.imexport.util;
+
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * 压缩工具类
+ */
+public class CompressionUtils {
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    /**
+     * 按文件头自动识别 gzip：导入文件为 gzip 压缩时返回解压流，否则返回原内容
+     *
+     * @param inputStream 文件输入流
+     * @return 解压后的输入流（关闭时关闭原输入流）
+     * @throws IOException 读取文件头失败
+     */
+    public static InputStream decompressIfGzip(InputStream inputStream) throws IOException {
+        BufferedInputStream buffered = new BufferedInputStream(inputStream, BUFFER_SIZE);
+        buffered.mark(2);
+        int b1 = buffered.read();
+        int b2 = buffered.read();
+        buffered.reset();
+        if (b1 == (GZIPInputStream.GZIP_MAGIC & 0xff) && b2 == (GZIPInputStream.GZIP_MAGIC >> 8)) {
+            return new GZIPInputStream(buffered, BUFFER_SIZE);
+        }
+        return buffered;
+    }
+}
@@ -0,0 +1,123 @@
+package com.example.imexport.util;
+
+import java.lang.reflect.Field;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * CSV 列写出计划
+ * 预先解析模型类的字段与表头对应关系（模型字段顺序与 CSV 表头顺序一致），
+ * 写出时按下标直接取字段值，不再逐行反射查找字段；支持按字段名投影列子集
+ */
+public final class CsvColumnPlan {
+
+    /**
+     * 模型类 -> 已设置可访问的字段（按声明顺序）
+     */
+    private static final ConcurrentHashMap<Class<?>, Field[]> MODEL_FIELDS = new ConcurrentHashMap<>();
+
+    private final Field[] fields;
+    private final String[] headers;
+
+    private CsvColumnPlan(Field[] fields, String[] headers) {
+        this.fields = fields;
+        this.headers = headers;
+    }
+
+    /**
+     * 构建全部列的写出计划
+     *
+     * @param modelClass 数据模型类
+     * @param headers 列名数组（与模型字段顺序一致）
+     * @return 写出计划
+     */
+    public static CsvColumnPlan of(Class<?> modelClass, String[] headers) {
+        return of(modelClass, headers, null);
+    }
+
+    /**
+     * 构建列子集的写出计划
+     *
+     * @param modelClass 数据模型类
+     * @param headers 列名数组（与模型字段顺序一致）
+     * @param columns 需要导出的字段名（按输出顺序），为空表示全部列
+     * @return 写出计划
+     * @throws IllegalArgumentException 列名不是模型的导出字段
+     */
+    public static CsvColumnPlan of(Class<?> modelClass, String[] headers, List<String> columns) {
+        Field[] modelFields = modelFields(modelClass);
+        int columnCount = Math.min(modelFields.length, headers.length);
+
+        if (columns == null || columns.isEmpty()) {
+            return new CsvColumnPlan(Arrays.copyOf(modelFields, columnCount), headers);
+        }
+
+        Field[] fields = new Field[columns.size()];
+        String[] projectedHeaders = new String[columns.size()];
+        for (int i = 0; i < columns.size(); i++) {
+            int index = indexOf(modelFields, columnCount, columns.get(i));
+            if (index < 0) {
+                throw new IllegalArgumentException("未知的导出列: " + columns.get(i) + ", model=" + modelClass.getName());
+            }
+            fields[i] = modelFields[index];
+            projectedHeaders[i] = headers[index];
+        }
+        return new CsvColumnPlan(fields, projectedHeaders);
+    }
+
+    /**
+     * 输出列的表头
+     */
+    public String[] getHeaders() {
+        return headers;
+    }
+
+    /**
+     * 输出列数
+     */
+    public int getColumnCount() {
+        return fields.length;
+    }
+
+    /**
+     * 将对象转换为行数组
+     *
+     * @param item 数据对象
+     * @return 行数组（空值输出为空串）
+     */
+    public String[] toRow(Object item) {
+        String[] row = new String[fields.length];
+        try {
+            for (int i = 0; i < fields.length; i++) {
+                Object value = fields[i].get(item);
+                row[i] = value != null ? value.toString() : "";
+            }
+        } catch (IllegalAccessException e) {
+            throw new IllegalStateException("CSV 行转换失败: " + item.getClass().getName(), e);
+        }
+        return row;
+    }
+
+    /**
+     * 获取模型类的字段（已缓存）
+     */
+    static Field[] modelFields(Class<?> modelClass) {
+        return MODEL_FIELDS.computeIfAbsent(modelClass, clazz -> {
+            Field[] fields = clazz.getDeclaredFields();
+            for (Field field : fields) {
+                field.setAccessible(true);
+            }
+            return fields;
+        });
+    }
+
+    private static int indexOf(Field[] fields, int columnCount, String column) {
+        for (int i = 0; i < columnCount; i++) {
+            if (fields[i].getName().equals(column)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+}
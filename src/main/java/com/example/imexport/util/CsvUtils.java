@@ -9,6 +9,7 @@ import java.lang.reflect.Field;
 import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.function.Consumer;
 
 /**
  * CSV 工具类
@@ -28,28 +29,56 @@ public class CsvUtils {
      */
     public static <T> List<T> readCsv(InputStream inputStream, Class<T> modelClass, String[] headers) throws IOException {
         List<T> result = new ArrayList<>();
-        
+        readCsv(inputStream, modelClass, headers, Integer.MAX_VALUE, result::addAll);
+        return result;
+    }
+
+    /**
+     * 从输入流逐行读取 CSV 数据，每解析满一批回调一次，内存中只保留当前批次
+     * 回调中抛出的异常（如任务取消）原样抛出并停止读取
+     *
+     * @param inputStream 输入流
+     * @param modelClass 数据模型类
+     * @param headers 预期的列名数组
+     * @param batchSize 每批行数
+     * @param batchConsumer 批次回调
+     * @param <T> 数据模型类型
+     * @return 解析成功的数据行数
+     * @throws IOException 读取异常
+     */
+    public static <T> int readCsv(InputStream inputStream, Class<T> modelClass, String[] headers, int batchSize,
+                                  Consumer<List<T>> batchConsumer) throws IOException {
+        int parsedRows = 0;
+        List<T> batch = new ArrayList<>();
+
         try (CSVReader reader = new CSVReader(new InputStreamReader(inputStream, StandardCharsets.UTF_8))) {
-            List<String[]> allRows = reader.readAll();
-            
-            if (allRows.isEmpty()) {
-                return result;
-            }
-            
             // 跳过表头（第一行）
-            for (int i = 1; i < allRows.size(); i++) {
-                String[] row = allRows.get(i);
+            if (reader.readNext() == null) {
+                return 0;
+            }
+
+            String[] row;
+            while ((row = reader.readNext()) != null) {
                 T instance = parseRow(row, modelClass, headers);
-                if (instance != null) {
-                    result.add(instance);
+                if (instance == null) {
+                    continue;
+                }
+                batch.add(instance);
+                parsedRows++;
+                if (batch.size() >= batchSize) {
+                    batchConsumer.accept(batch);
+                    batch = new ArrayList<>();
                 }
             }
-            
+            if (!batch.isEmpty()) {
+                batchConsumer.accept(batch);
+            }
+
         } catch (CsvException e) {
             throw new IOException("CSV 解析失败", e);
         }
-        
-        return result;
+
+        return parsedRows;
     }
 
     /**
@@ -62,23 +91,61 @@ public class CsvUtils {
      * @throws IOException 写入异常
      */
     public static <T> void writeCsv(OutputStream outputStream, List<T> data, String[] headers) throws IOException {
-        try (CSVWriter writer = new CSVWriter(
-                new OutputStreamWriter(outputStream, StandardCharsets.UTF_8),
-                CSVWriter.DEFAULT_SEPARATOR,
-                CSVWriter.DEFAULT_QUOTE_CHARACTER,
-                CSVWriter.DEFAULT_ESCAPE_CHARACTER,
-                CSVWriter.DEFAULT_LINE_END)) {
-            
+        try (CSVWriter writer = createWriter(outputStream)) {
             // 写入表头
             writer.writeNext(headers);
             
             // 写入数据
-            if (data != null && !data.isEmpty()) {
-                for (T item : data) {
-                    String[] row = toRow(item, headers.length);
-                    writer.writeNext(row);
-                }
-            }
+            writeRows(writer, data, headers.length);
+        }
+    }
+
+    /**
+     * 创建 CSV 写入器（UTF-8），用于分批流式写入
+     *
+     * @param outputStream 输出流（随写入器关闭）
+     * @return CSV 写入器
+     */
+    public static CSVWriter createWriter(OutputStream outputStream) {
+        return new CSVWriter(
+                new OutputStreamWriter(outputStream, StandardCharsets.UTF_8),
+                CSVWriter.DEFAULT_SEPARATOR,
+                CSVWriter.DEFAULT_QUOTE_CHARACTER,
+                CSVWriter.DEFAULT_ESCAPE_CHARACTER,
+                CSVWriter.DEFAULT_LINE_END);
+    }
+
+    /**
+     * 将一批数据追加写入 CSV（不含表头）
+     *
+     * @param writer CSV 写入器
+     * @param data 数据列表
+     * @param columnCount 列数
+     * @param <T> 数据模型类型
+     */
+    public static <T> void writeRows(CSVWriter writer, List<T> data, int columnCount) {
+        if (data == null || data.isEmpty()) {
+            return;
+        }
+        for (T item : data) {
+            writer.writeNext(toRow(item, columnCount));
+        }
+    }
+
+    /**
+     * 按预先构建的列写出计划将一批数据追加写入 CSV（不含表头）
+     *
+     * @param writer CSV 写入器
+     * @param data 数据列表
+     * @param plan 列写出计划
+     * @param <T> 数据模型类型
+     */
+    public static <T> void writeRows(CSVWriter writer, List<T> data, CsvColumnPlan plan) {
+        if (data == null || data.isEmpty()) {
+            return;
+        }
+        for (T item : data) {
+            writer.writeNext(plan.toRow(item));
         }
     }
 
@@ -88,12 +155,11 @@ public class CsvUtils {
     private static <T> T parseRow(String[] row, Class<T> modelClass, String[] headers) {
         try {
             T instance = modelClass.getDeclaredConstructor().newInstance();
-            Field[] fields = modelClass.getDeclaredFields();
+            Field[] fields = CsvColumnPlan.modelFields(modelClass);
             
             for (int i = 0; i < Math.min(row.length, headers.length); i++) {
                 if (i < fields.length) {
                     Field field = fields[i];
-                    field.setAccessible(true);
                     
                     String value = row[i];
                     if (value != null && !value.trim().isEmpty()) {
@@ -118,12 +184,10 @@ public class CsvUtils {
         String[] row = new String[columnCount];
         
         try {
-            Field[] fields = item.getClass().getDeclaredFields();
+            Field[] fields = CsvColumnPlan.modelFields(item.getClass());
             
             for (int i = 0; i < Math.min(fields.length, columnCount); i++) {
-                Field field = fields[i];
-                field.setAccessible(true);
-                Object value = field.get(item);
+                Object value = fields[i].get(item);
                 row[i] = value != null ? value.toString() : "";
             }
         } catch (Exception e) {
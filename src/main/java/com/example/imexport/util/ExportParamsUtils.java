@@ -0,0 +1,61 @@
+package com.example.imexport.util;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.MapperFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.databind.json.JsonMapper;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+
+/**
+ * 导出参数工具类
+ * 将查询参数序列化为规范化 JSON（属性与 Map 键按字母排序），保证语义相同的参数得到相同的字符串和哈希
+ */
+public class ExportParamsUtils {
+
+    private static final ObjectMapper CANONICAL_MAPPER = JsonMapper.builder()
+        .enable(MapperFeature.SORT_PROPERTIES_ALPHABETICALLY)
+        .enable(SerializationFeature.ORDER_MAP_ENTRIES_BY_KEYS)
+        .disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS)
+        .disable(SerializationFeature.FAIL_ON_EMPTY_BEANS)
+        .addModule(new JavaTimeModule())
+        .build();
+
+    /**
+     * 序列化为规范化 JSON
+     *
+     * @param params 查询参数
+     * @return 规范化 JSON，参数为 null 时返回空字符串
+     * @throws IllegalArgumentException 参数无法序列化（无法计算稳定的参数哈希，也无法在其他节点还原）
+     */
+    public static String toCanonicalJson(Object params) {
+        if (params == null) {
+            return "";
+        }
+        try {
+            return CANONICAL_MAPPER.writeValueAsString(params);
+        } catch (JsonProcessingException e) {
+            throw new IllegalArgumentException("查询参数无法序列化: type=" + params.getClass().getName(), e);
+        }
+    }
+
+    /**
+     * 将规范化 JSON 反序列化为查询参数（分布式执行时在其他节点还原参数）
+     *
+     * @param json 规范化 JSON
+     * @param paramsType 参数类型全限定名
+     * @return 查询参数，JSON 为空时返回 null
+     * @throws IllegalArgumentException 参数类型不存在或无法反序列化
+     */
+    public static Object fromCanonicalJson(String json, String paramsType) {
+        if (json == null || json.isEmpty() || paramsType == null) {
+            return null;
+        }
+        try {
+            Class<?> type = Class.forName(paramsType, true, Thread.currentThread().getContextClassLoader());
+            return CANONICAL_MAPPER.readValue(json, type);
+        } catch (ClassNotFoundException | JsonProcessingException e) {
+            throw new IllegalArgumentException("查询参数无法反序列化: type=" + paramsType, e);
+        }
+    }
+}
@@ -0,0 +1,43 @@
+package com.example.imexport.util;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
+/**
+ * 摘要工具类
+ * 参数哈希、缓存键、内容寻址存储与签名统一使用小写十六进制表示
+ */
+public class HashUtils {
+
+    private static final char[] HEX = "0123456789abcdef".toCharArray();
+
+    /**
+     * 计算 SHA-256 十六进制摘要
+     *
+     * @param value 原始字符串（按 UTF-8 编码）
+     * @return 64 位十六进制摘要
+     */
+    public static String sha256Hex(String value) {
+        try {
+            return toHex(MessageDigest.getInstance("SHA-256").digest(value.getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 不可用", e);
+        }
+    }
+
+    /**
+     * 字节数组转小写十六进制字符串
+     *
+     * @param bytes 字节数组（如摘要、签名）
+     * @return 长度为字节数两倍的十六进制字符串
+     */
+    public static String toHex(byte[] bytes) {
+        char[] chars = new char[bytes.length * 2];
+        for (int i = 0; i < bytes.length; i++) {
+            chars[i * 2] = HEX[(bytes[i] >> 4) & 0x0F];
+            chars[i * 2 + 1] = HEX[bytes[i] & 0x0F];
+        }
+        return new String(chars);
+    }
+}
@@ -2,13 +2,17 @@
 CREATE TABLE IF NOT EXISTS `import_task_history` (
   `id` BIGINT(20) NOT NULL AUTO_INCREMENT COMMENT '主键ID',
   `business_type` VARCHAR(50) NOT NULL COMMENT '业务类型标识',
-  `task_status` VARCHAR(20) NOT NULL COMMENT '任务状态：PENDING, PROCESSING, SUCCESS, FAILED',
+  `task_status` VARCHAR(20) NOT NULL COMMENT '任务状态：PENDING, PROCESSING, SUCCESS, FAILED, CANCELLING, CANCELLED',
   `original_file_url` VARCHAR(500) COMMENT '原始文件OSS地址',
   `total_rows` INT(11) COMMENT '总行数',
   `success_rows` INT(11) COMMENT '成功行数',
   `error_rows` INT(11) COMMENT '错误行数',
   `error_file_url` VARCHAR(500) COMMENT '错误文件OSS地址',
   `error_message` TEXT COMMENT '错误信息',
+  `lease_owner` VARCHAR(100) COMMENT '持有租约的工作节点（分布式队列）',
+  `lease_expire_time` DATETIME COMMENT '租约到期时间',
+  `heartbeat_time` DATETIME COMMENT '最近心跳时间',
+  `attempt_count` INT(11) NOT NULL DEFAULT 0 COMMENT '已领取执行次数',
   `created_by` VARCHAR(50) COMMENT '创建人',
   `created_time` DATETIME COMMENT '创建时间',
   `updated_time` DATETIME COMMENT '更新时间',
@@ -22,16 +26,38 @@ CREATE TABLE IF NOT EXISTS `import_task_history` (
 CREATE TABLE IF NOT EXISTS `export_task_history` (
   `id` BIGINT(20) NOT NULL AUTO_INCREMENT COMMENT '主键ID',
   `business_type` VARCHAR(50) NOT NULL COMMENT '业务类型标识',
-  `task_status` VARCHAR(20) NOT NULL COMMENT '任务状态：PENDING, PROCESSING, SUCCESS, FAILED',
+  `task_status` VARCHAR(20) NOT NULL COMMENT '任务状态：PENDING, PROCESSING, SUCCESS, FAILED, CANCELLING, CANCELLED',
   `file_url` VARCHAR(500) COMMENT '导出文件OSS地址',
   `total_rows` INT(11) COMMENT '导出数据行数',
   `query_params` TEXT COMMENT '查询参数（JSON格式）',
+  `params_hash` VARCHAR(64) COMMENT '查询参数哈希（导出结果缓存键）',
+  `params_type` VARCHAR(200) COMMENT '查询参数类型（分布式执行时用于反序列化参数）',
+  `export_columns` VARCHAR(1000) COMMENT '导出列（逗号分隔，为空表示全部列）',
+  `entry_stats` TEXT COMMENT '打包导出各文件行数（JSON，文件名 -> 行数）',
   `error_message` TEXT COMMENT '错误信息',
+  `lease_owner` VARCHAR(100) COMMENT '持有租约的工作节点（分布式队列）',
+  `lease_expire_time` DATETIME COMMENT '租约到期时间',
+  `heartbeat_time` DATETIME COMMENT '最近心跳时间',
+  `attempt_count` INT(11) NOT NULL DEFAULT 0 COMMENT '已领取执行次数',
   `created_by` VARCHAR(50) COMMENT '创建人',
   `created_time` DATETIME COMMENT '创建时间',
   `updated_time` DATETIME COMMENT '更新时间',
   PRIMARY KEY (`id`),
   KEY `idx_business_type` (`business_type`),
   KEY `idx_task_status` (`task_status`),
-  KEY `idx_created_time` (`created_time`)
+  KEY `idx_created_time` (`created_time`),
+  KEY `idx_params_hash` (`business_type`, `params_hash`)
 ) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COMMENT='导出任务历史表';
+
+-- 增量导出水位表
+CREATE TABLE IF NOT EXISTS `export_watermark` (
+  `id` BIGINT(20) NOT NULL AUTO_INCREMENT COMMENT '主键ID',
+  `business_type` VARCHAR(50) NOT NULL COMMENT '业务类型标识',
+  `consumer_id` VARCHAR(100) NOT NULL COMMENT '下游消费方标识',
+  `watermark` VARCHAR(100) COMMENT '已成功导出的最高水位（如 updated_time 或最大ID）',
+  `last_task_id` BIGINT(20) COMMENT '最近一次推进水位的导出任务ID',
+  `created_time` DATETIME COMMENT '创建时间',
+  `updated_time` DATETIME COMMENT '更新时间',
+  PRIMARY KEY (`id`),
+  UNIQUE KEY `uk_business_consumer` (`business_type`, `consumer_id`)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COMMENT='增量导出水位表';
@@ -0,0 +1,60 @@
+package com.example.imexport.example;
+
+import com.example.imexport.core.CancellationToken;
+import com.example.imexport.core.ExportQuery;
+import com.example.imexport.core.TaskCancelledException;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * 示例导出提供者分页流式查询测试
+ */
+public class UserCsvExportProviderTest {
+
+    /**
+     * 全量查询被调用即失败，确保流式导出不经过全量列表
+     */
+    private final UserCsvExportProvider provider = new UserCsvExportProvider() {
+
+        @Override
+        public List<UserCsvModel> queryExportData(Object params) {
+            throw new AssertionError("流式导出不应调用全量查询");
+        }
+    };
+
+    @Test
+    public void testBatchesFollowFetchSize() {
+        List<Integer> batchSizes = new ArrayList<>();
+        List<String> usernames = new ArrayList<>();
+
+        provider.streamExportData(new ExportQuery(null, 3), batch -> {
+            batchSizes.add(batch.size());
+            batch.forEach(user -> usernames.add(user.getUsername()));
+        });
+
+        assertEquals(Arrays.asList(3, 3, 3, 1), batchSizes);
+        assertEquals(10, usernames.size());
+        assertEquals("user1", usernames.get(0));
+        assertEquals("user10", usernames.get(9));
+    }
+
+    @Test
+    public void testCancelledBeforeNextPage() {
+        ExportQuery query = new ExportQuery(null, 4);
+        CancellationToken token = new CancellationToken();
+        query.setCancellationToken(token);
+        List<Integer> batchSizes = new ArrayList<>();
+
+        assertThrows(TaskCancelledException.class, () -> provider.streamExportData(query, batch -> {
+            batchSizes.add(batch.size());
+            token.cancel();
+        }));
+        assertEquals(Arrays.asList(4), batchSizes);
+    }
+}
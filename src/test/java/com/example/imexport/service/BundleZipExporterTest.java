@@ -0,0 +1,323 @@
+package com.example.imexport.service;
+
+import com.example.imexport.config.ImExportProperties;
+import com.example.imexport.core.CancellationToken;
+import com.example.imexport.core.CsvExportProvider;
+import com.example.imexport.core.ExportBundle;
+import com.example.imexport.core.TaskCancelledException;
+import com.example.imexport.example.UserCsvModel;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * 打包导出压缩包写入测试
+ */
+public class BundleZipExporterTest {
+
+    private BundleZipExporter exporter;
+
+    private ImExportProperties properties;
+
+    private BusinessTypeConcurrencyLimiter concurrencyLimiter;
+
+    @BeforeEach
+    public void setUp() {
+        properties = new ImExportProperties();
+        properties.getExport().getBundle().setMaxParallelEntries(2);
+        concurrencyLimiter = new BusinessTypeConcurrencyLimiter();
+        ReflectionTestUtils.setField(concurrencyLimiter, "properties", properties);
+        exporter = newExporter(properties);
+    }
+
+    @AfterEach
+    public void tearDown() {
+        exporter.shutdown();
+    }
+
+    @Test
+    public void testEntriesWrittenInOrderWithRowCounts() throws IOException {
+        ExportBundle bundle = new ExportBundle("USER_BUNDLE", "user_bundle")
+            .add(new UserProvider("users"), 5)
+            .add(new UserProvider("users"), 3, Arrays.asList("email"))
+            .add(new UserProvider("admins"), 0)
+            .add(new UserProvider("guests"), 12);
+
+        ByteArrayOutputStream target = new ByteArrayOutputStream();
+        Map<String, Integer> entryRows = exporter.export(bundle, new CancellationToken(), target);
+
+        Map<String, Integer> expected = new LinkedHashMap<>();
+        expected.put("users.csv", 5);
+        expected.put("users_2.csv", 3);
+        expected.put("admins.csv", 0);
+        expected.put("guests.csv", 12);
+        assertEquals(new ArrayList<>(expected.entrySet()), new ArrayList<>(entryRows.entrySet()));
+
+        Map<String, List<String>> files = unzip(target.toByteArray());
+        assertEquals(new ArrayList<>(expected.keySet()), new ArrayList<>(files.keySet()));
+        assertEquals(6, files.get("users.csv").size());
+        assertEquals("\"用户名\",\"邮箱\"", files.get("users.csv").get(0));
+        assertEquals("\"user4\",\"4\"", files.get("users.csv").get(5));
+        assertEquals(Arrays.asList("\"邮箱\"", "\"0\"", "\"1\"", "\"2\""), files.get("users_2.csv"));
+        assertEquals(1, files.get("admins.csv").size());
+        assertEquals("\"user11\",\"11\"", files.get("guests.csv").get(12));
+    }
+
+    @Test
+    public void testCancelledBundleStopsWithoutOutput() {
+        CancellationToken token = new CancellationToken();
+        token.cancel();
+        ExportBundle bundle = new ExportBundle("USER_BUNDLE", "user_bundle")
+            .add(new UserProvider("users"), 5)
+            .add(new UserProvider("admins"), 5);
+        ByteArrayOutputStream target = new ByteArrayOutputStream();
+
+        assertThrows(TaskCancelledException.class, () -> exporter.export(bundle, token, target));
+        assertEquals(0, target.size());
+    }
+
+    @Test
+    public void testShutdownLetsRunningBundleFinish() throws Exception {
+        // 单线程池、每个打包同时导出 3 个数据集：第 3 个数据集在线程池中排队
+        properties.getExport().getBundle().setPoolSize(1);
+        properties.getExport().getBundle().setMaxParallelEntries(3);
+        exporter.shutdown();
+        exporter = newExporter(properties);
+
+        CountDownLatch started = new CountDownLatch(2);
+        CountDownLatch release = new CountDownLatch(1);
+        ExportBundle bundle = new ExportBundle("USER_BUNDLE", "user_bundle")
+            .add(new BlockingUserProvider("users", started, release), 2)
+            .add(new BlockingUserProvider("admins", started, release), 2)
+            .add(new UserProvider("guests"), 2);
+        ExecutorService threads = Executors.newFixedThreadPool(2);
+        try {
+            Future<Map<String, Integer>> export = threads.submit(
+                () -> exporter.export(bundle, new CancellationToken(), new ByteArrayOutputStream()));
+            assertTrue(started.await(5, TimeUnit.SECONDS));
+
+            // 应用关闭时排队中的数据集不被丢弃，打包任务不会一直等待
+            Future<?> shutdown = threads.submit(exporter::shutdown);
+            Thread.sleep(100);
+            release.countDown();
+
+            assertEquals(Integer.valueOf(2), export.get(5, TimeUnit.SECONDS).get("guests.csv"));
+            shutdown.get(5, TimeUnit.SECONDS);
+        } finally {
+            release.countDown();
+            threads.shutdownNow();
+        }
+    }
+
+    @Test
+    public void testEntriesLimitedByProviderBusinessType() throws IOException {
+        // 每个打包同时导出 3 个数据集，数据提供者的业务类型只允许 1 个并发
+        properties.getExport().getBundle().setMaxParallelEntries(3);
+        properties.getExecutor().getBusinessTypeConcurrency().put("BUNDLE_TEST", 1);
+        exporter.shutdown();
+        exporter = newExporter(properties);
+
+        AtomicInteger running = new AtomicInteger();
+        AtomicInteger maxRunning = new AtomicInteger();
+        ExportBundle bundle = new ExportBundle("USER_BUNDLE", "user_bundle");
+        for (String name : Arrays.asList("users", "admins", "guests", "owners")) {
+            bundle.add(new CountingUserProvider(name, running, maxRunning), 3);
+        }
+
+        Map<String, Integer> entryRows = exporter.export(bundle, new CancellationToken(), new ByteArrayOutputStream());
+
+        assertEquals(4, entryRows.size());
+        assertEquals(1, maxRunning.get());
+        assertEquals(0L, concurrencyLimiter.snapshot().get("BUNDLE_TEST").get("running"));
+        assertEquals(0L, concurrencyLimiter.snapshot().get("BUNDLE_TEST").get("pending"));
+    }
+
+    @Test
+    public void testEntriesOfBundleBusinessTypeUseBundlePermit() throws Exception {
+        properties.getExecutor().setRejectionPolicy(ImExportProperties.RejectionPolicy.FAILED);
+        properties.getExecutor().getBusinessTypeConcurrency().put("BUNDLE_TEST", 1);
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        ExecutorService threads = Executors.newSingleThreadExecutor();
+        try {
+            // 打包任务已持有 BUNDLE_TEST 的唯一许可，同一业务类型的数据集不再申请
+            threads.submit(() -> concurrencyLimiter.executeBlocking("BUNDLE_TEST", new CancellationToken(), () -> {
+                started.countDown();
+                await(release);
+                return null;
+            }));
+            assertTrue(started.await(5, TimeUnit.SECONDS));
+
+            ExportBundle bundle = new ExportBundle("BUNDLE_TEST", "user_bundle")
+                .add(new UserProvider("users"), 2)
+                .add(new UserProvider("admins"), 2);
+            Map<String, Integer> entryRows = exporter.export(bundle, new CancellationToken(), new ByteArrayOutputStream());
+
+            assertEquals(Integer.valueOf(2), entryRows.get("admins.csv"));
+            assertEquals(0L, concurrencyLimiter.snapshot().get("BUNDLE_TEST").get("rejected"));
+        } finally {
+            release.countDown();
+            threads.shutdownNow();
+        }
+    }
+
+    private BundleZipExporter newExporter(ImExportProperties properties) {
+        BundleZipExporter bundleZipExporter = new BundleZipExporter();
+        ReflectionTestUtils.setField(bundleZipExporter, "properties", properties);
+        ReflectionTestUtils.setField(bundleZipExporter, "concurrencyLimiter", concurrencyLimiter);
+        bundleZipExporter.init();
+        return bundleZipExporter;
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static Map<String, List<String>> unzip(byte[] content) throws IOException {
+        Map<String, List<String>> files = new LinkedHashMap<>();
+        try (ZipInputStream zip = new ZipInputStream(new ByteArrayInputStream(content))) {
+            ZipEntry entry;
+            while ((entry = zip.getNextEntry()) != null) {
+                ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+                byte[] buffer = new byte[4096];
+                int read;
+                while ((read = zip.read(buffer)) != -1) {
+                    bytes.write(buffer, 0, read);
+                }
+                files.put(entry.getName(),
+                    Arrays.asList(new String(bytes.toByteArray(), StandardCharsets.UTF_8).split("\n")));
+            }
+        }
+        return files;
+    }
+
+    /**
+     * 查询开始后等待测试放行
+     */
+    private static class BlockingUserProvider extends UserProvider {
+
+        private final CountDownLatch started;
+
+        private final CountDownLatch release;
+
+        private BlockingUserProvider(String fileName, CountDownLatch started, CountDownLatch release) {
+            super(fileName);
+            this.started = started;
+            this.release = release;
+        }
+
+        @Override
+        public List<UserCsvModel> queryExportData(Object params) {
+            started.countDown();
+            try {
+                release.await(5, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return super.queryExportData(params);
+        }
+    }
+
+    /**
+     * 记录同时执行查询的数据集数
+     */
+    private static class CountingUserProvider extends UserProvider {
+
+        private final AtomicInteger running;
+
+        private final AtomicInteger maxRunning;
+
+        private CountingUserProvider(String fileName, AtomicInteger running, AtomicInteger maxRunning) {
+            super(fileName);
+            this.running = running;
+            this.maxRunning = maxRunning;
+        }
+
+        @Override
+        public List<UserCsvModel> queryExportData(Object params) {
+            maxRunning.accumulateAndGet(running.incrementAndGet(), Math::max);
+            try {
+                return super.queryExportData(params);
+            } finally {
+                running.decrementAndGet();
+            }
+        }
+    }
+
+    /**
+     * 按参数生成指定行数的用户数据，查询随机延迟以打乱各数据集的完成顺序
+     */
+    private static class UserProvider implements CsvExportProvider<UserCsvModel> {
+
+        private final String fileName;
+
+        private UserProvider(String fileName) {
+            this.fileName = fileName;
+        }
+
+        @Override
+        public List<UserCsvModel> queryExportData(Object params) {
+            try {
+                Thread.sleep(ThreadLocalRandom.current().nextInt(20));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            List<UserCsvModel> users = new ArrayList<>();
+            for (int i = 0; i < (Integer) params; i++) {
+                UserCsvModel user = new UserCsvModel();
+                user.setUsername("user" + i);
+                user.setEmail(String.valueOf(i));
+                users.add(user);
+            }
+            return users;
+        }
+
+        @Override
+        public String getBusinessType() {
+            return "BUNDLE_TEST";
+        }
+
+        @Override
+        public Class<UserCsvModel> getCsvModelClass() {
+            return UserCsvModel.class;
+        }
+
+        @Override
+        public String getExportFileName() {
+            return fileName;
+        }
+
+        @Override
+        public String[] getCsvHeaders() {
+            return new String[]{"用户名", "邮箱"};
+        }
+    }
+}
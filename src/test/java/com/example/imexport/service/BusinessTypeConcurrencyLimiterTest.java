@@ -0,0 +1,275 @@
+package com.example.imexport.service;
+
+import com.example.imexport.config.ImExportProperties;
+import com.example.imexport.core.CancellationToken;
+import com.example.imexport.core.TaskCancelledException;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * 业务类型并发限制测试
+ */
+public class BusinessTypeConcurrencyLimiterTest {
+
+    private BusinessTypeConcurrencyLimiter limiter;
+    private ImExportProperties properties;
+    private ExecutorService resubmitExecutor;
+    private AtomicInteger resubmitted;
+    private BusinessTypeConcurrencyLimiter.Resubmitter resubmitter;
+
+    @BeforeEach
+    public void setUp() {
+        limiter = new BusinessTypeConcurrencyLimiter();
+        properties = new ImExportProperties();
+        properties.getExecutor().setDefaultBusinessTypeConcurrency(1);
+        ReflectionTestUtils.setField(limiter, "properties", properties);
+        // 模拟调度器：重新提交的任务在独立线程池执行
+        resubmitExecutor = Executors.newSingleThreadExecutor();
+        resubmitted = new AtomicInteger();
+        resubmitter = (work, onRejected) -> {
+            resubmitted.incrementAndGet();
+            resubmitExecutor.execute(work);
+        };
+    }
+
+    @AfterEach
+    public void tearDown() {
+        resubmitExecutor.shutdownNow();
+    }
+
+    @Test
+    public void testPendingTaskResubmittedAfterRunningTaskCompletes() throws Exception {
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        CountDownLatch secondDone = new CountDownLatch(1);
+        List<String> executed = Collections.synchronizedList(new ArrayList<>());
+        List<String> rejected = Collections.synchronizedList(new ArrayList<>());
+        AtomicReference<Thread> secondThread = new AtomicReference<>();
+
+        Thread worker = new Thread(() -> limiter.execute("USER_IMPORT", () -> {
+            started.countDown();
+            await(release);
+            executed.add("first");
+        }, rejected::add, resubmitter));
+        worker.start();
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+
+        // 超出并发上限：排队，当前线程立即返回
+        limiter.execute("USER_IMPORT", () -> {
+            secondThread.set(Thread.currentThread());
+            executed.add("second");
+            secondDone.countDown();
+        }, rejected::add, resubmitter);
+        assertEquals(1L, limiter.snapshot().get("USER_IMPORT").get("pending"));
+
+        // 其他业务类型不受影响
+        limiter.execute("USER_EXPORT", () -> executed.add("other"), rejected::add, resubmitter);
+
+        release.countDown();
+        worker.join(5000);
+        assertTrue(secondDone.await(5, TimeUnit.SECONDS));
+
+        // 排队任务重新提交到调度器执行，不占用完成任务的线程
+        assertNotSame(worker, secondThread.get());
+        assertEquals(1, resubmitted.get());
+        assertEquals(Collections.emptyList(), rejected);
+        assertEquals(Arrays.asList("other", "first", "second"), executed);
+        assertEquals(0L, limiter.snapshot().get("USER_IMPORT").get("pending"));
+        awaitIdle("USER_IMPORT");
+    }
+
+    @Test
+    public void testRejectedResubmissionPassesPermitToNextPendingTask() throws Exception {
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        CountDownLatch thirdDone = new CountDownLatch(1);
+        List<String> executed = Collections.synchronizedList(new ArrayList<>());
+        List<String> rejected = Collections.synchronizedList(new ArrayList<>());
+
+        Thread worker = new Thread(() -> limiter.execute("USER_IMPORT", () -> {
+            started.countDown();
+            await(release);
+            executed.add("first");
+        }, rejected::add, resubmitter));
+        worker.start();
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+
+        // 第二个任务重新提交时被调度器拒绝，许可交给第三个任务
+        limiter.execute("USER_IMPORT", () -> executed.add("second"), rejected::add,
+            (work, onRejected) -> onRejected.accept("任务调度通道排队已满"));
+        limiter.execute("USER_IMPORT", () -> {
+            executed.add("third");
+            thirdDone.countDown();
+        }, rejected::add, resubmitter);
+        assertEquals(2L, limiter.snapshot().get("USER_IMPORT").get("pending"));
+
+        release.countDown();
+        worker.join(5000);
+        assertTrue(thirdDone.await(5, TimeUnit.SECONDS));
+
+        assertEquals(Collections.singletonList("任务调度通道排队已满"), rejected);
+        assertEquals(Arrays.asList("first", "third"), executed);
+        assertEquals(0L, limiter.snapshot().get("USER_IMPORT").get("pending"));
+        awaitIdle("USER_IMPORT");
+    }
+
+    @Test
+    public void testFailedPolicyRejectsOverLimit() throws Exception {
+        properties.getExecutor().setRejectionPolicy(ImExportProperties.RejectionPolicy.FAILED);
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        List<String> rejected = Collections.synchronizedList(new ArrayList<>());
+
+        Thread worker = new Thread(() -> limiter.execute("USER_IMPORT", () -> {
+            started.countDown();
+            await(release);
+        }, rejected::add, resubmitter));
+        worker.start();
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+
+        limiter.execute("USER_IMPORT", () -> { }, rejected::add, resubmitter);
+        release.countDown();
+        worker.join(5000);
+
+        assertEquals(1, rejected.size());
+        assertEquals(1L, limiter.snapshot().get("USER_IMPORT").get("rejected"));
+    }
+
+    @Test
+    public void testBlockingWorkWaitsForPermitInCallingThread() throws Exception {
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        List<String> rejected = Collections.synchronizedList(new ArrayList<>());
+        ExecutorService caller = Executors.newSingleThreadExecutor();
+        try {
+            Thread worker = new Thread(() -> limiter.execute("USER_EXPORT", () -> {
+                started.countDown();
+                await(release);
+            }, rejected::add, resubmitter));
+            worker.start();
+            assertTrue(started.await(5, TimeUnit.SECONDS));
+
+            // 超出并发上限：子任务在调用线程中等待，计入排队数
+            Future<Thread> blocking = caller.submit(
+                () -> limiter.executeBlocking("USER_EXPORT", new CancellationToken(), Thread::currentThread));
+            awaitPending("USER_EXPORT", 1L);
+
+            release.countDown();
+            worker.join(5000);
+            Thread callerThread = caller.submit(Thread::currentThread).get();
+
+            // 许可直接移交给等待线程，不经调度器重新提交
+            assertSame(callerThread, blocking.get(5, TimeUnit.SECONDS));
+            assertEquals(0, resubmitted.get());
+            assertEquals(Collections.emptyList(), rejected);
+            assertEquals(0L, limiter.snapshot().get("USER_EXPORT").get("pending"));
+            awaitIdle("USER_EXPORT");
+        } finally {
+            caller.shutdownNow();
+        }
+    }
+
+    @Test
+    public void testBlockingWorkRejectedUnderFailedPolicy() throws Exception {
+        properties.getExecutor().setRejectionPolicy(ImExportProperties.RejectionPolicy.FAILED);
+        AtomicInteger executed = new AtomicInteger();
+
+        limiter.executeBlocking("USER_EXPORT", new CancellationToken(), () -> {
+            IllegalStateException e = assertThrows(IllegalStateException.class,
+                () -> limiter.executeBlocking("USER_EXPORT", new CancellationToken(), executed::incrementAndGet));
+            assertTrue(e.getMessage().contains("业务类型并发任务数已达上限"), e.getMessage());
+            return null;
+        });
+
+        assertEquals(0, executed.get());
+        assertEquals(1L, limiter.snapshot().get("USER_EXPORT").get("rejected"));
+        assertEquals(0L, limiter.snapshot().get("USER_EXPORT").get("running"));
+    }
+
+    @Test
+    public void testCancelledWhileWaitingForPermit() throws Exception {
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        CancellationToken token = new CancellationToken();
+        AtomicInteger executed = new AtomicInteger();
+        List<String> rejected = Collections.synchronizedList(new ArrayList<>());
+        ExecutorService caller = Executors.newSingleThreadExecutor();
+        try {
+            Thread worker = new Thread(() -> limiter.execute("USER_EXPORT", () -> {
+                started.countDown();
+                await(release);
+            }, rejected::add, resubmitter));
+            worker.start();
+            assertTrue(started.await(5, TimeUnit.SECONDS));
+
+            Future<Integer> blocking = caller.submit(
+                () -> limiter.executeBlocking("USER_EXPORT", token, executed::incrementAndGet));
+            awaitPending("USER_EXPORT", 1L);
+
+            // 所属任务被取消：放弃等待并移出排队，之后归还的许可不再移交给它
+            token.cancel();
+            ExecutionException e = assertThrows(ExecutionException.class, () -> blocking.get(5, TimeUnit.SECONDS));
+            assertTrue(e.getCause() instanceof TaskCancelledException, String.valueOf(e.getCause()));
+            assertEquals(0L, limiter.snapshot().get("USER_EXPORT").get("pending"));
+
+            release.countDown();
+            worker.join(5000);
+            assertEquals(0, executed.get());
+            assertEquals(Collections.emptyList(), rejected);
+            awaitIdle("USER_EXPORT");
+        } finally {
+            release.countDown();
+            caller.shutdownNow();
+        }
+    }
+
+    private void awaitPending(String businessType, long expected) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5000;
+        while ((limiter.snapshot().get(businessType) == null
+                || limiter.snapshot().get(businessType).get("pending") != expected)
+                && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        assertEquals(expected, limiter.snapshot().get(businessType).get("pending"));
+    }
+
+    /**
+     * 重新提交的任务在完成回调之后才归还许可
+     */
+    private void awaitIdle(String businessType) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5000;
+        while (limiter.snapshot().get(businessType).get("running") != 0L && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        assertEquals(0L, limiter.snapshot().get(businessType).get("running"));
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,170 @@
+package com.example.imexport.service;
+
+import com.example.imexport.config.ImExportProperties;
+import com.example.imexport.example.UserCsvImportProcessor;
+import com.example.imexport.mapper.ImportTaskHistoryMapper;
+import com.example.imexport.model.ImportResult;
+import com.example.imexport.model.ImportTaskHistory;
+import com.example.imexport.model.TaskSubmission;
+import com.example.imexport.storage.InMemoryFileStorageService;
+import com.example.imexport.storage.ParallelRangeDownloader;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * CSV 导入任务提交测试
+ * 任务记录以 Mapper 桩记录，调度通道的线程池由测试控制：直接执行或拒绝
+ */
+public class CsvImportServiceTest {
+
+    private static final String FILE_URL = "https://oss/users.csv";
+
+    @TempDir
+    Path stagingDir;
+
+    private final ImExportProperties properties = new ImExportProperties();
+
+    private final List<String> statuses = new ArrayList<>();
+
+    private final TaskCompletionRegistry taskCompletionRegistry = new TaskCompletionRegistry();
+
+    private final BusinessTypeConcurrencyLimiter concurrencyLimiter = new BusinessTypeConcurrencyLimiter();
+
+    private final UserCsvImportProcessor processor = new UserCsvImportProcessor();
+
+    private ImportFilePrefetcher importFilePrefetcher;
+
+    private ParallelRangeDownloader rangeDownloader;
+
+    private Executor taskExecutor;
+
+    private CsvImportService service;
+
+    @BeforeEach
+    public void setUp() {
+        properties.getStorage().getPrefetch().setStagingDir(stagingDir.toString());
+        InMemoryFileStorageService storage = new InMemoryFileStorageService();
+        storage.putObject(FILE_URL, "用户名,邮箱\nalice,alice@example.com\n".getBytes(StandardCharsets.UTF_8), "text/csv");
+
+        importFilePrefetcher = new ImportFilePrefetcher();
+        ReflectionTestUtils.setField(importFilePrefetcher, "properties", properties);
+        ReflectionTestUtils.setField(importFilePrefetcher, "fileStorageService", storage);
+        rangeDownloader = new ParallelRangeDownloader(properties.getStorage().getDownload(),
+            Executors.newSingleThreadExecutor());
+        ReflectionTestUtils.setField(importFilePrefetcher, "rangeDownloader", rangeDownloader);
+        importFilePrefetcher.init();
+
+        StageExecutor stageExecutor = new StageExecutor();
+        ReflectionTestUtils.setField(stageExecutor, "importTaskExecutor", (Executor) command -> taskExecutor.execute(command));
+        TaskLaneScheduler laneScheduler = new TaskLaneScheduler();
+        ReflectionTestUtils.setField(laneScheduler, "properties", properties);
+        ReflectionTestUtils.setField(laneScheduler, "fileStorageService", storage);
+        ReflectionTestUtils.setField(laneScheduler, "stageExecutor", stageExecutor);
+        laneScheduler.init();
+
+        ReflectionTestUtils.setField(concurrencyLimiter, "properties", properties);
+
+        ImportTaskHistoryMapper mapper = MapperStub.of(ImportTaskHistoryMapper.class, ImportTaskHistory.class,
+            (method, args) -> {
+                switch (method) {
+                    case "insert":
+                        ((ImportTaskHistory) args[0]).setId(1L);
+                        return 1;
+                    case "update":
+                        statuses.add(((ImportTaskHistory) args[0]).getTaskStatus());
+                        return 1;
+                    default:
+                        throw new UnsupportedOperationException(method);
+                }
+            });
+
+        service = new CsvImportService();
+        ReflectionTestUtils.setField(service, "importTaskHistoryMapper", mapper);
+        ReflectionTestUtils.setField(service, "taskCompletionRegistry", taskCompletionRegistry);
+        ReflectionTestUtils.setField(service, "concurrencyLimiter", concurrencyLimiter);
+        ReflectionTestUtils.setField(service, "runningTaskRegistry", new RunningTaskRegistry());
+        ReflectionTestUtils.setField(service, "laneScheduler", laneScheduler);
+        ReflectionTestUtils.setField(service, "importFilePrefetcher", importFilePrefetcher);
+        ReflectionTestUtils.setField(service, "properties", properties);
+    }
+
+    @AfterEach
+    public void tearDown() {
+        importFilePrefetcher.shutdown();
+        rangeDownloader.shutdown();
+    }
+
+    @Test
+    public void testLaneRejectionReleasesPrefetchedFile() throws Exception {
+        taskExecutor = command -> {
+            throw new RejectedExecutionException("导入线程池已满");
+        };
+
+        TaskSubmission<ImportResult> submission = service.submitImport(FILE_URL, processor, "alice");
+
+        assertRejected(submission, "导入线程池已满");
+    }
+
+    @Test
+    public void testConcurrencyLimitRejectionReleasesPrefetchedFile() throws Exception {
+        properties.getExecutor().setDefaultBusinessTypeConcurrency(1);
+        properties.getExecutor().setRejectionPolicy(ImExportProperties.RejectionPolicy.FAILED);
+        taskExecutor = Runnable::run;
+        List<TaskSubmission<ImportResult>> submissions = new ArrayList<>();
+
+        // 同一业务类型的唯一许可被占用时提交，任务在业务类型并发限制处被拒绝
+        concurrencyLimiter.execute(processor.getBusinessType(),
+            () -> submissions.add(service.submitImport(FILE_URL, processor, "alice")),
+            reason -> {
+                throw new AssertionError(reason);
+            },
+            (work, onRejected) -> work.run());
+
+        assertRejected(submissions.get(0), "业务类型并发任务数已达上限");
+    }
+
+    /**
+     * 任务以失败结束，排队期间预取的文件被删除、预留空间被释放
+     */
+    private void assertRejected(TaskSubmission<ImportResult> submission, String reason) throws Exception {
+        ExecutionException e = assertThrows(ExecutionException.class, () -> submission.getResult().get());
+        assertTrue(e.getCause().getMessage().contains(reason), e.getCause().getMessage());
+        assertEquals("FAILED", statuses.get(statuses.size() - 1));
+
+        Map<String, Long> stats = importFilePrefetcher.snapshot();
+        assertEquals(0L, stats.get("stagedFiles").longValue());
+        assertEquals(0L, stats.get("reservedBytes").longValue());
+        // 下载中的暂存文件在下载结束后删除
+        long deadline = System.currentTimeMillis() + 5000;
+        while (stagedFileCount() > 0 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        assertEquals(0, stagedFileCount());
+    }
+
+    private long stagedFileCount() throws IOException {
+        try (Stream<Path> files = Files.list(stagingDir)) {
+            return files.count();
+        }
+    }
+}
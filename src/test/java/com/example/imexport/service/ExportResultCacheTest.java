@@ -0,0 +1,120 @@
+package com.example.imexport.service;
+
+import com.baomidou.mybatisplus.core.conditions.AbstractWrapper;
+import com.example.imexport.config.ImExportProperties;
+import com.example.imexport.core.FileFormat;
+import com.example.imexport.mapper.ExportTaskHistoryMapper;
+import com.example.imexport.model.ExportTaskHistory;
+import com.example.imexport.util.ExportParamsUtils;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * 导出结果缓存测试
+ */
+public class ExportResultCacheTest {
+
+    private final ImExportProperties properties = new ImExportProperties();
+
+    private final AtomicInteger lookups = new AtomicInteger();
+
+    private final AtomicReference<AbstractWrapper<?, ?, ?>> lastQuery = new AtomicReference<>();
+
+    private ExportTaskHistory storedTask;
+
+    private ExportResultCache cache;
+
+    @BeforeEach
+    public void setUp() {
+        ExportTaskHistoryMapper mapper = MapperStub.of(ExportTaskHistoryMapper.class, ExportTaskHistory.class,
+            (method, args) -> {
+                if (!"selectOne".equals(method)) {
+                    throw new UnsupportedOperationException(method);
+                }
+                lookups.incrementAndGet();
+                lastQuery.set((AbstractWrapper<?, ?, ?>) args[0]);
+                return storedTask;
+            });
+        cache = new ExportResultCache();
+        ReflectionTestUtils.setField(cache, "properties", properties);
+        ReflectionTestUtils.setField(cache, "exportTaskHistoryMapper", mapper);
+    }
+
+    @Test
+    public void testParamsHashCanonicalAndColumnSensitive() {
+        Map<String, Object> params = new LinkedHashMap<>();
+        params.put("status", 1);
+        params.put("dept", "技术部");
+        Map<String, Object> reordered = new LinkedHashMap<>();
+        reordered.put("dept", "技术部");
+        reordered.put("status", 1);
+        String canonical = ExportParamsUtils.toCanonicalJson(params);
+
+        String hash = cache.computeParamsHash(FileFormat.CSV, canonical);
+        assertEquals(hash, cache.computeParamsHash(FileFormat.CSV, ExportParamsUtils.toCanonicalJson(reordered)));
+        assertEquals(hash, cache.computeParamsHash(FileFormat.CSV, canonical, null));
+        assertEquals(hash, cache.computeParamsHash(FileFormat.CSV, canonical, Collections.emptyList()));
+        assertNotEquals(hash, cache.computeParamsHash(FileFormat.EXCEL, canonical));
+
+        String projected = cache.computeParamsHash(FileFormat.CSV, canonical, Arrays.asList("username", "email"));
+        assertNotEquals(hash, projected);
+        assertNotEquals(projected, cache.computeParamsHash(FileFormat.CSV, canonical, Arrays.asList("email", "username")));
+    }
+
+    @Test
+    public void testLookupMatchesSuccessWithinTtl() {
+        storedTask = new ExportTaskHistory();
+        storedTask.setId(42L);
+        properties.getExport().getCache().getTtl().put("USER_EXPORT", Duration.ofMinutes(30));
+
+        LocalDateTime before = LocalDateTime.now();
+        assertSame(storedTask, cache.lookup("USER_EXPORT", "hash-1"));
+
+        AbstractWrapper<?, ?, ?> query = lastQuery.get();
+        String sql = query.getSqlSegment();
+        assertTrue(sql.contains("business_type"), sql);
+        assertTrue(sql.contains("params_hash"), sql);
+        assertTrue(sql.contains("task_status"), sql);
+        assertTrue(sql.contains("updated_time >="), sql);
+        assertTrue(query.getParamNameValuePairs().values().containsAll(Arrays.asList("USER_EXPORT", "hash-1", "SUCCESS")));
+
+        // 按业务类型配置的有效期计算最早可复用的更新时间
+        LocalDateTime since = (LocalDateTime) query.getParamNameValuePairs().values().stream()
+            .filter(LocalDateTime.class::isInstance).findFirst().orElseThrow(AssertionError::new);
+        assertTrue(!since.isBefore(before.minusMinutes(30)) && !since.isAfter(LocalDateTime.now().minusMinutes(30)));
+
+        // 未命中
+        storedTask = null;
+        assertNull(cache.lookup("USER_EXPORT", "hash-2"));
+        assertEquals(2, lookups.get());
+    }
+
+    @Test
+    public void testZeroTtlOrDisabledSkipsLookup() {
+        storedTask = new ExportTaskHistory();
+        properties.getExport().getCache().getTtl().put("NO_CACHE", Duration.ZERO);
+
+        assertNull(cache.lookup("NO_CACHE", "hash-1"));
+        assertEquals(0, lookups.get());
+
+        properties.getExport().getCache().setEnabled(false);
+        assertNull(cache.lookup("USER_EXPORT", "hash-1"));
+        assertEquals(0, lookups.get());
+    }
+}
@@ -0,0 +1,135 @@
+package com.example.imexport.service;
+
+import com.example.imexport.core.TaskType;
+import com.example.imexport.mapper.ExportTaskHistoryMapper;
+import com.example.imexport.model.ExportResult;
+import com.example.imexport.model.ExportTaskHistory;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * 导出任务生命周期测试
+ * 任务记录以 Mapper 桩记录：每次条件更新按顺序返回预设的更新行数，并记录写入的实体
+ */
+public class ExportTaskLifecycleTest {
+
+    private static final Long TASK_ID = 1L;
+
+    private final Deque<Integer> updateResults = new ArrayDeque<>();
+
+    private final List<ExportTaskHistory> updates = new ArrayList<>();
+
+    private final TaskCompletionRegistry taskCompletionRegistry = new TaskCompletionRegistry();
+
+    private final RunningTaskRegistry runningTaskRegistry = new RunningTaskRegistry();
+
+    private ExportTaskLifecycle lifecycle;
+
+    @BeforeEach
+    public void setUp() {
+        ExportTaskHistoryMapper mapper = MapperStub.of(ExportTaskHistoryMapper.class, ExportTaskHistory.class,
+            (method, args) -> {
+                if (!"update".equals(method)) {
+                    throw new UnsupportedOperationException(method);
+                }
+                updates.add((ExportTaskHistory) args[0]);
+                return updateResults.isEmpty() ? 1 : updateResults.poll();
+            });
+
+        TaskCancellationService taskCancellationService = new TaskCancellationService();
+        ReflectionTestUtils.setField(taskCancellationService, "exportTaskHistoryMapper", mapper);
+        ReflectionTestUtils.setField(taskCancellationService, "runningTaskRegistry", runningTaskRegistry);
+        ReflectionTestUtils.setField(taskCancellationService, "taskCompletionRegistry", taskCompletionRegistry);
+
+        lifecycle = new ExportTaskLifecycle();
+        ReflectionTestUtils.setField(lifecycle, "exportTaskHistoryMapper", mapper);
+        ReflectionTestUtils.setField(lifecycle, "taskCompletionRegistry", taskCompletionRegistry);
+        ReflectionTestUtils.setField(lifecycle, "taskCancellationService", taskCancellationService);
+        ReflectionTestUtils.setField(lifecycle, "runningTaskRegistry", runningTaskRegistry);
+    }
+
+    @Test
+    public void testSuccessfulExportCompletesWithEntryStats() throws Exception {
+        CompletableFuture<ExportResult> future = taskCompletionRegistry.watchExport(TASK_ID);
+        Map<String, Integer> entryRows = new LinkedHashMap<>();
+        entryRows.put("users.csv", 5);
+        entryRows.put("admins.csv", 3);
+
+        lifecycle.run(TASK_ID, "打包导出", token -> {
+            assertSame(token, runningTaskRegistry.getToken(TaskType.EXPORT, TASK_ID));
+            ExportResult result = new ExportResult();
+            result.setFileUrl("https://oss/bundle.zip");
+            result.setTotalRows(8);
+            result.setEntryRows(entryRows);
+            return result;
+        });
+
+        assertEquals(TASK_ID, future.get().getTaskId());
+        // 先更新为执行中（只设置条件更新的列），再更新为成功；各文件行数按写入顺序保存
+        assertNull(updates.get(0));
+        assertEquals("SUCCESS", updates.get(1).getTaskStatus());
+        assertEquals("{\"users.csv\":5,\"admins.csv\":3}", updates.get(1).getEntryStats());
+        assertNull(runningTaskRegistry.getToken(TaskType.EXPORT, TASK_ID));
+    }
+
+    @Test
+    public void testCancelledWhileQueuedSkipsExport() {
+        CompletableFuture<ExportResult> future = taskCompletionRegistry.watchExport(TASK_ID);
+        AtomicInteger exported = new AtomicInteger();
+        // 更新为执行中时任务已不是 PENDING
+        updateResults.add(0);
+
+        lifecycle.run(TASK_ID, "CSV导出", token -> {
+            exported.incrementAndGet();
+            return new ExportResult();
+        });
+
+        assertEquals(0, exported.get());
+        assertTrue(future.isCancelled());
+        assertNull(runningTaskRegistry.getToken(TaskType.EXPORT, TASK_ID));
+    }
+
+    @Test
+    public void testFailureAfterTaskEndedIsNotNotified() {
+        CompletableFuture<ExportResult> future = taskCompletionRegistry.watchExport(TASK_ID);
+        // 执行中被巡检标记为失败：更新为失败时任务状态已变更
+        updateResults.add(1);
+        updateResults.add(0);
+
+        RuntimeException e = assertThrows(RuntimeException.class, () -> lifecycle.run(TASK_ID, "导出", token -> {
+            throw new IllegalStateException("查询超时");
+        }));
+
+        assertEquals("导出任务失败", e.getMessage());
+        assertEquals("FAILED", updates.get(1).getTaskStatus());
+        assertFalse(future.isDone());
+        assertNull(runningTaskRegistry.getToken(TaskType.EXPORT, TASK_ID));
+    }
+
+    @Test
+    public void testFailureNotifiesWaiters() {
+        CompletableFuture<ExportResult> future = taskCompletionRegistry.watchExport(TASK_ID);
+
+        lifecycle.markFailed(TASK_ID, "业务类型并发任务数已达上限: USER_EXPORT");
+
+        assertTrue(future.isCompletedExceptionally());
+        assertEquals("业务类型并发任务数已达上限: USER_EXPORT", updates.get(0).getErrorMessage());
+    }
+}
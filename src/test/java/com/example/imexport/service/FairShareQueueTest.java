@@ -0,0 +1,57 @@
+package com.example.imexport.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+/**
+ * 加权公平排队测试
+ */
+public class FairShareQueueTest {
+
+    @Test
+    public void testBurstDoesNotDelayOtherAccounts() {
+        FairShareQueue<String> queue = new FairShareQueue<>();
+        for (int i = 1; i <= 100; i++) {
+            queue.add("integration", 1, "integration-" + i);
+        }
+        queue.poll(account -> true);
+        queue.add("alice", 1, "alice-1");
+
+        // 后到的提交人不需要等待突发提交的 99 个任务，下一个空闲并发即可执行
+        List<String> order = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            order.add(queue.poll(account -> true));
+        }
+        assertEquals("alice-1", order.get(0));
+        assertEquals(97, queue.size("integration"));
+        assertEquals(0, queue.size("alice"));
+    }
+
+    @Test
+    public void testWeightedShareAndEligibility() {
+        FairShareQueue<String> queue = new FairShareQueue<>();
+        for (int i = 1; i <= 6; i++) {
+            queue.add("report", 2, "report-" + i);
+            queue.add("bob", 1, "bob-" + i);
+        }
+
+        // 权重 2 的提交人获得两倍出队机会
+        int reportCount = 0;
+        for (int i = 0; i < 6; i++) {
+            if (queue.poll(account -> true).startsWith("report")) {
+                reportCount++;
+            }
+        }
+        assertEquals(4, reportCount);
+
+        // 不可出队的提交人被跳过
+        assertEquals("bob-3", queue.poll(account -> !"report".equals(account)));
+        assertNull(queue.poll(account -> false));
+        assertEquals(5, queue.size());
+    }
+}
@@ -0,0 +1,163 @@
+package com.example.imexport.service;
+
+import com.example.imexport.config.ImExportProperties;
+import com.example.imexport.core.CsvExportProvider;
+import com.example.imexport.core.CsvRowProcessor;
+import com.example.imexport.core.ExportQuery;
+import com.example.imexport.example.UserCsvModel;
+import com.example.imexport.example.UserCsvTemplateProvider;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.DefaultApplicationArguments;
+import org.springframework.context.support.GenericApplicationContext;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * 启动预热测试
+ */
+public class ImExportWarmupRunnerTest {
+
+    private final ImExportProperties properties = new ImExportProperties();
+
+    private final GenericApplicationContext context = new GenericApplicationContext();
+
+    private final CountingProcessor processor = new CountingProcessor();
+
+    private final AtomicInteger brokenHeaderCalls = new AtomicInteger();
+
+    private TemplateArtifactCache templateArtifactCache;
+
+    private ImExportWarmupRunner runner;
+
+    @BeforeEach
+    public void setUp() {
+        properties.getWarmup().setSyntheticRows(5);
+        context.registerBean("countingProcessor", CountingProcessor.class, () -> processor);
+        context.registerBean("queryGuardProvider", QueryGuardProvider.class, QueryGuardProvider::new);
+        context.registerBean("brokenProvider", QueryGuardProvider.class, () -> new QueryGuardProvider() {
+
+            @Override
+            public String[] getCsvHeaders() {
+                brokenHeaderCalls.incrementAndGet();
+                throw new IllegalStateException("表头定义错误");
+            }
+        });
+        context.registerBean("userCsvTemplateProvider", UserCsvTemplateProvider.class, UserCsvTemplateProvider::new);
+        context.refresh();
+
+        templateArtifactCache = new TemplateArtifactCache();
+        CsvTemplateService csvTemplateService = new CsvTemplateService();
+        ReflectionTestUtils.setField(csvTemplateService, "templateArtifactCache", templateArtifactCache);
+
+        runner = new ImExportWarmupRunner();
+        ReflectionTestUtils.setField(runner, "applicationContext", context);
+        ReflectionTestUtils.setField(runner, "properties", properties);
+        ReflectionTestUtils.setField(runner, "csvTemplateService", csvTemplateService);
+    }
+
+    @AfterEach
+    public void tearDown() {
+        context.close();
+    }
+
+    @Test
+    public void testWarmsAllBeansWithSyntheticRowsOnly() {
+        runner.run(new DefaultApplicationArguments());
+
+        // 合成数据经 CSV 序列化、解析后逐行校验，不写入业务数据
+        assertEquals(5, processor.validated.get());
+        assertEquals(0, processor.processed.get());
+        // 单个 bean 预热失败不影响其他 bean；导出预热不查询业务数据（QueryGuardProvider 被查询时直接失败）
+        assertEquals(1, brokenHeaderCalls.get());
+        // 模板内容已生成并缓存
+        assertEquals(1, getArtifacts().size());
+    }
+
+    @Test
+    public void testDisabledWarmupDoesNothing() {
+        properties.getWarmup().setEnabled(false);
+
+        runner.run(new DefaultApplicationArguments());
+
+        assertEquals(0, processor.validated.get());
+        assertEquals(0, brokenHeaderCalls.get());
+        assertEquals(0, getArtifacts().size());
+    }
+
+    private Map<?, ?> getArtifacts() {
+        return (Map<?, ?>) ReflectionTestUtils.getField(templateArtifactCache, "artifacts");
+    }
+
+    private static class CountingProcessor implements CsvRowProcessor<UserCsvModel> {
+
+        private final AtomicInteger validated = new AtomicInteger();
+        private final AtomicInteger processed = new AtomicInteger();
+
+        @Override
+        public String validateRow(UserCsvModel rowData, int rowIndex) {
+            validated.incrementAndGet();
+            return null;
+        }
+
+        @Override
+        public void processValidRows(List<UserCsvModel> validRows) {
+            processed.addAndGet(validRows.size());
+        }
+
+        @Override
+        public String getBusinessType() {
+            return "WARMUP_IMPORT";
+        }
+
+        @Override
+        public Class<UserCsvModel> getCsvModelClass() {
+            return UserCsvModel.class;
+        }
+
+        @Override
+        public String[] getCsvHeaders() {
+            return new String[]{"用户名", "邮箱", "手机号", "年龄", "部门"};
+        }
+    }
+
+    private static class QueryGuardProvider implements CsvExportProvider<UserCsvModel> {
+
+        @Override
+        public List<UserCsvModel> queryExportData(Object params) {
+            throw new AssertionError("预热不应查询业务数据");
+        }
+
+        @Override
+        public void streamExportData(ExportQuery query, Consumer<List<UserCsvModel>> batchConsumer) {
+            throw new AssertionError("预热不应查询业务数据");
+        }
+
+        @Override
+        public String getBusinessType() {
+            return "WARMUP_EXPORT";
+        }
+
+        @Override
+        public Class<UserCsvModel> getCsvModelClass() {
+            return UserCsvModel.class;
+        }
+
+        @Override
+        public String getExportFileName() {
+            return "warmup_export";
+        }
+
+        @Override
+        public String[] getCsvHeaders() {
+            return new String[]{"用户名", "邮箱", "手机号", "年龄", "部门"};
+        }
+    }
+}
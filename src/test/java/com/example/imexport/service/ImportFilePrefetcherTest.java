@@ -0,0 +1,194 @@
+package com.example.imexport.service;
+
+import com.example.imexport.config.ImExportProperties;
+import com.example.imexport.storage.FileStorageService;
+import com.example.imexport.storage.ObjectMetadata;
+import com.example.imexport.storage.ParallelRangeDownloader;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.util.StreamUtils;
+import org.springframework.util.unit.DataSize;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * 导入文件预取测试
+ */
+public class ImportFilePrefetcherTest {
+
+    private static final String CONTENT = "id,name\n1,alice\n";
+
+    @TempDir
+    Path stagingDir;
+
+    private final AtomicInteger downloads = new AtomicInteger();
+
+    private ImportFilePrefetcher prefetcher;
+
+    private ParallelRangeDownloader rangeDownloader;
+
+    private ImportFilePrefetcher newPrefetcher(DataSize maxTotalSize) {
+        return newPrefetcher(maxTotalSize, Duration.ofMinutes(30));
+    }
+
+    private ImportFilePrefetcher newPrefetcher(DataSize maxTotalSize, Duration maxStagedAge) {
+        ImExportProperties properties = new ImExportProperties();
+        properties.getStorage().getPrefetch().setStagingDir(stagingDir.toString());
+        properties.getStorage().getPrefetch().setMaxTotalSize(maxTotalSize);
+        properties.getStorage().getPrefetch().setMaxStagedAge(maxStagedAge);
+
+        prefetcher = new ImportFilePrefetcher();
+        ReflectionTestUtils.setField(prefetcher, "properties", properties);
+        ReflectionTestUtils.setField(prefetcher, "fileStorageService", new StubStorage());
+        rangeDownloader = new ParallelRangeDownloader(properties.getStorage().getDownload(),
+            Executors.newSingleThreadExecutor());
+        ReflectionTestUtils.setField(prefetcher, "rangeDownloader", rangeDownloader);
+        prefetcher.init();
+        return prefetcher;
+    }
+
+    @AfterEach
+    public void tearDown() {
+        if (prefetcher != null) {
+            prefetcher.shutdown();
+            rangeDownloader.shutdown();
+        }
+    }
+
+    @Test
+    public void testPrefetchedFileReadFromLocalDisk() throws Exception {
+        ImportFilePrefetcher prefetcher = newPrefetcher(DataSize.ofMegabytes(1));
+        prefetcher.prefetch(1L, "https://oss/import.csv");
+        // 等待预取开始（尚未开始的预取会在任务开始时被取消）
+        Path stagedFile = awaitStaged(1L);
+
+        try (InputStream inputStream = prefetcher.open(1L, "https://oss/import.csv")) {
+            assertEquals(CONTENT, StreamUtils.copyToString(inputStream, StandardCharsets.UTF_8));
+        }
+        assertEquals(1, downloads.get());
+        Map<String, Long> stats = prefetcher.snapshot();
+        assertEquals(1L, stats.get("hits").longValue());
+        assertEquals((long) CONTENT.length(), stats.get("reservedBytes").longValue());
+
+        // 任务结束后删除暂存文件并释放空间
+        prefetcher.release(1L);
+        assertFalse(Files.exists(stagedFile));
+        assertEquals(0L, prefetcher.snapshot().get("reservedBytes").longValue());
+    }
+
+    @Test
+    public void testSkipWhenBudgetExceeded() throws IOException {
+        ImportFilePrefetcher prefetcher = newPrefetcher(DataSize.ofBytes(CONTENT.length() + 1));
+        prefetcher.prefetch(1L, "https://oss/first.csv");
+        prefetcher.prefetch(2L, "https://oss/second.csv");
+        assertEquals(1L, prefetcher.snapshot().get("skipped").longValue());
+
+        // 未预取的任务直接从存储下载
+        try (InputStream inputStream = prefetcher.open(2L, "https://oss/second.csv")) {
+            assertEquals(CONTENT, StreamUtils.copyToString(inputStream, StandardCharsets.UTF_8));
+        }
+        assertEquals(1L, prefetcher.snapshot().get("misses").longValue());
+    }
+
+    @Test
+    public void testOpenedFileNotEvicted() throws Exception {
+        ImportFilePrefetcher prefetcher = newPrefetcher(DataSize.ofBytes(CONTENT.length()), Duration.ZERO);
+        prefetcher.prefetch(1L, "https://oss/first.csv");
+        Path stagedFile = awaitStaged(1L);
+
+        try (InputStream inputStream = prefetcher.open(1L, "https://oss/first.csv")) {
+            Thread.sleep(5);
+            // 空间不足且暂存文件已超过最长保留时长，但已被执行中的任务打开
+            prefetcher.prefetch(2L, "https://oss/second.csv");
+            assertTrue(Files.exists(stagedFile));
+            assertEquals(CONTENT, StreamUtils.copyToString(inputStream, StandardCharsets.UTF_8));
+        }
+        Map<String, Long> stats = prefetcher.snapshot();
+        assertEquals(0L, stats.get("evicted").longValue());
+        assertEquals(1L, stats.get("skipped").longValue());
+        assertEquals(1L, stats.get("hits").longValue());
+
+        // 任务结束释放空间后可以预取下一个文件
+        prefetcher.release(1L);
+        prefetcher.prefetch(2L, "https://oss/second.csv");
+        assertEquals((long) CONTENT.length(), prefetcher.snapshot().get("reservedBytes").longValue());
+    }
+
+    @Test
+    public void testExpiredUnopenedFileEvicted() throws Exception {
+        ImportFilePrefetcher prefetcher = newPrefetcher(DataSize.ofBytes(CONTENT.length()), Duration.ZERO);
+        prefetcher.prefetch(1L, "https://oss/first.csv");
+        Path stagedFile = awaitStaged(1L);
+        Thread.sleep(5);
+
+        // 排队期间被取消、未打开的任务的暂存文件让出空间
+        prefetcher.prefetch(2L, "https://oss/second.csv");
+        assertFalse(Files.exists(stagedFile));
+        assertEquals(1L, prefetcher.snapshot().get("evicted").longValue());
+        assertEquals(0L, prefetcher.snapshot().get("skipped").longValue());
+
+        // 被淘汰的任务开始执行时直接从存储下载
+        try (InputStream inputStream = prefetcher.open(1L, "https://oss/first.csv")) {
+            assertEquals(CONTENT, StreamUtils.copyToString(inputStream, StandardCharsets.UTF_8));
+        }
+        assertEquals(1L, prefetcher.snapshot().get("misses").longValue());
+    }
+
+    /**
+     * 等待预取下载完成（尚未开始的预取会在任务开始时被取消）
+     */
+    @SuppressWarnings("unchecked")
+    private Path awaitStaged(Long taskId) throws InterruptedException {
+        Map<Long, Object> stagedFiles = (Map<Long, Object>) ReflectionTestUtils.getField(prefetcher, "stagedFiles");
+        for (int i = 0; i < 200; i++) {
+            Object file = stagedFiles.get(taskId);
+            if (file != null && ((CompletableFuture<?>) ReflectionTestUtils.getField(file, "downloaded")).isDone()) {
+                break;
+            }
+            Thread.sleep(10);
+        }
+        return stagingDir.resolve(taskId + ".staged");
+    }
+
+    private class StubStorage implements FileStorageService {
+
+        @Override
+        public String uploadFile(InputStream inputStream, String fileName, String contentType) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public InputStream downloadFile(String fileUrl) {
+            downloads.incrementAndGet();
+            return new ByteArrayInputStream(CONTENT.getBytes(StandardCharsets.UTF_8));
+        }
+
+        @Override
+        public ObjectMetadata getObjectMetadata(String fileUrl) {
+            ObjectMetadata metadata = new ObjectMetadata();
+            metadata.setContentLength(CONTENT.length());
+            return metadata;
+        }
+
+        @Override
+        public String generatePresignedUrl(String fileUrl, long expirationSeconds) {
+            throw new UnsupportedOperationException();
+        }
+    }
+}
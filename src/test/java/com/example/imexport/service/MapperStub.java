@@ -0,0 +1,50 @@
+package com.example.imexport.service;
+
+import com.baomidou.mybatisplus.core.MybatisConfiguration;
+import com.baomidou.mybatisplus.core.metadata.TableInfoHelper;
+import org.apache.ibatis.builder.MapperBuilderAssistant;
+
+import java.lang.reflect.Proxy;
+
+/**
+ * 基于动态代理的 Mapper 桩
+ * 按方法名分派到测试提供的处理函数；同时初始化实体的表信息，使 Lambda 条件构造器无需数据库即可解析列名与生成 SQL 片段
+ */
+final class MapperStub {
+
+    /**
+     * Mapper 方法处理函数
+     */
+    interface Handler {
+
+        /**
+         * @param method 方法名
+         * @param args 参数
+         * @return 返回值
+         */
+        Object invoke(String method, Object[] args);
+    }
+
+    private MapperStub() {
+    }
+
+    static <M> M of(Class<M> mapperType, Class<?> entityType, Handler handler) {
+        if (TableInfoHelper.getTableInfo(entityType) == null) {
+            TableInfoHelper.initTableInfo(new MapperBuilderAssistant(new MybatisConfiguration(), ""), entityType);
+        }
+        return mapperType.cast(Proxy.newProxyInstance(mapperType.getClassLoader(), new Class<?>[]{mapperType},
+            (proxy, method, args) -> {
+                if (method.getDeclaringClass() == Object.class) {
+                    switch (method.getName()) {
+                        case "equals":
+                            return proxy == args[0];
+                        case "hashCode":
+                            return System.identityHashCode(proxy);
+                        default:
+                            return mapperType.getSimpleName() + "Stub";
+                    }
+                }
+                return handler.invoke(method.getName(), args != null ? args : new Object[0]);
+            }));
+    }
+}
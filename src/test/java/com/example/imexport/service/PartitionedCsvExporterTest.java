@@ -0,0 +1,241 @@
+package com.example.imexport.service;
+
+import com.example.imexport.config.ImExportProperties;
+import com.example.imexport.core.CancellationToken;
+import com.example.imexport.core.CsvExportProvider;
+import com.example.imexport.core.PartitionedExportProvider;
+import com.example.imexport.core.TaskCancelledException;
+import com.example.imexport.example.UserCsvModel;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.ByteArrayOutputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTimeoutPreemptively;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * CSV 分区并行导出测试
+ */
+public class PartitionedCsvExporterTest {
+
+    @TempDir
+    Path tempDir;
+
+    private PartitionedCsvExporter exporter;
+
+    @BeforeEach
+    public void setUp() {
+        exporter = new PartitionedCsvExporter();
+        ReflectionTestUtils.setField(exporter, "properties", new ImExportProperties());
+        exporter.init();
+    }
+
+    @AfterEach
+    public void tearDown() {
+        exporter.shutdown();
+    }
+
+    @Test
+    public void testPartitionsMergedInOrder() {
+        ByteArrayOutputStream target = new ByteArrayOutputStream();
+        int rows = exporter.export(new RangeUserProvider(), 10, target);
+        assertEquals(100, rows);
+
+        String[] lines = new String(target.toByteArray(), StandardCharsets.UTF_8).split("\n");
+        assertEquals(101, lines.length);
+        assertEquals("\"用户名\",\"邮箱\"", lines[0]);
+        for (int i = 0; i < 100; i++) {
+            assertEquals("\"user" + i + "\",\"" + i + "\"", lines[i + 1]);
+        }
+    }
+
+    @Test
+    public void testCancelledExportStopsWithoutOutput() {
+        CancellationToken token = new CancellationToken();
+        token.cancel();
+        ByteArrayOutputStream target = new ByteArrayOutputStream();
+
+        assertThrows(TaskCancelledException.class,
+            () -> exporter.export(new RangeUserProvider(), 10, null, token, target));
+        assertEquals(0, target.size());
+    }
+
+    @Test
+    public void testFailedPartitionReturnsQueuedPermits() {
+        // 单线程池 + 并发上限 3：第一个分区执行时其余两个分区带着许可在队列中等待
+        ImExportProperties properties = new ImExportProperties();
+        properties.getExport().getPartition().setPoolSize(1);
+        properties.getExport().getPartition().getMaxParallelism().put("FAILING_TEST", 3);
+        PartitionedCsvExporter failingExporter = new PartitionedCsvExporter();
+        ReflectionTestUtils.setField(failingExporter, "properties", properties);
+        failingExporter.init();
+        try {
+            FailingProvider provider = new FailingProvider();
+            assertThrows(RuntimeException.class,
+                () -> failingExporter.export(provider, true, new ByteArrayOutputStream()));
+
+            // 已开始执行的分区被中断后自行归还许可，排队中被取消的分区由调用方归还；全部归还后移除该业务类型的许可
+            Map<String, ?> permits = getPermits(failingExporter);
+            long deadline = System.currentTimeMillis() + 2000;
+            while (!permits.isEmpty() && System.currentTimeMillis() < deadline) {
+                Thread.yield();
+            }
+            assertTrue(permits.isEmpty());
+
+            // 许可未泄漏时同一业务类型的后续导出能正常完成
+            int rows = assertTimeoutPreemptively(Duration.ofSeconds(5),
+                () -> failingExporter.export(provider, false, new ByteArrayOutputStream()));
+            assertEquals(3, rows);
+        } finally {
+            failingExporter.shutdown();
+        }
+    }
+
+    @Test
+    public void testMergeIntoFileAndDropIdlePermits() throws IOException {
+        Path file = tempDir.resolve("export.csv");
+        try (FileOutputStream target = new FileOutputStream(file.toFile())) {
+            target.write("#".getBytes(StandardCharsets.UTF_8));
+            assertEquals(100, exporter.export(new RangeUserProvider(), 10, target));
+            target.write("#".getBytes(StandardCharsets.UTF_8));
+        }
+
+        // 文件通道拷贝从输出流当前位置继续写入
+        String[] lines = new String(Files.readAllBytes(file), StandardCharsets.UTF_8).split("\n");
+        assertEquals(102, lines.length);
+        assertEquals("#\"用户名\",\"邮箱\"", lines[0]);
+        assertEquals("\"user99\",\"99\"", lines[100]);
+        assertEquals("#", lines[101]);
+        // 没有导出进行中的业务类型不保留许可
+        assertTrue(getPermits(exporter).isEmpty());
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Map<String, ?> getPermits(PartitionedCsvExporter exporter) {
+        return (Map<String, ?>) ReflectionTestUtils.getField(exporter, "businessTypePermits");
+    }
+
+    /**
+     * 三个分区，参数为 true 时第一个分区延迟后失败
+     */
+    private static class FailingProvider implements CsvExportProvider<UserCsvModel>,
+            PartitionedExportProvider<UserCsvModel> {
+
+        @Override
+        public List<Object> splitPartitions(Object params) {
+            List<Object> partitions = new ArrayList<>();
+            for (int i = 0; i < 3; i++) {
+                partitions.add(new Object[]{params, i});
+            }
+            return partitions;
+        }
+
+        @Override
+        public List<UserCsvModel> queryExportData(Object params) {
+            Object[] partition = (Object[]) params;
+            if ((Boolean) partition[0] && (Integer) partition[1] == 0) {
+                try {
+                    Thread.sleep(50);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                throw new IllegalStateException("分区查询失败");
+            }
+            UserCsvModel user = new UserCsvModel();
+            user.setUsername("user" + partition[1]);
+            return new ArrayList<>(Collections.singletonList(user));
+        }
+
+        @Override
+        public String getBusinessType() {
+            return "FAILING_TEST";
+        }
+
+        @Override
+        public Class<UserCsvModel> getCsvModelClass() {
+            return UserCsvModel.class;
+        }
+
+        @Override
+        public String getExportFileName() {
+            return "failing_test";
+        }
+
+        @Override
+        public String[] getCsvHeaders() {
+            return new String[]{"用户名", "邮箱"};
+        }
+    }
+
+    /**
+     * 按 10 行一个区间分区，分区内随机延迟以打乱完成顺序
+     */
+    private static class RangeUserProvider implements CsvExportProvider<UserCsvModel>,
+            PartitionedExportProvider<UserCsvModel> {
+
+        @Override
+        public List<Object> splitPartitions(Object params) {
+            List<Object> partitions = new ArrayList<>();
+            int partitionCount = (Integer) params;
+            for (int i = 0; i < partitionCount; i++) {
+                partitions.add(new int[]{i * 10, i * 10 + 10});
+            }
+            return partitions;
+        }
+
+        @Override
+        public List<UserCsvModel> queryExportData(Object params) {
+            int[] range = (int[]) params;
+            try {
+                Thread.sleep(ThreadLocalRandom.current().nextInt(20));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            List<UserCsvModel> users = new ArrayList<>();
+            for (int i = range[0]; i < range[1]; i++) {
+                UserCsvModel user = new UserCsvModel();
+                user.setUsername("user" + i);
+                user.setEmail(String.valueOf(i));
+                users.add(user);
+            }
+            return users;
+        }
+
+        @Override
+        public String getBusinessType() {
+            return "PARTITION_TEST";
+        }
+
+        @Override
+        public Class<UserCsvModel> getCsvModelClass() {
+            return UserCsvModel.class;
+        }
+
+        @Override
+        public String getExportFileName() {
+            return "partition_test";
+        }
+
+        @Override
+        public String[] getCsvHeaders() {
+            return new String[]{"用户名", "邮箱"};
+        }
+    }
+}
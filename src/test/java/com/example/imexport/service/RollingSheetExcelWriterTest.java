@@ -0,0 +1,101 @@
+package com.example.imexport.service;
+
+import com.alibaba.excel.EasyExcel;
+import com.alibaba.excel.ExcelReader;
+import com.alibaba.excel.read.metadata.ReadSheet;
+import com.example.imexport.example.UserImportModel;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Excel 自动分 Sheet 写入测试
+ */
+public class RollingSheetExcelWriterTest {
+
+    @Test
+    public void testRolloverToNewSheetAtRowLimit() {
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+
+        try (RollingSheetExcelWriter<UserImportModel> writer = new RollingSheetExcelWriter<>(
+                EasyExcel.write(outputStream, UserImportModel.class).build(), "USER_EXPORT", 10)) {
+            // 跨页、跨 Sheet 边界写入
+            writer.write(buildUsers(0, 7));
+            writer.write(buildUsers(7, 18));
+
+            assertEquals(25, writer.getTotalRows());
+            assertEquals(3, writer.getSheetCount());
+        }
+
+        ExcelReader reader = EasyExcel.read(new ByteArrayInputStream(outputStream.toByteArray())).build();
+        try {
+            List<ReadSheet> sheets = reader.excelExecutor().sheetList();
+            assertEquals(3, sheets.size());
+            assertEquals("USER_EXPORT", sheets.get(0).getSheetName());
+            assertEquals("USER_EXPORT_2", sheets.get(1).getSheetName());
+            assertEquals("USER_EXPORT_3", sheets.get(2).getSheetName());
+        } finally {
+            reader.finish();
+        }
+
+        List<UserImportModel> lastSheet = EasyExcel.read(new ByteArrayInputStream(outputStream.toByteArray()))
+            .head(UserImportModel.class).sheet(2).doReadSync();
+        assertEquals(5, lastSheet.size());
+        assertEquals("user20", lastSheet.get(0).getUsername());
+    }
+
+    @Test
+    public void testEmptyExportStillWritesHeaderSheet() {
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+
+        try (RollingSheetExcelWriter<UserImportModel> writer = new RollingSheetExcelWriter<>(
+                EasyExcel.write(outputStream, UserImportModel.class).build(), "USER_EXPORT", 10)) {
+            writer.write(new ArrayList<>());
+            assertEquals(0, writer.getTotalRows());
+            assertEquals(1, writer.getSheetCount());
+        }
+
+        List<UserImportModel> rows = EasyExcel.read(new ByteArrayInputStream(outputStream.toByteArray()))
+            .head(UserImportModel.class).sheet().doReadSync();
+        assertEquals(0, rows.size());
+    }
+
+    @Test
+    public void testProjectedColumnsOnEverySheet() {
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+
+        try (RollingSheetExcelWriter<UserImportModel> writer = new RollingSheetExcelWriter<>(
+                EasyExcel.write(outputStream, UserImportModel.class)
+                    .includeColumnFieldNames(Arrays.asList("email", "username"))
+                    .orderByIncludeColumn(true)
+                    .build(), "USER_EXPORT", 10)) {
+            writer.write(buildUsers(0, 15));
+        }
+
+        List<Map<Integer, String>> secondSheet = EasyExcel.read(new ByteArrayInputStream(outputStream.toByteArray()))
+            .headRowNumber(0).sheet(1).doReadSync();
+        assertEquals(6, secondSheet.size());
+        assertEquals(2, secondSheet.get(0).size());
+        assertEquals("邮箱", secondSheet.get(0).get(0));
+        assertEquals("用户名", secondSheet.get(0).get(1));
+        assertEquals("user10@example.com", secondSheet.get(1).get(0));
+    }
+
+    private List<UserImportModel> buildUsers(int from, int count) {
+        List<UserImportModel> users = new ArrayList<>();
+        for (int i = from; i < from + count; i++) {
+            UserImportModel user = new UserImportModel();
+            user.setUsername("user" + i);
+            user.setEmail("user" + i + "@example.com");
+            users.add(user);
+        }
+        return users;
+    }
+}
@@ -0,0 +1,110 @@
+package com.example.imexport.service;
+
+import com.example.imexport.config.ImExportProperties;
+import com.example.imexport.core.TaskCancelledException;
+import com.example.imexport.core.TaskType;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * 任务阶段执行器测试
+ */
+public class StageExecutorTest {
+
+    private final Executor importTaskExecutor = Runnable::run;
+
+    private final Executor exportTaskExecutor = Runnable::run;
+
+    private StageExecutor newStageExecutor(ImExportProperties.ExecutionMode mode, Executor cpuTaskExecutor) {
+        return newStageExecutor(mode, cpuTaskExecutor, null);
+    }
+
+    private StageExecutor newStageExecutor(ImExportProperties.ExecutionMode mode, Executor cpuTaskExecutor,
+                                           StageExecutor.VirtualExecutorFactory virtualExecutorFactory) {
+        ImExportProperties properties = new ImExportProperties();
+        properties.getExecutor().setMode(mode);
+        StageExecutor stageExecutor = new StageExecutor();
+        ReflectionTestUtils.setField(stageExecutor, "properties", properties);
+        ReflectionTestUtils.setField(stageExecutor, "importTaskExecutor", importTaskExecutor);
+        ReflectionTestUtils.setField(stageExecutor, "exportTaskExecutor", exportTaskExecutor);
+        ReflectionTestUtils.setField(stageExecutor, "cpuTaskExecutor", cpuTaskExecutor);
+        if (virtualExecutorFactory != null) {
+            ReflectionTestUtils.setField(stageExecutor, "virtualExecutorFactory", virtualExecutorFactory);
+        }
+        stageExecutor.init();
+        return stageExecutor;
+    }
+
+    @Test
+    public void testVirtualModeFallsBackWithoutVirtualThreads() {
+        // 模拟没有 Thread.ofVirtual 的运行时（JDK 21 以下）
+        StageExecutor stageExecutor = newStageExecutor(ImExportProperties.ExecutionMode.VIRTUAL, Runnable::run,
+            threadNamePrefix -> {
+                throw new NoSuchMethodException("java.lang.Thread.ofVirtual()");
+            });
+        try {
+            assertFalse(stageExecutor.isVirtual());
+            assertSame(importTaskExecutor, stageExecutor.taskExecutor(TaskType.IMPORT));
+            assertSame(exportTaskExecutor, stageExecutor.taskExecutor(TaskType.EXPORT));
+        } finally {
+            stageExecutor.shutdown();
+        }
+    }
+
+    @Test
+    public void testVirtualModeUsesCreatedExecutors() {
+        List<ExecutorService> created = new ArrayList<>();
+        StageExecutor stageExecutor = newStageExecutor(ImExportProperties.ExecutionMode.VIRTUAL, Runnable::run,
+            threadNamePrefix -> {
+                ExecutorService executor = Executors.newCachedThreadPool();
+                created.add(executor);
+                return executor;
+            });
+        try {
+            assertTrue(stageExecutor.isVirtual());
+            assertSame(created.get(0), stageExecutor.taskExecutor(TaskType.IMPORT));
+            assertSame(created.get(1), stageExecutor.taskExecutor(TaskType.EXPORT));
+        } finally {
+            stageExecutor.shutdown();
+        }
+        assertTrue(created.get(0).isShutdown());
+        assertTrue(created.get(1).isShutdown());
+    }
+
+    @Test
+    public void testCpuStageRunsOnCpuPoolInVirtualMode() {
+        ExecutorService cpuPool = Executors.newSingleThreadExecutor(runnable -> new Thread(runnable, "cpu-stage-test"));
+        ExecutorService taskThreads = Executors.newCachedThreadPool();
+        try {
+            StageExecutor stageExecutor = newStageExecutor(ImExportProperties.ExecutionMode.PLATFORM, cpuPool);
+            assertEquals(Thread.currentThread().getName(), stageExecutor.runCpuStage(() -> Thread.currentThread().getName()));
+
+            // 模拟虚拟线程模式：任务执行器替换为每任务一个线程
+            ReflectionTestUtils.setField(stageExecutor, "importVirtualExecutor", taskThreads);
+            ReflectionTestUtils.setField(stageExecutor, "exportVirtualExecutor", taskThreads);
+            assertTrue(stageExecutor.isVirtual());
+            assertSame(taskThreads, stageExecutor.taskExecutor(TaskType.IMPORT));
+            assertEquals("cpu-stage-test", stageExecutor.runCpuStage(() -> Thread.currentThread().getName()));
+
+            // 阶段中的运行时异常原样抛出，取消可以被任务线程识别
+            assertThrows(TaskCancelledException.class, () -> stageExecutor.runCpuStage(() -> {
+                throw new TaskCancelledException("任务已取消");
+            }));
+        } finally {
+            cpuPool.shutdownNow();
+            taskThreads.shutdownNow();
+        }
+    }
+}
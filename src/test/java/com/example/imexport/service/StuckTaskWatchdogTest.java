@@ -0,0 +1,258 @@
+package com.example.imexport.service;
+
+import com.baomidou.mybatisplus.core.conditions.update.LambdaUpdateWrapper;
+import com.example.imexport.config.ImExportProperties;
+import com.example.imexport.core.TaskType;
+import com.example.imexport.mapper.ExportTaskHistoryMapper;
+import com.example.imexport.mapper.ImportTaskHistoryMapper;
+import com.example.imexport.model.ExportTaskHistory;
+import com.example.imexport.model.ImportResult;
+import com.example.imexport.model.ImportTaskHistory;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * 卡死任务巡检测试
+ * 导入任务表以内存中的状态表模拟，条件更新按 SQL 中的目标状态、原状态与主键列表执行
+ */
+public class StuckTaskWatchdogTest {
+
+    private static final Pattern SET_STATUS = Pattern.compile("task_status=#\\{ew\\.paramNameValuePairs\\.(\\w+)}");
+
+    private static final Pattern WHERE_STATUS = Pattern.compile("task_status = #\\{ew\\.paramNameValuePairs\\.(\\w+)}");
+
+    private static final Pattern WHERE_IDS = Pattern.compile("id IN \\(([^)]*)\\)");
+
+    private static final Pattern WHERE_ID = Pattern.compile("\\(id = (#\\{ew\\.paramNameValuePairs\\.\\w+})");
+
+    private static final Pattern PARAM = Pattern.compile("#\\{ew\\.paramNameValuePairs\\.(\\w+)}");
+
+    private final ImExportProperties properties = new ImExportProperties();
+
+    private final RunningTaskRegistry runningTaskRegistry = new RunningTaskRegistry();
+
+    private final TaskCompletionRegistry taskCompletionRegistry = new TaskCompletionRegistry();
+
+    /**
+     * 心跳超时的导入任务：任务ID -> 状态（按主键顺序）
+     */
+    private final Map<Long, String> staleTasks = new LinkedHashMap<>();
+
+    /**
+     * 分布式队列模式下已达最大执行次数、不能重新排队的任务
+     */
+    private final List<Long> exhaustedTasks = new ArrayList<>();
+
+    private final List<String> selects = new ArrayList<>();
+
+    private final List<List<Long>> heartbeats = new ArrayList<>();
+
+    private final Map<Long, String> transitions = new HashMap<>();
+
+    /**
+     * 查询之后、更新之前恢复心跳的任务（不再满足超时条件）
+     */
+    private final List<Long> heartbeatAfterSelect = new ArrayList<>();
+
+    private final CountDownLatch selected = new CountDownLatch(1);
+
+    private StuckTaskWatchdog watchdog;
+
+    @BeforeEach
+    public void setUp() {
+        properties.getWatchdog().setBatchSize(2);
+        properties.getWatchdog().setMaxBatchesPerRun(3);
+
+        ImportTaskHistoryMapper importMapper = MapperStub.of(ImportTaskHistoryMapper.class, ImportTaskHistory.class,
+            (method, args) -> {
+                switch (method) {
+                    case "selectStaleTaskIds":
+                        return selectStale((String) args[0], (Integer) args[2]);
+                    case "update":
+                        return update((LambdaUpdateWrapper<?>) args[1]);
+                    default:
+                        throw new UnsupportedOperationException(method);
+                }
+            });
+        ExportTaskHistoryMapper exportMapper = MapperStub.of(ExportTaskHistoryMapper.class, ExportTaskHistory.class,
+            (method, args) -> {
+                if ("selectStaleTaskIds".equals(method)) {
+                    return Collections.emptyList();
+                }
+                throw new UnsupportedOperationException(method);
+            });
+
+        watchdog = new StuckTaskWatchdog();
+        ReflectionTestUtils.setField(watchdog, "properties", properties);
+        ReflectionTestUtils.setField(watchdog, "importTaskHistoryMapper", importMapper);
+        ReflectionTestUtils.setField(watchdog, "exportTaskHistoryMapper", exportMapper);
+        ReflectionTestUtils.setField(watchdog, "runningTaskRegistry", runningTaskRegistry);
+        ReflectionTestUtils.setField(watchdog, "taskCompletionRegistry", taskCompletionRegistry);
+    }
+
+    @AfterEach
+    public void tearDown() {
+        watchdog.shutdown();
+    }
+
+    @Test
+    public void testLocalModeFailsStalePendingAndHeartbeatsQueuedTasks() {
+        runningTaskRegistry.register(TaskType.IMPORT, 1L);
+        runningTaskRegistry.markQueued(TaskType.IMPORT, 2L);
+        staleTasks.put(3L, "PENDING");
+        staleTasks.put(4L, "PROCESSING");
+        staleTasks.put(5L, "CANCELLING");
+        CompletableFuture<ImportResult> pending = taskCompletionRegistry.watchImport(3L);
+
+        ReflectionTestUtils.invokeMethod(watchdog, "run");
+
+        // 本节点执行中与排队中的任务写入心跳，不会被判定为超时
+        assertEquals(Collections.singletonList(Arrays.asList(1L, 2L)), heartbeats);
+        assertEquals("FAILED", transitions.get(3L));
+        assertEquals("FAILED", transitions.get(4L));
+        assertEquals("CANCELLED", transitions.get(5L));
+        assertTrue(staleTasks.isEmpty());
+        ExecutionException e = assertThrows(ExecutionException.class, pending::get);
+        assertTrue(e.getCause().getMessage().contains("排队心跳超时"));
+    }
+
+    @Test
+    public void testDistributedModeRequeuesInBatchesAndLeavesPendingToWorkers() {
+        properties.getQueue().setMode(ImExportProperties.QueueMode.DISTRIBUTED);
+        for (long taskId = 1; taskId <= 7; taskId++) {
+            staleTasks.put(taskId, "PROCESSING");
+        }
+        staleTasks.put(8L, "PENDING");
+        exhaustedTasks.add(2L);
+
+        ReflectionTestUtils.invokeMethod(watchdog, "run");
+
+        // 每批 2 个，单次巡检最多 3 批，剩余任务留给下次巡检
+        assertEquals(Arrays.asList("PROCESSING:2", "CANCELLING:0", "PROCESSING:2", "CANCELLING:0",
+            "PROCESSING:2", "CANCELLING:0"), selects);
+        assertEquals("FAILED", transitions.get(2L));
+        for (long taskId : new long[]{1, 3, 4, 5, 6}) {
+            assertEquals("PENDING", transitions.get(taskId));
+        }
+        assertEquals("PROCESSING", staleTasks.get(7L));
+        // 分布式队列模式下 PENDING 任务由各节点领取，巡检不处理
+        assertEquals("PENDING", staleTasks.get(8L));
+        assertTrue(heartbeats.isEmpty());
+    }
+
+    @Test
+    public void testOnlyTerminatedTasksNotified() {
+        staleTasks.put(1L, "PROCESSING");
+        staleTasks.put(2L, "PROCESSING");
+        heartbeatAfterSelect.add(2L);
+        CompletableFuture<ImportResult> stale = taskCompletionRegistry.watchImport(1L);
+        CompletableFuture<ImportResult> recovered = taskCompletionRegistry.watchImport(2L);
+
+        ReflectionTestUtils.invokeMethod(watchdog, "run");
+
+        assertEquals("FAILED", transitions.get(1L));
+        assertFalse(transitions.containsKey(2L));
+        assertTrue(stale.isCompletedExceptionally());
+        // 查询后恢复心跳的任务未被更新，不能收到失败通知
+        assertFalse(recovered.isDone());
+    }
+
+    @Test
+    public void testStartupRecoveryRunsImmediately() throws InterruptedException {
+        properties.getWatchdog().setInterval(Duration.ofHours(1));
+        staleTasks.put(1L, "PROCESSING");
+
+        watchdog.init();
+
+        assertTrue(selected.await(5, TimeUnit.SECONDS));
+        long deadline = System.currentTimeMillis() + 5000;
+        while (!staleTasks.isEmpty() && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        synchronized (this) {
+            assertEquals("FAILED", transitions.get(1L));
+        }
+    }
+
+    @Test
+    public void testDisabledWatchdogDoesNotRun() throws InterruptedException {
+        properties.getWatchdog().setEnabled(false);
+        watchdog.init();
+        assertFalse(selected.await(200, TimeUnit.MILLISECONDS));
+    }
+
+    private synchronized List<Long> selectStale(String status, int limit) {
+        selected.countDown();
+        List<Long> ids = new ArrayList<>();
+        staleTasks.forEach((taskId, taskStatus) -> {
+            if (taskStatus.equals(status) && ids.size() < limit) {
+                ids.add(taskId);
+            }
+        });
+        selects.add(status + ":" + ids.size());
+        staleTasks.keySet().removeAll(heartbeatAfterSelect);
+        return ids;
+    }
+
+    /**
+     * 按条件更新：有目标状态时为状态迁移，否则为心跳；主键条件为 IN 列表或单个等值
+     */
+    private synchronized int update(LambdaUpdateWrapper<?> wrapper) {
+        Map<String, Object> params = wrapper.getParamNameValuePairs();
+        String where = wrapper.getSqlSegment();
+        List<Long> ids = new ArrayList<>();
+        Matcher idMatcher = WHERE_IDS.matcher(where);
+        if (!idMatcher.find()) {
+            idMatcher = WHERE_ID.matcher(where);
+            assertTrue(idMatcher.find(), where);
+        }
+        Matcher paramMatcher = PARAM.matcher(idMatcher.group(1));
+        while (paramMatcher.find()) {
+            ids.add((Long) params.get(paramMatcher.group(1)));
+        }
+
+        Matcher setStatus = SET_STATUS.matcher(wrapper.getSqlSet());
+        if (!setStatus.find()) {
+            heartbeats.add(ids);
+            return ids.size();
+        }
+        String toStatus = (String) params.get(setStatus.group(1));
+        Matcher whereStatus = WHERE_STATUS.matcher(where);
+        assertTrue(whereStatus.find(), where);
+        String fromStatus = (String) params.get(whereStatus.group(1));
+        boolean requeue = "PENDING".equals(toStatus);
+
+        int updated = 0;
+        for (Long taskId : ids) {
+            if (!fromStatus.equals(staleTasks.get(taskId)) || requeue && exhaustedTasks.contains(taskId)) {
+                continue;
+            }
+            staleTasks.remove(taskId);
+            transitions.put(taskId, toStatus);
+            updated++;
+        }
+        return updated;
+    }
+}
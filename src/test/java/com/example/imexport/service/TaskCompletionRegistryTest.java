@@ -0,0 +1,49 @@
+package com.example.imexport.service;
+
+import com.example.imexport.core.TaskType;
+import com.example.imexport.model.ExportResult;
+import com.example.imexport.model.ImportResult;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * 任务完成通知测试
+ */
+public class TaskCompletionRegistryTest {
+
+    @Test
+    public void testCompleteNotifiesWatcher() throws Exception {
+        TaskCompletionRegistry registry = new TaskCompletionRegistry();
+        CompletableFuture<ExportResult> future = registry.watchExport(1L);
+
+        ExportResult result = new ExportResult();
+        result.setTaskId(1L);
+        result.setFileUrl("https://oss/export.csv");
+        registry.completeExport(1L, result);
+
+        assertSame(result, future.get());
+        // 已完成的任务不再保留，重复通知不影响结果
+        registry.fail(TaskType.EXPORT, 1L, "ignored");
+        assertEquals("https://oss/export.csv", future.get().getFileUrl());
+    }
+
+    @Test
+    public void testFailCompletesExceptionallyPerTaskType() {
+        TaskCompletionRegistry registry = new TaskCompletionRegistry();
+        CompletableFuture<ImportResult> importFuture = registry.watchImport(7L);
+        CompletableFuture<ExportResult> exportFuture = registry.watchExport(7L);
+
+        registry.fail(TaskType.IMPORT, 7L, "业务类型并发任务数已达上限: USER_IMPORT");
+
+        ExecutionException e = assertThrows(ExecutionException.class, importFuture::get);
+        assertTrue(e.getCause().getMessage().contains("USER_IMPORT"));
+        assertTrue(!exportFuture.isDone());
+    }
+}
@@ -0,0 +1,128 @@
+package com.example.imexport.service;
+
+import com.example.imexport.config.ImExportProperties;
+import com.example.imexport.core.TaskLane;
+import com.example.imexport.core.TaskType;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * 任务执行模式基准（默认不执行）
+ * 在相同的通道并发下，分别以 PLATFORM 与 VIRTUAL 模式经 TaskLaneScheduler 执行一批模拟任务（阻塞 I/O + CPU 阶段），
+ * 输出每秒完成的任务数；运行时不支持虚拟线程时 VIRTUAL 模式回退到平台线程池，结果中会标明。
+ * 运行：mvn -B test -Dtest=TaskExecutionBenchmark -Dimexport.benchmark=true
+ * 可调参数：imexport.benchmark.tasks（任务数，默认 2000）、imexport.benchmark.slots（每个通道的并发数，默认 16）、
+ * imexport.benchmark.io-millis（每个任务的阻塞时长，默认 5）、imexport.benchmark.cpu-iterations（CPU 阶段循环次数，默认 200000）
+ */
+@EnabledIfSystemProperty(named = "imexport.benchmark", matches = "true")
+public class TaskExecutionBenchmark {
+
+    private static final Logger logger = LoggerFactory.getLogger(TaskExecutionBenchmark.class);
+
+    private final int tasks = Integer.getInteger("imexport.benchmark.tasks", 2000);
+
+    private final int slots = Integer.getInteger("imexport.benchmark.slots", 16);
+
+    private final long ioMillis = Long.getLong("imexport.benchmark.io-millis", 5L);
+
+    private final int cpuIterations = Integer.getInteger("imexport.benchmark.cpu-iterations", 200000);
+
+    private final AtomicLong blackhole = new AtomicLong();
+
+    @Test
+    public void testPlatformVersusVirtualThroughput() throws InterruptedException {
+        for (ImExportProperties.ExecutionMode mode : ImExportProperties.ExecutionMode.values()) {
+            // 预热：类加载与 JIT 编译不计入结果
+            run(mode, Math.max(1, tasks / 10));
+        }
+        for (ImExportProperties.ExecutionMode mode : ImExportProperties.ExecutionMode.values()) {
+            run(mode, tasks);
+        }
+    }
+
+    private void run(ImExportProperties.ExecutionMode mode, int taskCount) throws InterruptedException {
+        ImExportProperties properties = new ImExportProperties();
+        properties.getExecutor().setMode(mode);
+        properties.getScheduler().setFastLaneSlots(slots);
+        properties.getScheduler().setBulkLaneSlots(slots);
+        properties.getScheduler().setMaxQueuedPerLane(taskCount);
+        properties.getScheduler().setMaxQueuedPerAccount(taskCount);
+
+        // 平台线程池不小于两个通道的并发之和，并发上限只由通道决定
+        ExecutorService taskPool = Executors.newFixedThreadPool(slots * 2);
+        ExecutorService cpuPool = Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors());
+        StageExecutor stageExecutor = new StageExecutor();
+        ReflectionTestUtils.setField(stageExecutor, "properties", properties);
+        ReflectionTestUtils.setField(stageExecutor, "importTaskExecutor", taskPool);
+        ReflectionTestUtils.setField(stageExecutor, "exportTaskExecutor", taskPool);
+        ReflectionTestUtils.setField(stageExecutor, "cpuTaskExecutor", cpuPool);
+        stageExecutor.init();
+
+        TaskLaneScheduler scheduler = new TaskLaneScheduler();
+        ReflectionTestUtils.setField(scheduler, "properties", properties);
+        ReflectionTestUtils.setField(scheduler, "stageExecutor", stageExecutor);
+        scheduler.init();
+
+        CountDownLatch finished = new CountDownLatch(taskCount);
+        AtomicInteger rejected = new AtomicInteger();
+        long start = System.nanoTime();
+        try {
+            for (int i = 0; i < taskCount; i++) {
+                scheduler.submit(TaskType.EXPORT, i % 2 == 0 ? TaskLane.FAST : TaskLane.BULK, "bench-" + i % 8,
+                    "BENCHMARK", () -> {
+                        simulateIo();
+                        blackhole.addAndGet(stageExecutor.runCpuStage(this::simulateCpu));
+                        finished.countDown();
+                    }, reason -> {
+                        rejected.incrementAndGet();
+                        finished.countDown();
+                    });
+            }
+            assertTrue(finished.await(10, TimeUnit.MINUTES), "基准任务未在限定时间内完成");
+            long elapsedNanos = System.nanoTime() - start;
+
+            String effectiveMode = stageExecutor.isVirtual() ? "VIRTUAL" : "PLATFORM";
+            logger.info("任务执行基准: mode={}, effective={}, tasks={}, laneSlots={}, ioMillis={}, elapsed={}ms, throughput={} tasks/s",
+                mode, effectiveMode, taskCount, slots, ioMillis, TimeUnit.NANOSECONDS.toMillis(elapsedNanos),
+                String.format("%.1f", taskCount * 1_000_000_000.0 / elapsedNanos));
+            if (mode == ImExportProperties.ExecutionMode.VIRTUAL && !stageExecutor.isVirtual()) {
+                logger.warn("当前运行时不支持虚拟线程，VIRTUAL 结果为回退后的平台线程池: javaVersion={}",
+                    System.getProperty("java.version"));
+            }
+            assertEquals(0, rejected.get());
+        } finally {
+            stageExecutor.shutdown();
+            taskPool.shutdownNow();
+            cpuPool.shutdownNow();
+        }
+    }
+
+    private void simulateIo() {
+        try {
+            Thread.sleep(ioMillis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private long simulateCpu() {
+        long hash = 0;
+        for (int i = 0; i < cpuIterations; i++) {
+            hash = hash * 31 + i;
+        }
+        return hash;
+    }
+}
@@ -0,0 +1,133 @@
+package com.example.imexport.service;
+
+import com.example.imexport.config.ImExportProperties;
+import com.example.imexport.core.TaskLane;
+import com.example.imexport.core.TaskType;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executor;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * 分通道调度测试（线程池由测试手动执行，便于控制任务完成顺序）
+ */
+public class TaskLaneSchedulerTest {
+
+    private final List<Runnable> launched = new ArrayList<>();
+
+    private final ImExportProperties properties = new ImExportProperties();
+
+    private TaskLaneScheduler newScheduler(Duration agingThreshold) {
+        properties.getScheduler().setFastLaneSlots(1);
+        properties.getScheduler().setBulkLaneSlots(1);
+        properties.getScheduler().setAgingThreshold(agingThreshold);
+
+        StageExecutor stageExecutor = new StageExecutor();
+        ReflectionTestUtils.setField(stageExecutor, "importTaskExecutor", (Executor) launched::add);
+        ReflectionTestUtils.setField(stageExecutor, "exportTaskExecutor", (Executor) launched::add);
+
+        TaskLaneScheduler scheduler = new TaskLaneScheduler();
+        ReflectionTestUtils.setField(scheduler, "properties", properties);
+        ReflectionTestUtils.setField(scheduler, "stageExecutor", stageExecutor);
+        scheduler.init();
+        return scheduler;
+    }
+
+    @Test
+    public void testSmallTaskNotBlockedBehindLargeTasks() {
+        TaskLaneScheduler scheduler = newScheduler(Duration.ofMinutes(5));
+        List<String> executed = new ArrayList<>();
+
+        scheduler.submit(TaskType.EXPORT, TaskLane.BULK, "alice", "USER_EXPORT", () -> executed.add("bulk-1"), reason -> executed.add(reason));
+        scheduler.submit(TaskType.EXPORT, TaskLane.BULK, "alice", "USER_EXPORT", () -> executed.add("bulk-2"), reason -> executed.add(reason));
+        scheduler.submit(TaskType.EXPORT, TaskLane.FAST, "alice", "USER_EXPORT", () -> executed.add("fast-1"), reason -> executed.add(reason));
+
+        // 吞吐通道被 bulk-1 占满，bulk-2 排队，小任务直接进入快速通道
+        assertEquals(2, launched.size());
+        launched.get(0).run();
+        launched.get(1).run();
+        assertEquals("bulk-1", executed.get(0));
+        assertEquals("fast-1", executed.get(1));
+
+        // bulk-1 结束后 bulk-2 才开始
+        assertEquals(3, launched.size());
+        launched.get(2).run();
+        assertEquals("bulk-2", executed.get(2));
+
+        Map<String, Long> bulkStats = scheduler.snapshot().get("EXPORT.BULK");
+        assertEquals(2L, bulkStats.get("dispatched").longValue());
+        assertEquals(0L, bulkStats.get("queued").longValue());
+        assertEquals(0L, bulkStats.get("running").longValue());
+    }
+
+    @Test
+    public void testAgedLargeTaskUsesFastLane() {
+        TaskLaneScheduler scheduler = newScheduler(Duration.ZERO);
+        List<String> executed = new ArrayList<>();
+
+        scheduler.submit(TaskType.IMPORT, TaskLane.BULK, "alice", "USER_EXPORT", () -> executed.add("bulk-1"), reason -> executed.add(reason));
+        scheduler.submit(TaskType.IMPORT, TaskLane.BULK, "alice", "USER_EXPORT", () -> executed.add("bulk-2"), reason -> executed.add(reason));
+        scheduler.submit(TaskType.IMPORT, TaskLane.FAST, "alice", "USER_EXPORT", () -> executed.add("fast-1"), reason -> executed.add(reason));
+
+        // 等待超过阈值的大任务优先占用快速通道的空闲并发，两个通道都被大任务占用，小任务排队
+        assertEquals(2, launched.size());
+        assertEquals(1L, scheduler.snapshot().get("IMPORT.FAST").get("queued").longValue());
+        launched.get(1).run();
+        assertEquals("bulk-2", executed.get(0));
+        assertEquals(1L, scheduler.snapshot().get("IMPORT.BULK").get("aged").longValue());
+
+        assertEquals(3, launched.size());
+        launched.get(2).run();
+        assertEquals("fast-1", executed.get(1));
+    }
+
+    @Test
+    public void testAccountRunningLimit() {
+        properties.getScheduler().setFastLaneSlots(3);
+        properties.getScheduler().setMaxRunningPerAccount(1);
+        TaskLaneScheduler scheduler = newScheduler(Duration.ofMinutes(5));
+        List<String> executed = new ArrayList<>();
+
+        scheduler.submit(TaskType.EXPORT, TaskLane.FAST, "integration", "USER_EXPORT", () -> executed.add("integration-1"), executed::add);
+        scheduler.submit(TaskType.EXPORT, TaskLane.FAST, "integration", "USER_EXPORT", () -> executed.add("integration-2"), executed::add);
+        scheduler.submit(TaskType.EXPORT, TaskLane.FAST, "alice", "USER_EXPORT", () -> executed.add("alice-1"), executed::add);
+
+        // integration 已有任务在执行，第二个任务等待，空闲并发留给 alice
+        assertEquals(2, launched.size());
+        Map<String, Long> integrationStats = scheduler.accountSnapshot().get("EXPORT.integration");
+        assertEquals(1L, integrationStats.get("running").longValue());
+        assertEquals(1L, integrationStats.get("queued").longValue());
+        assertEquals(1L, integrationStats.get("throttled").longValue());
+
+        launched.get(0).run();
+        assertEquals(3, launched.size());
+        launched.get(2).run();
+        assertEquals("integration-2", executed.get(1));
+
+        // 提交人没有排队与执行中的任务后移除计数
+        assertFalse(scheduler.accountSnapshot().containsKey("EXPORT.integration"));
+        assertTrue(scheduler.accountSnapshot().containsKey("EXPORT.alice"));
+        launched.get(1).run();
+        assertTrue(scheduler.accountSnapshot().isEmpty());
+    }
+
+    @Test
+    public void testWaitPercentiles() {
+        TaskLaneScheduler.WaitSamples samples = new TaskLaneScheduler.WaitSamples(4);
+        assertEquals(0, samples.percentile(0.99));
+        for (long wait = 1; wait <= 6; wait++) {
+            samples.record(wait * 10);
+        }
+        // 只保留最近 4 个样本：30、40、50、60
+        assertEquals(40, samples.percentile(0.50));
+        assertEquals(60, samples.percentile(0.99));
+    }
+}
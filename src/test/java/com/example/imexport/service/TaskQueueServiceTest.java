@@ -0,0 +1,278 @@
+package com.example.imexport.service;
+
+import com.example.imexport.config.ImExportProperties;
+import com.example.imexport.core.CsvRowProcessor;
+import com.example.imexport.core.TaskType;
+import com.example.imexport.example.UserCsvImportProcessor;
+import com.example.imexport.mapper.ExportTaskHistoryMapper;
+import com.example.imexport.mapper.ImportTaskHistoryMapper;
+import com.example.imexport.model.ExportTaskHistory;
+import com.example.imexport.model.ImportTaskHistory;
+import com.example.imexport.storage.FileStorageService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.support.TransactionCallback;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * 分布式任务队列领取、调度、续约与退回测试
+ */
+public class TaskQueueServiceTest {
+
+    private static final String NODE_ID = "node-a";
+
+    private static final String BUSINESS_TYPE = "USER_CSV_IMPORT";
+
+    private final ImExportProperties properties = new ImExportProperties();
+
+    private final RunningTaskRegistry runningTaskRegistry = new RunningTaskRegistry();
+
+    private final List<Runnable> dispatched = new ArrayList<>();
+
+    private final List<Integer> lockLimits = new ArrayList<>();
+
+    private final List<Long> pendingIds = new ArrayList<>();
+
+    private final List<Long> lostClaims = new ArrayList<>();
+
+    private final List<Long> claimed = new ArrayList<>();
+
+    private final List<Long> released = new ArrayList<>();
+
+    private final List<Long> renewed = new ArrayList<>();
+
+    private final Map<Long, String> statuses = new HashMap<>();
+
+    private Executor importTaskExecutor = dispatched::add;
+
+    private final List<Long> started = Collections.synchronizedList(new ArrayList<>());
+
+    private final CountDownLatch finishImports = new CountDownLatch(1);
+
+    private BusinessTypeConcurrencyLimiter concurrencyLimiter;
+
+    private TaskQueueService queueService;
+
+    @BeforeEach
+    public void setUp() {
+        properties.getQueue().setNodeId(NODE_ID);
+        properties.getQueue().setImportWorkers(3);
+
+        ImportTaskHistoryMapper importMapper = MapperStub.of(ImportTaskHistoryMapper.class, ImportTaskHistory.class,
+            (method, args) -> {
+                switch (method) {
+                    case "lockPendingTaskIds":
+                        lockLimits.add((Integer) args[0]);
+                        return new ArrayList<>(pendingIds.subList(0, Math.min((Integer) args[0], pendingIds.size())));
+                    case "claimTask":
+                        assertEquals(NODE_ID, args[1]);
+                        if (lostClaims.contains(args[0])) {
+                            return 0;
+                        }
+                        claimed.add((Long) args[0]);
+                        return 1;
+                    case "renewLease":
+                        assertEquals(NODE_ID, args[1]);
+                        if (!"PROCESSING".equals(statuses.get(args[0]))) {
+                            return 0;
+                        }
+                        renewed.add((Long) args[0]);
+                        return 1;
+                    case "releaseTask":
+                        released.add((Long) args[0]);
+                        return 1;
+                    case "selectById":
+                        ImportTaskHistory task = new ImportTaskHistory();
+                        task.setId((Long) args[0]);
+                        task.setTaskStatus(statuses.get(args[0]));
+                        task.setBusinessType(BUSINESS_TYPE);
+                        task.setCreatedBy("alice");
+                        task.setOriginalFileUrl("https://oss/import_" + args[0] + ".csv");
+                        return task;
+                    default:
+                        throw new UnsupportedOperationException(method);
+                }
+            });
+
+        // 导出队列始终为空
+        ExportTaskHistoryMapper exportMapper = MapperStub.of(ExportTaskHistoryMapper.class, ExportTaskHistory.class,
+            (method, args) -> {
+                if ("lockPendingTaskIds".equals(method)) {
+                    return Collections.emptyList();
+                }
+                throw new UnsupportedOperationException(method);
+            });
+
+        StageExecutor stageExecutor = new StageExecutor();
+        ReflectionTestUtils.setField(stageExecutor, "properties", properties);
+        ReflectionTestUtils.setField(stageExecutor, "importTaskExecutor", (Executor) command -> importTaskExecutor.execute(command));
+
+        // 存储不返回元数据，导入任务均进入快速通道
+        FileStorageService fileStorageService = (FileStorageService) Proxy.newProxyInstance(
+            FileStorageService.class.getClassLoader(), new Class<?>[]{FileStorageService.class}, (proxy, method, args) -> null);
+        TaskLaneScheduler laneScheduler = new TaskLaneScheduler();
+        ReflectionTestUtils.setField(laneScheduler, "properties", properties);
+        ReflectionTestUtils.setField(laneScheduler, "fileStorageService", fileStorageService);
+        ReflectionTestUtils.setField(laneScheduler, "stageExecutor", stageExecutor);
+        laneScheduler.init();
+
+        concurrencyLimiter = new BusinessTypeConcurrencyLimiter();
+        ReflectionTestUtils.setField(concurrencyLimiter, "properties", properties);
+
+        ProviderRegistry providerRegistry = new ProviderRegistry();
+        ReflectionTestUtils.setField(providerRegistry, "rowProcessors",
+            Collections.singletonMap(BUSINESS_TYPE, new UserCsvImportProcessor()));
+
+        TaskCancellationService taskCancellationService = new TaskCancellationService();
+        ReflectionTestUtils.setField(taskCancellationService, "runningTaskRegistry", runningTaskRegistry);
+
+        queueService = new TaskQueueService();
+        ReflectionTestUtils.setField(queueService, "properties", properties);
+        ReflectionTestUtils.setField(queueService, "importTaskHistoryMapper", importMapper);
+        ReflectionTestUtils.setField(queueService, "exportTaskHistoryMapper", exportMapper);
+        ReflectionTestUtils.setField(queueService, "transactionTemplate", new InlineTransactionTemplate());
+        ReflectionTestUtils.setField(queueService, "runningTaskRegistry", runningTaskRegistry);
+        ReflectionTestUtils.setField(queueService, "taskCancellationService", taskCancellationService);
+        ReflectionTestUtils.setField(queueService, "laneScheduler", laneScheduler);
+        ReflectionTestUtils.setField(queueService, "concurrencyLimiter", concurrencyLimiter);
+        ReflectionTestUtils.setField(queueService, "providerRegistry", providerRegistry);
+        ReflectionTestUtils.setField(queueService, "csvImportService", new BlockingCsvImportService());
+        queueService.init();
+    }
+
+    @Test
+    public void testClaimsUpToFreeCapacity() {
+        runningTaskRegistry.register(TaskType.IMPORT, 100L);
+        pendingIds.addAll(Arrays.asList(1L, 2L, 3L, 4L));
+        // 其他节点在加锁与领取之间抢先领取了任务 2
+        lostClaims.add(2L);
+
+        queueService.poll();
+
+        // 容量 = 3 个工作线程 - 1 个执行中任务
+        assertEquals(Collections.singletonList(2), lockLimits);
+        assertEquals(Collections.singletonList(1L), claimed);
+        assertEquals(1, dispatched.size());
+        assertEquals(new HashSet<>(Arrays.asList(100L, 1L)), runningTaskRegistry.getRunningTaskIds(TaskType.IMPORT));
+
+        // 执行中任务达到工作线程数时不再领取
+        pendingIds.clear();
+        pendingIds.add(5L);
+        runningTaskRegistry.register(TaskType.IMPORT, 101L);
+        queueService.poll();
+        assertEquals(Collections.singletonList(2), lockLimits);
+    }
+
+    @Test
+    public void testRejectedTasksReleasedBackToQueue() {
+        importTaskExecutor = command -> {
+            throw new RejectedExecutionException("导入线程池已满");
+        };
+        pendingIds.addAll(Arrays.asList(1L, 2L));
+
+        queueService.poll();
+
+        assertEquals(Arrays.asList(1L, 2L), claimed);
+        assertEquals(Arrays.asList(1L, 2L), released);
+        assertEquals(0, runningTaskRegistry.count(TaskType.IMPORT));
+    }
+
+    @Test
+    public void testClaimedTasksHonourBusinessTypeConcurrency() throws Exception {
+        properties.getExecutor().setDefaultBusinessTypeConcurrency(1);
+        ExecutorService taskThreads = Executors.newCachedThreadPool();
+        importTaskExecutor = taskThreads;
+        pendingIds.addAll(Arrays.asList(1L, 2L));
+        try {
+            queueService.poll();
+
+            // 同一业务类型同时只执行一个，另一个在本节点排队，仍计入本节点容量
+            awaitCondition(() -> started.size() == 1);
+            Thread.sleep(100);
+            assertEquals(1, started.size());
+            assertEquals(1L, concurrencyLimiter.snapshot().get(BUSINESS_TYPE).get("pending"));
+            assertEquals(2, runningTaskRegistry.count(TaskType.IMPORT));
+
+            finishImports.countDown();
+            awaitCondition(() -> started.size() == 2 && runningTaskRegistry.count(TaskType.IMPORT) == 0);
+            assertEquals(new HashSet<>(Arrays.asList(1L, 2L)), new HashSet<>(started));
+        } finally {
+            finishImports.countDown();
+            taskThreads.shutdownNow();
+        }
+    }
+
+    @Test
+    public void testHeartbeatRenewsLeasesAndSignalsCancellation() {
+        statuses.put(1L, "PROCESSING");
+        statuses.put(2L, "CANCELLING");
+        // 租约已被巡检重新排队的任务：只记录告警，不触发取消
+        statuses.put(3L, "PENDING");
+        for (long taskId = 1; taskId <= 3; taskId++) {
+            runningTaskRegistry.register(TaskType.IMPORT, taskId);
+        }
+
+        queueService.heartbeat();
+
+        assertEquals(Collections.singletonList(1L), renewed);
+        assertFalse(runningTaskRegistry.getToken(TaskType.IMPORT, 1L).isCancellationRequested());
+        assertTrue(runningTaskRegistry.getToken(TaskType.IMPORT, 2L).isCancellationRequested());
+        assertFalse(runningTaskRegistry.getToken(TaskType.IMPORT, 3L).isCancellationRequested());
+    }
+
+    private static void awaitCondition(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5000;
+        while (!condition.getAsBoolean() && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        assertTrue(condition.getAsBoolean());
+    }
+
+    /**
+     * 记录开始执行的任务并等待测试放行
+     */
+    private class BlockingCsvImportService extends CsvImportService {
+
+        @Override
+        public <T> void runClaimedTask(ImportTaskHistory task, CsvRowProcessor<T> processor) {
+            started.add(task.getId());
+            try {
+                finishImports.await(5, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    /**
+     * 直接在当前线程执行回调，不开启事务
+     */
+    private static class InlineTransactionTemplate extends TransactionTemplate {
+
+        @Override
+        public <T> T execute(TransactionCallback<T> action) {
+            return action.doInTransaction(null);
+        }
+    }
+}
@@ -0,0 +1,96 @@
+package com.example.imexport.service;
+
+import com.example.imexport.config.ImExportProperties;
+import com.example.imexport.core.FileFormat;
+import com.example.imexport.example.UserCsvModel;
+import com.example.imexport.storage.FileStorageService;
+import com.example.imexport.storage.PresignedUrlCachingStorageService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.InputStream;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+
+/**
+ * 模板产物缓存测试
+ */
+public class TemplateArtifactCacheTest {
+
+    private TemplateArtifactCache cache;
+    private CountingStorage storage;
+    private ImExportProperties properties;
+    private final AtomicInteger generated = new AtomicInteger();
+
+    @BeforeEach
+    public void setUp() {
+        cache = new TemplateArtifactCache();
+        storage = new CountingStorage();
+        properties = new ImExportProperties();
+        ReflectionTestUtils.setField(cache, "fileStorageService", storage);
+        ReflectionTestUtils.setField(cache, "properties", properties);
+    }
+
+    @Test
+    public void testTemplateGeneratedAndUploadedOnce() {
+        String fingerprint = TemplateArtifactCache.fingerprint(UserCsvModel.class, "用户名", "邮箱");
+
+        String first = cache.getFileUrl(FileFormat.CSV, "USER", fingerprint, "user", this::generate);
+        String second = cache.getFileUrl(FileFormat.CSV, "USER", fingerprint, "user", this::generate);
+
+        assertEquals(first, second);
+        assertEquals(1, generated.get());
+        assertEquals(1, storage.uploads.get());
+    }
+
+    @Test
+    public void testDownloadUrlReusedByStorageCache() {
+        // 链接复用由存储层的临时访问链接缓存负责
+        ReflectionTestUtils.setField(cache, "fileStorageService",
+            new PresignedUrlCachingStorageService(storage, new ImExportProperties.PresignedUrlCache()));
+        String fingerprint = TemplateArtifactCache.fingerprint(UserCsvModel.class);
+
+        String first = cache.getDownloadUrl(FileFormat.CSV, "USER", fingerprint, "user", this::generate);
+        String second = cache.getDownloadUrl(FileFormat.CSV, "USER", fingerprint, "user", this::generate);
+
+        assertEquals(first, second);
+        assertEquals(1, storage.uploads.get());
+        assertEquals(1, storage.presigns.get());
+    }
+
+    @Test
+    public void testFingerprintChangesWithHeaders() {
+        assertNotEquals(TemplateArtifactCache.fingerprint(UserCsvModel.class, "用户名"),
+            TemplateArtifactCache.fingerprint(UserCsvModel.class, "账号"));
+    }
+
+    private byte[] generate() {
+        generated.incrementAndGet();
+        return new byte[]{1, 2, 3};
+    }
+
+    private static class CountingStorage implements FileStorageService {
+
+        private final AtomicInteger uploads = new AtomicInteger();
+        private final AtomicInteger presigns = new AtomicInteger();
+
+        @Override
+        public String uploadFile(InputStream inputStream, String fileName, String contentType) {
+            uploads.incrementAndGet();
+            return "oss://bucket/" + fileName;
+        }
+
+        @Override
+        public InputStream downloadFile(String fileUrl) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public String generatePresignedUrl(String fileUrl, long expirationSeconds) {
+            return fileUrl + "?signature=" + presigns.incrementAndGet();
+        }
+    }
+}
@@ -0,0 +1,78 @@
+package com.example.imexport.service;
+
+import com.example.imexport.core.IncrementalDataProvider;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * 增量导出水位跟踪测试
+ */
+public class WatermarkTrackerTest {
+
+    @Test
+    public void testTrackNumericHighWatermark() {
+        WatermarkTracker<String> tracker = new WatermarkTracker<>(new IdProvider(), "8");
+
+        // 数值比较：10 > 9，不能按字符串比较
+        tracker.observe(Arrays.asList("9", "10", "2"));
+        tracker.observe(Collections.singletonList("7"));
+
+        assertEquals("10", tracker.getHighWatermark());
+    }
+
+    @Test
+    public void testKeepInitialWatermarkWhenNoData() {
+        WatermarkTracker<String> tracker = new WatermarkTracker<>(new IdProvider(), "2024-01-01T00:00:00");
+
+        tracker.observe(Collections.<String>emptyList());
+
+        assertEquals("2024-01-01T00:00:00", tracker.getHighWatermark());
+    }
+
+    @Test
+    public void testCompositeWatermarkOrdersByTimeThenId() {
+        WatermarkTracker<String> tracker = new WatermarkTracker<>(new IdProvider(), null);
+        LocalDateTime time = LocalDateTime.of(2024, 1, 1, 8, 0);
+
+        tracker.observe(Arrays.asList(
+            IncrementalDataProvider.compositeWatermark(time, 99),
+            IncrementalDataProvider.compositeWatermark(time, 100),
+            IncrementalDataProvider.compositeWatermark(time.minusNanos(1000), 500)));
+
+        assertEquals(IncrementalDataProvider.compositeWatermark(time, 100), tracker.getHighWatermark());
+    }
+
+    private static class IdProvider implements IncrementalDataProvider<String> {
+
+        @Override
+        public String getWatermark(String row) {
+            return row;
+        }
+
+        @Override
+        public String getBusinessType() {
+            return "TEST";
+        }
+
+        @Override
+        public List<String> queryExportData(Object params) {
+            return Collections.emptyList();
+        }
+
+        @Override
+        public Class<String> getModelClass() {
+            return String.class;
+        }
+
+        @Override
+        public String getExportFileName() {
+            return "test";
+        }
+    }
+}
@@ -0,0 +1,151 @@
+package com.example.imexport.storage;
+
+import com.example.imexport.config.ImExportProperties;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.util.StreamUtils;
+import org.springframework.util.unit.DataSize;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * 下载缓存测试
+ */
+public class CachingFileStorageServiceTest {
+
+    @TempDir
+    Path cacheDir;
+
+    private final Map<String, String> objects = new ConcurrentHashMap<>();
+
+    private final AtomicInteger downloads = new AtomicInteger();
+
+    private volatile CountDownLatch downloadGate;
+
+    private CachingFileStorageService newCache(DataSize maxSize) {
+        ImExportProperties.DownloadCache config = new ImExportProperties.DownloadCache();
+        config.setDir(cacheDir.toString());
+        config.setMaxSize(maxSize);
+        return new CachingFileStorageService(new StubStorage(), config);
+    }
+
+    private String read(FileStorageService storage, String fileUrl) throws IOException {
+        try (InputStream inputStream = storage.downloadFile(fileUrl)) {
+            return StreamUtils.copyToString(inputStream, StandardCharsets.UTF_8);
+        }
+    }
+
+    @Test
+    public void testHitAndInvalidationBySize() throws IOException {
+        CachingFileStorageService cache = newCache(DataSize.ofMegabytes(1));
+        objects.put("oss://bucket/a.csv", "id,name\n1,alice\n");
+
+        assertEquals("id,name\n1,alice\n", read(cache, "oss://bucket/a.csv"));
+        assertEquals("id,name\n1,alice\n", read(cache, "oss://bucket/a.csv"));
+        assertEquals(1, downloads.get());
+
+        // 对象内容变化（大小不一致）后重新下载
+        objects.put("oss://bucket/a.csv", "id,name\n1,alice\n2,bob\n");
+        assertEquals("id,name\n1,alice\n2,bob\n", read(cache, "oss://bucket/a.csv"));
+        assertEquals(2, downloads.get());
+
+        Map<String, Long> stats = cache.snapshot();
+        assertEquals(1L, stats.get("hits").longValue());
+        assertEquals(2L, stats.get("misses").longValue());
+        assertEquals(1L, stats.get("invalidated").longValue());
+        assertEquals(16L, stats.get("bytesSaved").longValue());
+    }
+
+    @Test
+    public void testLeastRecentlyUsedEviction() throws IOException {
+        CachingFileStorageService cache = newCache(DataSize.ofBytes(20));
+        objects.put("oss://bucket/a.csv", "aaaaaaaaaa");
+        objects.put("oss://bucket/b.csv", "bbbbbbbbbb");
+        objects.put("oss://bucket/c.csv", "cccccccccc");
+
+        read(cache, "oss://bucket/a.csv");
+        read(cache, "oss://bucket/b.csv");
+        read(cache, "oss://bucket/a.csv");
+        // 缓存已满，淘汰最久未使用的 b
+        read(cache, "oss://bucket/c.csv");
+        assertEquals(3, downloads.get());
+
+        read(cache, "oss://bucket/a.csv");
+        assertEquals(3, downloads.get());
+        read(cache, "oss://bucket/b.csv");
+        assertEquals(4, downloads.get());
+        assertEquals(2L, cache.snapshot().get("evicted").longValue());
+    }
+
+    @Test
+    public void testConcurrentDownloadsOfSameUrlAreMerged() throws Exception {
+        CachingFileStorageService cache = newCache(DataSize.ofMegabytes(1));
+        objects.put("oss://bucket/a.csv", "id,name\n1,alice\n");
+        downloadGate = new CountDownLatch(1);
+
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<String>> results = new ArrayList<>();
+            for (int i = 0; i < 4; i++) {
+                results.add(executor.submit(() -> read(cache, "oss://bucket/a.csv")));
+            }
+            Thread.sleep(100);
+            downloadGate.countDown();
+            for (Future<String> result : results) {
+                assertEquals("id,name\n1,alice\n", result.get());
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        assertEquals(1, downloads.get());
+    }
+
+    private class StubStorage implements FileStorageService {
+
+        @Override
+        public String uploadFile(InputStream inputStream, String fileName, String contentType) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public InputStream downloadFile(String fileUrl) {
+            downloads.incrementAndGet();
+            CountDownLatch gate = downloadGate;
+            if (gate != null) {
+                try {
+                    gate.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+            return new ByteArrayInputStream(objects.get(fileUrl).getBytes(StandardCharsets.UTF_8));
+        }
+
+        @Override
+        public ObjectMetadata getObjectMetadata(String fileUrl) {
+            ObjectMetadata metadata = new ObjectMetadata();
+            metadata.setContentLength(objects.get(fileUrl).getBytes(StandardCharsets.UTF_8).length);
+            return metadata;
+        }
+
+        @Override
+        public String generatePresignedUrl(String fileUrl, long expirationSeconds) {
+            throw new UnsupportedOperationException();
+        }
+    }
+}
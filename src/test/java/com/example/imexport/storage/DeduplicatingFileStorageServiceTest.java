@@ -0,0 +1,106 @@
+package com.example.imexport.storage;
+
+import com.example.imexport.config.ImExportProperties;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * 上传内容去重测试
+ */
+public class DeduplicatingFileStorageServiceTest {
+
+    private static final String CONTENT = "id,name\n1,alice\n";
+
+    @TempDir
+    Path tempDir;
+
+    private final AtomicInteger uploads = new AtomicInteger();
+
+    private final InMemoryFileStorageService storage = new InMemoryFileStorageService() {
+
+        @Override
+        public String uploadFile(InputStream inputStream, String fileName, String contentType) {
+            uploads.incrementAndGet();
+            return super.uploadFile(inputStream, fileName, contentType);
+        }
+    };
+
+    private DeduplicatingFileStorageService newDedup() {
+        ImExportProperties.Dedup config = new ImExportProperties.Dedup();
+        config.setIndexFile(tempDir.resolve("dedup-index.txt").toString());
+        return new DeduplicatingFileStorageService(storage, config);
+    }
+
+    @Test
+    public void testSameContentUploadedOnce() throws IOException {
+        DeduplicatingFileStorageService dedup = newDedup();
+
+        String first = dedup.uploadFile(stream(CONTENT), "error_1.csv", "text/csv");
+        String second = dedup.uploadFile(stream(CONTENT), "error_2.csv", "text/csv");
+        String session;
+        try (UploadSession uploadSession = dedup.openUploadSession("error_3.csv", "text/csv")) {
+            uploadSession.getOutputStream().write(CONTENT.getBytes(StandardCharsets.UTF_8));
+            session = uploadSession.commit();
+        }
+        String other = dedup.uploadFile(stream(CONTENT + "2,bob\n"), "error_4.csv", "text/csv");
+
+        assertEquals(first, second);
+        assertEquals(first, session);
+        assertNotEquals(first, other);
+        assertEquals(2, uploads.get());
+        assertEquals(2L, dedup.snapshot().get("deduplicated").longValue());
+        assertEquals(2L * CONTENT.length(), dedup.snapshot().get("bytesSaved").longValue());
+    }
+
+    @Test
+    public void testIndexSurvivesRestartAndDeletedObjectReuploaded() {
+        String first = newDedup().uploadFile(stream(CONTENT), "template.csv", "text/csv");
+
+        // 重启后从索引文件恢复
+        DeduplicatingFileStorageService restarted = newDedup();
+        assertEquals(first, restarted.uploadFile(stream(CONTENT), "template.csv", "text/csv"));
+        assertEquals(1, uploads.get());
+
+        // 对象已被删除时重新上传
+        storage.deleteObject(first);
+        assertNotEquals(first, restarted.uploadFile(stream(CONTENT), "template.csv", "text/csv"));
+        assertEquals(2, uploads.get());
+    }
+
+    @Test
+    public void testShutdownThroughDecoratorChainClosesIndex() throws IOException {
+        DeduplicatingFileStorageService dedup = newDedup();
+        String first = dedup.uploadFile(stream(CONTENT), "template.csv", "text/csv");
+        PresignedUrlCachingStorageService outer =
+            new PresignedUrlCachingStorageService(dedup, new ImExportProperties.PresignedUrlCache());
+
+        outer.shutdown();
+
+        assertNull(ReflectionTestUtils.getField(dedup, "indexWriter"));
+        List<String> lines = Files.readAllLines(tempDir.resolve("dedup-index.txt"), StandardCharsets.UTF_8);
+        assertEquals(1, lines.size());
+        assertTrue(lines.get(0).endsWith(" " + first));
+        // 关闭后仍在内存中去重
+        assertEquals(first, dedup.uploadFile(stream(CONTENT), "template.csv", "text/csv"));
+        assertEquals(1, uploads.get());
+    }
+
+    private static InputStream stream(String content) {
+        return new ByteArrayInputStream(content.getBytes(StandardCharsets.UTF_8));
+    }
+}
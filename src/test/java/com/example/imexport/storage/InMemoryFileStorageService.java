@@ -0,0 +1,111 @@
+package com.example.imexport.storage;
+
+import org.springframework.util.DigestUtils;
+import org.springframework.util.StreamUtils;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 内存文件存储服务
+ * 对象保存在内存中，支持范围读取与元数据（ETag 与 OSS 简单上传一致，为内容 MD5），用于离线测试下载、缓存与分段下载等存储相关行为
+ */
+public class InMemoryFileStorageService implements FileStorageService {
+
+    private static final String URL_PREFIX = "mem://bucket/";
+
+    private final Map<String, StoredObject> objects = new ConcurrentHashMap<>();
+
+    /**
+     * 直接写入对象
+     *
+     * @param fileUrl 文件地址
+     * @param content 对象内容
+     * @param contentType 内容类型
+     */
+    public void putObject(String fileUrl, byte[] content, String contentType) {
+        objects.put(fileUrl, new StoredObject(content.clone(), contentType));
+    }
+
+    /**
+     * 删除对象
+     *
+     * @param fileUrl 文件地址
+     */
+    public void deleteObject(String fileUrl) {
+        objects.remove(fileUrl);
+    }
+
+    @Override
+    public String uploadFile(InputStream inputStream, String fileName, String contentType) {
+        try {
+            String fileUrl = URL_PREFIX + UUID.randomUUID() + "/" + fileName;
+            objects.put(fileUrl, new StoredObject(StreamUtils.copyToByteArray(inputStream), contentType));
+            return fileUrl;
+        } catch (IOException e) {
+            throw new RuntimeException("文件上传失败: " + e.getMessage(), e);
+        }
+    }
+
+    @Override
+    public InputStream downloadFile(String fileUrl) {
+        return new ByteArrayInputStream(get(fileUrl).content);
+    }
+
+    @Override
+    public InputStream downloadRange(String fileUrl, long offset, long length) {
+        byte[] content = get(fileUrl).content;
+        int from = (int) Math.min(Math.max(0, offset), content.length);
+        int to = (int) Math.min(from + Math.max(0, length), content.length);
+        return new ByteArrayInputStream(content, from, to - from);
+    }
+
+    @Override
+    public boolean supportsRangeDownload() {
+        return true;
+    }
+
+    @Override
+    public ObjectMetadata getObjectMetadata(String fileUrl) {
+        StoredObject object = objects.get(fileUrl);
+        if (object == null) {
+            return null;
+        }
+        ObjectMetadata metadata = new ObjectMetadata();
+        metadata.setContentLength(object.content.length);
+        metadata.setContentType(object.contentType);
+        metadata.setETag(object.eTag);
+        return metadata;
+    }
+
+    @Override
+    public String generatePresignedUrl(String fileUrl, long expirationSeconds) {
+        get(fileUrl);
+        return fileUrl + "?expires=" + (System.currentTimeMillis() / 1000 + expirationSeconds);
+    }
+
+    private StoredObject get(String fileUrl) {
+        StoredObject object = objects.get(fileUrl);
+        if (object == null) {
+            throw new RuntimeException("文件不存在: " + fileUrl);
+        }
+        return object;
+    }
+
+    private static class StoredObject {
+
+        private final byte[] content;
+        private final String contentType;
+        private final String eTag;
+
+        private StoredObject(byte[] content, String contentType) {
+            this.content = content;
+            this.contentType = contentType;
+            this.eTag = DigestUtils.md5DigestAsHex(content);
+        }
+    }
+}
@@ -0,0 +1,111 @@
+package com.example.imexport.storage;
+
+import com.example.imexport.config.ImExportProperties;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.util.StreamUtils;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * 本地文件存储服务测试
+ */
+public class LocalFileStorageServiceTest {
+
+    private static final String CONTENT = "id,name\n1,alice\n";
+
+    @TempDir
+    Path rootDir;
+
+    private LocalFileStorageService storage;
+
+    @BeforeEach
+    public void setUp() {
+        ImExportProperties.Local config = new ImExportProperties.Local();
+        config.setRootDir(rootDir.toString());
+        config.setPublicBaseUrl("http://localhost:8080/files/");
+        config.setSigningSecret("test-secret");
+        storage = new LocalFileStorageService(config);
+    }
+
+    @Test
+    public void testUploadIsContentAddressed() throws IOException {
+        String first = storage.uploadFile(stream(CONTENT), "用户 导出.csv", "text/csv");
+        String second;
+        try (UploadSession session = storage.openUploadSession("users.csv", "text/csv")) {
+            OutputStream out = session.getOutputStream();
+            out.write(CONTENT.getBytes(StandardCharsets.UTF_8));
+            out.close();
+            second = session.commit();
+        }
+
+        // 内容相同只保存一份，文件名只影响地址中的展示部分
+        assertEquals(storage.resolve(first), storage.resolve(second));
+        assertEquals(storage.getObjectMetadata(first).getETag(), storage.getObjectMetadata(second).getETag());
+        assertEquals(CONTENT.length(), storage.getObjectMetadata(first).getContentLength());
+        assertEquals("text/csv", storage.getObjectMetadata(first).getContentType());
+        try (Stream<Path> staged = Files.list(rootDir.resolve(".staging"))) {
+            assertEquals(0, staged.count());
+        }
+
+        try (InputStream inputStream = storage.downloadFile(first)) {
+            assertEquals(CONTENT, StreamUtils.copyToString(inputStream, StandardCharsets.UTF_8));
+        }
+        try (InputStream inputStream = storage.downloadRange(first, 8, 7)) {
+            assertEquals("1,alice", StreamUtils.copyToString(inputStream, StandardCharsets.UTF_8));
+        }
+        Path target = rootDir.resolve("copy.csv");
+        assertEquals(CONTENT.length(), storage.downloadToFile(first, target));
+        assertEquals(CONTENT, new String(Files.readAllBytes(target), StandardCharsets.UTF_8));
+    }
+
+    @Test
+    public void testAbortedSessionLeavesNoObject() throws IOException {
+        try (UploadSession session = storage.openUploadSession("users.csv", "text/csv")) {
+            session.getOutputStream().write(CONTENT.getBytes(StandardCharsets.UTF_8));
+        }
+        try (Stream<Path> files = Files.walk(rootDir)) {
+            assertTrue(files.allMatch(Files::isDirectory));
+        }
+    }
+
+    @Test
+    public void testPresignedUrl() {
+        String fileUrl = storage.uploadFile(stream(CONTENT), "users.csv", "text/csv");
+        String presignedUrl = storage.generatePresignedUrl(fileUrl, 60);
+
+        String objectPath = fileUrl.substring("local://".length());
+        assertTrue(presignedUrl.startsWith("http://localhost:8080/files/" + objectPath + "?expires="));
+        long expires = Long.parseLong(presignedUrl.replaceAll(".*expires=(\\d+).*", "$1"));
+        String signature = presignedUrl.replaceAll(".*signature=", "");
+
+        assertEquals(storage.resolve(fileUrl), storage.verifyPresignedPath(objectPath, expires, signature));
+        assertThrows(SecurityException.class, () -> storage.verifyPresignedPath(objectPath, expires + 1, signature));
+        String expiredUrl = storage.generatePresignedUrl(fileUrl, -1);
+        long expired = Long.parseLong(expiredUrl.replaceAll(".*expires=(\\d+).*", "$1"));
+        assertThrows(SecurityException.class, () -> storage.verifyPresignedPath(objectPath, expired,
+            expiredUrl.replaceAll(".*signature=", "")));
+    }
+
+    @Test
+    public void testInvalidUrlRejected() {
+        assertThrows(RuntimeException.class, () -> storage.downloadFile("local://../../etc/passwd"));
+        assertThrows(RuntimeException.class, () -> storage.downloadFile("oss://bucket/users.csv"));
+    }
+
+    private static InputStream stream(String content) {
+        return new ByteArrayInputStream(content.getBytes(StandardCharsets.UTF_8));
+    }
+}
@@ -0,0 +1,111 @@
+package com.example.imexport.storage;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * 本地文件分片上传会话测试
+ */
+public class LocalFileUploadSessionTest {
+
+    @TempDir
+    Path tempDir;
+
+    private ExecutorService executor;
+
+    @BeforeEach
+    public void setUp() {
+        executor = Executors.newFixedThreadPool(4);
+    }
+
+    @AfterEach
+    public void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    public void testConcurrentPartsCommittedInOrder() throws IOException {
+        byte[] content = new byte[10 * 1024 + 123];
+        new Random(42).nextBytes(content);
+        Path target = tempDir.resolve("export/data.csv");
+
+        String fileUrl;
+        try (LocalFileUploadSession session = new LocalFileUploadSession(target, "local://export/data.csv",
+                1024, 3, executor)) {
+            OutputStream out = session.getOutputStream();
+            // 单字节与不对齐的块写入混合，覆盖跨分片边界
+            out.write(content[0]);
+            for (int offset = 1; offset < content.length; offset += 700) {
+                out.write(content, offset, Math.min(700, content.length - offset));
+            }
+            out.close();
+            fileUrl = session.commit();
+            assertEquals(content.length, session.getTotalBytes());
+        }
+
+        assertEquals("local://export/data.csv", fileUrl);
+        assertArrayEquals(content, Files.readAllBytes(target));
+        assertNoStagingFiles(target.getParent());
+    }
+
+    @Test
+    public void testCloseWithoutCommitAborts() throws IOException {
+        Path target = tempDir.resolve("aborted.csv");
+
+        try (LocalFileUploadSession session = new LocalFileUploadSession(target, "local://aborted.csv",
+                16, 2, executor)) {
+            session.getOutputStream().write(new byte[100]);
+        }
+
+        assertFalse(Files.exists(target));
+        assertNoStagingFiles(tempDir);
+    }
+
+    @Test
+    public void testPartFailureFailsCommit() {
+        MultipartUploadSession session = new MultipartUploadSession(8, 2, executor) {
+            @Override
+            protected void uploadPart(int partNumber, long offset, byte[] data, int length) throws IOException {
+                if (partNumber == 2) {
+                    throw new IOException("network error");
+                }
+            }
+
+            @Override
+            protected String completeUpload(int partCount, long totalBytes) {
+                return "never";
+            }
+
+            @Override
+            protected void abortUpload() {
+            }
+        };
+
+        assertThrows(RuntimeException.class, () -> {
+            session.getOutputStream().write(new byte[20]);
+            session.commit();
+        });
+    }
+
+    private void assertNoStagingFiles(Path dir) throws IOException {
+        try (Stream<Path> files = Files.list(dir)) {
+            assertFalse(files.anyMatch(path -> path.getFileName().toString().contains(".uploading-")));
+        }
+    }
+}
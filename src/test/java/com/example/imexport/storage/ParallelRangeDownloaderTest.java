@@ -0,0 +1,116 @@
+package com.example.imexport.storage;
+
+import com.example.imexport.config.ImExportProperties;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.util.unit.DataSize;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * 分段并行下载测试
+ */
+public class ParallelRangeDownloaderTest {
+
+    private static final String FILE_URL = "mem://bucket/import/large.csv";
+
+    @TempDir
+    Path tempDir;
+
+    private final InMemoryFileStorageService storage = new InMemoryFileStorageService();
+
+    private final AtomicInteger rangeRequests = new AtomicInteger();
+
+    private final AtomicInteger failuresToInject = new AtomicInteger();
+
+    private ParallelRangeDownloader downloader;
+
+    private byte[] content;
+
+    @BeforeEach
+    public void setUp() {
+        ImExportProperties.Download config = new ImExportProperties.Download();
+        config.setRangeThreshold(DataSize.ofKilobytes(64));
+        config.setPartSize(DataSize.ofKilobytes(100));
+        config.setMaxConcurrentParts(3);
+        config.setPartRetries(1);
+        downloader = new ParallelRangeDownloader(config, Executors.newFixedThreadPool(4));
+
+        content = new byte[1024 * 1024 + 123];
+        new Random(42).nextBytes(content);
+        storage.putObject(FILE_URL, content, "text/csv");
+    }
+
+    @AfterEach
+    public void tearDown() {
+        downloader.shutdown();
+    }
+
+    @Test
+    public void testLargeObjectDownloadedInRanges() throws IOException {
+        Path target = tempDir.resolve("large.csv");
+        // 第一个分段返回不完整的内容，重试后成功
+        failuresToInject.set(1);
+
+        assertEquals(content.length, downloader.download(new CountingStorage(storage), FILE_URL, target));
+
+        assertArrayEquals(content, Files.readAllBytes(target));
+        // 11 个分段 + 1 次重试
+        assertEquals(12, rangeRequests.get());
+        assertEquals(11L, downloader.snapshot().get("parts").longValue());
+        assertEquals(1L, downloader.snapshot().get("retriedParts").longValue());
+    }
+
+    @Test
+    public void testSmallObjectDownloadedAsSingleStream() throws IOException {
+        storage.putObject("mem://bucket/import/small.csv", "id,name\n1,alice\n".getBytes(), "text/csv");
+        Path target = tempDir.resolve("small.csv");
+
+        downloader.download(new CountingStorage(storage), "mem://bucket/import/small.csv", target);
+
+        assertEquals("id,name\n1,alice\n", new String(Files.readAllBytes(target)));
+        assertEquals(0, rangeRequests.get());
+        assertEquals(1L, downloader.snapshot().get("streamed").longValue());
+    }
+
+    @Test
+    public void testFailedPartRemovesTarget() {
+        Path target = tempDir.resolve("large.csv");
+        failuresToInject.set(100);
+
+        assertThrows(IOException.class, () -> downloader.download(new CountingStorage(storage), FILE_URL, target));
+        assertFalse(Files.exists(target));
+    }
+
+    /**
+     * 统计范围请求次数，按需注入分段失败（只返回一半内容）
+     */
+    private class CountingStorage extends ForwardingFileStorageService {
+
+        private CountingStorage(FileStorageService delegate) {
+            super(delegate);
+        }
+
+        @Override
+        public InputStream downloadRange(String fileUrl, long offset, long length) {
+            rangeRequests.incrementAndGet();
+            if (failuresToInject.getAndDecrement() > 0) {
+                return super.downloadRange(fileUrl, offset, length / 2);
+            }
+            return super.downloadRange(fileUrl, offset, length);
+        }
+    }
+}
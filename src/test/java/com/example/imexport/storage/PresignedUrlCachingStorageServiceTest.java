@@ -0,0 +1,68 @@
+package com.example.imexport.storage;
+
+import com.example.imexport.config.ImExportProperties;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+
+/**
+ * 临时访问链接缓存测试
+ */
+public class PresignedUrlCachingStorageServiceTest {
+
+    private final AtomicInteger presigns = new AtomicInteger();
+
+    private PresignedUrlCachingStorageService newCache(int maxEntries) {
+        ImExportProperties.PresignedUrlCache config = new ImExportProperties.PresignedUrlCache();
+        config.setSafetyMargin(Duration.ofMinutes(5));
+        config.setMaxEntries(maxEntries);
+        InMemoryFileStorageService storage = new InMemoryFileStorageService() {
+
+            @Override
+            public String generatePresignedUrl(String fileUrl, long expirationSeconds) {
+                return fileUrl + "?expires=" + expirationSeconds + "&signature=" + presigns.incrementAndGet();
+            }
+        };
+        return new PresignedUrlCachingStorageService(storage, config);
+    }
+
+    @Test
+    public void testUrlReusedPerObjectAndExpiration() {
+        PresignedUrlCachingStorageService cache = newCache(100);
+
+        String first = cache.generatePresignedUrl("oss://bucket/a.csv", 3600);
+        assertEquals(first, cache.generatePresignedUrl("oss://bucket/a.csv", 3600));
+        assertNotEquals(first, cache.generatePresignedUrl("oss://bucket/a.csv", 7200));
+        assertNotEquals(first, cache.generatePresignedUrl("oss://bucket/b.csv", 3600));
+        assertEquals(3, presigns.get());
+
+        // 有效期不大于安全余量的链接不缓存
+        cache.generatePresignedUrl("oss://bucket/a.csv", 60);
+        cache.generatePresignedUrl("oss://bucket/a.csv", 60);
+        assertEquals(5, presigns.get());
+        assertEquals(1L, cache.snapshot().get("hits").longValue());
+    }
+
+    @Test
+    public void testLeastRecentlyUsedEvictedBeyondMaxEntries() {
+        PresignedUrlCachingStorageService cache = newCache(2);
+
+        cache.generatePresignedUrl("oss://bucket/a.csv", 3600);
+        cache.generatePresignedUrl("oss://bucket/b.csv", 3600);
+        cache.generatePresignedUrl("oss://bucket/a.csv", 3600);
+        cache.generatePresignedUrl("oss://bucket/c.csv", 3600);
+        assertEquals(3, presigns.get());
+
+        // b 最久未使用被淘汰
+        cache.generatePresignedUrl("oss://bucket/a.csv", 3600);
+        assertEquals(3, presigns.get());
+        cache.generatePresignedUrl("oss://bucket/b.csv", 3600);
+        assertEquals(4, presigns.get());
+        assertEquals(2L, cache.snapshot().get("entries").longValue());
+        assertEquals(2L, cache.snapshot().get("evicted").longValue());
+    }
+}
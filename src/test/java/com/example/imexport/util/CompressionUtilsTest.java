@@ -0,0 +1,68 @@
+package com.example.imexport.util;
+
+import com.example.imexport.core.Compression;
+import org.junit.jupiter.api.Test;
+import org.springframework.util.StreamUtils;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+/**
+ * 导出压缩与导入解压测试
+ */
+public class CompressionUtilsTest {
+
+    private static final String CONTENT = "id,name\n1,alice\n2,bob\n";
+
+    @Test
+    public void testGzipRoundTrip() throws IOException {
+        byte[] compressed = compress(Compression.GZIP, CONTENT);
+        assertEquals("users.csv.gz", Compression.GZIP.fileName("users.csv"));
+        assertEquals("application/gzip", Compression.GZIP.contentType("text/csv"));
+
+        try (InputStream inputStream = CompressionUtils.decompressIfGzip(new ByteArrayInputStream(compressed))) {
+            assertEquals(CONTENT, StreamUtils.copyToString(inputStream, StandardCharsets.UTF_8));
+        }
+    }
+
+    @Test
+    public void testPlainInputPassesThrough() throws IOException {
+        byte[] plain = CONTENT.getBytes(StandardCharsets.UTF_8);
+        try (InputStream inputStream = CompressionUtils.decompressIfGzip(new ByteArrayInputStream(plain))) {
+            assertEquals(CONTENT, StreamUtils.copyToString(inputStream, StandardCharsets.UTF_8));
+        }
+        try (InputStream inputStream = CompressionUtils.decompressIfGzip(new ByteArrayInputStream(new byte[0]))) {
+            assertEquals(-1, inputStream.read());
+        }
+    }
+
+    @Test
+    public void testZipContainsSingleEntry() throws IOException {
+        byte[] compressed = compress(Compression.ZIP, CONTENT);
+        assertEquals("users.zip", Compression.ZIP.fileName("users.csv"));
+
+        try (ZipInputStream zip = new ZipInputStream(new ByteArrayInputStream(compressed))) {
+            ZipEntry entry = zip.getNextEntry();
+            assertEquals("users.csv", entry.getName());
+            assertEquals(CONTENT, StreamUtils.copyToString(zip, StandardCharsets.UTF_8));
+            assertNull(zip.getNextEntry());
+        }
+    }
+
+    private static byte[] compress(Compression compression, String content) throws IOException {
+        ByteArrayOutputStream target = new ByteArrayOutputStream();
+        try (OutputStream outputStream = compression.wrap(target, "users.csv")) {
+            outputStream.write(content.getBytes(StandardCharsets.UTF_8));
+        }
+        return target.toByteArray();
+    }
+}
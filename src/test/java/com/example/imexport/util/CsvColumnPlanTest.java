@@ -0,0 +1,48 @@
+package com.example.imexport.util;
+
+import com.example.imexport.example.UserCsvModel;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * CSV 列写出计划测试
+ */
+public class CsvColumnPlanTest {
+
+    private static final String[] HEADERS = {"用户名", "邮箱", "手机号", "年龄", "部门"};
+
+    @Test
+    public void testAllColumns() {
+        CsvColumnPlan plan = CsvColumnPlan.of(UserCsvModel.class, HEADERS);
+
+        assertArrayEquals(HEADERS, plan.getHeaders());
+        assertArrayEquals(new String[]{"user1", "user1@example.com", "", "21", "技术部"}, plan.toRow(buildUser()));
+    }
+
+    @Test
+    public void testProjectedColumnsInRequestedOrder() {
+        CsvColumnPlan plan = CsvColumnPlan.of(UserCsvModel.class, HEADERS, Arrays.asList("age", "username"));
+
+        assertArrayEquals(new String[]{"年龄", "用户名"}, plan.getHeaders());
+        assertArrayEquals(new String[]{"21", "user1"}, plan.toRow(buildUser()));
+    }
+
+    @Test
+    public void testUnknownColumnRejected() {
+        assertThrows(IllegalArgumentException.class,
+            () -> CsvColumnPlan.of(UserCsvModel.class, HEADERS, Arrays.asList("username", "password")));
+    }
+
+    private UserCsvModel buildUser() {
+        UserCsvModel user = new UserCsvModel();
+        user.setUsername("user1");
+        user.setEmail("user1@example.com");
+        user.setAge(21);
+        user.setDepartment("技术部");
+        return user;
+    }
+}
@@ -0,0 +1,97 @@
+package com.example.imexport.util;
+
+import com.example.imexport.core.TaskCancelledException;
+import com.example.imexport.example.UserCsvModel;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * CSV 分批读取测试
+ */
+public class CsvUtilsTest {
+
+    private static final String[] HEADERS = {"用户名", "邮箱", "手机号", "年龄", "部门"};
+
+    @Test
+    public void testReadInBatches() throws IOException {
+        List<Integer> batchSizes = new ArrayList<>();
+        List<UserCsvModel> users = new ArrayList<>();
+
+        int parsedRows = CsvUtils.readCsv(new ByteArrayInputStream(csv(25)), UserCsvModel.class, HEADERS, 10, batch -> {
+            batchSizes.add(batch.size());
+            users.addAll(batch);
+        });
+
+        assertEquals(25, parsedRows);
+        assertEquals(Arrays.asList(10, 10, 5), batchSizes);
+        assertEquals("user24", users.get(24).getUsername());
+        assertEquals(Integer.valueOf(24), users.get(24).getAge());
+        assertEquals(25, CsvUtils.readCsv(new ByteArrayInputStream(csv(25)), UserCsvModel.class, HEADERS).size());
+    }
+
+    @Test
+    public void testStopsReadingWhenBatchConsumerThrows() {
+        byte[] content = csv(20000);
+        CountingInputStream inputStream = new CountingInputStream(new ByteArrayInputStream(content));
+        List<Integer> batchSizes = new ArrayList<>();
+
+        // 模拟第一批解析完成后任务被取消
+        assertThrows(TaskCancelledException.class, () -> CsvUtils.readCsv(inputStream, UserCsvModel.class, HEADERS, 1000,
+            batch -> {
+                batchSizes.add(batch.size());
+                throw new TaskCancelledException("任务已取消");
+            }));
+
+        assertEquals(Arrays.asList(1000), batchSizes);
+        assertTrue(inputStream.bytesRead < content.length / 2,
+            "取消后不应继续读取: read=" + inputStream.bytesRead + ", total=" + content.length);
+    }
+
+    private static byte[] csv(int rows) {
+        StringBuilder content = new StringBuilder(String.join(",", HEADERS)).append('\n');
+        for (int i = 0; i < rows; i++) {
+            content.append("user").append(i).append(",user").append(i).append("@example.com,138")
+                .append(String.format("%08d", i)).append(',').append(i).append(",研发部\n");
+        }
+        return content.toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static class CountingInputStream extends FilterInputStream {
+
+        private long bytesRead;
+
+        private CountingInputStream(InputStream in) {
+            super(in);
+        }
+
+        @Override
+        public int read() throws IOException {
+            int b = super.read();
+            if (b >= 0) {
+                bytesRead++;
+            }
+            return b;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            int read = super.read(b, off, len);
+            if (read > 0) {
+                bytesRead += read;
+            }
+            return read;
+        }
+    }
+}
@@ -0,0 +1,57 @@
+package com.example.imexport.util;
+
+import com.example.imexport.example.UserCsvModel;
+import org.junit.jupiter.api.Test;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * 查询参数规范化与还原测试
+ */
+public class ExportParamsUtilsTest {
+
+    @Test
+    public void testCanonicalJsonIgnoresKeyOrder() {
+        Map<String, Object> first = new LinkedHashMap<>();
+        first.put("department", "技术部");
+        first.put("age", 30);
+        Map<String, Object> second = new LinkedHashMap<>();
+        second.put("age", 30);
+        second.put("department", "技术部");
+
+        assertEquals(ExportParamsUtils.toCanonicalJson(first), ExportParamsUtils.toCanonicalJson(second));
+    }
+
+    @Test
+    public void testRestoreParamsFromCanonicalJson() {
+        UserCsvModel params = new UserCsvModel();
+        params.setDepartment("技术部");
+        params.setAge(30);
+
+        Object restored = ExportParamsUtils.fromCanonicalJson(
+            ExportParamsUtils.toCanonicalJson(params), UserCsvModel.class.getName());
+
+        assertEquals(params, restored);
+        assertNull(ExportParamsUtils.fromCanonicalJson("", null));
+        assertThrows(IllegalArgumentException.class,
+            () -> ExportParamsUtils.fromCanonicalJson("{}", "com.example.NotExists"));
+    }
+
+    @Test
+    public void testUnserializableParamsRejected() {
+        // 退化为 toString 会得到含对象地址的字符串，相同参数的哈希不同且无法还原
+        assertThrows(IllegalArgumentException.class, () -> ExportParamsUtils.toCanonicalJson(new BrokenParams()));
+    }
+
+    private static class BrokenParams {
+
+        public String getDepartment() {
+            throw new IllegalStateException("无法读取");
+        }
+    }
+}
@@ -0,0 +1,23 @@
+package com.example.imexport.util;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * 摘要工具测试
+ */
+public class HashUtilsTest {
+
+    @Test
+    public void testToHexPadsEveryByte() {
+        assertEquals("00010f10ff80", HashUtils.toHex(new byte[]{0, 1, 15, 16, -1, -128}));
+        assertEquals("", HashUtils.toHex(new byte[0]));
+    }
+
+    @Test
+    public void testSha256Hex() {
+        assertEquals("e3b0c44298fc1c149afbf4c8996fb92427ae41e4649b934ca495991b7852b855", HashUtils.sha256Hex(""));
+        assertEquals(64, HashUtils.sha256Hex("技术部").length());
+    }
+}